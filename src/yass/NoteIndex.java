@@ -0,0 +1,212 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Beats, ends and pages of the notes of a table, for lookups by beat or page without walking the rows.
+ * <p>
+ * Notes are kept in row order with their beat and end, page breaks by their row. Beats and ends of a song are
+ * ascending, so they are found by binary search; if a song is out of order, the lookups walk the arrays in row
+ * order like the table did. The index is built again when the version of the rows changed, that is when rows were
+ * added, removed, replaced or edited, see {@link #isCurrent}.
+ * <p>
+ * As before, lookups by beat ignore the last row, which is the end of the song.
+ */
+class NoteIndex {
+    private List<YassRow> rows = null;
+    private long version = -1;
+
+    private int[] noteRows = new int[0];
+    private int[] beats = new int[0];
+    private int[] ends = new int[0];
+    private int notes = 0;
+    // notes before the last row
+    private int beatNotes = 0;
+    private boolean beatsSorted = true;
+    private boolean endsSorted = true;
+    private int[] breakRows = new int[0];
+    private int breaks = 0;
+
+    /**
+     * @return whether the index was built from these rows and none of them changed since
+     */
+    boolean isCurrent(List<YassRow> rows, long version) {
+        return this.rows == rows && this.version == version;
+    }
+
+    void rebuild(List<YassRow> rows, long version) {
+        int n = rows.size();
+        if (noteRows.length < n) {
+            noteRows = new int[n];
+            beats = new int[n];
+            ends = new int[n];
+        }
+        notes = 0;
+        breaks = 0;
+        for (int i = 0; i < n; i++) {
+            YassRow r = rows.get(i);
+            if (r.isNote()) {
+                noteRows[notes] = i;
+                beats[notes] = r.getBeatInt();
+                ends[notes] = beats[notes] + r.getLengthInt();
+                notes++;
+            } else if (r.isPageBreak()) {
+                if (breaks == breakRows.length) {
+                    breakRows = Arrays.copyOf(breakRows, Math.max(16, 2 * breaks));
+                }
+                breakRows[breaks++] = i;
+            }
+        }
+        beatNotes = notes > 0 && noteRows[notes - 1] == n - 1 ? notes - 1 : notes;
+        beatsSorted = isAscending(beats, beatNotes);
+        endsSorted = isAscending(ends, beatNotes);
+        this.rows = rows;
+        this.version = version;
+    }
+
+    /**
+     * @return row of the first note starting at the beat, or -1
+     */
+    int getNoteAtBeat(int beat) {
+        return getNoteAt(beats, beatsSorted, beat);
+    }
+
+    /**
+     * @return row of the first note ending at the beat, or -1
+     */
+    int getNoteEndingAtBeat(int beat) {
+        return getNoteAt(ends, endsSorted, beat);
+    }
+
+    /**
+     * @return row of the closest note starting at or before the beat, or -1
+     */
+    int getNoteBeforeBeat(int beat) {
+        return getNoteBefore(beats, beatsSorted, beat);
+    }
+
+    /**
+     * @return row of the closest note ending at or before the beat, or -1
+     */
+    int getNoteEndingBeforeBeat(int beat) {
+        return getNoteBefore(ends, endsSorted, beat);
+    }
+
+    int getPageCount() {
+        return breaks + 1;
+    }
+
+    /**
+     * @return page number of a row, counting the page breaks before it
+     */
+    int getPageNumber(int row) {
+        return 1 + lowerBound(breakRows, breaks, row);
+    }
+
+    /**
+     * @return row of the first note of a page, or -1
+     */
+    int getFirstNoteOfPage(int page) {
+        if (page < 1 || page > breaks + 1) {
+            return -1;
+        }
+        int after = page == 1 ? -1 : breakRows[page - 2];
+        int before = page <= breaks ? breakRows[page - 1] : Integer.MAX_VALUE;
+        int k = lowerBound(noteRows, notes, after + 1);
+        return k < notes && noteRows[k] < before ? noteRows[k] : -1;
+    }
+
+    private int getNoteAt(int[] values, boolean sorted, int beat) {
+        if (sorted) {
+            int k = lowerBound(values, beatNotes, beat);
+            return k < beatNotes && values[k] == beat ? noteRows[k] : -1;
+        }
+        for (int k = 0; k < beatNotes; k++) {
+            if (values[k] == beat) {
+                return noteRows[k];
+            }
+        }
+        return -1;
+    }
+
+    private int getNoteBefore(int[] values, boolean sorted, int beat) {
+        if (sorted) {
+            int k = upperBound(values, beatNotes, beat);
+            // the first of the notes at the closest beat
+            return k == 0 ? -1 : noteRows[lowerBound(values, k, values[k - 1])];
+        }
+        // stop at the first note after the beat
+        int best = -1;
+        int min = Integer.MAX_VALUE;
+        for (int k = 0; k < beatNotes && values[k] <= beat; k++) {
+            if (beat - values[k] < min) {
+                min = beat - values[k];
+                best = noteRows[k];
+            }
+        }
+        return best;
+    }
+
+    private static boolean isAscending(int[] values, int length) {
+        for (int k = 1; k < length; k++) {
+            if (values[k] < values[k - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return first position whose value is greater than the key, or the length
+     */
+    private static int upperBound(int[] values, int length, int key) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return first position whose value is not less than the key, or the length
+     */
+    private static int lowerBound(int[] values, int length, int key) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
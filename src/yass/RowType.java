@@ -0,0 +1,66 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass;
+
+/**
+ * Kind of a {@link YassRow}, by the tag in its first column.
+ */
+public enum RowType {
+    NORMAL(":"),
+    GOLDEN("*"),
+    FREESTYLE("F"),
+    RAP("R"),
+    RAP_GOLDEN("G"),
+    PAGE_BREAK("-"),
+    COMMENT("#"),
+    END("E"),
+    OTHER("");
+
+    RowType(String tag) {
+        this.tag = tag;
+    }
+
+    final String tag;
+
+    public String getTag() {
+        return tag;
+    }
+
+    public boolean isNote() {
+        return ordinal() <= RAP_GOLDEN.ordinal();
+    }
+
+    public static RowType of(String tag) {
+        if (tag == null || tag.length() != 1) {
+            return OTHER;
+        }
+        return switch (tag.charAt(0)) {
+            case ':' -> NORMAL;
+            case '*' -> GOLDEN;
+            case 'F' -> FREESTYLE;
+            case 'R' -> RAP;
+            case 'G' -> RAP_GOLDEN;
+            case '-' -> PAGE_BREAK;
+            case '#' -> COMMENT;
+            case 'E' -> END;
+            default -> OTHER;
+        };
+    }
+}
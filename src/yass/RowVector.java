@@ -0,0 +1,221 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Vector;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Rows of a {@link YassTableModel} that count their changes, since they are added, removed, replaced and edited
+ * directly. Rows tell the list they were last added to about their edits, so other tables are not bothered.
+ */
+class RowVector extends Vector<YassRow> {
+    private static final long serialVersionUID = 1L;
+    // edits of rows owned by this list
+    private long edits = 0;
+    // changes of the comment rows and their tags
+    private long commentChanges = 0;
+
+    RowVector(int initialCapacity, int capacityIncrement) {
+        super(initialCapacity, capacityIncrement);
+    }
+
+    RowVector(Collection<? extends YassRow> rows) {
+        super(rows);
+        for (YassRow r : this) {
+            adopt(r);
+        }
+    }
+
+    /**
+     * @return a number that changes whenever a row is added, removed, replaced or edited
+     */
+    long getVersion() {
+        return modCount + edits;
+    }
+
+    /**
+     * @return a number that changes whenever a comment row is added, removed, replaced or moved, or its tag is edited
+     */
+    long getCommentVersion() {
+        return commentChanges;
+    }
+
+    /**
+     * Called by an owned row after one of its columns was set.
+     *
+     * @param tag whether the tag of a comment row was set, or the row became or stopped being a comment
+     */
+    void rowEdited(boolean tag) {
+        edits++;
+        if (tag) {
+            commentChanges++;
+        }
+    }
+
+    private void adopt(YassRow row) {
+        row.setOwner(this);
+        if (row.isComment()) {
+            commentChanges++;
+        }
+    }
+
+    private void removed(Object row) {
+        if (row instanceof YassRow r && r.isComment()) {
+            commentChanges++;
+        }
+    }
+
+    @Override
+    public synchronized boolean add(YassRow row) {
+        adopt(row);
+        return super.add(row);
+    }
+
+    @Override
+    public void add(int index, YassRow row) {
+        insertElementAt(row, index);
+    }
+
+    @Override
+    public synchronized void addElement(YassRow row) {
+        adopt(row);
+        super.addElement(row);
+    }
+
+    @Override
+    public synchronized void insertElementAt(YassRow row, int index) {
+        adopt(row);
+        super.insertElementAt(row, index);
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends YassRow> rows) {
+        for (YassRow r : rows) {
+            adopt(r);
+        }
+        return super.addAll(rows);
+    }
+
+    @Override
+    public synchronized boolean addAll(int index, Collection<? extends YassRow> rows) {
+        for (YassRow r : rows) {
+            adopt(r);
+        }
+        return super.addAll(index, rows);
+    }
+
+    @Override
+    public synchronized YassRow set(int index, YassRow row) {
+        adopt(row);
+        removed(elementAt(index));
+        modCount++;
+        return super.set(index, row);
+    }
+
+    @Override
+    public synchronized void setElementAt(YassRow row, int index) {
+        adopt(row);
+        removed(elementAt(index));
+        modCount++;
+        super.setElementAt(row, index);
+    }
+
+    @Override
+    public synchronized YassRow remove(int index) {
+        removed(elementAt(index));
+        return super.remove(index);
+    }
+
+    @Override
+    public synchronized void removeElementAt(int index) {
+        removed(elementAt(index));
+        super.removeElementAt(index);
+    }
+
+    @Override
+    public synchronized boolean removeElement(Object row) {
+        if (contains(row)) {
+            removed(row);
+        }
+        return super.removeElement(row);
+    }
+
+    @Override
+    public boolean remove(Object row) {
+        return removeElement(row);
+    }
+
+    // bulk changes are not looked at row by row
+
+    @Override
+    public synchronized void removeAllElements() {
+        commentChanges++;
+        super.removeAllElements();
+    }
+
+    @Override
+    public synchronized boolean removeAll(Collection<?> rows) {
+        commentChanges++;
+        return super.removeAll(rows);
+    }
+
+    @Override
+    public synchronized boolean retainAll(Collection<?> rows) {
+        commentChanges++;
+        return super.retainAll(rows);
+    }
+
+    @Override
+    public synchronized boolean removeIf(Predicate<? super YassRow> filter) {
+        commentChanges++;
+        return super.removeIf(filter);
+    }
+
+    @Override
+    protected synchronized void removeRange(int fromIndex, int toIndex) {
+        commentChanges++;
+        super.removeRange(fromIndex, toIndex);
+    }
+
+    @Override
+    public synchronized void setSize(int newSize) {
+        commentChanges++;
+        super.setSize(newSize);
+    }
+
+    @Override
+    public synchronized void replaceAll(UnaryOperator<YassRow> operator) {
+        commentChanges++;
+        super.replaceAll(operator);
+        for (YassRow r : this) {
+            r.setOwner(this);
+        }
+    }
+
+    @Override
+    public synchronized void sort(Comparator<? super YassRow> c) {
+        commentChanges++;
+        super.sort(c);
+    }
+}
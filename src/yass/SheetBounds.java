@@ -0,0 +1,140 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Height and beat range of the notes of all tracks of the sheet, kept up to date row by row.
+ * <p>
+ * The values every row contributed when it was last counted are remembered, and each value is counted in a
+ * sorted map, so replacing a row is logarithmic and the bounds are the first and last keys. The sheet recounts
+ * the rows of an edit instead of walking all tracks.
+ */
+class SheetBounds {
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private final TreeMap<Integer, Integer> heights = new TreeMap<>();
+    private final TreeMap<Integer, Integer> beats = new TreeMap<>();
+    private final TreeMap<Integer, Integer> ends = new TreeMap<>();
+    // end of notes and page breaks, which the sheet must be wide enough for
+    private final TreeMap<Integer, Integer> outs = new TreeMap<>();
+    // per track and row: height, beat, end, out
+    private int[][][] counted = new int[0][][];
+
+    /**
+     * Counts all rows of all tracks.
+     */
+    void reset(List<? extends List<YassRow>> tracks) {
+        heights.clear();
+        beats.clear();
+        ends.clear();
+        outs.clear();
+        counted = new int[tracks.size()][][];
+        for (int t = 0; t < tracks.size(); t++) {
+            List<YassRow> rows = tracks.get(t);
+            counted[t] = new int[rows.size()][];
+            for (int i = 0; i < rows.size(); i++) {
+                counted[t][i] = values(rows.get(i));
+                count(counted[t][i], 1);
+            }
+        }
+    }
+
+    /**
+     * @return whether the rows of a track were counted, i.e. no row was added or removed since
+     */
+    boolean covers(int track, int rowCount) {
+        return track >= 0 && track < counted.length && counted[track].length == rowCount;
+    }
+
+    /**
+     * Recounts a row that changed.
+     */
+    void update(int track, int index, YassRow row) {
+        int[] old = counted[track][index];
+        int[] now = values(row);
+        if (!Arrays.equals(old, now)) {
+            count(old, -1);
+            count(now, 1);
+            counted[track][index] = now;
+        }
+    }
+
+    boolean hasNotes() {
+        return !heights.isEmpty();
+    }
+
+    int minHeight() {
+        return heights.isEmpty() ? 0 : heights.firstKey();
+    }
+
+    int maxHeight() {
+        return heights.isEmpty() ? 0 : heights.lastKey();
+    }
+
+    /**
+     * @return the first beat of all notes, or 100000 if there are none
+     */
+    int minBeat() {
+        return beats.isEmpty() ? 100000 : beats.firstKey();
+    }
+
+    /**
+     * @return the end of the last note, or 0 if there are none
+     */
+    int maxBeat() {
+        return ends.isEmpty() ? 0 : ends.lastKey();
+    }
+
+    /**
+     * @return the end of the last note or page break, or 0 if there are none
+     */
+    int outgap() {
+        return outs.isEmpty() ? 0 : Math.max(0, outs.lastKey());
+    }
+
+    private static int[] values(YassRow row) {
+        if (row.isNote()) {
+            int beat = row.getBeatInt();
+            int end = beat + row.getLengthInt();
+            return new int[]{row.getHeightInt(), beat, end, end};
+        }
+        if (row.isPageBreak()) {
+            return new int[]{NONE, NONE, NONE, row.getSecondBeatInt()};
+        }
+        return new int[]{NONE, NONE, NONE, NONE};
+    }
+
+    private void count(int[] values, int delta) {
+        count(heights, values[0], delta);
+        count(beats, values[1], delta);
+        count(ends, values[2], delta);
+        count(outs, values[3], delta);
+    }
+
+    private static void count(TreeMap<Integer, Integer> map, int value, int delta) {
+        if (value != NONE) {
+            map.merge(value, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+}
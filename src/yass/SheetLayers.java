@@ -0,0 +1,121 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Rasterized layers of the sheet, each kept until it is invalidated.
+ * <p>
+ * A layer remembers the visible rectangle and a state value it was painted for; it has to be painted again when
+ * either differs or it was invalidated. The background (sheet, waveform, beat and page lines) is expensive and
+ * rarely changes, the notes change with every selection or hover, so a hover only repaints the notes and a repaint
+ * with nothing invalidated only composes what is cached.
+ */
+class SheetLayers {
+    static final int BACKGROUND = 0;
+    static final int NOTES = 1;
+    private static final int COUNT = 2;
+
+    private final BufferedImage[] images = new BufferedImage[COUNT];
+    private final Rectangle[] painted = new Rectangle[COUNT];
+    private final long[] states = new long[COUNT];
+    // a layer was painted since the last composition
+    private boolean changed = true;
+
+    /**
+     * @return whether the layer holds what would be painted for this rectangle and state
+     */
+    boolean isValid(int layer, Rectangle clip, long state) {
+        return images[layer] != null && clip.equals(painted[layer]) && states[layer] == state;
+    }
+
+    void invalidate(int layer) {
+        painted[layer] = null;
+    }
+
+    void invalidateAll() {
+        for (int i = 0; i < COUNT; i++) {
+            painted[i] = null;
+        }
+    }
+
+    /**
+     * Clears a layer to paint it for a rectangle; the layer is valid afterwards.
+     *
+     * @param config creates the layer image, or null for a plain ARGB image
+     * @return graphics in sheet coordinates, clipped to the rectangle
+     */
+    Graphics2D begin(int layer, Rectangle clip, long state, GraphicsConfiguration config) {
+        BufferedImage img = images[layer];
+        if (img == null || img.getWidth() != clip.width || img.getHeight() != clip.height) {
+            img = config != null
+                    ? config.createCompatibleImage(clip.width, clip.height, Transparency.TRANSLUCENT)
+                    : new BufferedImage(clip.width, clip.height, BufferedImage.TYPE_INT_ARGB);
+            images[layer] = img;
+        }
+        painted[layer] = new Rectangle(clip);
+        states[layer] = state;
+        changed = true;
+
+        Graphics2D g = img.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, clip.width, clip.height);
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setClip(0, 0, clip.width, clip.height);
+        g.translate(-clip.x, -clip.y);
+        return g;
+    }
+
+    /**
+     * Draws all layers into the image, unless none was painted since the last time.
+     *
+     * @return whether the image was drawn
+     */
+    boolean compose(BufferedImage target) {
+        if (!changed) {
+            return false;
+        }
+        Graphics2D g = target.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, target.getWidth(), target.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        for (BufferedImage img : images) {
+            if (img != null) {
+                g.drawImage(img, 0, 0, null);
+            }
+        }
+        g.dispose();
+        changed = false;
+        return true;
+    }
+
+    /**
+     * Draws the layers into the image on the next composition, e.g. because it was replaced.
+     */
+    void recompose() {
+        changed = true;
+    }
+}
@@ -643,7 +643,8 @@ public class SongHeader extends JPanel implements YassSheetListener {
                                                   .toString()
                                                   .equalsIgnoreCase(UltrastarHeaderTag.VOCALS.toString()) &&
                 prop.getBooleanProperty("debug-waveform") && player.getTempFile() != null) {
-            PitchDetector.PitchDetectionResult pitchDetectionResult = PitchDetector.detectPitchWithRaw(player.getTempFile(), prop, player.getKey());
+            PitchDetector.PitchDetectionResult pitchDetectionResult = PitchDetector.detectPitchWithRaw(
+                    player.getTempFile(), prop, player.getKey(), player.getPitchCacheFile());
             player.setRawPitchDataList(pitchDetectionResult.rawPitchData());
             player.setPitchDataList(pitchDetectionResult.processedPitchData());
             actions.getSheet().repaint();
@@ -19,28 +19,23 @@
 
 package yass;
 
-import org.apache.commons.lang3.StringUtils;
-
 import java.util.Arrays;
 
 public enum Timebase {
-    NORMAL(1, "speedone24Icon", 1d, StringUtils.EMPTY),
-    SLOWER(2, "speedtwo24Icon", 0.75d, "atempo=0.75"),
-    SLOW(3, "speedthree24Icon", 0.5d, "atempo=0.5"),
-    SLOWEST(4, "speedfour24Icon", 0.25d, "atempo=0.5,atempo=0.5");
+    NORMAL(1, "speedone24Icon", 1d),
+    SLOWER(2, "speedtwo24Icon", 0.75d),
+    SLOW(3, "speedthree24Icon", 0.5d),
+    SLOWEST(4, "speedfour24Icon", 0.25d);
 
-    Timebase(int id, String icon, double timerate, String filter) {
+    Timebase(int id, String icon, double timerate) {
         this.id = id;
         this.icon = icon;
         this.timerate = timerate;
-        this.filter = filter;
     }
     
     final int id;
     final String icon;
     final double timerate;
-    
-    final String filter;
 
     public int getId() {
         return id;
@@ -53,10 +48,6 @@ public enum Timebase {
         return timerate;
     }
 
-    public String getFilter() {
-        return filter;
-    }
-
     public double getMultiplier() {
         return 1 / timerate;
     }
@@ -1443,7 +1443,7 @@ public class YassActions implements DropTargetListener {
                 }
                 if (audioTag == UltrastarHeaderTag.VOCALS && prop.getBooleanProperty("debug-waveform")) {
                     PitchDetector.PitchDetectionResult pitchDetectionResult = PitchDetector.detectPitchWithRaw(
-                            mp3.getTempFile(), prop, mp3.getKey());
+                            mp3.getTempFile(), prop, mp3.getKey(), mp3.getPitchCacheFile());
                     mp3.setRawPitchDataList(pitchDetectionResult.rawPitchData());
                     mp3.setPitchDataList(pitchDetectionResult.processedPitchData());
                 }
@@ -2764,6 +2764,10 @@ public class YassActions implements DropTargetListener {
             String filename = prop.getProperty("songlist-cache");
             File f = new File(filename);
             f.delete();
+            filename = prop.getProperty("songlist-cache-binary");
+            if (filename != null) {
+                new File(filename).delete();
+            }
             filename = prop.getProperty("playlist-cache");
             f = new File(filename);
             f.delete();
@@ -18,6 +18,8 @@
 
 package yass;
 
+import yass.analysis.LivePitchTracker;
+import yass.audio.CaptureRing;
 import yass.renderer.YassPlayerNote;
 
 import javax.sound.sampled.*;
@@ -28,43 +30,33 @@ import java.awt.event.WindowEvent;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Description of the Class
+ * Tracks the pitch sung into microphones. Every device is read on its own thread, whose pitch trackers follow
+ * each channel in semitones and cents; the player picks up the latest notes with {@link #query(String)}.
  *
  * @author Saruta
  */
 public class YassCaptureAudio {
 
     private final static Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
-    private final static float MAX_8_BITS_SIGNED = Byte.MAX_VALUE;
-    private final static float MAX_8_BITS_UNSIGNED = 0xff;
-    private final static float MAX_16_BITS_SIGNED = Short.MAX_VALUE;
-    private final static float MAX_16_BITS_UNSIGNED = 0xffff;
     private final static int BUFFER_SIZE = 256;
-    private byte[] buffer = new byte[BUFFER_SIZE];
     private static Hashtable<String, Integer> channelsHash = new Hashtable<>();
     // "0.05", "0.1", "0.15", "0.2"
     double minlevel = Double.parseDouble("0.5");
-    // "1", "2", "4", "8"
-    int micboost = Integer.parseInt("64");
-    Hashtable<String, TargetDataLine> linesHash = new Hashtable<>();
+    Hashtable<String, DeviceCapture> captures = new Hashtable<>();
     private Color leftColor = new Color(51, 153, 255);
     private Color rightColor = new Color(255, 51, 51);
-    private double maxpitchprob = 1;
     private Vector<YassPlayerNote> notesLeft = null;
     private Vector<YassPlayerNote> notesRight = null;
     private YassAudioMonitor monitor = null;
-    private boolean stopCapture = false;
     private AudioFormat audioFormat = new AudioFormat(8000, 8, 2, true, false);
-    private TargetDataLine line;
-    private int currentPitch = YassPlayerNote.NOISE;
-    private double currentLevel = 0;
-    private long currentMillis = 0;
-    private int LEFT = 0;
-    private int RIGHT = 1;
-    private double pitchprob[] = new double[12];
+    private DeviceCapture monitorCapture = null;
+    private final static int LEFT = 0;
+    private final static int RIGHT = 1;
 
     /**
      * Constructor for the YassCaptureAudio object
@@ -121,197 +113,6 @@ public class YassCaptureAudio {
         return m.toArray(new String[]{});
     }
 
-    /**
-     * Gets the currentPitch attribute of the YassCaptureAudio object
-     *
-     * @param channel Description of the Parameter
-     * @return The currentPitch value
-     */
-    public YassPlayerNote getCurrentNote(int channel) {
-        int available = line.available();
-        if (available < buffer.length) {
-            return new YassPlayerNote(YassPlayerNote.NOISE, 0, 0);
-        }
-
-        line.read(buffer, 0, buffer.length);
-
-        // "0.05", "0.1", "0.15", "0.2"
-        float level = calculateLevel(channel);
-        boolean noise = level < minlevel;
-        int pitch = noise ? YassPlayerNote.NOISE : calculatePitch(channel);
-
-        currentPitch = pitch;
-        currentLevel = level;
-        currentMillis = System.currentTimeMillis();
-        return new YassPlayerNote(currentPitch, currentLevel, currentMillis);
-    }
-
-    /**
-     * Gets the currentNote attribute of the YassCaptureAudio object
-     *
-     * @param line    Description of the Parameter
-     * @param channel Description of the Parameter
-     * @return The currentNote value
-     */
-    public YassPlayerNote getCurrentNote(TargetDataLine line, int channel) {
-        int available = line.available();
-        if (available < buffer.length) {
-            return new YassPlayerNote(YassPlayerNote.NOISE, 0, 0);
-        }
-
-        line.read(buffer, 0, buffer.length);
-
-        // "0.05", "0.1", "0.15", "0.2"
-        float level = calculateLevel(channel);
-        boolean noise = level < minlevel;
-        int pitch = noise ? YassPlayerNote.NOISE : calculatePitch(channel);
-
-        currentPitch = pitch;
-        currentLevel = level;
-        currentMillis = System.currentTimeMillis();
-        return new YassPlayerNote(currentPitch, currentLevel, currentMillis);
-    }
-
-    /**
-     * Description of the Method
-     *
-     * @param channel Description of the Parameter
-     * @return Description of the Return Value
-     */
-    public int calculatePitch(int channel) {
-        for (int p = 0; p < 12; p++) {
-            pitchprob[p] = 0;
-        }
-
-        int maxp = -1;
-        maxpitchprob = 0;
-        double f = 130.81;// middle-C
-        int basepitch = 0;
-        double cor = 0;
-        for (int p = 0; p < 36; p++) {
-            // for (int p = 0; p < 12; p++) {
-            basepitch = p % 12;
-            // 1.05946309436 = 12th root of 2 = pitch difference between two
-            // half-tones
-            // multiply a note (frequency) by 1.0546309436 to get the next note
-
-            f = 130.81 * Math.pow(1.05946309436, p) / 2;
-            cor = autocorrelate(f, channel);
-            pitchprob[basepitch] = Math.max(cor, pitchprob[basepitch]);
-            if (cor > maxpitchprob) {
-                maxpitchprob = cor;
-                maxp = basepitch;
-            }
-            // f *= 1.05946309436;// /2.0
-        }
-        return maxp;
-    }
-
-    /**
-     * Description of the Method
-     *
-     * @param f       Description of the Parameter
-     * @param channel Description of the Parameter
-     * @return Description of the Return Value
-     */
-    public double autocorrelate(double f, int channel) {
-        int buffersize = buffer.length;
-
-        double n = 0;
-        int i = 0;
-        int src = channel == LEFT ? 0 : 1;
-        int move = (int) Math.round(8000 / f);
-        if (move % 2 == 1) {
-            move++;
-        }
-
-        for (int dst = src + move; dst < buffersize; i++) {
-            n += Math.abs(buffer[src] - buffer[dst]) / 10000.0;
-            src += 2;
-            dst += 2;
-        }
-
-        return 1 - micboost * (n / (double) i);
-    }
-
-    /**
-     * Description of the Method
-     *
-     * @param channel Description of the Parameter
-     * @return Description of the Return Value
-     */
-    public float calculateLevel(int channel) {
-        float level = 0;
-
-        int max = 0;
-        boolean use16Bit = (audioFormat.getSampleSizeInBits() == 16);
-        boolean signed = (audioFormat.getEncoding() == AudioFormat.Encoding.PCM_SIGNED);
-        boolean bigEndian = (audioFormat.isBigEndian());
-        if (use16Bit) {
-            for (int i = 0; i < buffer.length; i += 2) {
-                int value = 0;
-                // deal with endianness
-                int hiByte = (bigEndian ? buffer[i] : buffer[i + 1]);
-                int loByte = (bigEndian ? buffer[i + 1] : buffer[i]);
-                if (signed) {
-                    short shortVal = (short) hiByte;
-                    shortVal = (short) ((shortVal << 8) | (byte) loByte);
-                    value = shortVal;
-                } else {
-                    value = (hiByte << 8) | loByte;
-                }
-                max = Math.max(max, value);
-            }
-        } else {
-            // 8 bit - no endianness issues, just sign
-            if (channel == LEFT) {
-                for (int i = 0; i < buffer.length; i += 2) {
-                    int value = 0;
-                    if (signed) {
-                        value = buffer[i];
-                    } else {
-                        short shortVal = 0;
-                        shortVal = (short) (shortVal | buffer[i]);
-                        value = shortVal;
-                    }
-                    max = Math.max(max, value);
-                }
-            } else {
-                for (int i = 1; i < buffer.length; i += 2) {
-                    int value = 0;
-                    if (signed) {
-                        value = buffer[i];
-                    } else {
-                        short shortVal = 0;
-                        shortVal = (short) (shortVal | buffer[i]);
-                        value = shortVal;
-                    }
-                    max = Math.max(max, value);
-                }
-            }
-        }
-        // 8 bit
-        // express max as float of 0.0 to 1.0 of max value
-        // of 8 or 16 bits (signed or unsigned)
-
-        // max = (int) (max * Math.pow(max / MAX_8_BITS_SIGNED, 2.2));
-
-        if (signed) {
-            if (use16Bit) {
-                level = (float) max / MAX_16_BITS_SIGNED;
-            } else {
-                level = (float) max / MAX_8_BITS_SIGNED;
-            }
-        } else {
-            if (use16Bit) {
-                level = (float) max / MAX_16_BITS_UNSIGNED;
-            } else {
-                level = (float) max / MAX_8_BITS_UNSIGNED;
-            }
-        }
-        return level;
-    }
-
     /**
      * Description of the Method
      */
@@ -354,34 +155,21 @@ public class YassCaptureAudio {
     }
 
     /**
-     * Gets the channelActive attribute of the YassCaptureAudio object
+     * Opens a device and starts to track it on its own thread, see {@link #query(String)}.
      *
      * @param name Description of the Parameter
      */
     public void startQuery(String name) {
-        if (linesHash.get(name) != null) {
+        if (captures.get(name) != null) {
             return;
         }
-
-        int micIndex = -1;
-        Mixer.Info[] mixerInfo = AudioSystem.getMixerInfo();
-        for (int i = 0; i < mixerInfo.length; i++) {
-            if (mixerInfo[i].getName().equals(name)) {
-                micIndex = i;
-                break;
-            }
-        }
-        if (micIndex < 0) {
+        TargetDataLine line = openLine(name);
+        if (line == null) {
             return;
         }
-        try {
-            Mixer mixer = AudioSystem.getMixer(mixerInfo[micIndex]);
-            TargetDataLine line = (TargetDataLine) mixer.getLine(new DataLine.Info(TargetDataLine.class, audioFormat));
-            line.open(audioFormat);
-            line.start();
-            linesHash.put(name, line);
-        } catch (Exception e) {
-        }
+        DeviceCapture capture = new DeviceCapture(name, line, null);
+        captures.put(name, capture);
+        capture.start();
     }
 
     /**
@@ -390,80 +178,78 @@ public class YassCaptureAudio {
      * @param name Description of the Parameter
      */
     public void stopQuery(String name) {
-        TargetDataLine line = linesHash.get(name);
-        if (line == null) {
-            return;
-        }
-        try {
-            line.close();
-        } catch (Exception e) {
+        DeviceCapture capture = captures.remove(name);
+        if (capture != null) {
+            capture.close();
         }
-        linesHash.remove(name);
     }
 
     /**
-     * Description of the Method
+     * Gets the notes of both channels of the oldest frame that a device tracked since the last query, timed by the
+     * clock of {@link #alignClock(long, double)}. The notes are reused by the next query.
      *
      * @param name Description of the Parameter
-     * @return Description of the Return Value
+     * @return left and right note, or null if no frame is waiting
      */
     public YassPlayerNote[] query(String name) {
-        YassPlayerNote left = new YassPlayerNote(YassPlayerNote.NOISE, 0, 0);
-        YassPlayerNote right = new YassPlayerNote(YassPlayerNote.NOISE, 0, 0);
+        DeviceCapture capture = captures.get(name);
+        return capture != null ? capture.poll() : null;
+    }
 
-        TargetDataLine line = linesHash.get(name);
-        try {
-            if (line.available() < buffer.length) {
-                // try {
-                // Thread.currentThread().sleep(10);
-                // }
-                // catch (Exception e) {}
-                return null;
-            }
-            left = getCurrentNote(line, LEFT);
-            right = getCurrentNote(line, RIGHT);
-        } catch (Exception e) {
+    /**
+     * Aligns the queried devices to a clock, e.g. the playback position, and drops the frames tracked before.
+     * Afterwards, notes are timed by the sample frame of the device at the centre of their window, converted to
+     * that clock.
+     *
+     * @param millis    the time of the clock now
+     * @param clockRate clock millis per millisecond of audio, e.g. less than 1 for slowed playback
+     */
+    public void alignClock(long millis, double clockRate) {
+        for (DeviceCapture capture : captures.values()) {
+            capture.align(millis, clockRate);
         }
-        return new YassPlayerNote[]{left, right};
     }
 
     /**
-     * Description of the Method
+     * Gets the latency of a device: the delay of the pitch tracker and its analysis time, plus the samples that
+     * wait to be read.
      *
-     * @return Description of the Return Value
+     * @param name Description of the Parameter
+     * @return The latency in seconds, 0 if the device is not queried
      */
-    public boolean openLine(String name) {
-        try {
-            int micIndex = -1;
-
-            Mixer.Info[] mixerInfo = AudioSystem.getMixerInfo();
-            for (int i = 0; i < mixerInfo.length; i++) {
-                if (name == null
-                        && mixerInfo[i].getName().indexOf("USBMIC") >= 0) {
-                    micIndex = i;
-                    break;
-                }
-                if (mixerInfo[i].getName().equals(name)) {
-                    micIndex = i;
-                    break;
-                }
-            }
-            if (micIndex < 0) {
-                System.err.println("Capture device not found: " + name);
-                return false;
-            }
-            // LOGGER.info(audioFormat);
+    public double getLatency(String name) {
+        DeviceCapture capture = captures.get(name);
+        return capture != null ? capture.getLatency() : 0;
+    }
 
-            Mixer mixer = AudioSystem.getMixer(mixerInfo[micIndex]);
-            line = (TargetDataLine) mixer.getLine(new DataLine.Info(TargetDataLine.class, audioFormat));
+    /**
+     * Opens and starts a device.
+     *
+     * @param name device name; null for the first device named USBMIC
+     * @return the line, or null if it cannot be opened
+     */
+    private TargetDataLine openLine(String name) {
+        Mixer.Info found = null;
+        for (Mixer.Info info : AudioSystem.getMixerInfo()) {
+            if (name == null ? info.getName().contains("USBMIC") : info.getName().equals(name)) {
+                found = info;
+                break;
+            }
+        }
+        if (found == null) {
+            LOGGER.info("Capture device not found: " + name);
+            return null;
+        }
+        try {
+            Mixer mixer = AudioSystem.getMixer(found);
+            TargetDataLine line = (TargetDataLine) mixer.getLine(new DataLine.Info(TargetDataLine.class, audioFormat));
             line.open(audioFormat);
             line.start();
+            return line;
         } catch (Exception e) {
-            System.err.println("Capture failed.");
-            e.printStackTrace();
-            return false;
+            LOGGER.log(Level.INFO, "Capture failed: " + name, e);
+            return null;
         }
-        return true;
     }
 
     /**
@@ -472,14 +258,24 @@ public class YassCaptureAudio {
      * @return Description of the Return Value
      */
     public boolean startCapture(String device) {
-        boolean ok = openLine(device);
-        if (!ok) {
+        TargetDataLine line = openLine(device);
+        if (line == null) {
             return false;
         }
-
-        stopCapture = false;
-        Thread captureThread = new CaptureThread();
-        captureThread.start();
+        if (monitor != null) {
+            if (notesLeft == null) {
+                notesLeft = new Vector<>(4096);
+                notesRight = new Vector<>(4096);
+            }
+            if (notesLeft.size() < 1) {
+                for (int i = 0; i < 100; i++) {
+                    notesLeft.addElement(new YassPlayerNote(YassPlayerNote.NOISE, 0, 0));
+                    notesRight.addElement(new YassPlayerNote(YassPlayerNote.NOISE, 0, 0));
+                }
+            }
+        }
+        monitorCapture = new DeviceCapture(device, line, this::showNotes);
+        monitorCapture.start();
         return true;
     }
 
@@ -487,9 +283,20 @@ public class YassCaptureAudio {
      * Description of the Method
      */
     public void stopCapture() {
-        stopCapture = true;
-        if (line != null)
-            line.close();
+        if (monitorCapture != null) {
+            monitorCapture.close();
+            monitorCapture = null;
+        }
+    }
+
+    private void showNotes(DeviceCapture capture) {
+        YassPlayerNote[] notes = capture.poll();
+        if (monitor == null || notes == null) {
+            return;
+        }
+        notesLeft.addElement(new YassPlayerNote(notes[LEFT]));
+        notesRight.addElement(new YassPlayerNote(notes[RIGHT]));
+        monitor.repaint();
     }
 
     class YassAudioMonitor extends JPanel {
@@ -517,8 +324,6 @@ public class YassCaptureAudio {
             double levelLeft = currentLeft.getLevel();
             double levelRight = currentRight.getLevel();
 
-            boolean noiseLeft = levelLeft < minlevel;
-            boolean noiseRight = levelRight < minlevel;
 
             int w = getSize().width;
             int h = getSize().height;
@@ -550,29 +355,6 @@ public class YassCaptureAudio {
                 g.fillRect(20, h - y - 1, w - 20, 2);
             }
 
-            if (!noiseLeft || !noiseRight) {
-                g.setColor(Color.lightGray);
-                g2.setStroke(new BasicStroke(3, BasicStroke.CAP_ROUND,
-                        BasicStroke.JOIN_ROUND));
-                if (pitchprob != null) {
-                    g.setColor(Color.gray);
-                    int lastx = -1;
-                    int lasty = -1;
-                    for (int i = 0; i < 12; i++) {
-                        int y = (int) ((i + 1) / 12.0 * (h - 10));
-                        int x = (int) (pitchprob[i] / maxpitchprob * (w - 30));
-                        y = h - y;
-                        if (i == 0) {
-                            lastx = x;
-                            lasty = y;
-                        }
-                        g.drawLine(lastx, lasty, x, y);
-                        lastx = x;
-                        lasty = y;
-                    }
-                }
-            }
-
             int x = 20;
             int last = YassPlayerNote.NOISE;
 
@@ -588,7 +370,7 @@ public class YassCaptureAudio {
                     continue;
                 }
 
-                int py = n.getHeight() + 1;
+                int py = Math.floorMod(n.getHeight(), 12) + 1;
                 int y = (int) (py / 12.0 * (h - 10));
                 if (last == YassPlayerNote.NOISE || Math.abs(py - lastpy) > 4) {
                     last = y;
@@ -617,7 +399,7 @@ public class YassCaptureAudio {
                     continue;
                 }
 
-                int py = n.getHeight() + 1;
+                int py = Math.floorMod(n.getHeight(), 12) + 1;
                 int y = (int) (py / 12.0 * (h - 10));
                 if (last == YassPlayerNote.NOISE || Math.abs(py - lastpy) > 4) {
                     last = y;
@@ -635,46 +417,161 @@ public class YassCaptureAudio {
         }
     }
 
-    class CaptureThread extends Thread {
-        public void run() {
-            if (monitor != null) {
-                if (notesLeft == null) {
-                    notesLeft = new Vector<>(4096);
-                    notesRight = new Vector<>(4096);
-                }
-                if (notesLeft.size() < 1) {
-                    for (int i = 0; i < 100; i++) {
-                        notesLeft.addElement(new YassPlayerNote(
-                                YassPlayerNote.NOISE, 0, 0));
-                        notesRight.addElement(new YassPlayerNote(
-                                YassPlayerNote.NOISE, 0, 0));
-                    }
-                }
+    /**
+     * Reads a device on its own thread and tracks the pitch of its channels. Reading blocks until a buffer is
+     * full, so the thread follows the device. Every frame of the trackers is queued in a {@link CaptureRing},
+     * stamped with the sample frame of the line at the centre of its window; {@link #poll()} converts the frame
+     * to the time of the clock the capture was aligned to, so notes keep their place however late they are
+     * picked up. Nothing is allocated while capturing.
+     */
+    class DeviceCapture extends Thread {
+        private static final int RING_CAPACITY = 64;
+        private final TargetDataLine line;
+        private final Consumer<DeviceCapture> listener;
+        private final int channels;
+        private final int frameSize;
+        private final float rate;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final float[][] samples;
+        private final LivePitchTracker[] trackers;
+        private final CaptureRing ring;
+        // producer side
+        private final int[] heights;
+        private final int[] cents;
+        private final float[] levels;
+        // consumer side
+        private final int[] polledHeights;
+        private final int[] polledCents;
+        private final float[] polledLevels;
+        private final YassPlayerNote[] notes;
+        private volatile double backlog = 0;
+        private volatile boolean running = true;
+        private long fed = 0;
+        private long tracked = 0;
+        // clock millis at frame 0, and clock millis per frame
+        private double originMillis;
+        private double millisPerFrame;
+
+        /**
+         * @param listener called on the capture thread whenever frames were queued, or null
+         */
+        DeviceCapture(String name, TargetDataLine line, Consumer<DeviceCapture> listener) {
+            super("Capture " + name);
+            setDaemon(true);
+            this.line = line;
+            this.listener = listener;
+            AudioFormat format = line.getFormat();
+            channels = format.getChannels();
+            frameSize = format.getFrameSize();
+            rate = format.getSampleRate();
+            samples = new float[channels][BUFFER_SIZE / frameSize];
+            trackers = new LivePitchTracker[channels];
+            for (int c = 0; c < channels; c++) {
+                trackers[c] = new LivePitchTracker(rate);
+            }
+            ring = new CaptureRing(RING_CAPACITY, channels);
+            heights = new int[channels];
+            cents = new int[channels];
+            levels = new float[channels];
+            polledHeights = new int[channels];
+            polledCents = new int[channels];
+            polledLevels = new float[channels];
+            notes = new YassPlayerNote[Math.max(2, channels)];
+            for (int c = 0; c < notes.length; c++) {
+                notes[c] = new YassPlayerNote(YassPlayerNote.NOISE, 0, 0);
             }
+            // wall clock until aligned
+            align(System.currentTimeMillis(), 1);
+        }
 
+        public void run() {
             try {
-                while (!stopCapture) {
-                    if (line.available() < buffer.length) {
-                        try {
-                            Thread.currentThread();
-                            Thread.sleep(10);
-                        } catch (Exception e) {
+                while (running) {
+                    int n = line.read(buffer, 0, buffer.length);
+                    if (n <= 0) {
+                        if (!line.isOpen()) {
+                            break;
+                        }
+                        continue;
+                    }
+                    // position of the line after the last sample that was read
+                    long end = line.getLongFramePosition();
+                    int frames = n / frameSize;
+                    for (int f = 0; f < frames; f++) {
+                        for (int c = 0; c < channels; c++) {
+                            // 8 bit signed
+                            samples[c][f] = buffer[f * frameSize + c] / 128f;
                         }
+                    }
+                    for (int c = 0; c < channels; c++) {
+                        trackers[c].process(samples[c], 0, frames);
+                    }
+                    fed += frames;
+                    backlog = line.available() / (double) frameSize / rate;
+                    if (trackers[0].getFrames() == tracked) {
                         continue;
                     }
-                    YassPlayerNote pnoteLeft = getCurrentNote(LEFT);
-                    YassPlayerNote pnoteRight = getCurrentNote(RIGHT);
-                    // LOGGER.info(pnoteLeft.getLevel()+"/"+pnoteRight.getLevel());
-
-                    if (monitor != null) {
-                        notesLeft.addElement(pnoteLeft);
-                        notesRight.addElement(pnoteRight);
-                        monitor.repaint();
+                    tracked = trackers[0].getFrames();
+                    long centre = end - (fed - Math.round(trackers[0].getTime() * rate));
+                    for (int c = 0; c < channels; c++) {
+                        LivePitchTracker tracker = trackers[c];
+                        boolean noise = !tracker.isVoiced() || tracker.getLevel() < minlevel;
+                        heights[c] = noise ? YassPlayerNote.NOISE : tracker.getHeight();
+                        cents[c] = noise ? 0 : tracker.getCents();
+                        levels[c] = (float) tracker.getLevel();
+                    }
+                    ring.offer(centre, heights, cents, levels);
+                    if (listener != null) {
+                        listener.accept(this);
                     }
                 }
             } catch (Exception e) {
-                e.printStackTrace();
+                LOGGER.log(Level.INFO, "Capture stopped: " + getName(), e);
+            }
+        }
+
+        /**
+         * Maps the sample frame being captured now to a time and drops the queued frames; consumer only.
+         *
+         * @param millis    the time now
+         * @param clockRate clock millis per millisecond of audio
+         */
+        void align(long millis, double clockRate) {
+            // the line counts the frames that were read, the others still wait in its buffer
+            long now = line.getLongFramePosition() + line.available() / frameSize;
+            millisPerFrame = clockRate * 1000 / rate;
+            originMillis = millis - now * millisPerFrame;
+            ring.clear();
+        }
+
+        /**
+         * Fills the notes with the oldest queued frame; consumer only.
+         *
+         * @return the notes, or null if no frame is queued
+         */
+        YassPlayerNote[] poll() {
+            long position = ring.poll(polledHeights, polledCents, polledLevels);
+            if (position < 0) {
+                return null;
+            }
+            long millis = Math.round(originMillis + position * millisPerFrame);
+            for (int c = 0; c < channels; c++) {
+                notes[c].setHeight(polledHeights[c]);
+                notes[c].setCents(polledCents[c]);
+                notes[c].setLevel(polledLevels[c]);
+                notes[c].setStartMillis(millis);
             }
+            return notes;
+        }
+
+        double getLatency() {
+            return trackers[0].getLatency() + backlog;
+        }
+
+        void close() {
+            running = false;
+            line.stop();
+            line.close();
         }
     }
 }
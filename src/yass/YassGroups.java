@@ -18,6 +18,7 @@
 
 package yass;
 
+import yass.filter.FacetCounter;
 import yass.filter.YassFilter;
 
 import javax.swing.*;
@@ -65,7 +66,8 @@ public class YassGroups extends JTable implements DropTargetListener {
     private Hashtable<String, YassFilter> filters = new Hashtable<>();
     private String group = null, rule = null;
     private YassSongList songList = null;
-    private Vector<Integer> counters = new Vector<>();
+    private volatile Vector<Integer> counters = new Vector<>();
+    private volatile FacetCounter facets = null;
     private RefresherThread refresher = null;
     private Hashtable<String, JToolBar> toolbars = null;
     private JToolBar defTool = null;
@@ -226,10 +228,35 @@ public class YassGroups extends JTable implements DropTargetListener {
             }
         }
 
+        facets = null;
         refresher = new RefresherThread();
         refresher.start();
     }
 
+    /**
+     * Updates the counters after songs changed, by moving the songs to the buckets of their new facets.
+     *
+     * @param songs the changed songs
+     * @return false if the counters of this group cannot be updated, and must be refreshed
+     */
+    public boolean updateCounters(Collection<YassSong> songs) {
+        FacetCounter fc = facets;
+        if (fc == null) {
+            return false;
+        }
+        for (YassSong s : songs) {
+            fc.add(s);
+        }
+        Vector<Integer> v = new Vector<>();
+        for (Object t : gm.getData()) {
+            YassFilter f = filters.get(group + "-" + t);
+            v.addElement(f.count() ? fc.count(f) : -1);
+        }
+        counters = v;
+        SwingUtilities.invokeLater(this::repaint);
+        return true;
+    }
+
     /**
      * Gets the filter attribute of the YassGroups object
      *
@@ -485,6 +512,7 @@ public class YassGroups extends JTable implements DropTargetListener {
                 String str = (String) tr.getTransferData(DataFlavor.stringFlavor);
 
                 if (f.allowDrop(rule)) {
+                    Vector<YassSong> changed = new Vector<>();
                     boolean doit = true;
                     if (f.confirm()) {
                         int ok = JOptionPane.showConfirmDialog(actions.getTab(), f.getConfirmString(rule), I18.get("groups_drop_title"), JOptionPane.OK_CANCEL_OPTION);
@@ -505,6 +533,7 @@ public class YassGroups extends JTable implements DropTargetListener {
                                     YassSong s = songList.getSong(artist, title);
                                     if (s != null) {
                                         f.drop(rule, s);
+                                        changed.addElement(s);
                                         if (!s.isSaved()) {
                                             songList.setSaved(false);
                                         }
@@ -522,7 +551,7 @@ public class YassGroups extends JTable implements DropTargetListener {
                             LOGGER.log(Level.INFO, e.getMessage(), e);
                         }
                     }
-                    if (f.refreshCounters()) {
+                    if (!updateCounters(changed) && (f.refreshCounters() || f.isFaceted() && !changed.isEmpty())) {
                         refreshCounters();
                     }
                 }
@@ -606,7 +635,19 @@ public class YassGroups extends JTable implements DropTargetListener {
         public boolean notInterrupted = true;
 
         public void run() {
-            counters.removeAllElements();
+            Vector<Integer> v = new Vector<>();
+            counters = v;
+
+            Vector<YassSong> all = songList.getUnfilteredData();
+            YassFilter gf = YassFilter.createFilter(group);
+            FacetCounter fc = null;
+            if (gf != null && gf.isFaceted()) {
+                // one pass over the songs for all rules
+                fc = new FacetCounter(gf);
+                for (Enumeration<YassSong> e = all.elements(); e.hasMoreElements() && notInterrupted; ) {
+                    fc.add(e.nextElement());
+                }
+            }
 
             Vector<?> rules = gm.getData();
             //LOGGER.info("refreshing counters...");
@@ -614,13 +655,16 @@ public class YassGroups extends JTable implements DropTargetListener {
                 String t = (String) en.nextElement();
                 YassFilter f = filters.get(group + "-" + t);
                 if (!f.count()) {
-                    counters.addElement(new Integer(-1));
+                    v.addElement(-1);
+                    continue;
+                }
+                if (fc != null) {
+                    v.addElement(fc.count(f));
                     continue;
                 }
 
                 int n = 0;
 
-                Vector<?> all = songList.getUnfilteredData();
                 f.start(all);
                 for (Enumeration<?> e = all.elements(); e.hasMoreElements() && notInterrupted; ) {
                     YassSong s = (YassSong) e.nextElement();
@@ -630,7 +674,10 @@ public class YassGroups extends JTable implements DropTargetListener {
                 }
                 f.stop();
 
-                counters.addElement(new Integer(n));
+                v.addElement(new Integer(n));
+            }
+            if (fc != null && notInterrupted) {
+                facets = fc;
             }
             //LOGGER.info("refreshing counters done.");
             finished = true;
@@ -461,6 +461,13 @@ public class YassMain extends JFrame {
                 LOGGER.info("Warning: Cannot delete outdated songlist-cache: " + cache.getAbsolutePath());
             }
         }
+        String binaryCacheName = prop.getProperty("songlist-cache-binary");
+        if (StringUtils.isNotBlank(binaryCacheName)) {
+            File cache = new File(binaryCacheName);
+            if (cache.exists() && !cache.delete()) {
+                LOGGER.info("Warning: Cannot delete outdated songlist-cache: " + cache.getAbsolutePath());
+            }
+        }
 
         prop.setProperty("songlist-cache-version", currentCacheVersion);
         prop.store();
@@ -33,8 +33,6 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
@@ -45,12 +43,21 @@ import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.Tag;
 import org.jaudiotagger.tag.TagException;
 import yass.analysis.PitchDetector.PitchData;
+import yass.analysis.PitchTrackCache;
+import yass.audio.AudioTempCache;
+import yass.audio.LoudnessMeter;
+import yass.audio.PcmSource;
+import yass.audio.PcmStore;
+import yass.audio.PlaybackMixer;
+import yass.audio.TimeStretcher;
+import yass.audio.WaveformPeaks;
 import yass.ffmpeg.FFMPEGLocator;
 import yass.musicalkey.MusicalKeyEnum;
 import yass.renderer.YassNote;
 import yass.renderer.YassPlaybackRenderer;
 import yass.renderer.YassPlayerNote;
 import yass.renderer.YassSession;
+import yass.renderer.YassTrack;
 import yass.video.YassVideoDialog;
 
 import javax.sound.sampled.*;
@@ -63,14 +70,19 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleToIntFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -110,15 +122,18 @@ public class YassPlayer {
     private Vector<String> devices = new Vector<>(MAX_PLAYERS);
     private int[] playerdevice = new int[MAX_PLAYERS];
     private int[] playerchannel = new int[MAX_PLAYERS];
-    private YassPlayerNote[] playernote = new YassPlayerNote[MAX_PLAYERS * 2];
     private BufferedImage bgImage = null;
     private Vector<YassPlayerListener> listeners = null;
-    private byte[] audioBytes;
+    private PcmStore audioSamples;
     private AudioFormat audioBytesFormat = null;
     private int audioBytesChannels = 2;
     private float audioBytesSampleRate = 44100;
-    private byte[] overlayAudioBytes;
-    private AudioFormat overlayAudioBytesFormat = null;
+    private PcmStore overlaySamples;
+    private WaveformPeaks waveformPeaks = null;
+    private WaveformPeaks overlayWaveformPeaks = null;
+    private AudioTempCache tempCache = null;
+    private ExecutorService prefetcher = null;
+    private final AtomicLong prefetchGeneration = new AtomicLong();
     public static final String USER_PATH = System.getProperty("user.home") + File.separator + ".yass" + File.separator;
     private Map<Integer, byte[]> LONG_NOTE_MAP;
     private Map<Integer, byte[]> SHORT_NOTE_MAP;
@@ -127,6 +142,9 @@ public class YassPlayer {
     private Timebase playrate = Timebase.NORMAL;
     private File tempFile;
     private AudioFormat pianoFormat;
+    // click and note samples resampled to the frame rate of the last playback
+    private final Map<byte[], byte[]> resampledClicks = new WeakHashMap<>();
+    private float resampledClickRate = 0;
     private HashMap<Long, Thread> playThreadMap = new HashMap<>();
     private List<SourceDataLine> lineList = new ArrayList<>();
 
@@ -139,7 +157,14 @@ public class YassPlayer {
     private AudioFormat sharedLineFormat = null;
     private volatile boolean sharedLineRunning = false;
     private volatile boolean sharedLineInterrupted = false;
-    private final BlockingQueue<Pair<byte[], Runnable>> sharedLineQueue = new LinkedBlockingQueue<>();
+    private volatile long sharedLineGeneration = 0;
+    private final BlockingQueue<LineJob> sharedLineQueue = new LinkedBlockingQueue<>();
+
+    /**
+     * Audio queued for the shared line. Jobs of an older generation were interrupted and are dropped.
+     */
+    private record LineJob(InputStream data, Runnable onStarted, long generation) {
+    }
 
     private List<PitchData> pitchDataList;
     private List<PitchData> rawPitchDataList;
@@ -203,7 +228,7 @@ public class YassPlayer {
             }
             IOUtils.closeQuietly(initialStream);
             IOUtils.closeQuietly(outStream);
-            file = generateTemp(targetFile.getAbsolutePath(), Timebase.NORMAL, file.getAbsolutePath());
+            file = generateTemp(targetFile.getAbsolutePath(), file.getAbsolutePath());
             targetFile.delete();
         } catch (IOException e) {
             e.printStackTrace();
@@ -511,16 +536,19 @@ public class YassPlayer {
             audioBytesFormat = baseFormat;
             audioBytesChannels = baseFormat.getChannels();
             audioBytesSampleRate = baseFormat.getSampleRate();
-            audioBytes = writeByteArray(file);
+            audioSamples = openSamples(file, baseFormat);
+            waveformPeaks = createWaveformPeaks(file, audioSamples);
             duration = (long) (in.getFrameLength() / baseFormat.getFrameRate() * 1000000);
             openSharedLine(baseFormat);
         } catch (UnsupportedAudioFileException e) {
-            audioBytes = null;
+            audioSamples = null;
+            waveformPeaks = null;
             createWaveform = false;
             playbackRenderer.setErrorMessage(I18.get("sheet_msg_audio_format"));
             LOGGER.log(Level.WARNING, "Unsupported audio format for " + file, e);
         } catch (Exception e) {
-            audioBytes = null;
+            audioSamples = null;
+            waveformPeaks = null;
             createWaveform = false;
             String s = e.getMessage();
             if (s == null || !s.equals("Resetting to invalid mark")) {
@@ -545,7 +573,8 @@ public class YassPlayer {
             audioBytesFormat = baseFormat;
             audioBytesChannels = baseFormat.getChannels();
             audioBytesSampleRate = baseFormat.getSampleRate();
-            audioBytes = writeByteArray(tempWavFile);
+            audioSamples = openSamples(tempWavFile, baseFormat);
+            waveformPeaks = createWaveformPeaks(tempWavFile, audioSamples);
             duration = (long) (in.getFrameLength() / baseFormat.getFrameRate() * 1000000);
             openSharedLine(baseFormat);
         } catch (Exception e) {
@@ -726,6 +755,7 @@ public class YassPlayer {
         }
         // Drop any queued audio immediately so a subsequent resume cannot
         // start with stale chunks from the previous playback position.
+        sharedLineGeneration++;
         sharedLineQueue.clear();
         if (sharedLine != null) {
             try {
@@ -939,31 +969,24 @@ public class YassPlayer {
     }
 
     /**
-     * Write a file as byte array, and normalize audio bytes if normalization is activated
+     * Maps the samples of a file and determines their gain if normalization is activated
      *
      * @param file Temporary wave file
      */
-    public byte[] writeByteArray(File file) {
-        try (InputStream inputStream = new FileInputStream(file)) {
-            byte[] pcmData = inputStream.readAllBytes();
-            if ((int) targetDbfs == 0 && (int) replayGain == 0) {
-                return pcmData;
-            }
-            int numSamples = pcmData.length / 2;
-
-            double normalizationFactor;
-            if ((int) replayGain != 0) {
-                normalizationFactor = Math.pow(10.0, replayGain / 20.0);
-            } else {
-                double currentDbfs = 20 * Math.log10(calculateRMS(pcmData, numSamples) / Short.MAX_VALUE);
-                double gainDb = targetDbfs - currentDbfs;
-                normalizationFactor = Math.pow(10.0, gainDb / 20.0);
-            }
-
-            return normalizePCM(pcmData, normalizationFactor);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    private PcmStore openSamples(File file, AudioFormat format) throws IOException {
+        PcmStore samples = PcmStore.open(file, format);
+        if ((int) targetDbfs == 0 && replayGain == 0) {
+            return samples;
+        }
+        double normalizationFactor;
+        if (replayGain != 0) {
+            normalizationFactor = Math.pow(10.0, replayGain / 20.0);
+        } else {
+            double currentDbfs = 20 * Math.log10(samples.rms() / Short.MAX_VALUE);
+            double gainDb = targetDbfs - currentDbfs;
+            normalizationFactor = Math.pow(10.0, gainDb / 20.0);
         }
+        return samples.withGain(normalizationFactor);
     }
 
     /**
@@ -973,42 +996,79 @@ public class YassPlayer {
      * @return The waveFormAtMillis value
      */
     public int getWaveFormAtMillis(double ms) {
-        int bytePosition = findByteAtMilli((int) ms);
-        int data;
-        try {
-            byte lowLeft = audioBytes[bytePosition];
-            byte hiLeft = audioBytes[bytePosition + 1];
-            byte lowRight = audioBytes[bytePosition + 2];
-            byte hiRight = audioBytes[bytePosition + 3];
-
-            int dataLeft = (hiLeft << 8) | (lowLeft & 255);
-            int dataRight = (hiRight << 8) | (lowRight & 255);
-            data = (dataLeft + dataRight) / 2;
-        } catch (Exception e) {
-            data = 0;
+        PcmStore samples = audioSamples;
+        return samples != null ? (int) (128 * samples.monoSampleAt(ms) / 32768.0) : 0;
+    }
+
+    /**
+     * Gets minimum, maximum and RMS of the waveform between two points in time, scaled like
+     * {@link #getWaveFormAtMillis(double)}. Long ranges are read from a precomputed pyramid, so this is fast
+     * at any zoom level.
+     *
+     * @param peak receives the values
+     * @return false if no waveform is available
+     */
+    public boolean getWaveFormPeaks(double fromMs, double toMs, WaveformPeaks.Peak peak) {
+        return getWaveFormPeaks(waveformPeaks, audioSamples, fromMs, toMs, peak, this::getWaveFormAtMillis);
+    }
+
+    public boolean getOverlayWaveFormPeaks(double fromMs, double toMs, WaveformPeaks.Peak peak) {
+        return getWaveFormPeaks(overlayWaveformPeaks, overlaySamples, fromMs, toMs, peak,
+                                this::getOverlayWaveFormAtMillis);
+    }
+
+    private static boolean getWaveFormPeaks(WaveformPeaks peaks, PcmStore samples, double fromMs, double toMs,
+                                            WaveformPeaks.Peak peak, DoubleToIntFunction sample) {
+        if (peaks == null || samples == null) {
+            // unsupported sample format, use a single sample
+            int data = samples != null ? sample.applyAsInt(fromMs) : 0;
+            peak.min = peak.max = data;
+            peak.rms = Math.abs(data);
+            return samples != null;
         }
-        return (int) (128 * data / 32768.0);
+        // the pyramid is built from the samples without gain
+        boolean found = peaks.peak(fromMs, toMs, peak);
+        peak.min = (int) (128 * samples.scale(peak.min) / 32768.0);
+        peak.max = (int) (128 * samples.scale(peak.max) / 32768.0);
+        peak.rms = (float) (128 * Math.min(Short.MAX_VALUE, peak.rms * samples.getGain()) / 32768.0);
+        return found;
     }
 
-    public int getOverlayWaveFormAtMillis(double ms) {
-        if (overlayAudioBytes == null || overlayAudioBytesFormat == null) {
-            return 0;
+    /**
+     * Loads the waveform pyramid of an audio file from its cache next to the temp file, or builds it.
+     *
+     * @return the pyramid, or null if the samples are not 16-bit PCM
+     */
+    private WaveformPeaks createWaveformPeaks(File file, PcmStore samples) {
+        if (samples == null || !samples.isSixteenBit()) {
+            return null;
         }
-        int bytePosition = findByteAtMilli((int) ms, overlayAudioBytes, overlayAudioBytesFormat);
-        int data;
-        try {
-            byte lowLeft = overlayAudioBytes[bytePosition];
-            byte hiLeft = overlayAudioBytes[bytePosition + 1];
-            byte lowRight = overlayAudioBytes[bytePosition + 2];
-            byte hiRight = overlayAudioBytes[bytePosition + 3];
-
-            int dataLeft = (hiLeft << 8) | (lowLeft & 255);
-            int dataRight = (hiRight << 8) | (lowRight & 255);
-            data = (dataLeft + dataRight) / 2;
-        } catch (Exception e) {
-            data = 0;
+        AudioFormat format = samples.getFormat();
+        ByteBuffer pcm = samples.samples();
+        int channels = format.getChannels();
+        // never write next to the user's own audio files
+        boolean cache = file.getAbsoluteFile().toPath().startsWith(getTempCacheDirectory().getAbsoluteFile().toPath());
+        File cacheFile = WaveformPeaks.cacheFile(file);
+        long key = WaveformPeaks.key(file);
+        if (cache) {
+            WaveformPeaks peaks = WaveformPeaks.load(cacheFile, key);
+            if (peaks != null) {
+                peaks.attach(pcm, channels);
+                return peaks;
+            }
         }
-        return (int) (128 * data / 32768.0);
+        WaveformPeaks peaks = WaveformPeaks.build(pcm, channels, format.getFrameRate());
+        if (peaks != null && cache) {
+            Thread t = new Thread(() -> peaks.store(cacheFile, key), "WaveformPeaksWriter");
+            t.setDaemon(true);
+            t.start();
+        }
+        return peaks;
+    }
+
+    public int getOverlayWaveFormAtMillis(double ms) {
+        PcmStore samples = overlaySamples;
+        return samples != null ? (int) (128 * samples.monoSampleAt(ms) / 32768.0) : 0;
     }
 
     public boolean isClicksEnabled() {
@@ -1024,6 +1084,27 @@ public class YassPlayer {
         playClicks = onoff;
     }
 
+    /**
+     * Adds a captured note to a track. It keeps the time it was sung at and is snapped to the current note of the
+     * track; outside of a note it is noise.
+     */
+    private static void addCapturedNote(YassTrack track, YassPlayerNote captured) {
+        YassPlayerNote note = new YassPlayerNote(captured);
+        long millis = note.getStartMillis();
+        YassNote currentTrackNote = track.getNote(track.getCurrentNote());
+        if (currentTrackNote.getStartMillis() <= millis && millis <= currentTrackNote.getEndMillis()) {
+            if (millis < currentTrackNote.getStartMillis() + 10) {
+                note.setStartMillis(currentTrackNote.getStartMillis());
+            }
+            if (millis > currentTrackNote.getEndMillis() - 10) {
+                note.setEndMillis(currentTrackNote.getEndMillis());
+            }
+        } else {
+            note.setHeight(YassPlayerNote.NOISE);
+        }
+        track.addPlayerNote(note);
+    }
+
     public YassCaptureAudio getCapture() {
         return capture;
     }
@@ -1038,34 +1119,24 @@ public class YassPlayer {
     }
 
     public void clearAudioBytes() {
-        audioBytes = null;
-    }
-
-    public byte[] getAudioBytes() {
-        return audioBytes;
-    }
-
-    private int findByteAtMilli(int milli) {
-        return findByteAtMilli(milli, audioBytes, audioBytesFormat);
+        audioSamples = null;
+        waveformPeaks = null;
     }
 
-    private int findByteAtMilli(int milli, byte[] sourceBytes, AudioFormat sourceFormat) {
-        int frameSize = sourceFormat.getFrameSize();
-        double bytesPerMillisecond = sourceFormat.getFrameRate() * frameSize / 1000;
-        int bytePos = Math.min(sourceBytes.length - 1, (int) (milli * bytesPerMillisecond));
-        if (bytePos % frameSize != 0) {
-            bytePos = bytePos - (bytePos % frameSize);
-        }
-        return Math.max(0, bytePos);
+    /**
+     * @return whether the samples of the audio file are loaded
+     */
+    public boolean hasAudioSamples() {
+        return audioSamples != null;
     }
 
     public boolean hasOverlayWaveform() {
-        return overlayAudioBytes != null && overlayAudioBytesFormat != null;
+        return overlaySamples != null;
     }
 
     public void clearOverlayWaveform() {
-        overlayAudioBytes = null;
-        overlayAudioBytesFormat = null;
+        overlaySamples = null;
+        overlayWaveformPeaks = null;
     }
 
     public void loadOverlayWaveform(String filename) {
@@ -1087,30 +1158,14 @@ public class YassPlayer {
             return;
         }
         try (AudioInputStream in = AudioSystem.getAudioInputStream(file)) {
-            AudioFormat baseFormat = in.getFormat();
-            overlayAudioBytesFormat = baseFormat;
-            overlayAudioBytes = writeByteArray(file);
+            overlaySamples = openSamples(file, in.getFormat());
+            overlayWaveformPeaks = createWaveformPeaks(file, overlaySamples);
         } catch (Exception e) {
             clearOverlayWaveform();
             LOGGER.log(Level.INFO, "Could not load overlay waveform for " + filename, e);
         }
     }
 
-    private byte[] getAudioBytesInRange(int startMillis, int endMillis) {
-        return getAudioBytesInRange(startMillis, endMillis, audioBytes, audioBytesFormat);
-    }
-
-    private byte[] getAudioBytesInRange(int startMillis, int endMillis, byte[] sourceBytes, AudioFormat sourceFormat) {
-        if (sourceBytes == null || sourceFormat == null || sourceBytes.length == 0) {
-            return new byte[0];
-        }
-        int startByte = findByteAtMilli(startMillis, sourceBytes, sourceFormat);
-        int endByte = Math.max(startByte, findByteAtMilli(endMillis, sourceBytes, sourceFormat));
-        byte[] audioData = new byte[endByte - startByte];
-        System.arraycopy(sourceBytes, startByte, audioData, 0, endByte - startByte);
-        return audioData;
-    }
-
     /**
      * Description of the Class
      *
@@ -1163,47 +1218,50 @@ public class YassPlayer {
             finished = false;
             started = true;
             File mp3File;
-            byte[] playbackAudioBytes = audioBytes;
+            PcmStore playbackSamples = audioSamples;
             AudioFormat playbackAudioFormat = audioBytesFormat;
             long playbackDurationMicros = getDuration();
             String playbackSource = StringUtils.defaultIfBlank(source, filename);
             LOGGER.fine("PlayThread.playMP3 source=" + playbackSource + " requestedTimebase=" + timebase);
             try {
-                if (timebase == Timebase.NORMAL) {
-                    mp3File = playbackSource.equals(filename) ? tempFile : generateTemp(playbackSource, Timebase.NORMAL);
-                } else {
-                    mp3File = generateTemp(playbackSource, timebase);
-                }
-                setPlayrate(timebase == Timebase.NORMAL ? yass.Timebase.NORMAL : timebase);
-                LOGGER.fine("PlayThread.playMP3 usingFile=" + mp3File + " effectiveTimebase=" + getPlayrate());
+                mp3File = playbackSource.equals(filename) ? tempFile : generateTemp(playbackSource);
             } catch (IOException e) {
                 mp3File = tempFile;
-                // Couldn't generate the alternate ffmpeg conversion, so fall back to normal speed playback.
-                setPlayrate(yass.Timebase.NORMAL);
-                LOGGER.log(Level.FINE, "PlayThread.playMP3 falling back to normal speed for " + playbackSource, e);
+                LOGGER.log(Level.FINE, "PlayThread.playMP3 falling back to " + filename + " for " + playbackSource, e);
             }
-            if (!mp3File.exists()) {
+            // slower speeds are stretched from the normal speed samples while playing
+            setPlayrate(timebase);
+            LOGGER.fine("PlayThread.playMP3 usingFile=" + mp3File + " effectiveTimebase=" + getPlayrate());
+            if (mp3File == null || !mp3File.exists()) {
                 finished = true;
                 return;
             } else {
-                if (timebase == Timebase.NORMAL) {
-                    if (audioBytes == null) {
-                        audioBytes = writeByteArray(mp3File);
+                if (timebase == Timebase.NORMAL || playbackSource.equals(filename)) {
+                    if (audioSamples == null && audioBytesFormat != null) {
+                        try {
+                            audioSamples = openSamples(mp3File, audioBytesFormat);
+                        } catch (IOException e) {
+                            LOGGER.log(Level.INFO, "Could not map playback file " + mp3File, e);
+                            finished = true;
+                            return;
+                        }
+                        waveformPeaks = createWaveformPeaks(mp3File, audioSamples);
                     }
-                    playbackAudioBytes = audioBytes;
+                    playbackSamples = audioSamples;
                     playbackAudioFormat = audioBytesFormat;
                 } else {
                     try (AudioInputStream in = AudioSystem.getAudioInputStream(mp3File)) {
                         playbackAudioFormat = in.getFormat();
                         playbackDurationMicros = (long) (in.getFrameLength() / playbackAudioFormat.getFrameRate() * 1000000);
+                        playbackSamples = openSamples(mp3File, playbackAudioFormat);
                     } catch (UnsupportedAudioFileException | IOException e) {
-                        LOGGER.log(Level.INFO, "Could not inspect slowed playback file " + mp3File, e);
+                        LOGGER.log(Level.INFO, "Could not inspect playback file " + mp3File, e);
                         finished = true;
                         return;
                     }
-                    playbackAudioBytes = writeByteArray(mp3File);
                 }
             }
+            playbackDurationMicros = (long) (playbackDurationMicros * timebase.getMultiplier());
 
             if (DEBUG) {
                 LOGGER.fine("in: " + inpoint);
@@ -1261,7 +1319,7 @@ public class YassPlayer {
                     playbackRenderer.setBackgroundImage(bgImage);
                 }
             }
-            if (playbackAudioBytes == null || playbackAudioFormat == null) {
+            if (playbackSamples == null || playbackAudioFormat == null) {
                 playbackRenderer.setErrorMessage(I18.get("sheet_msg_still_loading"));
                 return;
             }
@@ -1277,20 +1335,25 @@ public class YassPlayer {
                 firePlayerStarted();
                 playbackStartLatch.countDown();
             }; 
-            byte[] pianoAndClicks = createAudioStreamFromClicks(clicks, timebase.timerate, playClicks, midiEnabled, inpoint);
-            byte[] audioData = getAudioBytesInRange(inMillis + (int) seekInOffsetMs,
-                                                    outMillis + (int) seekOutOffsetMs,
-                                                    playbackAudioBytes, playbackAudioFormat);
-            byte[] mixedAudio;
+            float frameRate = playbackAudioFormat.getFrameRate();
+            List<PlaybackMixer.Voice> voices = createClickVoices(clicks, timebase.timerate, playClicks, midiEnabled,
+                                                                  inpoint, frameRate);
+            // in and out are given at the playback speed, the samples are at normal speed
+            double rate = timebase.getTimerate();
+            int frameSize = playbackAudioFormat.getFrameSize();
+            int audioStart = playbackSamples.byteAt((inMillis + seekInOffsetMs) * rate);
+            int audioEnd = playbackSamples.byteAt((outMillis + seekOutOffsetMs) * rate);
+            int audioLength = (int) (Math.max(0, audioEnd - audioStart) / frameSize / rate) * frameSize;
+            PcmSource song = null;
             if (playAudio) {
-                mixedAudio = mixAudioStereo(audioData, pianoAndClicks);
-            } else {
-                mixedAudio = pianoAndClicks;
-            }
-            if (fadeOutMs > 0) {
-                mixedAudio = applyFadeOut(mixedAudio, playbackAudioFormat, fadeOutMs);
+                song = timebase == Timebase.NORMAL
+                        ? playbackSamples.reader(audioStart)
+                        : new TimeStretcher(playbackSamples, audioStart, rate);
             }
-            playAudioData(mixedAudio, playbackAudioFormat, audioData.length, onPlaybackStarted);
+            // song and clicks are mixed block by block while the line plays
+            PlaybackMixer mixer = new PlaybackMixer(song, playbackAudioFormat, audioLength, voices,
+                                                    Math.round(frameRate * fadeOutMs / 1000f));
+            playAudioStream(mixer, playbackAudioFormat, onPlaybackStarted);
             try {
                 playbackStartLatch.await();
             } catch (InterruptedException e) {
@@ -1302,6 +1365,7 @@ public class YassPlayer {
             position = timebase == Timebase.NORMAL ? inpoint : (long) (inpoint * multiplier);
 
             long lastms = System.nanoTime();
+            boolean captureAligned = false;
 
             if (sharedLineInterrupted) {
                 LOGGER.fine("Playback interrupted.");
@@ -1347,39 +1411,23 @@ public class YassPlayer {
 
                             }
                         } else if (useCapture) {
-                            int d = 0;
-                            for (Enumeration<String> devEnum = devices.elements(); devEnum.hasMoreElements(); ) {
-                                String device = devEnum.nextElement();
-                                YassPlayerNote[] note = capture.query(device);
-                                playernote[d++] = note != null ? note[0] : null;
-                                playernote[d++] = note != null ? note[1] : null;
+                            if (!captureAligned) {
+                                capture.alignClock(currentMillis,
+                                                   timebase == Timebase.NORMAL ? 1 : 1 / multiplier);
+                                captureAligned = true;
                             }
-
                             int trackCount = session.getTrackCount();
-                            for (int t = 0; t < trackCount; t++) {
-                                if (playerdevice[t] < 0) {
-                                    continue;
-                                }
-                                YassPlayerNote note = playernote[playerdevice[t] + playerchannel[t]];
-                                if (note == null) {
-                                    continue;
-                                }
-                                note.setStartMillis(currentMillis);
-
-                                int currentNoteIndex = session.getTrack(t).getCurrentNote();
-                                YassNote currentTrackNote = session.getTrack(t).getNote(currentNoteIndex);
-                                if (currentTrackNote.getStartMillis() <= currentMillis
-                                        && currentMillis <= currentTrackNote.getEndMillis()) {
-                                    if (currentMillis < currentTrackNote.getStartMillis() + 10) {
-                                        note.setStartMillis(currentTrackNote.getStartMillis());
-                                    }
-                                    if (currentMillis > currentTrackNote.getEndMillis() - 10) {
-                                        note.setEndMillis(currentTrackNote.getEndMillis());
+                            int d = 0;
+                            for (Enumeration<String> devEnum = devices.elements(); devEnum.hasMoreElements(); d++) {
+                                String device = devEnum.nextElement();
+                                YassPlayerNote[] note;
+                                while ((note = capture.query(device)) != null) {
+                                    for (int t = 0; t < trackCount; t++) {
+                                        if (playerdevice[t] == d) {
+                                            addCapturedNote(session.getTrack(t), note[playerchannel[t]]);
+                                        }
                                     }
-                                } else {
-                                    note.setHeight(YassPlayerNote.NOISE);
                                 }
-                                session.getTrack(t).addPlayerNote(new YassPlayerNote(note));
                             }
                         }
                     }
@@ -1498,20 +1546,15 @@ public class YassPlayer {
     }
 
     public File generateTemp(String source) throws IOException {
-        return generateTemp(source, yass.Timebase.NORMAL);
-    }
-
-    public File generateTemp(String source, Timebase timeBase) throws IOException {
-        return generateTemp(source, timeBase, resolveTempFilename(source, timeBase));
+        return generateTemp(source, resolveTempFilename(source));
     }
 
-    private String resolveTempFilename(String source, Timebase timeBase) throws IOException {
+    private String resolveTempFilename(String source) throws IOException {
         File sourceFile = new File(source);
         File tempDir = getTempCacheDirectory();
         Files.createDirectories(tempDir.toPath());
-        String hash = buildTempAudioHash(sourceFile, timeBase);
-        String suffix = timeBase == yass.Timebase.NORMAL ? "normal" : "speed-" + timeBase.getId();
-        return new File(tempDir, "audio-" + hash + "-" + suffix + ".wav").getAbsolutePath();
+        String hash = buildTempAudioHash(sourceFile);
+        return new File(tempDir, "audio-" + hash + "-normal.wav").getAbsolutePath();
     }
 
     private File getTempCacheDirectory() {
@@ -1522,8 +1565,9 @@ public class YassPlayer {
         return new File(baseDir, "audio-cache");
     }
 
-    private String buildTempAudioHash(File sourceFile, Timebase timeBase) {
-        String fingerprint = sourceFile.getAbsolutePath() + "|" + sourceFile.length() + "|" + sourceFile.lastModified() + "|" + timeBase.getId();
+    private String buildTempAudioHash(File sourceFile) {
+        // temp files are always at normal speed; the speed id keeps the names of existing temp files
+        String fingerprint = sourceFile.getAbsolutePath() + "|" + sourceFile.length() + "|" + sourceFile.lastModified() + "|" + Timebase.NORMAL.getId();
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-1");
             byte[] bytes = digest.digest(fingerprint.getBytes(StandardCharsets.UTF_8));
@@ -1537,47 +1581,115 @@ public class YassPlayer {
         }
     }
 
-    public File generateTemp(String source, Timebase timeBase, String filename) throws IOException {
+    public File generateTemp(String source, String filename) throws IOException {
         if (FFMPEGLocator.getInstance().getFfmpeg() == null) {
             return null;
         }
+        MusicalKeyEnum detectedKey = findKey();
+        if (detectedKey != MusicalKeyEnum.UNDEFINED) {
+            this.key = detectedKey;
+        }
+        File tempFile = new File(filename);
+        AudioTempCache cache = getTempCache();
+        boolean cached = cache.contains(tempFile);
+        AudioTempCache.Entry entry = cached ? cache.lookup(tempFile) : null;
+        if (isUsable(entry)) {
+            // a hit needs no ffprobe and no ffmpeg
+            LOGGER.fine("YassPlayer: reusing cached temp audio " + tempFile.getAbsolutePath());
+        } else {
+            entry = convertTemp(source, tempFile, true);
+            if (cached && tempFile.isFile()) {
+                cache.put(tempFile, entry, tempFilesInUse());
+            }
+        }
+        if (entry.isComplete()) {
+            audioBytesSampleRate = entry.sampleRate();
+            audioBytesChannels = entry.channels();
+        }
+        replayGain = gainOf(entry);
+        return tempFile;
+    }
+
+    /**
+     * @return the gain from the tags of the source, or else the gain to the ReplayGain reference if normalization
+     * is activated
+     */
+    private double gainOf(AudioTempCache.Entry entry) {
+        if (entry.replayGain() != 0 || Math.round(targetDbfs) == 0 || !entry.isMeasured()) {
+            return entry.replayGain();
+        }
+        return LoudnessMeter.replayGain(entry.loudness());
+    }
+
+    /**
+     * @return whether a cache entry can be used with the current normalization settings
+     */
+    private boolean isUsable(AudioTempCache.Entry entry) {
+        return entry != null && entry.isComplete()
+                && (entry.replayGain() != 0 || entry.isMeasured() || Math.round(targetDbfs) == 0);
+    }
+
+    private Set<String> tempFilesInUse() {
+        File file = tempFile;
+        return file != null ? Collections.singleton(file.getName()) : Collections.emptySet();
+    }
+
+    private synchronized AudioTempCache getTempCache() {
+        File dir = getTempCacheDirectory();
+        if (tempCache == null || !tempCache.getDirectory().equals(dir)) {
+            long megabytes = properties != null ? properties.getIntProperty(AudioTempCache.SIZE_PROPERTY) : 0;
+            tempCache = AudioTempCache.load(dir, megabytes > 0 ? megabytes * 1024 * 1024 : Long.MAX_VALUE);
+        }
+        return tempCache;
+    }
+
+    /**
+     * Probes a source and converts it to a temp file, unless the file exists. Does not change the player.
+     * If the source has no gain tags, the loudness of the temp file is measured.
+     *
+     * @param showProgress show a progress window and keep the event queue running while converting
+     * @return what was learned about the source
+     */
+    private AudioTempCache.Entry convertTemp(String source, File tempFile, boolean showProgress)
+            throws IOException {
         FFmpeg ffmpeg = FFMPEGLocator.getInstance().getFfmpeg();
         FFprobe fFprobe = FFMPEGLocator.getInstance().getFfprobe();
         FFmpegProbeResult fFmpegProbeResult = fFprobe.probe(source);
         final Double durationNs;
+        float sampleRate = 0;
+        int sourceChannels = 0;
         FFmpegBuilder fFmpegBuilder = new FFmpegBuilder();
         fFmpegBuilder.addInput(fFmpegProbeResult);
         if (fFmpegProbeResult != null && fFmpegProbeResult.getStreams() != null && !fFmpegProbeResult.getStreams()
                                                                                                      .isEmpty()) {
-            audioBytesSampleRate = fFmpegProbeResult.getStreams().get(0).sample_rate;
-            audioBytesChannels = fFmpegProbeResult.getStreams().get(0).channels;
+            sampleRate = fFmpegProbeResult.getStreams().get(0).sample_rate;
+            sourceChannels = fFmpegProbeResult.getStreams().get(0).channels;
             durationNs = fFmpegProbeResult.getFormat().duration * 1_000_000_000;
         } else {
             durationNs = null;
         }
-        MusicalKeyEnum detectedKey = findKey();
-        if (detectedKey != MusicalKeyEnum.UNDEFINED) {
-            this.key = detectedKey;
-        }
-        replayGain = determineReplayGain(source);
-        File tempFile = new File(filename);
+        AudioTempCache.Entry entry = new AudioTempCache.Entry(0, sampleRate, sourceChannels,
+                                                              durationNs != null ? durationNs / 1_000_000_000 : 0,
+                                                              readReplayGain(fFmpegProbeResult), Double.NaN);
         File parentDir = tempFile.getParentFile();
         if (parentDir != null) {
             Files.createDirectories(parentDir.toPath());
         }
         if (tempFile.isFile() && tempFile.length() > 0) {
             LOGGER.fine("YassPlayer: reusing cached temp audio " + tempFile.getAbsolutePath());
-            return tempFile;
-        }
-        if (timeBase != yass.Timebase.NORMAL) {
-            fFmpegBuilder.setAudioFilter(timeBase.getFilter());
+            return withLoudness(entry, tempFile);
         }
         int channels = 2;
+        String filename = tempFile.getAbsolutePath();
         if (filename.contains("samples") && (filename.contains("longnotes") || filename.contains("shortnotes"))) {
             channels = 1;
         }
+        // convert next to the target and move it there when done, so a half written file is never picked up
+        String partName = StringUtils.removeEndIgnoreCase(tempFile.getName(), ".wav") + "."
+                + Thread.currentThread().getId() + AudioTempCache.PART_SUFFIX;
+        File partFile = new File(tempFile.getParentFile(), partName);
         fFmpegBuilder.overrideOutputFiles(true)
-                     .addOutput(tempFile.getAbsolutePath())
+                     .addOutput(partFile.getAbsolutePath())
                      .setAudioChannels(channels)
                      .setAudioSampleRate(44100)
                      .done();
@@ -1590,20 +1702,29 @@ public class YassPlayer {
             progressHolder.set(progress);
         });
 
-        Thread conversionThread = new Thread(() -> {
+        Runnable conversion = () -> {
             LOGGER.fine("YassPlayer: Starting conversion of " + source + " to " + filename);
-            job.run();
-            LOGGER.fine("YassPlayer: finished converting " + source + " to " + filename);
-        }, "FFmpeg-Conversion-Thread");
+            try {
+                job.run();
+                Files.move(partFile.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.fine("YassPlayer: finished converting " + source + " to " + filename);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not convert " + source, e);
+                partFile.delete();
+            }
+        };
+        if (!showProgress) {
+            conversion.run();
+            return withLoudness(entry, tempFile);
+        }
+        Thread conversionThread = new Thread(conversion, "FFmpeg-Conversion-Thread");
 
         conversionThread.start();
 
         String splashTitle = I18.get("create_lyrics_separate_transcribe_progress_convert");
         String baseName = tempFile.getName();
-        String speedLabel = timeBase == yass.Timebase.NORMAL
-                ? "100%"
-                : Integer.toString((int) Math.round(timeBase.getTimerate() * 100)) + "%";
-        String initialLabel = splashTitle + " - " + baseName + " (" + speedLabel + ")";
+        String initialLabel = splashTitle + " - " + baseName + " (100%)";
         SplashFrame splashFrame = new SplashFrame(splashTitle, initialLabel);
         if (SwingUtilities.isEventDispatchThread()) {
             SecondaryLoop loop = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
@@ -1640,109 +1761,137 @@ public class YassPlayer {
             }
             splashFrame.dispose();
         }
-        return tempFile;
+        return conversionThread.isAlive() ? entry : withLoudness(entry, tempFile);
     }
 
-    private double determineReplayGain(String sourcePath) {
-        FFprobe ffprobe = FFMPEGLocator.getInstance().getFfprobe();
-        if (ffprobe == null) return 0.0;
-
+    /**
+     * Measures the loudness of a converted file in one pass over its samples, unless the source has gain tags.
+     */
+    private static AudioTempCache.Entry withLoudness(AudioTempCache.Entry entry, File wav) {
+        if (entry.replayGain() != 0 || !wav.isFile()) {
+            return entry;
+        }
         try {
-            FFmpegProbeResult probeResult = ffprobe.probe(sourcePath);
-            List<FFmpegStream> streams = probeResult.getStreams();
-
-            if (streams != null && !streams.isEmpty()) {
-                FFmpegStream firstStream = streams.getFirst();
-                String trackGain = firstStream.tags != null ? firstStream.tags.get("R128_TRACK_GAIN") : null;
-                if (trackGain != null) {
-                    try {
-                        double r128Gain = Double.parseDouble(trackGain);
-                        double gain = r128Gain / 256.0;
-                        LOGGER.fine("Found R128_TRACK_GAIN tag: " + gain + " dB. Applying this gain.");
-                        return gain;
-                    } catch (NumberFormatException e) {
-                        LOGGER.warning("Could not parse R128_TRACK_GAIN value: " + trackGain);
-                    }
-                }
-            }
-            FFmpegFormat format = probeResult.getFormat();
-            String gainTag = format.tags != null ? format.tags.get("replaygain_track_gain") : null;
-            if (gainTag == null && format.tags != null) {
-                gainTag = format.tags.get("replaygain_album_gain");
+            PcmStore samples = PcmStore.open(wav, AudioSystem.getAudioFileFormat(wav).getFormat());
+            if (!samples.isSixteenBit()) {
+                return entry;
             }
+            double loudness = LoudnessMeter.measure(samples);
+            LOGGER.fine("YassPlayer: loudness of " + wav.getName() + " is " + loudness + " LUFS");
+            return new AudioTempCache.Entry(entry.size(), entry.sampleRate(), entry.channels(), entry.duration(),
+                                            entry.replayGain(), loudness);
+        } catch (IOException | UnsupportedAudioFileException e) {
+            LOGGER.log(Level.INFO, "Could not measure loudness of " + wav, e);
+            return entry;
+        }
+    }
 
-            if (gainTag != null && gainTag.toLowerCase().contains("db")) {
-                try {
-                    String numericPart = gainTag.toLowerCase().replace("db", "").trim();
-                    double gain = Double.parseDouble(numericPart);
-                    LOGGER.fine("Found ReplayGain tag: " + gain + " dB. Applying this gain.");
-                    return gain;
-                } catch (NumberFormatException e) {
-                    LOGGER.warning("Could not parse ReplayGain value: " + gainTag);
-                }
+    /**
+     * Converts songs that are likely to be played next in the background, so that they open without waiting.
+     * Songs queued by an earlier call are dropped.
+     *
+     * @param sources audio files, most likely first; only the first few are converted, see
+     *                {@link AudioTempCache#PREFETCH_PROPERTY}
+     */
+    public void prefetch(List<String> sources) {
+        int count = properties != null ? properties.getIntProperty(AudioTempCache.PREFETCH_PROPERTY) : 0;
+        if (count <= 0 || sources.isEmpty() || FFMPEGLocator.getInstance().getFfmpeg() == null) {
+            return;
+        }
+        List<String> next = new ArrayList<>(sources.subList(0, Math.min(count, sources.size())));
+        long generation = prefetchGeneration.incrementAndGet();
+        synchronized (this) {
+            if (prefetcher == null) {
+                prefetcher = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "AudioPrefetch");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
             }
-        
-            // If targetDbfs is set and no ReplayGain tag was found, analyze the file with ffmpeg.
-            if (Math.round(targetDbfs) != 0) {
-                FFmpeg ffmpeg = FFMPEGLocator.getInstance().getFfmpeg();
-                if (ffmpeg != null) {
-                    try {
-                        // Use ProcessBuilder for direct control over stderr
-                        List<String> command = new ArrayList<>();
-                        command.add(ffmpeg.getPath());
-                        command.add("-i");
-                        command.add(sourcePath);
-                        command.add("-af");
-                        command.add("replaygain");
-                        command.add("-f");
-                        command.add("null");
-                        command.add("-");
-
-                        ProcessBuilder processBuilder = new ProcessBuilder(command);
-                        processBuilder.redirectErrorStream(true); // Redirect stderr to stdout
-                        Process process = processBuilder.start();
-
-                        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                            String line;
-                            while ((line = reader.readLine()) != null) {
-                                if (line.contains("track_gain")) {
-                                    return parseReplayGainFromLine(line);
-                                }
-                            }
-                        }
-                        process.waitFor();
-                    } catch (IOException | InterruptedException e) {
-                        LOGGER.log(Level.SEVERE, "Error during ffmpeg replaygain analysis", e);
-                        Thread.currentThread().interrupt();
-                    }
+        }
+        prefetcher.execute(() -> {
+            for (String source : next) {
+                if (generation != prefetchGeneration.get()) {
+                    return;
                 }
+                prefetchTemp(source);
             }
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error during ffprobe execution for normalization", e);
+            getTempCache().flush();
+        });
+    }
+
+    private void prefetchTemp(String source) {
+        try {
+            prepareTemp(source);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Could not prefetch " + source, e);
         }
+    }
 
-        return 0.0; // Default: no gain
+    /**
+     * Converts a source at normal speed into the cache, without the UI, unless it is cached already.
+     *
+     * @return the cache entry, or null if the source does not exist or could not be converted
+     */
+    private AudioTempCache.Entry prepareTemp(String source) throws IOException {
+        File file = new File(resolveTempFilename(source));
+        AudioTempCache cache = getTempCache();
+        if (!new File(source).isFile()) {
+            return null;
+        }
+        AudioTempCache.Entry entry = cache.lookup(file);
+        if (isUsable(entry) && (entry.isMeasured() || entry.replayGain() != 0)) {
+            return entry;
+        }
+        entry = convertTemp(source, file, false);
+        if (!file.isFile()) {
+            return null;
+        }
+        cache.put(file, entry, tempFilesInUse());
+        return entry;
     }
 
     /**
-     * Parses a line from the ffmpeg replaygain filter output to extract the track gain.
-     * Example line: [Parsed_replaygain_0 @ 0x...] track_gain = -3.2dB
-     * @param line The output line from ffmpeg.
-     * @return The parsed gain in dB, or 0.0 if parsing fails.
+     * @return the gain in dB from the R128 or ReplayGain tags of a source, 0 if it has none
      */
-    private double parseReplayGainFromLine(String line) {
-        try {
-            String[] parts = line.split("track_gain = ");
-            if (parts.length > 1) {
-                String gainStr = parts[1].replace("dB", "").trim();
-                double gain = Double.parseDouble(gainStr);
-                LOGGER.fine("FFmpeg analysis: ReplayGain track_gain is " + gain + " dB.");
+    private double readReplayGain(FFmpegProbeResult probeResult) {
+        if (probeResult == null) return 0.0;
+
+        List<FFmpegStream> streams = probeResult.getStreams();
+
+        if (streams != null && !streams.isEmpty()) {
+            FFmpegStream firstStream = streams.getFirst();
+            String trackGain = firstStream.tags != null ? firstStream.tags.get("R128_TRACK_GAIN") : null;
+            if (trackGain != null) {
+                try {
+                    double r128Gain = Double.parseDouble(trackGain);
+                    double gain = r128Gain / 256.0;
+                    LOGGER.fine("Found R128_TRACK_GAIN tag: " + gain + " dB. Applying this gain.");
+                    return gain;
+                } catch (NumberFormatException e) {
+                    LOGGER.warning("Could not parse R128_TRACK_GAIN value: " + trackGain);
+                }
+            }
+        }
+        FFmpegFormat format = probeResult.getFormat();
+        String gainTag = format.tags != null ? format.tags.get("replaygain_track_gain") : null;
+        if (gainTag == null && format.tags != null) {
+            gainTag = format.tags.get("replaygain_album_gain");
+        }
+
+        if (gainTag != null && gainTag.toLowerCase().contains("db")) {
+            try {
+                String numericPart = gainTag.toLowerCase().replace("db", "").trim();
+                double gain = Double.parseDouble(numericPart);
+                LOGGER.fine("Found ReplayGain tag: " + gain + " dB. Applying this gain.");
                 return gain;
+            } catch (NumberFormatException e) {
+                LOGGER.warning("Could not parse ReplayGain value: " + gainTag);
             }
-        } catch (NumberFormatException e) {
-            LOGGER.warning("Could not parse track_gain from ffmpeg output: " + line);
         }
-        return 0.0; // Default to no gain if parsing fails
+
+        return 0.0; // Default: no gain
     }
 
     public void playNote(int note) {
@@ -1795,6 +1944,14 @@ public class YassPlayer {
         return tempFile;
     }
 
+    /**
+     * @return where the pitches of the temp file are cached, or null if it is not a cached conversion
+     */
+    public File getPitchCacheFile() {
+        File file = tempFile;
+        return file != null && getTempCache().contains(file) ? PitchTrackCache.cacheFile(file) : null;
+    }
+
     public int getAudioBytesChannels() {
         return audioBytesChannels;
     }
@@ -1855,32 +2012,6 @@ public class YassPlayer {
         return MusicalKeyEnum.UNDEFINED;
     }
 
-    /**
-     * Mischt zwei Stereo-PCM-Byte-Arrays (16 Bit, little endian, signed) sampleweise mit Clipping.
-     * Gibt ein neues Array der Länge des längeren Arrays zurück.
-     */
-    private static byte[] mixAudioStereo(byte[] a, byte[] b) {
-        int len = Math.max(a.length, b.length);
-        byte[] result = new byte[len];
-        for (int i = 0; i < len; i += 2) {
-            short sampleA = 0;
-            short sampleB = 0;
-            if (i + 1 < a.length) {
-                sampleA = (short) ((a[i + 1] << 8) | (a[i] & 0xFF));
-            }
-            if (i + 1 < b.length) {
-                sampleB = (short) ((b[i + 1] << 8) | (b[i] & 0xFF));
-            }
-            int mixed = sampleA + sampleB;
-            if (mixed > Short.MAX_VALUE) mixed = Short.MAX_VALUE;
-            if (mixed < Short.MIN_VALUE) mixed = Short.MIN_VALUE;
-            result[i] = (byte) (mixed & 0xFF);
-            result[i + 1] = (byte) ((mixed >> 8) & 0xFF);
-        }
-        return result;
-    }
-
-
     /**
      * Öffnet eine geteilte SourceDataLine mit dem aktuellen AudioFormat, falls noch nicht vorhanden.
      * Startet einen Thread, der die Queue abarbeitet.
@@ -1899,28 +2030,35 @@ public class YassPlayer {
             sharedLineRunning = true;
             sharedLineThread = new Thread(() -> {
                 try {
+                    // the jobs are rendered into this block while the line plays the previous one
+                    byte[] block = new byte[4096];
                     while (sharedLineRunning) {
-                        Pair<byte[], Runnable> job = sharedLineQueue.take();
-                        byte[] data = job.getLeft();
-                        Runnable callback = job.getRight();
+                        LineJob job = sharedLineQueue.take();
+                        Runnable callback = job.onStarted();
                         boolean callbackCalled = false;
 
-                        int offset = 0;
-                        int blockSize = 1024;
-                        while (offset < data.length && !sharedLineInterrupted) {
-                            int toWrite = Math.min(blockSize, data.length - offset);
-                            int written = sharedLine.write(data, offset, toWrite);
-                            if (written <= 0) {
-                                break;
-                            }
-                            if (!callbackCalled && callback != null) {
-                                try {
-                                    callback.run();
-                                } finally {
-                                    callbackCalled = true;
+                        int length;
+                        while (!sharedLineInterrupted && job.generation() == sharedLineGeneration
+                                && (length = readBlock(job.data(), block)) > 0) {
+                            int offset = 0;
+                            while (offset < length && !sharedLineInterrupted) {
+                                int written = sharedLine.write(block, offset, length - offset);
+                                if (written <= 0) {
+                                    break;
                                 }
+                                if (!callbackCalled && callback != null) {
+                                    try {
+                                        callback.run();
+                                    } finally {
+                                        callbackCalled = true;
+                                    }
+                                }
+                                offset += written;
                             }
-                            offset += written;
+                        }
+                        if (!callbackCalled && callback != null) {
+                            // nothing was played, do not keep the caller waiting
+                            callback.run();
                         }
                     }
                 } catch (InterruptedException e) {
@@ -1978,8 +2116,19 @@ public class YassPlayer {
             return;
         }
         int effectiveLength = Math.min(length, audioData.length);
-        if (effectiveLength <= 0) {
-            LOGGER.fine("YassPlayer.playAudioData: no audio data queued");
+        playAudioStream(new ByteArrayInputStream(audioData, 0, Math.max(0, effectiveLength)), audioFormat, onStarted);
+    }
+
+    /**
+     * Queues audio for the shared line. The stream is read in small blocks while the line plays, so it can
+     * render its data on demand.
+     *
+     * @param data      audio in the given format; {@link InputStream#available()} must not be 0 unless it is empty
+     * @param onStarted called once the first block was written to the line
+     */
+    public void playAudioStream(InputStream data, AudioFormat audioFormat, Runnable onStarted) {
+        if (readAvailable(data) <= 0) {
+            LOGGER.fine("YassPlayer.playAudioStream: no audio data queued");
             if (onStarted != null) {
                 onStarted.run();
             }
@@ -1993,62 +2142,43 @@ public class YassPlayer {
                 sharedLine.start();
             }
             sharedLineInterrupted = false;
-            int offset = 0;
-            int chunkSize = 4096; // z.B.
-            boolean firstChunk = true;
-            while (offset < effectiveLength) {
-                int chunkLength = Math.min(chunkSize, effectiveLength - offset);
-                if (chunkLength <= 0) {
-                    break;
-                }
-                byte[] chunk = Arrays.copyOfRange(audioData, offset, offset + chunkLength);
-                Runnable callback = firstChunk ? onStarted : null;
-                try {
-                    sharedLineQueue.put(new ImmutablePair<>(chunk, callback));
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-                firstChunk = false;
-                offset += chunkLength;
+            try {
+                sharedLineQueue.put(new LineJob(data, onStarted, sharedLineGeneration));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         } else  {
-            LOGGER.fine("YassPlayer.playAudioData: SourceDataLine not open");
+            LOGGER.fine("YassPlayer.playAudioStream: SourceDataLine not open");
             if (onStarted != null) {
                 onStarted.run();
             }
         }
     }
 
-    public double calculateRMS(byte[] pcmData, int numSamples) {
-        long sumSquares = 0;
-
-        for (int i = 0; i < pcmData.length; i += 2) {
-            // 16-Bit-Sample extrahieren (Little-Endian)
-            short sample = ByteBuffer.wrap(pcmData, i, 2).order(ByteOrder.LITTLE_ENDIAN).getShort();
-            sumSquares += sample * sample;
+    private static int readAvailable(InputStream data) {
+        try {
+            return data.available();
+        } catch (IOException e) {
+            return 0;
         }
-
-        // Durchschnitt der Quadrate und Wurzel
-        return Math.sqrt((double) sumSquares / numSamples);
     }
 
-    public byte[] normalizePCM(byte[] pcmData, double factor) {
-        byte[] normalizedData = new byte[pcmData.length];
-
-        for (int i = 0; i < pcmData.length; i += 2) {
-            // 16-Bit-Sample extrahieren
-            short sample = ByteBuffer.wrap(pcmData, i, 2).order(ByteOrder.LITTLE_ENDIAN).getShort();
-            // Skalieren
-            int normalizedSample = (int) (sample * factor);
-
-            // Clipping auf 16-Bit-Bereich
-            normalizedSample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, normalizedSample));
-
-            // Normalisierte Werte zurückschreiben
-            ByteBuffer.wrap(normalizedData, i, 2).order(ByteOrder.LITTLE_ENDIAN).putShort((short) normalizedSample);
+    /**
+     * Fills a block from a stream, unless it ends first.
+     *
+     * @return the number of bytes read
+     */
+    private static int readBlock(InputStream data, byte[] block) {
+        int length = 0;
+        try {
+            int n;
+            while (length < block.length && (n = data.read(block, length, block.length - length)) > 0) {
+                length += n;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Could not read audio for the shared line", e);
         }
-
-        return normalizedData;
+        return length;
     }
 
     public double getTargetDbfs() {
@@ -2071,97 +2201,33 @@ public class YassPlayer {
         return StringUtils.isNotEmpty(filename);
     }
 
-    private byte[] applyFadeOut(byte[] audioData, AudioFormat audioFormat, int fadeOutMs) {
-        if (audioData == null || audioFormat == null || fadeOutMs <= 0) {
-            return audioData;
-        }
-        int frameSize = Math.max(1, audioFormat.getFrameSize());
-        float frameRate = audioFormat.getFrameRate();
-        if (frameRate <= 0) {
-            return audioData;
-        }
-        int totalFrames = audioData.length / frameSize;
-        int fadeFrames = Math.min(totalFrames, Math.max(1, Math.round(frameRate * fadeOutMs / 1000f)));
-        if (fadeFrames <= 0 || fadeFrames >= totalFrames) {
-            return audioData;
-        }
-
-        byte[] faded = Arrays.copyOf(audioData, audioData.length);
-        int channels = Math.max(1, audioFormat.getChannels());
-        int sampleSizeBytes = Math.max(1, audioFormat.getSampleSizeInBits() / 8);
-        if (sampleSizeBytes != 2 || audioFormat.isBigEndian()) {
-            for (int frame = totalFrames - fadeFrames; frame < totalFrames; frame++) {
-                double factor = (double) (totalFrames - frame) / fadeFrames;
-                int frameOffset = frame * frameSize;
-                for (int i = 0; i < frameSize && frameOffset + i < faded.length; i++) {
-                    faded[frameOffset + i] = (byte) Math.round(faded[frameOffset + i] * factor);
-                }
-            }
-            return faded;
-        }
-
-        for (int frame = totalFrames - fadeFrames; frame < totalFrames; frame++) {
-            double factor = (double) (totalFrames - frame) / fadeFrames;
-            int frameOffset = frame * frameSize;
-            for (int channel = 0; channel < channels; channel++) {
-                int sampleOffset = frameOffset + channel * sampleSizeBytes;
-                if (sampleOffset + 1 >= faded.length) {
-                    break;
-                }
-                short sample = ByteBuffer.wrap(faded, sampleOffset, 2)
-                        .order(ByteOrder.LITTLE_ENDIAN)
-                        .getShort();
-                short scaled = (short) Math.round(sample * factor);
-                ByteBuffer.wrap(faded, sampleOffset, 2)
-                        .order(ByteOrder.LITTLE_ENDIAN)
-                        .putShort(scaled);
-            }
-        }
-        return faded;
-    }
-
     /**
-     * Erzeugt einen Stereo-Audio-Stream als Byte-Array aus den übergebenen Clicks.
-     * Mono-Samples werden auf beide Kanäle dupliziert.
+     * Erzeugt die Stimmen der Clicks für den {@link PlaybackMixer}.
+     * Die Samples werden erst beim Abspielen gemischt.
      *
      * @param clicks      Array von Click-Objekten (start, height, end)
      * @param timebase    Gibt die Abspielgeschwindigkeit an (z. B. 0.5 = halb so schnell)
-     * @param playClicks  Wenn true, werden die Noten (Wave/MIDI) ins Array geschrieben
-     * @param midiEnabled Wenn true, werden Piano-Töne wie in playNote ins Array geschrieben
-     * @return Byte-Array mit dem Stereo-Audio-Stream
-     */
-    public byte[] createAudioStreamFromClicks(Click[] clicks, double timebase, boolean playClicks, boolean midiEnabled, long playbackStartUs) {
-        if (clicks == null || clicks.length == 0) return new byte[0];
-
-        // Der Offset ist der Start der Wiedergabe, nicht der Start des ersten Klicks.
-        // Alle Zeitstempel der Klicks werden relativ zu diesem Punkt berechnet.
-        long offset = playbackStartUs;
-
-        long lastEnd = clicks[0].end();
-        for (Click c : clicks) {
-            if (c.end() > lastEnd) lastEnd = c.end();
-        }
-        int sampleRate = 44100;
-        int bytesPerSample = 2; // 16bit PCM
-        int channels = 2; // Stereo
-        // Die Dauer des Streams reicht vom Wiedergabestart bis zum Ende des letzten Klicks.
-        double durationSeconds = ((Math.max(lastEnd, offset) - offset) / 1_000_000.0) / timebase;
-        int totalSamples = (int) (durationSeconds * sampleRate) + sampleRate; // +1s Puffer
-        int totalBytes = totalSamples * bytesPerSample * channels;
-        byte[] audio = new byte[totalBytes];
-
+     * @param playClicks  Wenn true, werden die Noten (Wave/MIDI) gespielt
+     * @param midiEnabled Wenn true, werden Piano-Töne wie in playNote gespielt
+     * @param frameRate   Frames pro Sekunde der Ausgabe
+     * @return Stimmen, mit Frames ab dem Wiedergabestart
+     */
+    public List<PlaybackMixer.Voice> createClickVoices(Click[] clicks, double timebase, boolean playClicks,
+                                                       boolean midiEnabled, long playbackStartUs, float frameRate) {
+        List<PlaybackMixer.Voice> voices = new ArrayList<>();
+        if (clicks == null) {
+            return voices;
+        }
         for (Click click : clicks) {
-            // Berechne die Startposition des Klicks relativ zum Wiedergabestart (offset).
-            // Wenn click.start() > offset, ist startSample > 0, was die Stille am Anfang erzeugt.
-            int startSample = (int) (((click.start() - offset) / 1_000_000.0) / timebase * sampleRate);
-            if (startSample < 0) {
-                // Dieser Klick liegt vor dem Wiedergabestart und wird ignoriert.
+            // Startposition relativ zum Wiedergabestart, Klicks davor werden ignoriert.
+            long startFrame = (long) (((click.start() - playbackStartUs) / 1_000_000.0) / timebase * frameRate);
+            int lengthFrames = (int) (((click.end() - click.start()) / 1_000_000.0) / timebase * frameRate);
+            if (startFrame < 0 || lengthFrames <= 0) {
                 continue;
             }
-            int lengthSamples = (int) (((click.end() - click.start()) / 1_000_000.0) / timebase * sampleRate);
-            if (lengthSamples <= 0) continue;
             byte[] pcm = null;
             boolean isPiano = false;
+            float sampleRate = YassSynth.getSampleRate();
             if (playClicks && !midiEnabled) {
                 if (useWav()) {
                     pcm = drumClick; // Mono
@@ -2172,46 +2238,30 @@ public class YassPlayer {
                     }
                 }
             } else if (midiEnabled) {
-                int note = click.height() + 60;
-                pcm = LONG_NOTE_MAP.get(note);
+                pcm = LONG_NOTE_MAP.get(click.height() + 60);
                 isPiano = true;
+                if (pianoFormat != null) {
+                    sampleRate = pianoFormat.getSampleRate();
+                }
             }
             if (pcm != null) {
-                int maxSamples = Math.min(pcm.length / 2, lengthSamples);
-                int audioMaxSamples = Math.min(lengthSamples, (audio.length / 4) - startSample);
-                int samplesToCopy = Math.min(maxSamples, audioMaxSamples);
-                for (int i = 0; i < samplesToCopy; i++) {
-                    int pcmIndex = i * 2;
-                    int audioIndex = (startSample + i) * 4;
-                    byte lo = pcm[pcmIndex];
-                    byte hi = pcm[pcmIndex + 1];
-                    if (isPiano) {
-                        int fadeSamples = samplesToCopy / 8;
-                        boolean doFade = samplesToCopy > fadeSamples;
-                        short sample = (short) (((hi & 0xFF) << 8) | (lo & 0xFF));
-                        if (doFade && i >= samplesToCopy - fadeSamples) {
-                            double fadeFac = (double) (samplesToCopy - i) / fadeSamples;
-                            sample = (short) (sample * fadeFac);
-                            lo = (byte) (sample & 0xFF);
-                            hi = (byte) ((sample >> 8) & 0xFF);
-                        }
-                        int mixedL = audio[audioIndex] + lo;
-                        int mixedH = audio[audioIndex + 1] + hi;
-                        audio[audioIndex] = (byte) Math.max(Math.min(mixedL, 127), -128);
-                        audio[audioIndex + 1] = (byte) Math.max(Math.min(mixedH, 127), -128);
-                        int mixedRL = audio[audioIndex + 2] + lo;
-                        int mixedRH = audio[audioIndex + 3] + hi;
-                        audio[audioIndex + 2] = (byte) Math.max(Math.min(mixedRL, 127), -128);
-                        audio[audioIndex + 3] = (byte) Math.max(Math.min(mixedRH, 127), -128);
-                    } else {
-                        audio[audioIndex] = lo;
-                        audio[audioIndex + 1] = hi;
-                        audio[audioIndex + 2] = lo;
-                        audio[audioIndex + 3] = hi;
-                    }
-                }
+                pcm = resampleClick(pcm, sampleRate, frameRate);
+                voices.add(new PlaybackMixer.Voice(pcm, startFrame, lengthFrames, isPiano));
+            }
+        }
+        return voices;
+    }
+
+    private byte[] resampleClick(byte[] pcm, float sampleRate, float frameRate) {
+        if (sampleRate == frameRate) {
+            return pcm;
+        }
+        synchronized (resampledClicks) {
+            if (resampledClickRate != frameRate) {
+                resampledClicks.clear();
+                resampledClickRate = frameRate;
             }
+            return resampledClicks.computeIfAbsent(pcm, p -> PlaybackMixer.resample(p, sampleRate, frameRate));
         }
-        return audio;
     }
 }
@@ -117,6 +117,31 @@ public class YassProperties extends Properties {
             if (getProperty("titlecase") == null) {
                 setProperty("titlecase", "off");
             }
+            if (getProperty("songlist-manifest") == null) {
+                setProperty("songlist-manifest", userDir + File.separator + yassDir + File.separator + "songlist-manifest.txt");
+            }
+            if (getProperty("library-watch") == null) {
+                setProperty("library-watch", "true");
+            }
+            if (getProperty("library-filter-delay") == null) {
+                setProperty("library-filter-delay", "150");
+            }
+            if (getProperty("temp-cache-size") == null) {
+                setProperty("temp-cache-size", "4096");
+            }
+            if (getProperty("temp-cache-prefetch") == null) {
+                setProperty("temp-cache-prefetch", "2");
+            }
+            if (getProperty("search-index") == null) {
+                setProperty("search-index", userDir + File.separator + yassDir + File.separator + "search-index.bin");
+            }
+            if (getProperty("stats-cache") == null) {
+                setProperty("stats-cache", userDir + File.separator + yassDir + File.separator + "stats-cache.bin");
+            }
+            if (getProperty("songlist-cache-binary") == null) {
+                setProperty("songlist-cache-format", "binary");
+                setProperty("songlist-cache-binary", userDir + File.separator + yassDir + File.separator + "songlist.bin");
+            }
             setupTags();
             setupHyphenationDictionaries();
             return;
@@ -229,7 +254,23 @@ public class YassProperties extends Properties {
         p.putIfAbsent("playlist-cache", userDir + File.separator + yassDir + File.separator + "playlists.txt");
         p.putIfAbsent("songlist-imagecache", userDir + File.separator + yassDir + File.separator + "covers-cache");
         p.putIfAbsent("temp-dir", userDir + File.separator + yassDir + File.separator + "temp");
+        // megabytes of converted audio to keep, 0 = unlimited
+        p.putIfAbsent("temp-cache-size", "4096");
+        // songs after the one being played to convert in the background, 0 = off
+        p.putIfAbsent("temp-cache-prefetch", "2");
         p.putIfAbsent("lyrics-cache", userDir + File.separator + yassDir + File.separator + "lyrics.txt");
+        p.putIfAbsent("songlist-manifest", userDir + File.separator + yassDir + File.separator + "songlist-manifest.txt");
+        // binary or text
+        p.putIfAbsent("songlist-cache-format", "binary");
+        p.putIfAbsent("songlist-cache-binary", userDir + File.separator + yassDir + File.separator + "songlist.bin");
+        p.putIfAbsent("search-index", userDir + File.separator + yassDir + File.separator + "search-index.bin");
+        p.putIfAbsent("stats-cache", userDir + File.separator + yassDir + File.separator + "stats-cache.bin");
+        // library scan threads, 0 = one per core, 1 = sequential
+        p.putIfAbsent("library-scan-threads", "0");
+        // update the library when song files change on disk
+        p.putIfAbsent("library-watch", "true");
+        // milliseconds to wait for more keystrokes before the library is filtered
+        p.putIfAbsent("library-filter-delay", "150");
 
         // metadata
         p.putIfAbsent("language-tag", "English|EN|German|DE|Spanish|ES|French|FR|Other|NN");
@@ -21,8 +21,16 @@ package yass;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.math3.util.Precision;
 
+import java.util.Objects;
 import java.util.Vector;
 
+/**
+ * A line of a song: a tag, a note, a page break or the end.
+ * <p>
+ * The columns are kept as text as they were read or edited. Beat, length and height are parsed once and kept as
+ * numbers; numbers set as int are only formatted when the column is read as text, e.g. for the table or the file,
+ * so passes over all notes neither parse nor allocate.
+ */
 public class YassRow implements Cloneable, Comparable<Object> {
     public static final char SPACE = '\u00B7';
     public static final char HYPHEN = '\u2043';
@@ -88,50 +96,42 @@ public class YassRow implements Cloneable, Comparable<Object> {
     private static String validTags = "";
     private static String validLines = "";
     private final String[] s = new String[5];
+    // number columns, valid where the column bit is set in parsed
+    private final int[] n = new int[4];
+    private int parsed = 0;
+    // number columns set as int whose text is not made yet
+    private int unformatted = 0;
+    private RowType rowType = RowType.OTHER;
     private Vector<String[]> messages = null;
+    // rows of the table this row was last added to, told about edits; not copied
+    private RowVector owner = null;
 
     public YassRow(String t, String b, String d, String h, String txt) {
-        s[0] = t;
-        s[1] = b;
-        s[2] = d;
-        s[3] = h;
-        setText(txt);
+        init(t, b, d, h, txt);
     }
 
     public YassRow(String t, String b, String d, String h, String txt, String msg) {
-        s[0] = t;
-        s[1] = b;
-        s[2] = d;
-        s[3] = h;
-        setText(txt);
+        init(t, b, d, h, txt);
         addMessage(msg);
     }
 
     public YassRow(String t, String b, String d, String h, String txt, String msg, String detail) {
-        s[0] = t;
-        s[1] = b;
-        s[2] = d;
-        s[3] = h;
-        setText(txt);
+        init(t, b, d, h, txt);
         addMessage(msg, detail);
     }
 
     public YassRow(YassRow r) {
-        s[0] = r.s[0];
-        s[1] = r.s[1];
-        s[2] = r.s[2];
-        s[3] = r.s[3];
-        s[4] = r.s[4];
+        copy(r);
     }
 
     public YassRow(String line) {
         String[] rows = line.split("\t");
         for (int i = 0; i < rows.length; i++) {
-            s[i] = rows[i];
+            put(i, rows[i]);
         }
         if (rows.length >= 1 && rows.length < 4) {
             for (int i = rows.length; i < 5; i++) {
-                s[i] = "";
+                put(i, "");
             }
         }
     }
@@ -240,48 +240,112 @@ public class YassRow implements Cloneable, Comparable<Object> {
         return ((st > 0) || (len < count)) ? s.substring(st, len) : s;
     }
 
+    void setOwner(RowVector rows) {
+        owner = rows;
+    }
+
+    private void edited(boolean tag) {
+        if (owner != null) {
+            owner.rowEdited(tag);
+        }
+    }
+
+    private void put(int i, String val) {
+        s[i] = val;
+        parsed &= ~(1 << i);
+        unformatted &= ~(1 << i);
+        if (i == 0) {
+            rowType = RowType.of(val);
+        }
+    }
+
+    private void set(int i, String val) {
+        boolean comment = isComment();
+        put(i, val);
+        edited(i < 2 && (comment || isComment()));
+    }
+
+    private void set(int i, int val) {
+        s[i] = null;
+        n[i] = val;
+        parsed |= 1 << i;
+        unformatted |= 1 << i;
+        edited(i == 1 && isComment());
+    }
+
+    private void init(String t, String b, String d, String h, String txt) {
+        put(0, t);
+        put(1, b);
+        put(2, d);
+        put(3, h);
+        put(4, text(txt));
+    }
+
+    private void copy(YassRow r) {
+        System.arraycopy(r.s, 0, s, 0, s.length);
+        System.arraycopy(r.n, 0, n, 0, n.length);
+        parsed = r.parsed;
+        unformatted = r.unformatted;
+        rowType = r.rowType;
+    }
+
+    private String column(int i) {
+        if ((unformatted & (1 << i)) != 0) {
+            s[i] = Integer.toString(n[i]);
+            unformatted &= ~(1 << i);
+        }
+        return s[i];
+    }
+
+    private int number(int i) {
+        if ((parsed & (1 << i)) == 0) {
+            String val = s[i];
+            n[i] = val.length() < 1 ? 0 : Integer.parseInt(val);
+            parsed |= 1 << i;
+        }
+        return n[i];
+    }
+
     public void setRow(String t, String b, String d, String h, String txt) {
-        s[0] = t;
-        s[1] = b;
-        s[2] = d;
-        s[3] = h;
+        set(0, t);
+        set(1, b);
+        set(2, d);
+        set(3, h);
         setText(txt);
     }
 
     public void setRow(YassRow r) {
-        s[0] = r.s[0];
-        s[1] = r.s[1];
-        s[2] = r.s[2];
-        s[3] = r.s[3];
-        s[4] = r.s[4];
+        boolean comment = isComment();
+        copy(r);
+        edited(comment || isComment());
     }
 
     public void setElementAt(String val, int i) {
-        s[i] = val;
+        set(i, val);
     }
 
     public void setBeat(String val) {
-        s[1] = val;
+        set(1, val);
     }
 
     public void setSecondBeat(String val) {
-        if (val.equals(s[1])) {
-            s[2] = "";
+        if (val.equals(column(1))) {
+            set(2, "");
         } else {
-            s[2] = val;
+            set(2, val);
         }
     }
 
     public void setLength(String val) {
-        s[2] = val;
+        set(2, val);
     }
 
     public void setHeight(String val) {
-        s[3] = val;
+        set(3, val);
     }
 
     public String elementAt(int i) {
-        return s[i];
+        return column(i);
     }
 
     public String getType() {
@@ -289,27 +353,31 @@ public class YassRow implements Cloneable, Comparable<Object> {
     }
 
     public void setType(String val) {
-        s[0] = val;
+        set(0, val);
+    }
+
+    public RowType getRowType() {
+        return rowType;
     }
 
     public String getBeat() {
-        return s[1];
+        return column(1);
     }
 
     public String getHeaderCommentTag() {
-        return s[1].toUpperCase();
+        return column(1).toUpperCase();
     }
 
     public String getHeaderComment() {
-        return s[2];
+        return column(2);
     }
 
     public String getLength() {
-        return s[2];
+        return column(2);
     }
 
     public void setLength(int val) {
-        s[2] = val + "";
+        set(2, val);
     }
 
     public void setLength(double val) {
@@ -317,14 +385,14 @@ public class YassRow implements Cloneable, Comparable<Object> {
     }
 
     public String getSecondBeat() {
-        return s[2];
+        return column(2);
     }
 
     public void setSecondBeat(int val) {
         if (val == getBeatInt()) {
-            s[2] = "";
+            set(2, "");
         } else {
-            s[2] = val + "";
+            set(2, val);
         }
     }
 
@@ -333,11 +401,11 @@ public class YassRow implements Cloneable, Comparable<Object> {
     }
 
     public String getHeight() {
-        return s[3];
+        return column(3);
     }
 
     public void setHeight(int val) {
-        s[3] = val + "";
+        set(3, val);
     }
 
     public String getText() {
@@ -345,67 +413,65 @@ public class YassRow implements Cloneable, Comparable<Object> {
     }
 
     public void setText(String val) {
-        if (val != null) {
-            val = val.replace("~~", "~");
+        set(4, text(val));
+    }
+
+    private static String text(String val) {
+        if (val == null) {
+            return null;
         }
-        s[4] = val;
+        // syllables repeat throughout a song and the library
+        return val.replace("~~", "~").intern();
     }
 
     public boolean hasSecondBeat() {
-        return s[2].length() > 0;
+        return (unformatted & (1 << 2)) != 0 || s[2].length() > 0;
     }
 
     public int getBeatInt() {
-        if (s[1].length() < 1) {
-            return 0;
-        }
-        return Integer.parseInt(s[1]);
+        return number(1);
     }
 
     public int getSecondBeatInt() {
         if (!hasSecondBeat())
             return getBeatInt();
-        return Integer.parseInt(getSecondBeat());
+        return number(2);
     }
 
     public int getLengthInt() {
-        if (s[2].length() < 1)
-            return 0;
-        return Integer.parseInt(s[2]);
+        return number(2);
     }
 
     public int getHeightInt() {
-        if (s[3].length() < 1)
-            return 0;
-        return Integer.parseInt(s[3]);
+        return number(3);
     }
 
     public boolean isEnd() {
-        return s[0].equals("E");
+        return rowType == RowType.END;
     }
 
     public boolean isHidden() {
-        return s[0].equals("Y") && s[1].equals("hide");
+        return s[0].equals("Y") && column(1).equals("hide");
     }
 
     public boolean isComment() {
-        return s[0].equals("#");
+        return rowType == RowType.COMMENT;
     }
 
     public void setComment(String val) {
-        s[2] = val;
+        set(2, val);
     }
 
     public boolean isPageBreak() {
-        return s[0].equals("-");
+        return rowType == RowType.PAGE_BREAK;
     }
 
     public boolean isBeat() {
-        return s[0].equals(":");
+        return rowType == RowType.NORMAL;
     }
 
     public void setBeat(int val) {
-        s[1] = val + "";
+        set(1, val);
     }
 
     public void setBeat(double val) {
@@ -413,11 +479,11 @@ public class YassRow implements Cloneable, Comparable<Object> {
     }
 
     public boolean isGolden() {
-        return s[0].equals("*");
+        return rowType == RowType.GOLDEN;
     }
 
     public boolean isFreeStyle() {
-        return s[0].equals("F");
+        return rowType == RowType.FREESTYLE;
     }
     
     public boolean isRegularNote() {
@@ -425,11 +491,11 @@ public class YassRow implements Cloneable, Comparable<Object> {
     }
 
     public boolean isRap() {
-        return s[0].equals("R");
+        return rowType == RowType.RAP;
     }
 
     public boolean isRapGolden() {
-        return s[0].equals("G");
+        return rowType == RowType.RAP_GOLDEN;
     }
 
     /**
@@ -441,7 +507,7 @@ public class YassRow implements Cloneable, Comparable<Object> {
     }
 
     public boolean isNote() {
-        return isBeat() || isGolden() || isFreeStyle() || isRap() || isRapGolden();
+        return rowType.isNote();
     }
 
     public boolean isNoteOrPageBreak() {
@@ -449,7 +515,7 @@ public class YassRow implements Cloneable, Comparable<Object> {
     }
 
     public boolean isGap() {
-        return s[0].equals("#") && s[1].toUpperCase().equals("GAP:");
+        return isComment() && column(1).toUpperCase().equals("GAP:");
     }
 
     public void removeAllMessages() {
@@ -514,44 +580,44 @@ public class YassRow implements Cloneable, Comparable<Object> {
     public String toString() {
         if (isNote()) {
             String t = s[4].replace(SPACE, ' ');
-            return s[0] + " " + s[1] + " " + s[2] + " " + s[3] + " " + t;
+            return s[0] + " " + column(1) + " " + column(2) + " " + column(3) + " " + t;
         } else if (isPageBreak()) {
-            String ss = s[0] + " " + s[1];
-            if (s[2].length() > 0) {
-                ss = ss + " " + s[2];
+            String ss = s[0] + " " + column(1);
+            if (column(2).length() > 0) {
+                ss = ss + " " + column(2);
             }
-            if (s[3].length() > 0) {
-                ss = ss + " " + s[3];
+            if (column(3).length() > 0) {
+                ss = ss + " " + column(3);
             }
             if (s[4].length() > 0) {
                 ss = ss + " " + s[4];
             }
             return ss;
-        } else if (isP() && StringUtils.isNotEmpty(s[1])) {
-            return s[0] + " " + s[1];
+        } else if (isP() && StringUtils.isNotEmpty(column(1))) {
+            return s[0] + " " + column(1);
         } else if (isP()) {
             return s[0];
         }
-        return s[0] + s[1] + s[2] + s[3] + s[4];
+        return s[0] + column(1) + column(2) + column(3) + s[4];
     }
 
     public String toString(int relative) {
         if (isNote()) {
             int time = 0;
             try {
-                time = Integer.parseInt(s[1]);
+                time = Integer.parseInt(column(1));
             } catch (Exception ignored) {
             }
             time -= relative;
             String t = s[4].replace(SPACE, ' ');
-            return s[0] + " " + time + " " + s[2] + " " + s[3] + " " + t;
+            return s[0] + " " + time + " " + column(2) + " " + column(3) + " " + t;
         }
         if (isPageBreak()) {
             int time = 0;
             int time2 = 0;
             try {
-                time = Integer.parseInt(s[1]);
-                time2 = s[2].length() > 0 ? Integer.parseInt(s[2]) : time;
+                time = Integer.parseInt(column(1));
+                time2 = column(2).length() > 0 ? Integer.parseInt(column(2)) : time;
             } catch (Exception e) {
                 time2 = time;
             }
@@ -559,24 +625,24 @@ public class YassRow implements Cloneable, Comparable<Object> {
             time -= relative;
             time2 -= relative;
             String ss = s[0] + " " + time + " " + time2;
-            if (s[3].length() > 0) {
-                ss = ss + " " + s[3];
+            if (column(3).length() > 0) {
+                ss = ss + " " + column(3);
             }
             if (s[4].length() > 0) {
                 ss = ss + " " + s[4];
             }
             return ss;
         }
-        if (isP() && StringUtils.isNotEmpty(s[1])) {
-            return s[0] + " " + s[1];
+        if (isP() && StringUtils.isNotEmpty(column(1))) {
+            return s[0] + " " + column(1);
         } else if (isP()) {
             return s[0];
         }
-        return s[0] + s[1] + s[2] + s[3] + s[4];
+        return s[0] + column(1) + column(2) + column(3) + s[4];
     }
 
     public YassRow clone() {
-        return new YassRow(s[0], s[1], s[2], s[3], s[4]);
+        return new YassRow(this);
     }
 
     public int compareTo(Object o) {
@@ -616,6 +682,28 @@ public class YassRow implements Cloneable, Comparable<Object> {
         return toString().equals(r.toString());
     }
 
+    /**
+     * Compares the columns of both rows without building their string form; messages are ignored.
+     *
+     * @param r another row
+     * @return true if all columns are equal
+     */
+    boolean hasSameContent(YassRow r) {
+        if (r == this) {
+            return true;
+        }
+        for (int i = 0; i < s.length; i++) {
+            if ((unformatted & r.unformatted & (1 << i)) != 0) {
+                if (n[i] != r.n[i]) {
+                    return false;
+                }
+            } else if (!Objects.equals(column(i), r.column(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean startsWithSpace() {
         return isNote() && getText().startsWith(YassRow.SPACE + "");
     }
@@ -0,0 +1,120 @@
+/*
+ * Yass - Karaoke Editor
+ * Copyright (C) 2009 Saruta
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Difference between two row states of the undo history: the rows in the range starting at {@link #start} were
+ * replaced. Rows before and after the range are equal in both states and are not stored, so an undo step costs
+ * memory for the changed rows only.
+ * <p>
+ * Rows held by a change are copies that are never handed to a table; {@link #apply} and {@link #revert} work on
+ * such copies, too.
+ */
+final class YassRowChange {
+    private final int start;
+    private final YassRow[] removed;
+    private final YassRow[] added;
+
+    private YassRowChange(int start, YassRow[] removed, YassRow[] added) {
+        this.start = start;
+        this.removed = removed;
+        this.added = added;
+    }
+
+    /**
+     * Computes the change from a state to the current rows of a table and updates the state.
+     *
+     * @param state copies of the rows of the previous state; it is changed to copies of rows
+     * @param rows  rows of the table
+     * @return the change, which shares the copies of the changed rows with state
+     */
+    static YassRowChange record(List<YassRow> state, List<YassRow> rows) {
+        YassRowChange change = between(state, rows, true);
+        change.apply(state);
+        return change;
+    }
+
+    /**
+     * Computes the change between two lists of rows.
+     *
+     * @param copy copy the rows that were added; otherwise they are shared with to
+     */
+    static YassRowChange between(List<YassRow> from, List<YassRow> to, boolean copy) {
+        int n = from.size();
+        int m = to.size();
+        int prefix = 0;
+        int max = Math.min(n, m);
+        while (prefix < max && from.get(prefix).hasSameContent(to.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        max -= prefix;
+        while (suffix < max && from.get(n - 1 - suffix).hasSameContent(to.get(m - 1 - suffix))) {
+            suffix++;
+        }
+        YassRow[] removed = from.subList(prefix, n - suffix).toArray(new YassRow[0]);
+        YassRow[] added = new YassRow[m - suffix - prefix];
+        for (int i = 0; i < added.length; i++) {
+            YassRow r = to.get(prefix + i);
+            added[i] = copy ? r.clone() : r;
+        }
+        return new YassRowChange(prefix, removed, added);
+    }
+
+    /**
+     * Composes two consecutive changes.
+     *
+     * @param state the state after second
+     */
+    static YassRowChange merge(YassRowChange first, YassRowChange second, List<YassRow> state) {
+        List<YassRow> before = new ArrayList<>(state);
+        second.revert(before);
+        first.revert(before);
+        return between(before, state, false);
+    }
+
+    boolean isEmpty() {
+        return removed.length == 0 && added.length == 0;
+    }
+
+    /**
+     * Number of rows this change keeps.
+     */
+    int size() {
+        return removed.length + added.length;
+    }
+
+    void apply(List<YassRow> state) {
+        replace(state, removed.length, added);
+    }
+
+    void revert(List<YassRow> state) {
+        replace(state, added.length, removed);
+    }
+
+    private void replace(List<YassRow> state, int length, YassRow[] rows) {
+        List<YassRow> range = state.subList(start, start + length);
+        range.clear();
+        range.addAll(Arrays.asList(rows));
+    }
+}
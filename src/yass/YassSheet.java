@@ -18,10 +18,12 @@
 
 package yass;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 import yass.analysis.PitchDetector;
+import yass.audio.WaveformPeaks;
 import yass.musicalkey.MusicalKeyEnum;
 import yass.renderer.*;
 
@@ -197,6 +199,8 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
     private YassTable table = null;
     private final Vector<YassTable> tables = new Vector<>();
     private final Vector<Vector<YassRectangle>> rects = new Vector<>();
+    @Getter(AccessLevel.NONE)
+    private final SheetBounds bounds = new SheetBounds();
     private Vector<YassRectangle> rect = null;
     private Vector<Cloneable> snapshot = null, snapshotRect = null;
     private YassActions actions = null;
@@ -308,9 +312,8 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
     private int outgap = 0;
     private double cutPercent = .5;
     private BufferedImage image;
-    private boolean imageChanged = true;
-    private int imageX = -1;
-    private int imageY = -1;
+    @Getter(AccessLevel.NONE)
+    private final SheetLayers layers = new SheetLayers();
     private int playerPos = -1;
     private int inPoint = -1;
     private int outPoint = -1;
@@ -545,7 +548,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
 
                     if (hiliteHeight != dy) {
                         hiliteHeight = dy;
-                        repaint();
+                        repaintNotes();
                     }
                 }
                 return;
@@ -561,7 +564,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
             // generate the hover effect
             setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
             hiliteCue = button;
-            repaint();
+            repaintNotes();
             return;
         }
         if (table != null) {
@@ -609,7 +612,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                 && x <= toTimeline(Math.max(inSelect, outSelect))) {
             hiliteCue = SNAPSHOT;
             setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-            repaint();
+            repaintNotes();
             return;
         }
         Rectangle2D.Double selectedGroupHitArea = getSelectedGroupBounds(10);
@@ -620,7 +623,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                 hiliteCue = CENTER;
                 hiliteAction = ACTION_CONTROL_ALT;
                 setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
-                repaint();
+                repaintNotes();
                 return;
             }
         }
@@ -645,7 +648,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
 
                         hiliteCue = CENTER;
                         setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
-                        repaint();
+                        repaintNotes();
                         return;
                     }
                 } else if (r.contains(x, y)) {
@@ -675,7 +678,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                     } else {
                         setCursor(Cursor.getPredefinedCursor(Cursor.E_RESIZE_CURSOR));
                     }
-                    repaint();
+                    repaintNotes();
                     return;
                 } else if (table.getMultiSize() > 1
                         && r.x < x
@@ -685,7 +688,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                         && y < getStickyBandTopY()) {
                     hiliteCue = CENTER;
                     setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
-                    repaint();
+                    repaintNotes();
                     return;
                 } else if (isNote && r.x + wSize / 2 < x
                         && x < r.x + r.width - wSize / 2
@@ -694,7 +697,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                     hiliteCue = CUT;
                     cutPercent = (x - r.x) / r.width;
                     setCursor(cutCursor);
-                    repaint();
+                    repaintNotes();
                     return;
                 } else if (isNote && r.x < x && x < r.x + wSize / 2
                         && r.width > 5) {
@@ -702,7 +705,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                         hilite = i;
                         hiliteCue = JOIN_LEFT;
                         setCursor(Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR));
-                        repaint();
+                        repaintNotes();
                         return;
                     }
                 } else if (isNote && r.x + r.width - wSize / 2 < x
@@ -711,7 +714,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                         hilite = i;
                         hiliteCue = JOIN_RIGHT;
                         setCursor(Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR));
-                        repaint();
+                        repaintNotes();
                         return;
                     }
                 }
@@ -721,23 +724,23 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                 && (y > clip.height - BOTTOM_BORDER + 20 || (y > 20 && y < TOP_LINE - 10))) {
             setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
             hiliteCue = SLIDE;
-            repaint();
+            repaintNotes();
             return;
         }
         if (x > playerPos - 10 && x < playerPos && y > TOP_LINE && y < dim.height - BOTTOM_BORDER) {
             hiliteCue = MOVE_REMAINDER;
             setCursor(Cursor.getPredefinedCursor(Cursor.E_RESIZE_CURSOR));
-            repaint();
+            repaintNotes();
             return;
         }
         setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
         if (hilite == -2) {
             hilite = -1;
-            repaint();
+            repaintNotes();
             return;
         }
         if (shouldRepaint)
-            repaint();
+            repaintNotes();
     }
 
     private void handleMouseDragged(MouseEvent e) {
@@ -2940,12 +2943,24 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
     }
 
     /**
-     * Description of the Method
+     * Repaints the sheet with all layers painted again.
      */
     public void repaint() {
         if (rect == null || rect.size() < 1) {
             return;
         }
+        layers.invalidateAll();
+        super.repaint();
+    }
+
+    /**
+     * Repaints the sheet after a change of the notes only, like a selection or hover, reusing the background.
+     */
+    public void repaintNotes() {
+        if (rect == null || rect.size() < 1) {
+            return;
+        }
+        layers.invalidate(SheetLayers.NOTES);
         super.repaint();
     }
 
@@ -2998,10 +3013,10 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
             plainVolImage = g2.getDeviceConfiguration()
                     .createCompatibleVolatileImage(clip.width, clip.height,
                             Transparency.OPAQUE);
-            imageChanged = true;
+            layers.recompose();
         }
 
-        refreshImage();
+        paintLayers();
 
         // http://weblogs.java.net/blog/chet/archive/2005/05/graphics_accele.html
         // http://weblogs.java.net/blog/chet/archive/2004/08/toolkitbuffered.html
@@ -3060,9 +3075,17 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
     }
 
     /**
-     * Description of the Method
+     * Paints all layers of the sheet again, for changes that did not go through {@link #repaint()}.
      */
     public void refreshImage() {
+        layers.invalidateAll();
+        paintLayers();
+    }
+
+    /**
+     * Paints the layers that are not valid for the visible rectangle and composes them into the buffers.
+     */
+    private void paintLayers() {
         refreshing = true;
         LOGGER.finest("YassSheet.refreshImage size=" + getWidth() + "x" + getHeight()
                 + " image=" + (image == null ? "null" : image.getWidth() + "x" + image.getHeight())
@@ -3074,34 +3097,35 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
             return;
         }
 
-        Graphics2D db = image.createGraphics();
-        db.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        db.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        db.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-
         clip = getClipBounds();
-        db.setTransform(identity);
-        db.setClip(0, 0, clip.width, clip.height);
-        db.translate(-clip.x, -clip.y);
-        if (!imageChanged) {
-            imageChanged = clip.x != imageX || clip.y != imageY;
-        }
-        if (isRecordingStaticLayerActive()) {
-            paintRecordingStaticLayer(db);
-        } else {
-            paintEmptySheet(db);
+        boolean recordingStatic = isRecordingStaticLayerActive();
+        long backgroundState = getBackgroundState();
+        if (!layers.isValid(SheetLayers.BACKGROUND, clip, backgroundState)) {
+            Graphics2D db = beginLayer(SheetLayers.BACKGROUND, backgroundState);
+            if (recordingStatic) {
+                paintRecordingStaticLayer(db);
+            } else {
+                paintEmptySheet(db);
 
-            YassPlayer mp3 = actions != null ? actions.getMP3() : null;
-            if (mp3 != null && mp3.hasAudio() && mp3.createWaveform()) {
-                paintWaveform(db);
-            }
+                YassPlayer mp3 = actions != null ? actions.getMP3() : null;
+                if (mp3 != null && mp3.hasAudio() && mp3.createWaveform()) {
+                    paintWaveform(db);
+                }
 
-            if (!showVideo() && !showBackground()) {
-                paintBeatLines(db);
+                if (!showVideo() && !showBackground()) {
+                    paintBeatLines(db);
+                }
+                paintLines(db);
+                if (!live) {
+                    paintBeats(db);
+                }
             }
-            paintLines(db);
-            if (!live) {
-                paintBeats(db);
+            db.dispose();
+        }
+
+        if (!layers.isValid(SheetLayers.NOTES, clip, 0)) {
+            Graphics2D db = beginLayer(SheetLayers.NOTES, 0);
+            if (!recordingStatic && !live) {
                 paintSelectionOverlay(db);
                 // Avoid double-visualization ("ghost note") while dragging a note:
                 // snapshot overlay and center-drag preview can overlap in single-selection drags.
@@ -3109,33 +3133,30 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                     paintSnapshot(db);
                 }
             }
-        }
 
-        paintRectangles(db);
-        if (isRecordingStaticLayerActive()) {
-            paintAbsoluteStickyOctaveLabels(db);
-        }
-        if (paintHeights) {
-            paintHeightBox(db);
-        }
-        paintVersionsText(db);
+            paintRectangles(db);
+            if (recordingStatic) {
+                paintAbsoluteStickyOctaveLabels(db);
+            }
+            if (paintHeights) {
+                paintHeightBox(db);
+            }
+            paintVersionsText(db);
 
-        if (messageMemory && !live) {
-            db.setFont(font);
-            int maxHeap = (int) (Runtime.getRuntime().maxMemory() / 1024 / 1024);
-            int occHeap = (int) (Runtime.getRuntime().totalMemory() / 1024 / 1024);
-            int freeHeap = (int) (Runtime.getRuntime().freeMemory() / 1024 / 1024);
-            int usedHeap = occHeap - freeHeap;
-            String info = usedHeap + " of " + maxHeap + "Mb in use" + ", "
-                    + occHeap + "Mb reserved.";
-            db.drawString(info, clip.x + 10, 40);
+            if (messageMemory && !live) {
+                db.setFont(font);
+                int maxHeap = (int) (Runtime.getRuntime().maxMemory() / 1024 / 1024);
+                int occHeap = (int) (Runtime.getRuntime().totalMemory() / 1024 / 1024);
+                int freeHeap = (int) (Runtime.getRuntime().freeMemory() / 1024 / 1024);
+                int usedHeap = occHeap - freeHeap;
+                String info = usedHeap + " of " + maxHeap + "Mb in use" + ", "
+                        + occHeap + "Mb reserved.";
+                db.drawString(info, clip.x + 10, 40);
+            }
+            db.dispose();
         }
 
-        imageChanged = false;
-        imageX = clip.x;
-        imageY = clip.y;
-
-        db.dispose();
+        layers.compose(image);
 
         Graphics2D gc = backVolImage.createGraphics();
         gc.drawImage(image, 0, 0, null);
@@ -3148,6 +3169,32 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
         refreshing = false;
     }
 
+    private Graphics2D beginLayer(int layer, long state) {
+        Graphics2D db = layers.begin(layer, clip, state, getGraphicsConfiguration());
+        db.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        db.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        db.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        return db;
+    }
+
+    /**
+     * @return value that changes with the view settings the background is painted for, as a guard for changes
+     * that are not followed by {@link #repaint()}
+     */
+    private long getBackgroundState() {
+        long state = Double.doubleToLongBits(wSize);
+        state = 31 * state + Double.doubleToLongBits(hSize);
+        state = 31 * state + Double.doubleToLongBits(beatgap);
+        state = 31 * state + minHeight;
+        state = 31 * state + maxHeight;
+        state = 31 * state + System.identityHashCode(videoFrame);
+        state = 31 * state + System.identityHashCode(bgImage);
+        state = 31 * state + ((darkMode ? 1 : 0) | (live ? 2 : 0) | (pan ? 4 : 0) | (paintHeights ? 8 : 0)
+                | (showVideo ? 16 : 0) | (showBackground ? 32 : 0));
+        state = 31 * state + verticalPitchViewMode.ordinal();
+        return state;
+    }
+
     private boolean isRecordingStaticLayerActive() {
         return recordingRollingMode && actions != null && actions.isRecording() && !showVideo() && !showBackground();
     }
@@ -3238,6 +3285,8 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                     plainVolImage = null;
                     image = g.getDeviceConfiguration().createCompatibleImage(
                             clip.width, clip.height, Transparency.TRANSLUCENT);
+                    layers.recompose();
+                    layers.compose(image);
                     backVolImage = g.getDeviceConfiguration()
                             .createCompatibleVolatileImage(clip.width, clip.height,
                                     Transparency.OPAQUE);
@@ -3287,6 +3336,8 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                     plainVolImage = null;
                     image = g2.getDeviceConfiguration().createCompatibleImage(
                             clip.width, clip.height, Transparency.TRANSLUCENT);
+                    layers.recompose();
+                    layers.compose(image);
                     backVolImage = g2.getDeviceConfiguration()
                             .createCompatibleVolatileImage(clip.width, clip.height,
                                     Transparency.OPAQUE);
@@ -3375,7 +3426,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
      */
     public void paintWaveform(Graphics2D g2) {
         YassPlayer mp3 = actions.getMP3();
-        if (mp3.getAudioBytes() == null) {
+        if (!mp3.hasAudioSamples()) {
             return;
         }
         paintStickyWaveform(g2, mp3);
@@ -3414,6 +3465,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
             boolean pathStarted = false;
             double smoothedYCenter = Double.NaN;
             double lineYCenter = Double.NaN;
+            WaveformPeaks.Peak peak = new WaveformPeaks.Peak();
             for (int x = clip.x; x < clip.x + clip.width; x++) {
                 double timeInSeconds = fromTimelineExact(x) / 1000.0;
                 while (pitchDataIndex < pitchDataList.size() - 1 &&
@@ -3423,7 +3475,8 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
                 PitchDetector.PitchData currentPitch = pitchDataList.get(pitchDataIndex);
                 int displayPitch = currentPitch.pitch() + pitchTranspose;
                 double yCenter = mapPitchOverlayToY(displayPitch, pitchRenderMin);
-                int amplitude = Math.abs(mp3.getWaveFormAtMillis(timeInSeconds * 1000));
+                mp3.getWaveFormPeaks(timeInSeconds * 1000, fromTimelineExact(x + 1), peak);
+                int amplitude = peak.amplitude();
                 double amplitudeScaled = amplitude * uiScale;
 
                 if (Double.isNaN(smoothedYCenter) || Math.abs(smoothedYCenter - yCenter) > hSize * 0.9) {
@@ -3498,6 +3551,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
         g2.setStroke(new BasicStroke(1.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
 
         int rawIndex = 0;
+        WaveformPeaks.Peak peak = new WaveformPeaks.Peak();
         for (int x = clip.x; x < clip.x + clip.width; x++) {
             double timeInSeconds = fromTimelineExact(x) / 1000.0;
             while (rawIndex < rawPitchData.size() - 1 &&
@@ -3508,7 +3562,8 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
             int displayPitch = pd.pitch() + pitchTranspose;
             double y = mapPitchOverlayToY(displayPitch, pitchRenderMin);
 
-            int amplitude = Math.abs(actions.getMP3().getWaveFormAtMillis(timeInSeconds * 1000));
+            actions.getMP3().getWaveFormPeaks(timeInSeconds * 1000, fromTimelineExact(x + 1), peak);
+            int amplitude = peak.amplitude();
             double amplitudeScaled = amplitude * uiScale;
             if (amplitude < PITCH_LINE_AMPLITUDE_GATE) {
                 continue;
@@ -6998,12 +7053,17 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
     private void paintStickyWaveform(Graphics2D g2, YassPlayer mp3) {
         g2.setColor(darkMode ? dkGreen : dkGreenLight);
         int baselineY = getStickyWaveformBaselineY();
-        int lasty = 0;
+        WaveformPeaks.Peak peak = new WaveformPeaks.Peak();
+        int lastMin = 0;
+        int lastMax = 0;
         for (int x = clip.x + 1; x < clip.x + clip.width; x++) {
-            double ms = fromTimelineExact(x);
-            int y = mp3.getWaveFormAtMillis(ms);
-            g2.drawLine(x - 1, baselineY - lasty, x, baselineY - y);
-            lasty = y;
+            mp3.getWaveFormPeaks(fromTimelineExact(x), fromTimelineExact(x + 1), peak);
+            // join with the previous column, so that zoomed in waveforms stay connected
+            int min = Math.min(peak.min, lastMax);
+            int max = Math.max(peak.max, lastMin);
+            g2.drawLine(x, baselineY - max, x, baselineY - min);
+            lastMin = peak.min;
+            lastMax = peak.max;
         }
     }
 
@@ -7462,63 +7522,63 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
     }
 
     public void update() {
+        layers.invalidateAll();
         updateHeight();
         if (table != null) {
             gap = table.getGap();
             bpm = table.getBPM();
             beatgap = gap * 4 / (60 * 1000 / bpm);
         }
-        outgap = 0;
 
-        // beat/height range
-        int minH = 128;
-        int maxH = -128;
-        int minB = 100000;
-        int maxB = 0;
-        
         // enumerate all row vectors and rect vectors
+        Vector<Vector<YassRow>> allRows = new Vector<>(tables.size());
         Enumeration<YassTable> eTables = tables.elements();
         Enumeration<Vector<YassRectangle>> eRects = rects.elements();
         while (eRects.hasMoreElements() && eTables.hasMoreElements()) {
             Vector<YassRectangle> vRects = eRects.nextElement();
             YassTable table = eTables.nextElement();
+            Vector<YassRow> vRows = ((YassTableModel) table.getModel()).getData();
+            allRows.addElement(vRows);
             if (vRects.size() != table.getRowCount())
             {
                 LOGGER.severe("number of rows and rect elements do not match: "+vRects.size()+" != "+table.getRowCount());
                 continue;
             }
             int pn = 1;
-            Vector<YassRow> vRows = ((YassTableModel) table.getModel()).getData();
             YassRow prev = null;
             for(int i = 0; i < vRects.size();i++){
                 YassRow row = vRows.elementAt(i);
                 YassRectangle rect = vRects.elementAt(i);
-
-                if (row.isNote())
-                    outgap = Math.max(outgap, row.getBeatInt() + row.getLengthInt());
-                else if (row.isPageBreak())
-                    outgap = Math.max(outgap, row.getSecondBeatInt());
                 updateFromRow(table, i, prev, row, rect);
                 if (rect.isPageBreak()) {
                     rect.setPageNumber(++pn);
                     // should better add PAGE_BREAK type
                     rect.removeType(YassRectangle.DEFAULT);
                 }
-                // beat/height range
-                if (row.isNote()) {
-                    int height = row.getHeightInt();
-                    minH = Math.min(minH, height);
-                    maxH = Math.max(maxH, height);
-                    minB = Math.min(minB, row.getBeatInt());
-                    maxB = Math.max(maxB, row.getBeatInt() + row.getLengthInt());
-                }
                 prev = row;
             }
         }
-        
-        // beat/height range
-        if (minH == 128)
-            minH = 0;
+        bounds.reset(allRows);
+        outgap = bounds.outgap();
+        boolean changed = updateRange();
+        if (changed || verticalPitchViewMode == VerticalPitchViewMode.ABSOLUTE) {
+            revalidate();
+        }
+        LOGGER.fine("YassSheet.update range minH=" + minHeight + " maxH=" + maxHeight
+                + " minB=" + minBeat + " maxB=" + maxBeat
+                + " outgap=" + outgap + " tableRows=" + (table == null ? -1 : table.getRowCount()));
+    }
+
+    /**
+     * Takes the beat/height range from the counted rows.
+     *
+     * @return whether the range changed; listeners have been notified then
+     */
+    private boolean updateRange() {
+        int minH = bounds.hasNotes() ? bounds.minHeight() : 0;
+        int maxH = bounds.hasNotes() ? bounds.maxHeight() : -128;
+        int minB = bounds.minBeat();
+        int maxB = bounds.maxBeat();
         maxH = maxH + 3;
         minH = minH - 1;
         if (maxH - minH < 19)
@@ -7530,12 +7590,75 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
         if (maxBeat   != maxB) { maxBeat   = maxB; changed = true; }
         if (changed)
             fireRangeChanged(minHeight, maxHeight, minBeat, maxBeat);
-        if (changed || verticalPitchViewMode == VerticalPitchViewMode.ABSOLUTE) {
-            revalidate();
+        return changed;
+    }
+
+    /**
+     * Updates the sheet after rows of a table were changed in place. Only the pages of these rows are laid out
+     * again and the range is recounted from these rows; if the range changes, or a row other than a note
+     * changes, everything is laid out by {@link #update()}. Rows whose error messages changed elsewhere get their
+     * type updated.
+     *
+     * @param first first changed row
+     * @param last  last changed row
+     */
+    public void updateRows(YassTable t, int first, int last) {
+        int k = tables.indexOf(t);
+        Vector<YassRow> vRows = t.getModelData();
+        int n = vRows.size();
+        if (k < 0 || k >= rects.size() || first < 0 || last >= n || first > last) {
+            update();
+            return;
+        }
+        Vector<YassRectangle> vRects = rects.elementAt(k);
+        if (vRects.size() != n || !bounds.covers(k, n)) {
+            update();
+            return;
+        }
+        for (int i = first; i <= last; i++) {
+            YassRow row = vRows.elementAt(i);
+            boolean pageBreak = row.isPageBreak();
+            // page numbers, gap and tempo are laid out over the whole track
+            if (pageBreak != vRects.elementAt(i).isPageBreak() || !(pageBreak || row.isNote())) {
+                update();
+                return;
+            }
+        }
+        for (int i = first; i <= last; i++) {
+            bounds.update(k, i, vRows.elementAt(i));
+        }
+        outgap = bounds.outgap();
+        if (updateRange()) {
+            update();
+            return;
+        }
+        // the waveform is scaled to the notes of the page
+        layers.invalidateAll();
+        if (table == t) {
+            gap = t.getGap();
+            bpm = t.getBPM();
+            beatgap = gap * 4 / (60 * 1000 / bpm);
+        }
+        // notes are laid out relative to the lowest note of their page
+        int from = first;
+        while (from > 0 && vRows.elementAt(from - 1).isNote())
+            from--;
+        int to = last;
+        while (to + 1 < n && vRows.elementAt(to + 1).isNote())
+            to++;
+        for (int i = 0; i < n; i++) {
+            YassRow row = vRows.elementAt(i);
+            YassRectangle rect = vRects.elementAt(i);
+            if ((i < from || i > to)
+                    && (!row.isNoteOrPageBreak() || row.hasMessage() == rect.isType(YassRectangle.WRONG)))
+                continue;
+            int pn = rect.getPageNumber();
+            updateFromRow(t, i, i > 0 ? vRows.elementAt(i - 1) : null, row, rect);
+            if (rect.isPageBreak()) {
+                rect.setPageNumber(pn);
+                rect.removeType(YassRectangle.DEFAULT);
+            }
         }
-        LOGGER.fine("YassSheet.update range minH=" + minHeight + " maxH=" + maxHeight
-                + " minB=" + minBeat + " maxB=" + maxBeat
-                + " outgap=" + outgap + " tableRows=" + (table == null ? -1 : table.getRowCount()));
     }
 
     public void setHNoteEnabled(boolean b) {
@@ -7545,6 +7668,7 @@ public class YassSheet extends JPanel implements YassPlaybackRenderer, Scrollabl
     public void updateActiveTable() {
         if (table == null)
             return;
+        layers.invalidateAll();
         gap = table.getGap();
         bpm = table.getBPM();
         beatgap = gap * 4 / (60 * 1000 / bpm);
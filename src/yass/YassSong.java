@@ -104,7 +104,23 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * Description of the Field
      */
     public static int statsindex = -1;
-    private String[] s = new String[37];
+    /**
+     * Number of text columns of a song.
+     */
+    public final static int COLUMNS = 37;
+    /**
+     * Columns that are not shown in the song list; they may be decoded on first access.
+     */
+    private final static boolean[] LAZY_COLUMNS = new boolean[COLUMNS];
+
+    static {
+        for (int i : new int[]{12, 13, 14, 15, 16, 17, 18, 19, 26, 27, 28, 29, 30, 31, 32, 33, 34, 36}) {
+            LAZY_COLUMNS[i] = true;
+        }
+    }
+
+    private String[] s = new String[COLUMNS];
+    private volatile ColumnSource lazyColumns = null;
     private String[] messages = null;
     private float[] stats = null;
     private long timestamp = 0;
@@ -193,6 +209,62 @@ public class YassSong implements Cloneable, Comparable<Object> {
         setSong(str);
     }
 
+    /**
+     * Creates a song from a cache record. The columns of {@link #isLazyColumn(int)} are ignored and read from
+     * source when they are first accessed.
+     *
+     * @param columns    column values
+     * @param timestamp  modification time of the song file
+     * @param usdbSongId USDB song id
+     * @param source     source of the lazy columns
+     */
+    public YassSong(String[] columns, long timestamp, int usdbSongId, ColumnSource source) {
+        for (int i = 0; i < COLUMNS; i++) {
+            s[i] = LAZY_COLUMNS[i] ? null : columns[i];
+        }
+        this.timestamp = timestamp;
+        this.usdbSongId = usdbSongId;
+        lazyColumns = source;
+    }
+
+    /**
+     * Reads a single column of a cached song.
+     */
+    public interface ColumnSource {
+        String column(int i);
+    }
+
+    /**
+     * @return true if the column is not needed to show the song list
+     */
+    public static boolean isLazyColumn(int i) {
+        return LAZY_COLUMNS[i];
+    }
+
+    private String lazyColumn(int i) {
+        decodeLazyColumns();
+        return s[i];
+    }
+
+    private void decodeLazyColumns() {
+        if (lazyColumns != null) {
+            decodeLazyColumnsOnce();
+        }
+    }
+
+    private synchronized void decodeLazyColumnsOnce() {
+        ColumnSource source = lazyColumns;
+        if (source == null) {
+            return;
+        }
+        for (int i = 0; i < COLUMNS; i++) {
+            if (LAZY_COLUMNS[i]) {
+                s[i] = source.column(i);
+            }
+        }
+        lazyColumns = null;
+    }
+
     /**
      * Description of the Method
      *
@@ -335,6 +407,8 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param r The new song value
      */
     public void setSong(YassSong r) {
+        r.decodeLazyColumns();
+        lazyColumns = null;
         System.arraycopy(r.s, 0, s, 0, s.length);
         if (r.messages == null) {
             messages = null;
@@ -362,6 +436,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param str The new song value
      */
     public void setSong(String str) {
+        lazyColumns = null;
         StringTokenizer st = new StringTokenizer(str, "\t");
         int i = 0;
         while (st.hasMoreTokens() && i < s.length) {
@@ -387,6 +462,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param i   The new elementAt value
      */
     public void setElementAt(String val, int i) {
+        decodeLazyColumns();
         s[i] = val;
     }
 
@@ -415,6 +491,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return Description of the Return Value
      */
     public String elementAt(int i) {
+        decodeLazyColumns();
         return s[i];
     }
 
@@ -514,7 +591,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The background value
      */
     public String getBackground() {
-        return s[12];
+        return lazyColumn(12);
     }
 
     /**
@@ -523,6 +600,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new background value
      */
     public void setBackground(String val) {
+        decodeLazyColumns();
         s[12] = val;
         updateComplete();
     }
@@ -533,7 +611,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The video value
      */
     public String getVideo() {
-        return s[13];
+        return lazyColumn(13);
     }
 
     /**
@@ -542,6 +620,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new video value
      */
     public void setVideo(String val) {
+        decodeLazyColumns();
         s[13] = val;
         updateComplete();
     }
@@ -714,7 +793,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The version value
      */
     public String getVersionID() {
-        return s[26];
+        return lazyColumn(26);
     }
 
     /**
@@ -723,6 +802,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new version value
      */
     public void setVersionID(String val) {
+        decodeLazyColumns();
         s[26] = val;
     }
 
@@ -732,7 +812,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The previewStart value
      */
     public String getPreviewStart() {
-        return s[27];
+        return lazyColumn(27);
     }
 
     /**
@@ -741,6 +821,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new previewStart value
      */
     public void setPreviewStart(String val) {
+        decodeLazyColumns();
         s[27] = val;
     }
 
@@ -750,7 +831,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The encoding value
      */
     public String getEncoding() {
-        return s[30];
+        return lazyColumn(30);
     }
 
     /**
@@ -759,38 +840,43 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new previewStart value
      */
     public void setEncoding(String val) {
+        decodeLazyColumns();
         s[30] = val;
     }
 
     public String getCalcMedley() {
-        return s[31];
+        return lazyColumn(31);
     }
 
     public void setCalcMedley(String value) {
+        decodeLazyColumns();
         s[31] = value;
     }
 
     public String getAudio() {
-        return s[32];
+        return lazyColumn(32);
     }
 
     public void setAudio(String value) {
+        decodeLazyColumns();
         s[32] = value;
     }
 
     public String getInstrumental() {
-        return s[33];
+        return lazyColumn(33);
     }
 
     public void setInstrumental(String value) {
+        decodeLazyColumns();
         s[33] = value;
     }
 
     public String getVocals() {
-        return s[34];
+        return lazyColumn(34);
     }
 
     public void setVocals(String value) {
+        decodeLazyColumns();
         s[34] = value;
     }
 
@@ -826,10 +912,11 @@ public class YassSong implements Cloneable, Comparable<Object> {
     }
 
     public String getProvidedBy() {
-        return s[36];
+        return lazyColumn(36);
     }
 
     public void setProvidedBy(String value) {
+        decodeLazyColumns();
         s[36] = value;
     }
 
@@ -839,7 +926,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The medleyStartBeat value
      */
     public String getMedleyStartBeat() {
-        return s[28];
+        return lazyColumn(28);
     }
 
     /**
@@ -848,6 +935,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new previewStart value
      */
     public void setMedleyStartBeat(String val) {
+        decodeLazyColumns();
         s[28] = val;
     }
 
@@ -857,7 +945,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The medleyEndBeat value
      */
     public String getMedleyEndBeat() {
-        return s[29];
+        return lazyColumn(29);
     }
 
     /**
@@ -866,6 +954,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new previewStart value
      */
     public void setMedleyEndBeat(String val) {
+        decodeLazyColumns();
         s[29] = val;
     }
 
@@ -911,7 +1000,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The videoGap value
      */
     public String getVideoGap() {
-        return s[14];
+        return lazyColumn(14);
     }
 
     /**
@@ -920,6 +1009,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new videoGap value
      */
     public void setVideoGap(String val) {
+        decodeLazyColumns();
         s[14] = val;
     }
 
@@ -929,7 +1019,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The start value
      */
     public String getStart() {
-        return s[15];
+        return lazyColumn(15);
     }
 
     /**
@@ -938,6 +1028,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new start value
      */
     public void setStart(String val) {
+        decodeLazyColumns();
         s[15] = val;
     }
 
@@ -947,7 +1038,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The end value
      */
     public String getEnd() {
-        return s[16];
+        return lazyColumn(16);
     }
 
     /**
@@ -956,6 +1047,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new end value
      */
     public void setEnd(String val) {
+        decodeLazyColumns();
         s[16] = val;
     }
 
@@ -965,7 +1057,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The relative value
      */
     public String getRelative() {
-        return s[17];
+        return lazyColumn(17);
     }
 
     /**
@@ -974,6 +1066,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new relative value
      */
     public void setRelative(String val) {
+        decodeLazyColumns();
         s[17] = val;
     }
 
@@ -983,7 +1076,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The bPM value
      */
     public String getBPM() {
-        return s[18];
+        return lazyColumn(18);
     }
 
     /**
@@ -992,6 +1085,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new bPM value
      */
     public void setBPM(String val) {
+        decodeLazyColumns();
         s[18] = val;
     }
 
@@ -1001,7 +1095,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return The gap value
      */
     public String getGap() {
-        return s[19];
+        return lazyColumn(19);
     }
 
     /**
@@ -1010,6 +1104,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @param val The new gap value
      */
     public void setGap(String val) {
+        decodeLazyColumns();
         s[19] = val;
     }
 
@@ -1094,6 +1189,7 @@ public class YassSong implements Cloneable, Comparable<Object> {
      * @return Description of the Return Value
      */
     public String toString() {
+        decodeLazyColumns();
         StringBuilder sb = new StringBuilder();
         for (String value : s) {
             sb.append(value == null || value.trim().length() < 1 ? "-" : value);
@@ -1230,6 +1326,24 @@ public class YassSong implements Cloneable, Comparable<Object> {
         stats[i] = s;
     }
 
+    /**
+     * Gets the values of all statistics of the YassSong object
+     *
+     * @return The stats values, or null if none were computed
+     */
+    public float[] getStats() {
+        return stats;
+    }
+
+    /**
+     * Sets the values of all statistics of the YassSong object
+     *
+     * @param s The new stats values
+     */
+    public void setStats(float[] s) {
+        stats = s;
+    }
+
     /**
      * Description of the Method
      *
@@ -1646,6 +1760,8 @@ public class YassSong implements Cloneable, Comparable<Object> {
      */
     public boolean equals(Object o) {
         YassSong r = (YassSong) o;
+        decodeLazyColumns();
+        r.decodeLazyColumns();
         for (int i = 0; i < s.length; i++) {
             if (s[i] == null && r.s[i] == null) {
                 continue;
@@ -21,8 +21,17 @@ package yass;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.WordUtils;
 import org.tritonus.share.sampled.file.TAudioFileFormat;
+import yass.audio.AudioTempCache;
 import yass.autocorrect.YassAutoCorrect;
 import yass.filter.YassFilter;
+import yass.library.LibraryFilter;
+import yass.library.LibraryManifest;
+import yass.library.LibraryScanner;
+import yass.library.LibraryWatcher;
+import yass.library.SearchIndex;
+import yass.library.SongListCache;
+import yass.library.SongSummaryParser;
+import yass.library.StatsCache;
 import yass.stats.YassStats;
 import yass.titlecase.PhrasalVerbManager;
 import yass.titlecase.TitleCaseConverter;
@@ -38,6 +47,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -46,6 +56,12 @@ import java.nio.file.Paths;
 import java.text.MessageFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -203,11 +219,15 @@ public class YassSongList extends JTable {
     Action storeAction = null, undoallAction = null;
     boolean preventInteraction = false;
     YassFilter prefilter = null;
-    FilterThread filterThread = null;
+    private final LibraryFilter libraryFilter;
+    private boolean filterStarted = false;
+    // results of filter runs not yet shown in the table
+    private final AtomicInteger pendingFilterResults = new AtomicInteger();
     private YassSongListModel sm;
     private final YassAutoCorrect auto;
     private final YassProperties prop;
     private WorkerThread worker = null;
+    private LibraryWatcher watcher = null;
     private CorrectorThread corrector = null;
     private final YassActions actions;
     private long lastTime = -1;
@@ -244,12 +264,18 @@ public class YassSongList extends JTable {
     private Vector<YassSong> allData = null;
     private Map<String, Integer> artistTitleUsdbIndex = new HashMap<>();
     private boolean filterAll = false;
-    private Hashtable<String, String> lyricsCache = null;
+    private SearchIndex searchIndex = null;
+    private final Object searchIndexLock = new Object();
+    private StatsCache statsCache = null;
+    private final Object statsCacheLock = new Object();
     private YassFileUtils fileUtils;
     private boolean skipTitleCase = false;
     private boolean titleCaseCheckRunning = false;
     private Map<String, Integer> titleCaseExceptions = null;
     private boolean titleCaseChanges = false;
+    private final Object titleCaseLock = new Object();
+    private final ThreadLocal<SongSummaryParser> summaryParsers = ThreadLocal.withInitial(SongSummaryParser::new);
+    private final Map<String, SongSummaryParser.SongSummary> prefetchedSummaries = new ConcurrentHashMap<>();
     /**
      * Constructor for the YassSongList object
      *
@@ -260,6 +286,7 @@ public class YassSongList extends JTable {
         actions = a;
         auto = a.getAutoCorrect();
         prop = a.getProperties();
+        libraryFilter = new LibraryFilter(LibraryScanner.resolveParallelism(prop), () -> YassFilter.isInterrupted = true);
         if (prop.getProperty("titlecase") == null || "off".equalsIgnoreCase(prop.getProperty("titlecase"))) {
             skipTitleCase = true;
             LOGGER.info("Title Case checking disabled");
@@ -1909,7 +1936,6 @@ public class YassSongList extends JTable {
      * Description of the Method
      */
     public void refresh() {
-        dirChanged = true;
         skipTitleCase = "off".equals(prop.getProperty("titlecase"));
         titleCaseChanges = false;
         PhrasalVerbManager.getInstance(prop).reinit();
@@ -1919,7 +1945,10 @@ public class YassSongList extends JTable {
             titleCaseCheckRunning = true;
             LOGGER.fine("Title Case check enabled for library refresh.");
         }
-        load();
+        if (!rescan()) {
+            dirChanged = true;
+            load();
+        }
         if (!skipTitleCase && titleCaseCheckRunning) {
             titleCaseExceptions = initTitleCaseExceptions();
             titleCaseCheckRunning = false;
@@ -2328,7 +2357,11 @@ public class YassSongList extends JTable {
         showStats = onoff;
         setOptions(options);
         if (onoff) {
-            startWorker(false, null);
+            if (applyCachedStats(sm.getData()) && !showErrors) {
+                sm.fireTableDataChanged();
+            } else {
+                startWorker(false, null);
+            }
         } else {
             interruptWorker();
             Enumeration<YassSong> en = sm.getData().elements();
@@ -2848,7 +2881,17 @@ public class YassSongList extends JTable {
         boolean ok = true;
         String cacheName = prop.getProperty("songlist-cache");
         File cache = new File(cacheName);
-        if (cache.exists() && !dirChanged) {
+        SongListCache binaryCache = useBinaryCache() && !dirChanged ? SongListCache.open(getBinaryCacheFile(), false) : null;
+        List<YassSong> cachedSongs = binaryCache != null ? binaryCache.songs() : null;
+        if (cachedSongs != null) {
+            sm.getData().clear();
+            for (YassSong s : cachedSongs) {
+                if (moveArticles) {
+                    s.setSortedArtist(getSortedArtist(s.getArtist(), s.getLanguage()));
+                }
+                sm.addRow(s);
+            }
+        } else if (cache.exists() && !dirChanged) {
             boolean forceUtf8 = prop.getBooleanProperty("utf8-always");
             dirChanged = false;
             sm.getData().clear();
@@ -2897,7 +2940,48 @@ public class YassSongList extends JTable {
             allData = (Vector<YassSong>) sm.getData().clone();
             rebuildLibraryMatchIndex();
             updateSelectionEdition();
+            startWatcher();
+        }
+    }
+
+    /**
+     * Starts an incremental refresh based on the manifest of the last scan.
+     *
+     * @return false if there is no loaded library or no matching manifest; a full reload is needed then
+     */
+    private boolean rescan() {
+        String dir = prop.getProperty("song-directory");
+        if (!loaded || allData == null || dir == null || !new File(dir).exists()) {
+            return false;
+        }
+        LibraryManifest manifest = LibraryManifest.load(getManifestFile(), dir);
+        if (manifest == null) {
+            return false;
+        }
+        interrupt();
+        if (fileUtils == null) {
+            fileUtils = new YassFileUtils();
+        }
+        actions.setLibraryLoaded(false);
+        preventInteraction = true;
+        if (pldata == null) {
+            pldata = new Vector<>();
         }
+        worker = new RescanThread(dir, manifest);
+        worker.start();
+        return true;
+    }
+
+    private File getManifestFile() {
+        return new File(prop.getProperty(LibraryManifest.PROPERTY));
+    }
+
+    private boolean useBinaryCache() {
+        return "binary".equals(prop.getProperty(SongListCache.FORMAT_PROPERTY));
+    }
+
+    private File getBinaryCacheFile() {
+        return new File(prop.getProperty(SongListCache.PROPERTY));
     }
 
     /**
@@ -2926,15 +3010,27 @@ public class YassSongList extends JTable {
     public void interruptWorker() {
         if (worker != null) {
             worker.notInterrupted = false;
-            while (worker.state != YassSongListEvent.FINISHED) {
-                Thread.yield();
-            }
+            // the worker may still store the cache after it finished
+            awaitFinished(worker, worker.done);
         }
         if (corrector != null) {
             corrector.notInterrupted = false;
-            while (!corrector.finished) {
-                Thread.yield();
-            }
+            awaitFinished(corrector, corrector.done);
+        }
+    }
+
+    /**
+     * Waits until a thread has counted down its latch. Threads count it down when they are finished and when they
+     * end, so a thread that is not running is not waited for.
+     */
+    private static void awaitFinished(Thread thread, CountDownLatch done) {
+        if (!thread.isAlive()) {
+            return;
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -2956,6 +3052,33 @@ public class YassSongList extends JTable {
             cache.delete();
         }
 
+        stopWatcher();
+        File binaryCache = getBinaryCacheFile();
+        if (binaryCache.exists()) {
+            binaryCache.delete();
+        }
+
+        synchronized (searchIndexLock) {
+            searchIndex = null;
+        }
+        File index = getSearchIndexFile();
+        if (index.exists()) {
+            index.delete();
+        }
+
+        synchronized (statsCacheLock) {
+            statsCache = null;
+        }
+        File stats = getStatsCacheFile();
+        if (stats.exists()) {
+            stats.delete();
+        }
+
+        File manifest = getManifestFile();
+        if (manifest.exists()) {
+            manifest.delete();
+        }
+
         String imageCacheName = prop.getProperty("songlist-imagecache");
         File imageCache = new File(imageCacheName);
         if (imageCache.exists()) {
@@ -3106,9 +3229,145 @@ public class YassSongList extends JTable {
         if (songFile == null || !songFile.isFile()) {
             return;
         }
+        Vector<YassSong> baseData = allData != null ? allData : sm.getData();
+        if (upsertSong(baseData, songFile, reloadThumbnail) != null) {
+            publishLibraryChange(baseData);
+        }
+    }
+
+    /**
+     * Applies a batch of file system changes reported by the library watcher.
+     *
+     * @return false if the library is being loaded; the watcher delivers the changes again later
+     */
+    private boolean applyLibraryChanges(LibraryWatcher.Changes changes) {
+        if (preventInteraction || !loaded || allData == null) {
+            return false;
+        }
+        Vector<YassSong> baseData = allData;
+        Set<String> removed = new HashSet<>();
+        Set<File> updated = new LinkedHashSet<>(changes.updated());
+        for (File f : changes.removed()) {
+            removed.add(f.getAbsolutePath());
+        }
+        for (File dir : changes.rescan()) {
+            Path dirPath = dir.toPath().toAbsolutePath().normalize();
+            for (YassSong s : baseData) {
+                File f = new File(s.getDirectory(), s.getFilename());
+                if (f.toPath().toAbsolutePath().normalize().startsWith(dirPath) && !f.exists()) {
+                    removed.add(f.getAbsolutePath());
+                }
+            }
+            collectSongFiles(dir, updated);
+        }
+        Map<String, YassSong> byPath = new HashMap<>();
+        for (YassSong s : baseData) {
+            byPath.put(new File(s.getDirectory(), s.getFilename()).getAbsolutePath(), s);
+        }
+        boolean changed = false;
+        for (File f : updated) {
+            YassSong s = byPath.get(f.getAbsolutePath());
+            if (s != null && s.getTimestamp() == f.lastModified()) {
+                // e.g. saved by Yass itself, which already updated the list
+                continue;
+            }
+            if (!f.isFile() || !quickCheck(f)) {
+                if (s != null) {
+                    removed.add(f.getAbsolutePath());
+                }
+                continue;
+            }
+            changed |= upsertSong(baseData, f, true) != null;
+        }
+        if (!removed.isEmpty()) {
+            changed |= baseData.removeIf(s -> removed.contains(new File(s.getDirectory(), s.getFilename()).getAbsolutePath()));
+            SearchIndex index = getSearchIndex();
+            removed.forEach(index::remove);
+        }
+        if (changed) {
+            LOGGER.info("Library watcher: " + updated.size() + " updated, " + removed.size() + " removed");
+            publishLibraryChange(baseData);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a file found by a library scan is a song. If the library details can be taken from a
+     * {@link SongSummaryParser}, the file is parsed completely and the summary is kept for
+     * {@link #indexSongDetails(YassSong, YassTable)}, so that each file is read once.
+     */
+    private boolean checkSongFile(File f) {
+        if (showErrors || showStats) {
+            return quickCheck(f);
+        }
+        SongSummaryParser.SongSummary summary = summaryParsers.get().parse(f, true);
+        if (summary == null || !summary.hasValidHeader()) {
+            return false;
+        }
+        if (summary.isLoadable()) {
+            prefetchedSummaries.put(f.getAbsolutePath(), summary);
+        }
+        return true;
+    }
+
+    /**
+     * Description of the Method
+     *
+     * @param f Description of the Parameter
+     * @return Description of the Return Value
+     */
+    public boolean quickCheck(File f) {
+        if (f.length() > 1024 * 1024) {
+            return false;
+        }
+        try {
+            char cstr[] = new char[8];
+
+            //BufferedReader inputStream = new BufferedReader(new FileReader(f));
+            unicode.UnicodeReader r = new unicode.UnicodeReader(new FileInputStream(f), null);
+            BufferedReader inputStream = new BufferedReader(r);
+
+            int len;
+            String line = inputStream.readLine();
+            while (line.startsWith("#")) {
+                String headerTag = line.substring(1, line.indexOf(":") + 1).toUpperCase();
+                if (UltrastarHeaderTag.getTag(headerTag) != null) {
+                    inputStream.close();
+                    return true;
+                } else {
+                    LOGGER.info("Invalid Header Tag for " + f.getName());
+                }
+                line = inputStream.readLine();
+            }
+            inputStream.close();
+        } catch (Exception e) {
+        }
+        return false;
+    }
+
+    private void collectSongFiles(File dir, Set<File> songFiles) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            if (f.isDirectory()) {
+                collectSongFiles(f, songFiles);
+            } else if (f.getName().toLowerCase().endsWith(songFileType)) {
+                songFiles.add(f);
+            }
+        }
+    }
+
+    /**
+     * Adds a song file to the library or reloads its details, without sorting or storing the library.
+     *
+     * @return the song, or null if the file is not in a directory
+     */
+    private YassSong upsertSong(Vector<YassSong> baseData, File songFile, boolean reloadThumbnail) {
         File songDir = songFile.getParentFile();
         if (songDir == null || !songDir.isDirectory()) {
-            return;
+            return null;
         }
         String directory = songDir.getAbsolutePath();
         String folder = songDir.getName();
@@ -3125,7 +3384,6 @@ public class YassSongList extends JTable {
             }
         }
 
-        Vector<YassSong> baseData = allData != null ? allData : sm.getData();
         YassSong song = null;
         for (YassSong candidate : baseData) {
             if (directory.equals(candidate.getDirectory()) && songFile.getName().equals(candidate.getFilename())) {
@@ -3133,19 +3391,21 @@ public class YassSongList extends JTable {
                 break;
             }
         }
-        boolean created = false;
         if (song == null) {
             song = new YassSong(directory, folder, songFile.getName(), "", "");
             baseData.add(song);
-            created = true;
         }
 
         YassTable t = new YassTable();
         t.init(prop);
-        loadSongDetails(song, t);
+        indexSongDetails(song, t);
         if (reloadThumbnail) {
             cacheSongCover(prop.getProperty("songlist-imagecache"), song);
         }
+        return song;
+    }
+
+    private void publishLibraryChange(Vector<YassSong> baseData) {
         Collections.sort(baseData);
         allData = (Vector<YassSong>) baseData.clone();
         rebuildLibraryMatchIndex();
@@ -3160,6 +3420,46 @@ public class YassSongList extends JTable {
         }
     }
 
+    /**
+     * Starts watching the song directory, unless disabled by {@value LibraryWatcher#PROPERTY}.
+     */
+    private void startWatcher() {
+        String dir = prop.getProperty("song-directory");
+        if (!prop.getBooleanProperty(LibraryWatcher.PROPERTY) || dir == null || !new File(dir).isDirectory()) {
+            stopWatcher();
+            return;
+        }
+        Path root = Paths.get(dir).toAbsolutePath().normalize();
+        if (watcher != null && watcher.getRoot().equals(root)) {
+            return;
+        }
+        stopWatcher();
+        try {
+            watcher = new LibraryWatcher(root, p -> p.getFileName().toString().toLowerCase().endsWith(songFileType),
+                                         LibraryWatcher.DEFAULT_DELAY, changes -> {
+                boolean[] applied = {true};
+                try {
+                    SwingUtilities.invokeAndWait(() -> applied[0] = applyLibraryChanges(changes));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (InvocationTargetException e) {
+                    LOGGER.log(Level.WARNING, "Cannot apply library changes", e.getCause());
+                }
+                return applied[0];
+            });
+            watcher.start();
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot watch song directory " + dir, e);
+        }
+    }
+
+    private void stopWatcher() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
     /**
      * Description of the Method
      */
@@ -3604,38 +3904,6 @@ public class YassSongList extends JTable {
      */
     public boolean loadSongDetails(YassSong s, YassTable t) {
         String filename = s.getDirectory() + File.separator + s.getFilename();
-        String title = "";
-        String artist = "";
-        String mp3 = "";
-        String cover = "";
-        String background = "";
-        String video = "";
-        String edition = "";
-        String genre = "";
-        String language = "";
-        String year = "";
-        String vgap = "";
-        String start = "";
-        String end = "";
-        String rel = "";
-        String bpm = "";
-        String gap = "";
-        int multiplayer = 0;
-        String duetSingerNames = "";
-        String album = "";
-        String id = "";
-        String versionid = "";
-        String length = "";
-        String previewstart = "";
-        String medleystartbeat = "";
-        String medleyendbeat = "";
-        String encoding = "";
-        String calcMedley = "";
-        String audio = "";
-        String instrumental = "";
-        String vocals = "";
-        String tags = "";
-        String providedBy = "";
         boolean changed = false;
 
         boolean oldUndo = t.getPreventUndo();
@@ -3643,281 +3911,17 @@ public class YassSongList extends JTable {
         t.removeAllRows();
         t.setPreventUndo(oldUndo);
         if (t.loadFile(filename)) {
-            long timestamp = new File(filename).lastModified();
-            if (timestamp != s.getTimestamp()) {
-                changed = true;
-                s.setTimestamp(timestamp);
-            }
             YassTableModel tm = (YassTableModel) t.getModel();
-            YassRow r = tm.getCommentRow(TITLE);
-            title = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(ARTIST);
-            artist = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(MP3);
-            mp3 = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(COVER);
-            cover = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(BACKGROUND);
-            background = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(VIDEO);
-            video = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(EDITION);
-            edition = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(GENRE);
-            genre = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(LANGUAGE);
-            language = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(YEAR);
-            year = r != null ? r.getHeaderComment() : "";
-
-            r = tm.getCommentRow(VIDEOGAP);
-            vgap = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(START);
-            start = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(END);
-            end = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(RELATIVE);
-            rel = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(BPM);
-            bpm = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(GAP);
-            gap = r != null ? r.getHeaderComment() : "";
-
-            r = tm.getCommentRow(ALBUM);
-            album = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow("ID:");
-            id = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow("VERSION:");
-            versionid = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow("LENGTH:");
-            length = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow("PREVIEWSTART:");
-            previewstart = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow("MEDLEYSTARTBEAT:");
-            medleystartbeat = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow("MEDLEYENDBEAT:");
-            medleyendbeat = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(CALCMEDLEY.getTagName());
-            calcMedley = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(AUDIO.getTagName());
-            audio = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(INSTRUMENTAL.getTagName());
-            instrumental = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(VOCALS.getTagName());
-            vocals = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(TAGS.getTagName());
-            tags = r != null ? r.getHeaderComment() : "";
-            r = tm.getCommentRow(PROVIDEDBY.getTagName());
-            providedBy = r != null ? r.getHeaderComment() : "";
-
-            multiplayer = t.getPlayerCount();
-            String multiplayerString = "";
-            if (multiplayer > 1) {
-                duetSingerNames = t.getDuetSingerNamesAsString();
-                multiplayerString = multiplayer+"";
-            }
-
-            encoding = t.getEncoding();
-            if (encoding==null) encoding="";
-            boolean shouldCheckTitleCase = !isFiltering() && !skipTitleCase && titleCaseCheckRunning && isEnglish(language);
-            LOGGER.fine("Title Case evaluation for " + s.getArtist() + " - " + s.getTitle()
-                    + ": filtering=" + isFiltering()
-                    + ", skipTitleCase=" + skipTitleCase
-                    + ", titleCaseCheckRunning=" + titleCaseCheckRunning
-                    + ", english=" + isEnglish(language)
-                    + ", shouldCheck=" + shouldCheckTitleCase);
-            if (shouldCheckTitleCase) {
-                String titleCased;
-                if (prop.getProperty("titlecase").equals("simple")) {
-                    titleCased = WordUtils.capitalize(title);
-                } else {
-                    titleCased = TitleCaseConverter.toApTitleCase(title);
-                }
-                int count = countTitleCaseExceptions(title);
-                if (!title.equals(titleCased) && count < 3) {
-                    LOGGER.fine("Title Case prompt for " + s.getArtist() + " - " + s.getTitle()
-                            + ": current='" + title + "', suggested='" + titleCased + "', exceptions=" + count);
-                    String message = MessageFormat.format(I18.get("lib_msg_correct_titlecase_msg"),
-                                                          title,
-                                                          TitleCaseConverter.highlightDiff(t.getTitle(), titleCased));
-                    int input = JOptionPane.showConfirmDialog(actions.getTab(),
-                                                              "<html>" + message + "</html>",
-                                                              I18.get("lib_msg_correct_titlecase_title"),
-                                                              JOptionPane.YES_NO_CANCEL_OPTION);
-                    if (input == JOptionPane.YES_OPTION) {
-                        title = titleCased;
-                        s.setSaved(false);
-                        titleCaseChanges = true;
-                    } else if (input == JOptionPane.NO_OPTION) {
-                        titleCaseExceptions.put(title, ++count);
-                        titleCaseChanges = true;
-                    } else if (input == JOptionPane.CANCEL_OPTION) {
-                        skipTitleCase = true;
-                    }
-                }
-            }
-            if (!title.equals(s.getTitle())) {
-                changed = true;
-                s.setTitle(title);
-            }
-            if (!artist.equals(s.getArtist())) {
-                changed = true;
-                s.setArtist(artist);
-
-                String sorted_artist = null;
-                if (moveArticles) {
-                    sorted_artist = getSortedArtist(artist, language);
-                }
-                s.setSortedArtist(sorted_artist);
-            }
-            if (!duetSingerNames.equals(s.getDuetSingerNames())) {
-                changed = true;
-                s.setDuetSingerNames(duetSingerNames);
-            }
-            if (!mp3.equals(s.getMP3())) {
-                changed = true;
-                s.setMP3(mp3);
-            }
-            if (!cover.equals(s.getCover())) {
-                changed = true;
-                s.setCover(cover);
-            }
-            if (!background.equals(s.getBackground())) {
-                changed = true;
-                s.setBackground(background);
-            }
-            if (!video.equals(s.getVideo())) {
-                changed = true;
-                s.setVideo(video);
-            }
-            if (!edition.equals(s.getEdition())) {
-                changed = true;
-                s.setEdition(edition);
-            }
-            if (!genre.equals(s.getGenre())) {
-                changed = true;
-                s.setGenre(genre);
-            }
-            if (!language.equals(s.getLanguage())) {
-                changed = true;
-                s.setLanguage(language);
-            }
-            if (!year.equals(s.getYear())) {
-                changed = true;
-                s.setYear(year);
-            }
-
-            if (!vgap.equals(s.getVideoGap())) {
-                changed = true;
-                s.setVideoGap(vgap);
-            }
-            if (!start.equals(s.getStart())) {
-                changed = true;
-                s.setStart(start);
-            }
-            if (!end.equals(s.getEnd())) {
-                changed = true;
-                s.setEnd(end);
-            }
-            if (!rel.equals(s.getRelative())) {
-                changed = true;
-                s.setRelative(rel);
-            }
-            if (!bpm.equals(s.getBPM())) {
-                changed = true;
-                s.setBPM(bpm);
-            }
-            if (!gap.equals(s.getGap())) {
-                changed = true;
-                s.setGap(gap);
-            }
-            if (!album.equals(s.getAlbum())) {
-                changed = true;
-                s.setAlbum(album);
-            }
-            if (!id.equals(s.getID())) {
-                changed = true;
-                s.setID(id);
-            }
-            if (!versionid.equals(s.getVersionID())) {
-                changed = true;
-                s.setVersionID(versionid);
-            }
-            if (!length.equals(s.getLength())) {
-                changed = true;
-                s.setLength(length);
-            }
-            if (!previewstart.equals(s.getPreviewStart())) {
-                changed = true;
-                s.setPreviewStart(previewstart);
-            }
-            if (!medleystartbeat.equals(s.getMedleyStartBeat())) {
-                changed = true;
-                s.setMedleyStartBeat(medleystartbeat);
-            }
-            if (!medleyendbeat.equals(s.getMedleyEndBeat())) {
-                changed = true;
-                s.setMedleyEndBeat(medleyendbeat);
-            }
-
-            if (!multiplayerString.equals(s.getMultiplayer())) {
-                changed = true;
-                s.setMultiplayer(multiplayerString);
-            }
-            if (!duetSingerNames.equals(s.getDuetSingerNames())) {
-                changed = true;
-                s.setDuetSingerNames(duetSingerNames);
-            }
-            if (!encoding.equals(s.getEncoding())) {
-                changed = true;
-                s.setEncoding(encoding);
-            }
-            if (!calcMedley.equals(s.getCalcMedley())) {
-                changed = true;
-                s.setCalcMedley(calcMedley);
-            }
-            if (!audio.equals(s.getAudio())) {
-                changed = true;
-                s.setAudio(audio);
-            }
-            if (!instrumental.equals(s.getInstrumental())) {
-                changed = true;
-                s.setInstrumental(instrumental);
-            }
-            if (!vocals.equals(s.getVocals())) {
-                changed = true;
-                s.setVocals(vocals);
-            }
-            if (!tags.equals(s.getTags())) {
-                changed = true;
-                s.setTags(tags, StringUtils.isNotEmpty(s.getTags()));
-            }
-            if (!providedBy.equals(s.getProvidedBy())) {
-                changed = true;
-                s.setProvidedBy(providedBy);
-            }
-            int usdbSongId = 0;
-            try {
-                UsdbSyncerMetaFileLoader loader = new UsdbSyncerMetaFileLoader(s.getDirectory());
-                usdbSongId = loader.getMetaFile() != null ? loader.getMetaFile().getSongId() : 0;
-            } catch (RuntimeException ex) {
-                LOGGER.log(Level.WARNING, "Skipping broken USDB meta information for " + s.getDirectory(), ex);
-            }
-            if (usdbSongId != s.getUsdbSongId()) {
-                changed = true;
-                s.setUsdbSongId(usdbSongId);
-            }
-            if (showLyrics) {
-                String txt = t.getText().trim();
-                txt = txt.replaceAll("[-|~|\r|" + YassRow.HYPHEN + "]", "");
-                //txt = txt.replaceAll("[\n]", "<br>");
-                s.setLyrics(txt);
-                changed = true;
-            }
-
+            changed = applySongDetails(s, new File(filename).lastModified(), tag -> {
+                YassRow r = tm.getCommentRow(tag);
+                return r != null ? r.getHeaderComment() : "";
+            }, t.getPlayerCount(), t.getDuetSingerNamesAsString(), t.getEncoding(), showLyrics ? t.getText() : null);
+            updateSearchIndex(s, t.getText());
             s.clearMessages();
             if (showErrors) {
-                auto.checkData(t, true, true);
+                synchronized (auto) {
+                    auto.checkData(t, true, true);
+                }
                 Hashtable<?, ?> hash = tm.collectMessages();
                 for (int j = 0; j < YassRow.ALL_MESSAGES.length; j++) {
                     Vector<?> msg = (Vector<?>) hash.get(YassRow.ALL_MESSAGES[j]);
@@ -3935,30 +3939,330 @@ public class YassSongList extends JTable {
                     st.calcStats(s, t);
                     changed = true;
                 }
+                getStatsCache().put(filename, s.getTimestamp(), s.getStats());
             }
         }
         return changed;
     }
 
-    private int countTitleCaseExceptions(String title) {
-        if (titleCaseExceptions == null) {
-            titleCaseExceptions = initTitleCaseExceptions();
+    /**
+     * Loads the details shown in the library. Unless error columns or statistics that are not cached need the
+     * whole song, the file is only read by a {@link SongSummaryParser}.
+     *
+     * @param s song
+     * @param t table to use if the whole song must be loaded
+     * @return true if the song has changed
+     */
+    public boolean indexSongDetails(YassSong s, YassTable t) {
+        File file = new File(s.getDirectory(), s.getFilename());
+        float[] stats = showStats
+                ? getStatsCache().get(s.getDirectory() + File.separator + s.getFilename(), file.lastModified())
+                : null;
+        if (showErrors || (showStats && stats == null)) {
+            return loadSongDetails(s, t);
+        }
+        SongSummaryParser.SongSummary summary = prefetchedSummaries.remove(file.getAbsolutePath());
+        if (summary == null || summary.getLastModified() != file.lastModified()) {
+            summary = summaryParsers.get().parse(file, true);
+        }
+        if (summary == null || !summary.isLoadable()) {
+            return false;
         }
-        return titleCaseExceptions.get(title) == null ? 0 : titleCaseExceptions.get(title);
-    }
-
-    private static boolean isEnglish(String language) {
-        return language.contains(
-                Locale.ENGLISH.getDisplayLanguage(Locale.ENGLISH)) ||
-                language.contains(Locale.ENGLISH.getDisplayLanguage(Locale.GERMAN));
+        boolean changed = applySongDetails(s, summary.getLastModified(), summary::getHeader, summary.getPlayerCount(),
+                                           summary.getDuetSingerNames(), summary.getEncoding(),
+                                           showLyrics ? summary.getLyrics() : null);
+        updateSearchIndex(s, summary.getLyrics());
+        s.clearMessages();
+        s.setStats(stats);
+        return changed || stats != null;
     }
 
-    private boolean isFiltering() {
-        if (filterThread == null) {
-            return true;
-        }
-        return !filterThread.isFinished;
-    }
+    /**
+     * Copies the tags of a song file into the song.
+     *
+     * @param header      returns the value of a header tag, or an empty string
+     * @param duetSingers singer names of duets
+     * @param text        lyrics, or null if they are not shown
+     * @return true if the song has changed
+     */
+    private boolean applySongDetails(YassSong s, long timestamp, Function<String, String> header, int multiplayer,
+                                     String duetSingers, String encoding, String text) {
+        String duetSingerNames = "";
+        boolean changed = false;
+        if (timestamp != s.getTimestamp()) {
+            changed = true;
+            s.setTimestamp(timestamp);
+        }
+        String title = header.apply(TITLE.getTagName());
+        String artist = header.apply(ARTIST.getTagName());
+        String mp3 = header.apply(MP3.getTagName());
+        String cover = header.apply(COVER.getTagName());
+        String background = header.apply(BACKGROUND.getTagName());
+        String video = header.apply(VIDEO.getTagName());
+        String edition = header.apply(EDITION.getTagName());
+        String genre = header.apply(GENRE.getTagName());
+        String language = header.apply(LANGUAGE.getTagName());
+        String year = header.apply(YEAR.getTagName());
+
+        String vgap = header.apply(VIDEOGAP.getTagName());
+        String start = header.apply(START.getTagName());
+        String end = header.apply(END.getTagName());
+        String rel = header.apply(RELATIVE.getTagName());
+        String bpm = header.apply(BPM.getTagName());
+        String gap = header.apply(GAP.getTagName());
+
+        String album = header.apply(ALBUM.getTagName());
+        String id = header.apply("ID:");
+        String versionid = header.apply("VERSION:");
+        String length = header.apply("LENGTH:");
+        String previewstart = header.apply("PREVIEWSTART:");
+        String medleystartbeat = header.apply("MEDLEYSTARTBEAT:");
+        String medleyendbeat = header.apply("MEDLEYENDBEAT:");
+        String calcMedley = header.apply(CALCMEDLEY.getTagName());
+        String audio = header.apply(AUDIO.getTagName());
+        String instrumental = header.apply(INSTRUMENTAL.getTagName());
+        String vocals = header.apply(VOCALS.getTagName());
+        String tags = header.apply(TAGS.getTagName());
+        String providedBy = header.apply(PROVIDEDBY.getTagName());
+
+        String multiplayerString = "";
+        if (multiplayer > 1) {
+            duetSingerNames = duetSingers;
+            multiplayerString = multiplayer+"";
+        }
+
+        if (encoding==null) encoding="";
+        boolean shouldCheckTitleCase = !isFiltering() && !skipTitleCase && titleCaseCheckRunning && isEnglish(language);
+        LOGGER.fine("Title Case evaluation for " + s.getArtist() + " - " + s.getTitle()
+                + ": filtering=" + isFiltering()
+                + ", skipTitleCase=" + skipTitleCase
+                + ", titleCaseCheckRunning=" + titleCaseCheckRunning
+                + ", english=" + isEnglish(language)
+                + ", shouldCheck=" + shouldCheckTitleCase);
+        if (shouldCheckTitleCase) {
+            title = promptTitleCase(s, title);
+        }
+        if (!title.equals(s.getTitle())) {
+            changed = true;
+            s.setTitle(title);
+        }
+        if (!artist.equals(s.getArtist())) {
+            changed = true;
+            s.setArtist(artist);
+
+            String sorted_artist = null;
+            if (moveArticles) {
+                sorted_artist = getSortedArtist(artist, language);
+            }
+            s.setSortedArtist(sorted_artist);
+        }
+        if (!duetSingerNames.equals(s.getDuetSingerNames())) {
+            changed = true;
+            s.setDuetSingerNames(duetSingerNames);
+        }
+        if (!mp3.equals(s.getMP3())) {
+            changed = true;
+            s.setMP3(mp3);
+        }
+        if (!cover.equals(s.getCover())) {
+            changed = true;
+            s.setCover(cover);
+        }
+        if (!background.equals(s.getBackground())) {
+            changed = true;
+            s.setBackground(background);
+        }
+        if (!video.equals(s.getVideo())) {
+            changed = true;
+            s.setVideo(video);
+        }
+        if (!edition.equals(s.getEdition())) {
+            changed = true;
+            s.setEdition(edition);
+        }
+        if (!genre.equals(s.getGenre())) {
+            changed = true;
+            s.setGenre(genre);
+        }
+        if (!language.equals(s.getLanguage())) {
+            changed = true;
+            s.setLanguage(language);
+        }
+        if (!year.equals(s.getYear())) {
+            changed = true;
+            s.setYear(year);
+        }
+
+        if (!vgap.equals(s.getVideoGap())) {
+            changed = true;
+            s.setVideoGap(vgap);
+        }
+        if (!start.equals(s.getStart())) {
+            changed = true;
+            s.setStart(start);
+        }
+        if (!end.equals(s.getEnd())) {
+            changed = true;
+            s.setEnd(end);
+        }
+        if (!rel.equals(s.getRelative())) {
+            changed = true;
+            s.setRelative(rel);
+        }
+        if (!bpm.equals(s.getBPM())) {
+            changed = true;
+            s.setBPM(bpm);
+        }
+        if (!gap.equals(s.getGap())) {
+            changed = true;
+            s.setGap(gap);
+        }
+        if (!album.equals(s.getAlbum())) {
+            changed = true;
+            s.setAlbum(album);
+        }
+        if (!id.equals(s.getID())) {
+            changed = true;
+            s.setID(id);
+        }
+        if (!versionid.equals(s.getVersionID())) {
+            changed = true;
+            s.setVersionID(versionid);
+        }
+        if (!length.equals(s.getLength())) {
+            changed = true;
+            s.setLength(length);
+        }
+        if (!previewstart.equals(s.getPreviewStart())) {
+            changed = true;
+            s.setPreviewStart(previewstart);
+        }
+        if (!medleystartbeat.equals(s.getMedleyStartBeat())) {
+            changed = true;
+            s.setMedleyStartBeat(medleystartbeat);
+        }
+        if (!medleyendbeat.equals(s.getMedleyEndBeat())) {
+            changed = true;
+            s.setMedleyEndBeat(medleyendbeat);
+        }
+
+        if (!multiplayerString.equals(s.getMultiplayer())) {
+            changed = true;
+            s.setMultiplayer(multiplayerString);
+        }
+        if (!duetSingerNames.equals(s.getDuetSingerNames())) {
+            changed = true;
+            s.setDuetSingerNames(duetSingerNames);
+        }
+        if (!encoding.equals(s.getEncoding())) {
+            changed = true;
+            s.setEncoding(encoding);
+        }
+        if (!calcMedley.equals(s.getCalcMedley())) {
+            changed = true;
+            s.setCalcMedley(calcMedley);
+        }
+        if (!audio.equals(s.getAudio())) {
+            changed = true;
+            s.setAudio(audio);
+        }
+        if (!instrumental.equals(s.getInstrumental())) {
+            changed = true;
+            s.setInstrumental(instrumental);
+        }
+        if (!vocals.equals(s.getVocals())) {
+            changed = true;
+            s.setVocals(vocals);
+        }
+        if (!tags.equals(s.getTags())) {
+            changed = true;
+            s.setTags(tags, StringUtils.isNotEmpty(s.getTags()));
+        }
+        if (!providedBy.equals(s.getProvidedBy())) {
+            changed = true;
+            s.setProvidedBy(providedBy);
+        }
+        int usdbSongId = 0;
+        try {
+            UsdbSyncerMetaFileLoader loader = new UsdbSyncerMetaFileLoader(s.getDirectory());
+            usdbSongId = loader.getMetaFile() != null ? loader.getMetaFile().getSongId() : 0;
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Skipping broken USDB meta information for " + s.getDirectory(), ex);
+        }
+        if (usdbSongId != s.getUsdbSongId()) {
+            changed = true;
+            s.setUsdbSongId(usdbSongId);
+        }
+        if (text != null) {
+            String txt = text.trim();
+            txt = txt.replaceAll("[-|~|\r|" + YassRow.HYPHEN + "]", "");
+            //txt = txt.replaceAll("[\n]", "<br>");
+            s.setLyrics(txt);
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Asks whether the title should be title-cased. Library scans may run on several threads, so the
+     * prompts and the exception bookkeeping are serialized.
+     *
+     * @return the title to use
+     */
+    private String promptTitleCase(YassSong s, String title) {
+        synchronized (titleCaseLock) {
+            if (skipTitleCase) {
+                return title;
+            }
+            String titleCased;
+            if (prop.getProperty("titlecase").equals("simple")) {
+                titleCased = WordUtils.capitalize(title);
+            } else {
+                titleCased = TitleCaseConverter.toApTitleCase(title);
+            }
+            int count = countTitleCaseExceptions(title);
+            if (!title.equals(titleCased) && count < 3) {
+                LOGGER.fine("Title Case prompt for " + s.getArtist() + " - " + s.getTitle()
+                        + ": current='" + title + "', suggested='" + titleCased + "', exceptions=" + count);
+                String message = MessageFormat.format(I18.get("lib_msg_correct_titlecase_msg"),
+                                                      title,
+                                                      TitleCaseConverter.highlightDiff(title, titleCased));
+                int input = JOptionPane.showConfirmDialog(actions.getTab(),
+                                                          "<html>" + message + "</html>",
+                                                          I18.get("lib_msg_correct_titlecase_title"),
+                                                          JOptionPane.YES_NO_CANCEL_OPTION);
+                if (input == JOptionPane.YES_OPTION) {
+                    title = titleCased;
+                    s.setSaved(false);
+                    titleCaseChanges = true;
+                } else if (input == JOptionPane.NO_OPTION) {
+                    titleCaseExceptions.put(title, ++count);
+                    titleCaseChanges = true;
+                } else if (input == JOptionPane.CANCEL_OPTION) {
+                    skipTitleCase = true;
+                }
+            }
+            return title;
+        }
+    }
+
+    private int countTitleCaseExceptions(String title) {
+        if (titleCaseExceptions == null) {
+            titleCaseExceptions = initTitleCaseExceptions();
+        }
+        return titleCaseExceptions.get(title) == null ? 0 : titleCaseExceptions.get(title);
+    }
+
+    private static boolean isEnglish(String language) {
+        return language.contains(
+                Locale.ENGLISH.getDisplayLanguage(Locale.ENGLISH)) ||
+                language.contains(Locale.ENGLISH.getDisplayLanguage(Locale.GERMAN));
+    }
+
+    private boolean isFiltering() {
+        return !filterStarted || libraryFilter.isBusy() || pendingFilterResults.get() > 0;
+    }
 
     /**
      * Description of the Method
@@ -4012,9 +4316,22 @@ public class YassSongList extends JTable {
         }
 
         Vector<YassSong> data = getUnfilteredData();
-        List<String> songcacheList = data.stream().map(song -> song.toString()).collect(Collectors.toList());
-        Path songCache = Paths.get(cache.getAbsolutePath());
-        fileUtils.writeFile(songcacheList, songCache);
+        storeSearchIndex();
+        storeStatsCache();
+        if (useBinaryCache() && SongListCache.store(getBinaryCacheFile(), data)) {
+            // the text cache would be outdated now
+            if (cache.exists()) {
+                cache.delete();
+            }
+        } else {
+            List<String> songcacheList = data.stream().map(song -> song.toString()).collect(Collectors.toList());
+            Path songCache = Paths.get(cache.getAbsolutePath());
+            fileUtils.writeFile(songcacheList, songCache);
+            File binaryCache = getBinaryCacheFile();
+            if (binaryCache.exists()) {
+                binaryCache.delete();
+            }
+        }
 
         if (pldata != null) {
             String plcacheName = prop.getProperty("playlist-cache");
@@ -4910,6 +5227,21 @@ public class YassSongList extends JTable {
         startPlaying(0, -1);
     }
 
+    /**
+     * @return audio files of the songs listed after a row, as many as are converted ahead
+     */
+    private List<String> getAudioFilesAfter(int row) {
+        List<String> files = new ArrayList<>();
+        int count = prop.getIntProperty(AudioTempCache.PREFETCH_PROPERTY);
+        for (int r = row + 1; r < getRowCount() && files.size() < count; r++) {
+            YassSong s = sm.getRowAt(r);
+            if (s.getDirectory() != null && s.getMP3() != null) {
+                files.add(s.getDirectory() + File.separator + s.getMP3());
+            }
+        }
+        return files;
+    }
+
     /**
      * Description of the Method
      *
@@ -4933,6 +5265,7 @@ public class YassSongList extends JTable {
         YassPlayer mp3 = actions.getMP3();
         mp3.setHasPlaybackRenderer(false);
         mp3.openMP3(filename);
+        mp3.prefetch(getAudioFilesAfter(i));
 
         String txt = s.getDirectory() + File.separator + s.getFilename();
         YassTable t = new YassTable();
@@ -5075,121 +5408,237 @@ public class YassSongList extends JTable {
      * @param str Description of the Parameter
      */
     public void filter(String str) {
-        interruptFilter();
-        filterThread = new FilterThread(str);
-        filterThread.start();
+        filterStarted = true;
+        YassFilter pre = prefilter;
+        boolean lyrics = filterAll;
+        // search terms are debounced while typing, showing all songs is not
+        long delay = str == null ? 0 : prop.getIntProperty(LibraryFilter.DELAY_PROPERTY);
+        libraryFilter.submit(g -> runFilter(str, pre, lyrics, g), delay);
     }
 
     /**
-     * Description of the Method
+     * Cancels the current filter and waits until it has stopped.
      */
     public void interruptFilter() {
-        if (filterThread != null) {
-            YassFilter.isInterrupted = true;
-            filterThread.isInterrupted = true;
-            int n = 10;
-            while (!filterThread.isFinished && --n > 0) {
-                try {
-                    Thread.currentThread().wait(100);
-                } catch (Exception ignored) {}
-            }
-        }
+        libraryFilter.cancel();
+        libraryFilter.await();
     }
 
     /**
-     * Description of the Method
+     * Filters all songs by prefilter and search term on the filter thread. The prefilter is evaluated in parallel
+     * if it allows it; the result is published to the table in one update on the event dispatch thread.
      *
-     * @return Description of the Return Value
+     * @param str    search term, optionally negated by a leading ! or -, or null for all songs
+     * @param pre    prefilter of the selected group, or null
+     * @param lyrics also search the lyrics
      */
-    public boolean cacheLyrics() {
-        String cacheName = prop.getProperty("lyrics-cache");
+    private void runFilter(String str, YassFilter pre, boolean lyrics, LibraryFilter.Generation generation) {
+        Vector<YassSong> songs = allData;
+        if (songs == null) {
+            return;
+        }
+        boolean all = str == null;
+        boolean negate = false;
+        String term = "";
+        if (!all) {
+            term = str.toLowerCase().trim();
+            if (term.startsWith("!")) {
+                negate = true;
+                term = term.substring(1).trim();
+            }
+            if (term.startsWith("-")) {
+                negate = true;
+                term = term.substring(1).trim();
+            }
+        }
+        List<YassSong> items = new ArrayList<>(songs);
 
-        BufferedWriter bw = null;
-        OutputStreamWriter osw = null;
-        FileOutputStream fos = null;
+        if (pre != null) {
+            YassFilter.isInterrupted = false;
+            if (!pre.start(songs) || generation.isCancelled()) {
+                pre.stop();
+                return;
+            }
+        }
+        Set<String> lyricsMatches = null;
+        if (lyrics && !all) {
+            updateSearchIndex(songs, generation);
+            lyricsMatches = getSearchIndex().search(term);
+        }
 
-        PrintWriter outputStream = null;
-        try {
-            File f = new File(cacheName);
-            if (f.exists()) {
-                f.delete();
+        actions.setProgress(I18.get("lib_msg_filter"), items.size());
+        String dir = prop.getProperty("song-directory");
+        long startTime = System.currentTimeMillis();
+        IntConsumer progress = n -> {
+            if (System.currentTimeMillis() > startTime + 300) {
+                actions.setProgress(n);
+                actions.setProgress(MessageFormat.format(I18.get("lib_msg_filter_n"), n), dir);
+            }
+        };
+        String searchTerm = term;
+        boolean not = negate;
+        Set<String> lyricsHits = lyricsMatches;
+        Predicate<YassSong> accept = s -> {
+            if (pre != null && !pre.accept(s)) {
+                return false;
             }
+            if (all) {
+                return true;
+            }
+            String t = s.getDirectory() + File.separator + s.getFilename();
+            boolean add = YassFilter.containsIgnoreCase(t, searchTerm) ||
+                    YassFilter.containsIgnoreCase(s.getTitle(), searchTerm) ||
+                    YassFilter.containsIgnoreCase(s.getArtist(), searchTerm) ||
+                    YassFilter.containsIgnoreCase(s.getLanguage(), searchTerm) ||
+                    YassFilter.containsIgnoreCase(s.getTags(), searchTerm) ||
+                    YassFilter.containsIgnoreCase(s.getEdition(), searchTerm) ||
+                    YassFilter.containsIgnoreCase(s.getGenre(), searchTerm) ||
+                    YassFilter.containsIgnoreCase(s.getDuetSingerNames(), searchTerm) ||
+                    (lyricsHits != null && lyricsHits.contains(t));
+            return add != not;
+        };
+        List<YassSong> result;
+        if (pre == null || pre.isThreadSafe()) {
+            result = libraryFilter.select(items, accept, generation, progress);
+        } else {
+            result = LibraryFilter.selectSequentially(items, accept, generation, progress);
+        }
+        if (pre != null) {
+            pre.stop();
+        }
+        if (result == null) {
+            return;
+        }
+        Collections.sort(result);
+        storeSearchIndex();
 
-            fos = new FileOutputStream(f, false);
-            osw = new OutputStreamWriter(fos, "UTF-8");
-            bw = new BufferedWriter(osw);
-            outputStream = new PrintWriter(bw);
+        pendingFilterResults.incrementAndGet();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                showFilterResult(result, generation, all, dir);
+            } finally {
+                pendingFilterResults.decrementAndGet();
+            }
+        });
+    }
 
-            for (Enumeration<YassSong> e = allData.elements(); e.hasMoreElements(); ) {
-                YassSong s = e.nextElement();
-                String txt = s.getLyrics();
-                if (txt == null) {
-                    continue;
-                }
-                outputStream.println("#SONG:" + s.getDirectory() + File.separator + s.getFilename());
-                outputStream.println(txt);
+    private void showFilterResult(List<YassSong> result, LibraryFilter.Generation generation, boolean all, String dir) {
+        if (generation.isCancelled()) {
+            return;
+        }
+        Vector<YassSong> data = new Vector<>(result);
+        int i = 1;
+        for (YassSong s : data) {
+            s.setState((i++) + "");
+        }
+        sm.setData(data);
+        sm.fireTableDataChanged();
+
+        actions.setProgress(0);
+        String msg = all ? I18.get("lib_msg") : I18.get("lib_msg_matches");
+        actions.setProgress(MessageFormat.format(msg, data.size()), dir);
+        changeSelection(0, 0, false, false);
+        repaint();
+    }
+
+    private SearchIndex getSearchIndex() {
+        synchronized (searchIndexLock) {
+            if (searchIndex == null) {
+                searchIndex = SearchIndex.load(getSearchIndexFile());
             }
-            outputStream.close();
-            return true;
-        } catch (Exception ignored) {}
-        finally {
-            try {
-                if (bw != null) {
-                    bw.close();
-                }
-                if (osw != null) {
-                    osw.close();
-                }
-                if (fos != null) {
-                    fos.close();
-                }
-            } catch (Exception ignored) {}
+            return searchIndex;
         }
-        return false;
+    }
+
+    private File getSearchIndexFile() {
+        return new File(prop.getProperty(SearchIndex.PROPERTY));
+    }
+
+    private void updateSearchIndex(YassSong s, String lyrics) {
+        getSearchIndex().update(s.getDirectory() + File.separator + s.getFilename(), s.getTimestamp(),
+                                s.getTitle(), s.getArtist(), s.getTags(), lyrics);
     }
 
     /**
-     * Description of the Method
+     * Writes the search index in the background if it has changed.
+     */
+    private void storeSearchIndex() {
+        SearchIndex index = searchIndex;
+        if (index == null || !index.isDirty()) {
+            return;
+        }
+        File file = getSearchIndexFile();
+        Thread t = new Thread(() -> index.store(file), "SearchIndexWriter");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private StatsCache getStatsCache() {
+        synchronized (statsCacheLock) {
+            if (statsCache == null) {
+                statsCache = StatsCache.load(getStatsCacheFile(), YassStats.allids);
+            }
+            return statsCache;
+        }
+    }
+
+    private File getStatsCacheFile() {
+        return new File(prop.getProperty(StatsCache.PROPERTY));
+    }
+
+    /**
+     * Sets the cached statistics of songs whose file has not changed since they were computed.
      *
-     * @return Description of the Return Value
+     * @return true if all songs had cached statistics
      */
-    public boolean loadLyricsCache() {
-        String cacheName = prop.getProperty("lyrics-cache");
+    private boolean applyCachedStats(Vector<YassSong> songs) {
+        StatsCache cache = getStatsCache();
+        boolean all = true;
+        for (YassSong s : songs) {
+            float[] stats = cache.get(s.getDirectory() + File.separator + s.getFilename(), s.getTimestamp());
+            s.setStats(stats);
+            all &= stats != null;
+        }
+        return all;
+    }
 
-        if (!new File(cacheName).exists()) {
-            return false;
+    /**
+     * Writes the statistics cache in the background if it has changed.
+     */
+    private void storeStatsCache() {
+        StatsCache cache = statsCache;
+        if (cache == null || !cache.isDirty()) {
+            return;
         }
+        File file = getStatsCacheFile();
+        Thread t = new Thread(() -> cache.store(file), "StatsCacheWriter");
+        t.setDaemon(true);
+        t.start();
+    }
 
-        lyricsCache = new Hashtable<>(2000);
-        unicode.UnicodeReader r = null;
-        BufferedReader inputStream = null;
-        FileInputStream fis = null;
-        try {
-            r = new unicode.UnicodeReader(fis = new FileInputStream(cacheName), null);
-            inputStream = new BufferedReader(r);
-
-            String l;
-            String key = null;
-            StringBuffer sb = new StringBuffer(4000);
-            while ((l = inputStream.readLine()) != null) {
-                if (l.startsWith("#SONG:")) {
-                    if (key != null) {
-                        lyricsCache.put(key, sb.toString());
-                        sb = new StringBuffer(4000);
-                    }
-                    key = l.substring(6);
-                } else {
-                    sb.append(l + "\n");
-                }
+    /**
+     * Adds songs that are missing in the search index or have changed since they were indexed.
+     */
+    private void updateSearchIndex(Vector<YassSong> songs, LibraryFilter.Generation generation) {
+        SearchIndex index = getSearchIndex();
+        SongSummaryParser parser = summaryParsers.get();
+        int k = 0;
+        for (YassSong s : songs) {
+            if (generation.isCancelled()) {
+                return;
+            }
+            File file = new File(s.getDirectory(), s.getFilename());
+            if (index.isCurrent(s.getDirectory() + File.separator + s.getFilename(), s.getTimestamp())) {
+                continue;
+            }
+            SongSummaryParser.SongSummary summary = parser.parse(file, true);
+            if (summary != null && summary.isLoadable()) {
+                updateSearchIndex(s, summary.getLyrics());
+            }
+            if (++k % 100 == 0) {
+                actions.setProgress(MessageFormat.format(I18.get("lib_msg_filter_n"), k), s.getDirectory());
             }
-            inputStream.close();
-            r.close();
-            fis.close();
-        } catch (Exception e) {
-            LOGGER.log(Level.INFO, e.getMessage(), e);
-            return false;
         }
-        return true;
     }
 
     /**
@@ -5403,12 +5852,15 @@ public class YassSongList extends JTable {
         /**
          * Description of the Field
          */
-        public boolean notInterrupted = true, all = true;
+        public volatile boolean notInterrupted = true;
+        public boolean all = true;
 
         /**
          * Description of the Field
          */
-        public int state = 0;
+        public volatile int state = 0;
+        // counted down when FINISHED is reached or the thread ends
+        final CountDownLatch done = new CountDownLatch(1);
         String dir = null;
         String libmsgsearch = null;
 
@@ -5427,40 +5879,82 @@ public class YassSongList extends JTable {
         /**
          * Main processing method for the WorkerThread object
          */
-        public void run() {
+        public final void run() {
+            try {
+                scan();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        void scan() {
             preventInteraction = true;
             state = YassSongListEvent.STARTING;
             fireSongListChanged(state);
 
+            int parallelism = LibraryScanner.resolveParallelism(prop);
             Vector<YassSong> newdata = null;
-            if (all) {
-                state = YassSongListEvent.UPDATING;
-                fireSongListChanged(state);
-
-                actions.setProgress(I18.get("lib_msg_search"));
-                newdata = new Vector<>(3000, 1000);
-                libmsgsearch = I18.get("lib_msg_search_n");
-                collect(newdata, new File(dir), "");
-            }
+            Vector<YassSong> data;
+            try (LibraryScanner scanner = parallelism > 1 ? new LibraryScanner(parallelism, () -> !notInterrupted) : null) {
+                if (all) {
+                    state = YassSongListEvent.UPDATING;
+                    fireSongListChanged(state);
+
+                    actions.setProgress(I18.get("lib_msg_search"));
+                    newdata = new Vector<>(3000, 1000);
+                    libmsgsearch = I18.get("lib_msg_search_n");
+                    if (scanner != null) {
+                        collectParallel(scanner, newdata, new File(dir));
+                    } else {
+                        collect(newdata, new File(dir), "");
+                    }
+                }
 
-            Vector<YassSong> data = all ? newdata : sm.getData();
+                data = all ? newdata : sm.getData();
 
-            state = YassSongListEvent.LOADING;
-            fireSongListChanged(state);
-            actions.setProgress(I18.get("lib_msg_load"), data.size());
-
-            int i = 0;
-            YassTable t = new YassTable();
-            t.init(prop);
-            String libmsgload = I18.get("lib_msg_load_n");
-            for (Enumeration<?> e = data.elements(); e.hasMoreElements() && notInterrupted; ) {
-                YassSong s = (YassSong) e.nextElement();
-                if (loadSongDetails(s, t)) {
-                    //repaintIfVisible(i);
-                    actions.setProgress(++i);
-                    actions.setProgress(MessageFormat.format(libmsgload, i), s.getDirectory());
+                state = YassSongListEvent.LOADING;
+                fireSongListChanged(state);
+                actions.setProgress(I18.get("lib_msg_load"), data.size());
+
+                String libmsgload = I18.get("lib_msg_load_n");
+                if (scanner != null) {
+                    scanner.process(new ArrayList<>(data), () -> {
+                        YassTable t = new YassTable();
+                        t.init(prop);
+                        return t;
+                    }, YassSongList.this::indexSongDetails, n -> {
+                        actions.setProgress(n);
+                        actions.setProgress(MessageFormat.format(libmsgload, n), dir);
+                    });
+                } else {
+                    int i = 0;
+                    YassTable t = new YassTable();
+                    t.init(prop);
+                    for (Enumeration<?> e = data.elements(); e.hasMoreElements() && notInterrupted; ) {
+                        YassSong s = (YassSong) e.nextElement();
+                        if (indexSongDetails(s, t)) {
+                            //repaintIfVisible(i);
+                            actions.setProgress(++i);
+                            actions.setProgress(MessageFormat.format(libmsgload, i), s.getDirectory());
+                        }
+                    }
+                }
+                if (all && notInterrupted) {
+                    List<File> files = data.stream()
+                                           .map(s -> new File(s.getDirectory(), s.getFilename()))
+                                           .collect(Collectors.toList());
+                    LibraryManifest.build(dir, files, scanner).store(getManifestFile());
+                    getSearchIndex().retainAll(data.stream()
+                                                   .map(s -> s.getDirectory() + File.separator + s.getFilename())
+                                                   .collect(Collectors.toList()));
+                    if (showStats) {
+                        getStatsCache().retainAll(data.stream()
+                                                      .map(s -> s.getDirectory() + File.separator + s.getFilename())
+                                                      .collect(Collectors.toList()));
+                    }
                 }
             }
+            prefetchedSummaries.clear();
             Collections.sort(data);
 
             if (all) {
@@ -5478,6 +5972,7 @@ public class YassSongList extends JTable {
             fireSongListChanged(state);
             actions.setLibraryLoaded(true);
             preventInteraction = false;
+            SwingUtilities.invokeLater(YassSongList.this::startWatcher);
 
             // keep prefilter and sortby
             filter(null);
@@ -5492,6 +5987,7 @@ public class YassSongList extends JTable {
             actions.setProgress(MessageFormat.format(I18.get("lib_msg"), data.size()), dir);
 
             state = YassSongListEvent.FINISHED;
+            done.countDown();
             fireSongListChanged(state);
             if (titleCaseChanges) {
                 saveTitleCaseExceptions(titleCaseExceptions);
@@ -5536,6 +6032,27 @@ public class YassSongList extends JTable {
             return false;
         }
 
+        /**
+         * Same as {@link #collect(Vector, File, String)}, but walks sibling directories concurrently.
+         *
+         * @param scanner pool to walk on
+         * @param data    receives the songs in directory order
+         * @param d       song directory
+         */
+        private void collectParallel(LibraryScanner scanner, Vector<YassSong> data, File d) {
+            LibraryScanner.ScanResult result = scanner.collect(d,
+                    f -> f.getName().toLowerCase().endsWith(songFileType) && checkSongFile(f),
+                    f -> f.getName().toLowerCase().endsWith(playlistFileType) && YassPlayList.isPlayList(f));
+            for (LibraryScanner.SongFile songFile : result.songs()) {
+                File f = songFile.file();
+                data.addElement(new YassSong(f.getParentFile().getAbsolutePath(), songFile.folder(), f.getName(), "", ""));
+            }
+            for (File playlist : result.playlists()) {
+                pldata.addElement(playlist.getAbsolutePath());
+            }
+            actions.setProgress(MessageFormat.format(libmsgsearch, data.size()), d.getPath());
+        }
+
         /**
          * Description of the Method
          *
@@ -5552,7 +6069,7 @@ public class YassSongList extends JTable {
                     if (dirs[i].isDirectory()) {
                         collect(data, dirs[i], d.getName());
                     } else {
-                        if (namelow.endsWith(songFileType) && quickCheck(dirs[i])) {
+                        if (namelow.endsWith(songFileType) && checkSongFile(dirs[i])) {
                             data.addElement(new YassSong(d.getAbsolutePath(), folder, name, "", ""));
                             actions.setProgress(MessageFormat.format(libmsgsearch, data.size()), d.getPath());
                         }
@@ -5563,41 +6080,128 @@ public class YassSongList extends JTable {
                 }
             }
         }
+    }
 
+    /**
+     * Refreshes the library from the manifest of the last scan: only added and changed song files are
+     * parsed, deleted songs are dropped and all other songs keep their cached details.
+     */
+    class RescanThread extends WorkerThread {
+        private final LibraryManifest manifest;
 
-        /**
-         * Description of the Method
-         *
-         * @param f Description of the Parameter
-         * @return Description of the Return Value
-         */
-        public boolean quickCheck(File f) {
-            if (f.length() > 1024 * 1024) {
-                return false;
-            }
-            try {
-                char cstr[] = new char[8];
-
-                //BufferedReader inputStream = new BufferedReader(new FileReader(f));
-                unicode.UnicodeReader r = new unicode.UnicodeReader(new FileInputStream(f), null);
-                BufferedReader inputStream = new BufferedReader(r);
-
-                int len;
-                String line = inputStream.readLine();
-                while (line.startsWith("#")) {
-                    String headerTag = line.substring(1, line.indexOf(":") + 1).toUpperCase();
-                    if (UltrastarHeaderTag.getTag(headerTag) != null) {
-                        inputStream.close();
-                        return true;
-                    } else {
-                        LOGGER.info("Invalid Header Tag for " + f.getName());
+        public RescanThread(String d, LibraryManifest manifest) {
+            super(true, d);
+            this.manifest = manifest;
+        }
+
+        @Override
+        void scan() {
+            preventInteraction = true;
+            state = YassSongListEvent.STARTING;
+            fireSongListChanged(state);
+            state = YassSongListEvent.UPDATING;
+            fireSongListChanged(state);
+            actions.setProgress(I18.get("lib_msg_search"));
+
+            Vector<YassSong> base = allData;
+            int parallelism = LibraryScanner.resolveParallelism(prop);
+            try (LibraryScanner scanner = new LibraryScanner(parallelism, () -> !notInterrupted)) {
+                LibraryScanner.ScanResult result = scanner.collect(new File(dir),
+                        f -> f.getName().toLowerCase().endsWith(songFileType) && (manifest.isUnchanged(f) || checkSongFile(f)),
+                        f -> f.getName().toLowerCase().endsWith(playlistFileType) && YassPlayList.isPlayList(f));
+                Map<String, String> folders = new HashMap<>();
+                List<File> files = new ArrayList<>(result.songs().size());
+                for (LibraryScanner.SongFile songFile : result.songs()) {
+                    files.add(songFile.file());
+                    folders.put(songFile.file().getAbsolutePath(), songFile.folder());
+                }
+                LibraryManifest.Diff diff = manifest.diff(files);
+                LOGGER.info("Library rescan: " + diff.added().size() + " added, " + diff.changed().size()
+                                    + " changed, " + diff.removed().size() + " removed, " + diff.touched().size()
+                                    + " touched");
+
+                Map<String, YassSong> byPath = new HashMap<>(base.size() * 2);
+                for (YassSong s : base) {
+                    byPath.put(s.getDirectory() + File.separator + s.getFilename(), s);
+                }
+                Set<String> removed = new HashSet<>(diff.removed());
+                base.removeIf(s -> removed.contains(s.getDirectory() + File.separator + s.getFilename()));
+                Vector<YassSong> toLoad = new Vector<>();
+                List<File> reparse = new ArrayList<>(diff.added());
+                reparse.addAll(diff.changed());
+                for (File f : reparse) {
+                    String path = f.getAbsolutePath();
+                    YassSong s = byPath.get(path);
+                    if (s == null) {
+                        s = new YassSong(f.getParentFile().getAbsolutePath(), folders.get(path), f.getName(), "", "");
+                        base.add(s);
                     }
-                    line = inputStream.readLine();
+                    toLoad.add(s);
                 }
-                inputStream.close();
-            } catch (Exception e) {
+                pldata.clear();
+                for (File playlist : result.playlists()) {
+                    pldata.addElement(playlist.getAbsolutePath());
+                }
+
+                state = YassSongListEvent.LOADING;
+                fireSongListChanged(state);
+                actions.setProgress(I18.get("lib_msg_load"), toLoad.size());
+                String libmsgload = I18.get("lib_msg_load_n");
+                scanner.process(toLoad, () -> {
+                    YassTable t = new YassTable();
+                    t.init(prop);
+                    return t;
+                }, YassSongList.this::indexSongDetails, n -> {
+                    actions.setProgress(n);
+                    actions.setProgress(MessageFormat.format(libmsgload, n), dir);
+                });
+                prefetchedSummaries.clear();
+                if (!notInterrupted) {
+                    // keep the old manifest, the next refresh will pick up what is left
+                    state = YassSongListEvent.FINISHED;
+                    done.countDown();
+                    fireSongListChanged(state);
+                    return;
+                }
+
+                removed.forEach(getSearchIndex()::remove);
+                removed.forEach(manifest::remove);
+                diff.touched().forEach(manifest::put);
+                for (File f : reparse) {
+                    LibraryManifest.Entry entry = LibraryManifest.fingerprint(f);
+                    if (entry != null) {
+                        manifest.put(f.getAbsolutePath(), entry);
+                    }
+                }
+                manifest.store(getManifestFile());
+            }
+
+            Collections.sort(base);
+            allData = (Vector<YassSong>) base.clone();
+            rebuildLibraryMatchIndex();
+            sm.getData().clear();
+            sm.getData().addAll(base);
+            sm.fireTableDataChanged();
+            updateSelectionEdition();
+            storeCache();
+
+            state = YassSongListEvent.LOADED;
+            loaded = true;
+            fireSongListChanged(state);
+            actions.setLibraryLoaded(true);
+            preventInteraction = false;
+            SwingUtilities.invokeLater(YassSongList.this::startWatcher);
+            filter(null);
+
+            actions.setProgress(0);
+            actions.setProgress(MessageFormat.format(I18.get("lib_msg"), base.size()), dir);
+            state = YassSongListEvent.FINISHED;
+            done.countDown();
+            fireSongListChanged(state);
+            if (titleCaseChanges) {
+                saveTitleCaseExceptions(titleCaseExceptions);
+                store();
             }
-            return false;
         }
     }
 
@@ -5721,6 +6325,8 @@ public class YassSongList extends JTable {
          * Description of the Field
          */
         public boolean notInterrupted = true, finished = false, backup = true, allsongs = false;
+        // counted down when finished or the thread ends
+        final CountDownLatch done = new CountDownLatch(1);
         /**
          * Description of the Field
          */
@@ -5735,6 +6341,14 @@ public class YassSongList extends JTable {
          * Main processing method for the CorrectorThread object
          */
         public void run() {
+            try {
+                correct();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void correct() {
             Vector<YassSong> data = sm.getData();
             String filename;
             int i = 0;
@@ -5789,6 +6403,7 @@ public class YassSongList extends JTable {
             }
 
             finished = true;
+            done.countDown();
             storeCache();
 
             actions.setProgress(0);
@@ -6837,170 +7452,6 @@ public class YassSongList extends JTable {
         }
     }
 
-    /**
-     * Description of the Class
-     *
-     */
-    class FilterThread extends Thread {
-        boolean isInterrupted = false;
-        boolean isFinished = false;
-        private String str;
-
-
-        /**
-         * Constructor for the FilterThread object
-         *
-         * @param s Description of the Parameter
-         */
-        public FilterThread(String s) {
-            str = s;
-        }
-
-
-        /**
-         * Main processing method for the FilterThread object
-         */
-        public void run() {
-            boolean all = false;
-            boolean not = false;
-            if (str == null) {
-                all = true;
-            } else {
-                str = str.toLowerCase();
-                str = str.trim();
-                if (str.startsWith("!")) {
-                    not = true;
-                    str = str.substring(1);
-                    str = str.trim();
-                }
-                if (str.startsWith("-")) {
-                    not = true;
-                    str = str.substring(1);
-                    str = str.trim();
-                }
-            }
-
-            if (allData == null) {
-                return;
-            }
-            Vector<YassSong> fData = new Vector<>(allData.size());
-
-            if (prefilter != null) {
-                YassFilter.isInterrupted = false;
-                boolean ok = prefilter.start(allData);
-                if (!ok) {
-                    return;
-                }
-            }
-
-            if (filterAll && lyricsCache == null) {
-                loadLyricsCache();
-            }
-
-            actions.setProgress(I18.get("lib_msg_filter"), allData.size());
-            long startTime = System.currentTimeMillis();
-
-            YassTable ft = new YassTable();
-            boolean notInterrupted = true;
-            int k = 0;
-            for (Enumeration<YassSong> e = allData.elements(); e.hasMoreElements() && notInterrupted; ) {
-                YassSong s = e.nextElement();
-                boolean add = false;
-
-                if (isInterrupted) {
-                    isFinished = true;
-                    return;
-                }
-
-                ++k;
-                long currentTime = System.currentTimeMillis();
-                if (currentTime > startTime + 300) {
-                    actions.setProgress(k);
-                    actions.setProgress(MessageFormat.format(I18.get("lib_msg_filter_n"), k), s.getDirectory());
-                    Thread.yield();
-                }
-
-                if (prefilter != null && !prefilter.accept(s)) {
-                    continue;
-                }
-
-                String t = s.getDirectory() + File.separator + s.getFilename();
-                add = all || /* s.isLocked() || */ YassFilter.containsIgnoreCase(t, str) ||
-                        YassFilter.containsIgnoreCase(s.getTitle(), str) ||
-                        YassFilter.containsIgnoreCase(s.getArtist(), str) ||
-                        YassFilter.containsIgnoreCase(s.getLanguage(), str) ||
-                        YassFilter.containsIgnoreCase(s.getTags(), str) ||
-                        YassFilter.containsIgnoreCase(s.getEdition(), str) ||
-                        YassFilter.containsIgnoreCase(s.getGenre(), str) ||
-                        YassFilter.containsIgnoreCase(s.getDuetSingerNames(), str);
-
-                if (filterAll) {
-                    String txt = s.getLyrics();
-                    if (txt == null) {
-                        if (lyricsCache != null) {
-                            String key = s.getDirectory() + File.separator + s.getFilename();
-                            txt = lyricsCache.get(key);
-                        }
-                        if (txt == null) {
-                            loadSongDetails(s, ft);
-                        }
-                        txt = s.getLyrics();
-                    }
-                    if (txt != null) {
-                        add = add || YassFilter.containsIgnoreCase(txt, str);
-                    }
-                }
-                if ((add && !not) || (!add && not)) {
-                    fData.addElement(s);
-                }
-            }
-            if (prefilter != null) {
-                prefilter.stop();
-            }
-
-            if (isInterrupted) {
-                isFinished = true;
-                return;
-            }
-
-            sm.setData(fData);
-            //sm.fireTableDataChanged();
-
-            Collections.sort(sm.getData());
-            int i = 1;
-            Enumeration<YassSong> en = sm.getData().elements();
-            while (en.hasMoreElements()) {
-                en.nextElement().setState((i++) + "");
-
-                if (isInterrupted) {
-                    isFinished = true;
-                    return;
-                }
-            }
-            sm.fireTableDataChanged();
-
-            if (filterAll && lyricsCache == null) {
-                cacheLyrics();
-            }
-
-            actions.setProgress(0);
-
-            String dir = prop.getProperty("song-directory");
-
-            if (all) {
-                actions.setProgress(MessageFormat.format(I18.get("lib_msg"), sm.getData().size()), dir);
-            } else {
-                actions.setProgress(MessageFormat.format(I18.get("lib_msg_matches"), sm.getData().size()), dir);
-            }
-
-            SwingUtilities.invokeLater(() -> {
-                changeSelection(0, 0, false, false);
-                repaint();
-            });
-            isFinished = true;
-        }
-    }
-
     public boolean isTitleCaseChanged() {
         if (skipTitleCase) {
             return false;
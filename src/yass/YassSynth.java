@@ -135,6 +135,15 @@ public class YassSynth {
         return b;
     }
 
+    /**
+     * Gets the sample rate of the created notes and of the click sample.
+     *
+     * @return samples per second
+     */
+    public static int getSampleRate() {
+        return sampleRate;
+    }
+
     private static double getFrequency(int midi) {
         return 440 * Math.pow(2, (midi - 69) / 12.0);
     }
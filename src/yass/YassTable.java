@@ -71,6 +71,7 @@ public class YassTable extends JTable {
 
     public int multiSize = 1;
     private final YassTableModel tm;
+    private final NoteIndex noteIndex = new NoteIndex();
     private YassActions actions = null;
     private YassSheet sheet = null;
     private YassAutoCorrect auto = null;
@@ -88,6 +89,8 @@ public class YassTable extends JTable {
     private double bpm = 120, gap = 0, vgap = 0, start = 0, end = -1;
     private final int MAX_UNDO = 2048;
     private final Vector<YassUndoElement> undos = new Vector<>(MAX_UNDO);
+    // copies of the rows at undoPos; the elements only keep the rows that changed
+    private final List<YassRow> undoState = new ArrayList<>();
     // [0] = P1, [1] = P2, ...
     private String[] duetSingerNames = new String[8];
     private int undoPos = -1, redoMax = 0;
@@ -148,7 +151,7 @@ public class YassTable extends JTable {
                         if (!e.getValueIsAdjusting()) {
                             sheet.resetAbsolutePitchShiftTracking();
                         }
-                        sheet.repaint();
+                        sheet.repaintNotes();
                         // if (!e.getValueIsAdjusting()) {
                         //     sheet.logSelectedNotePitchDistribution();
                         // }
@@ -248,11 +251,12 @@ public class YassTable extends JTable {
                 int n = getRowCount();
                 if (i >= n || j >= n || t != TableModelEvent.UPDATE) {
                     sheet.init();
+                } else {
+                    // errors may affect unchanged notes,
+                    // which the sheet picks up with the changed rows
+                    sheet.updateRows(YassTable.this, i, j);
                 }
-                // errors may affect unchanged notes
-                // so always update all rows
                 if (t == TableModelEvent.UPDATE) {
-                    sheet.updateActiveTable(); // todo really active?
                     sheet.repaint();
                     sheet.firePropsChanged();
                 }
@@ -2280,6 +2284,7 @@ public class YassTable extends JTable {
 
     public void resetUndo() {
         undos.removeAllElements();
+        undoState.clear();
         undoPos = -1;
         redoMax = 0;
         if (actions != null) actions.updateActions();
@@ -2289,22 +2294,22 @@ public class YassTable extends JTable {
         if (preventUndo)
             return null;
 
+        // drop the redo steps; undoState belongs to undoPos
+        int n = undos.size();
+        while (n > undoPos + 1) {
+            undos.remove(n - 1);
+            n--;
+        }
         if (undoPos == MAX_UNDO - 1) {
             undos.remove(0);
+            undos.firstElement().rows = null;
         } else {
             undoPos++;
         }
 
-        Vector<YassRow> c = (Vector<YassRow>) tm.getData().clone();
-        int n = c.size();
-        for (int i = 0; i < n; i++) {
-            c.setElementAt(c.elementAt(i).clone(), i);
-        }
-
-        n = undos.size();
-        while (n > undoPos) {
-            undos.remove(n - 1);
-            n--;
+        YassRowChange c = YassRowChange.record(undoState, tm.getData());
+        if (undos.isEmpty()) {
+            c = null;
         }
         YassUndoElement ue;
         if (sheet != null) {
@@ -2338,8 +2343,14 @@ public class YassTable extends JTable {
         if (undoPos < 1) {
             return;
         }
-        undos.remove(undoPos - 1);
+        YassUndoElement removed = undos.remove(undoPos - 1);
         undoPos--;
+        YassUndoElement current = undos.elementAt(undoPos);
+        if (undoPos == 0 || removed.rows == null) {
+            current.rows = null;
+        } else {
+            current.rows = YassRowChange.merge(removed.rows, current.rows, undoState);
+        }
     }
 
     public YassUndoElement currentUndo() {
@@ -2354,12 +2365,8 @@ public class YassTable extends JTable {
         undoPos++;
 
         YassUndoElement undoElem = undos.elementAt(undoPos);
-
-        Vector<YassRow> c = (Vector<YassRow>) undoElem.data.clone();
-        int n = c.size();
-        for (int i = 0; i < n; i++) {
-            c.setElementAt(c.elementAt(i).clone(), i);
-        }
+        undoElem.rows.apply(undoState);
+        Vector<YassRow> c = copyUndoState();
 
         boolean oldUndo = preventUndo;
         preventUndo = true;
@@ -2403,16 +2410,12 @@ public class YassTable extends JTable {
         int n = undos.size();
         if (n < 1 || undoPos > n - 1 || undoPos <= 0)
             return;
+        undos.elementAt(undoPos).rows.revert(undoState);
         undoPos--;
         redoMax++;
 
         YassUndoElement undoElem = undos.elementAt(undoPos);
-
-        Vector<YassRow> c = (Vector<YassRow>) undoElem.data.clone();
-        n = c.size();
-        for (int i = 0; i < n; i++) {
-            c.setElementAt(c.elementAt(i).clone(), i);
-        }
+        Vector<YassRow> c = copyUndoState();
 
         boolean oldUndo = preventUndo;
         preventUndo = true;
@@ -2452,6 +2455,14 @@ public class YassTable extends JTable {
         }
     }
 
+    private Vector<YassRow> copyUndoState() {
+        Vector<YassRow> c = new RowVector(Math.max(3000, undoState.size()), 1000);
+        for (YassRow r : undoState) {
+            c.addElement(r.clone());
+        }
+        return c;
+    }
+
     private void restoreSheetViewportFromUndo(YassUndoElement undoElem) {
         if (sheet == null || undoElem == null) {
             return;
@@ -3000,8 +3011,7 @@ public class YassTable extends JTable {
             }
         }
         if (sheet != null) {
-            sheet.init();
-            sheet.update();
+            sheet.updateRows(this, rows[0], rows[rows.length - 1]);
             sheet.trackAbsolutePitchShiftForSelection(rows, h);
             // sheet.repaint();
         }
@@ -3344,36 +3354,27 @@ public class YassTable extends JTable {
         if (r == null || r.isComment()) {
             return 0;
         }
+        NoteIndex index = getNoteIndex();
         if (r.isEnd()) {
-            return getPageCount() + 1;
+            return index.getPageCount() + 1;
         }
+        return index.getPageNumber(row);
+    }
 
-        int pn = 1;
-        int i = 0;
-        Enumeration<?> en = tm.getData().elements();
-        while (en.hasMoreElements()) {
-            r = (YassRow) en.nextElement();
-            if (i == row) {
-                return pn;
-            }
-            if (r.isPageBreak()) {
-                pn++;
-            }
-            i++;
+    /**
+     * @return index of the notes and page breaks, built again if the rows changed
+     */
+    private NoteIndex getNoteIndex() {
+        Vector<YassRow> rows = tm.getData();
+        long version = tm.getVersion();
+        if (!noteIndex.isCurrent(rows, version)) {
+            noteIndex.rebuild(rows, version);
         }
-        return -1;
+        return noteIndex;
     }
 
     public int getPageCount() {
-        int pn = 1;
-        Enumeration<?> en = tm.getData().elements();
-        while (en.hasMoreElements()) {
-            YassRow r = (YassRow) en.nextElement();
-            if (r.isPageBreak()) {
-                pn++;
-            }
-        }
-        return pn;
+        return getNoteIndex().getPageCount();
     }
 
     public Vector<YassPage> getPages() {
@@ -3805,25 +3806,11 @@ public class YassTable extends JTable {
     }
 
     public YassRow getNoteAtBeat(int beat) {
-        YassRow r;
-        int i = 0;
-        int n = getRowCount();
-        while (i < n - 1) {
-            r = getRowAt(i++);
-            if (r.isNote() && r.getBeatInt() == beat) return r;
-        }
-        return null;
+        return getRowAt(getNoteIndex().getNoteAtBeat(beat));
     }
 
     public YassRow getNoteEndingAtBeat(int beat) {
-        YassRow r;
-        int i = 0;
-        int n = getRowCount();
-        while (i < n - 1) {
-            r = getRowAt(i++);
-            if (r.isNote() && r.getBeatInt() + r.getLengthInt() == beat) return r;
-        }
-        return null;
+        return getRowAt(getNoteIndex().getNoteEndingAtBeat(beat));
     }
 
     /**
@@ -3832,25 +3819,7 @@ public class YassTable extends JTable {
      * Stops search at any note that lays after the given beat.
      */
     public int getIndexOfNoteBeforeBeat(int beat) {
-        YassRow r;
-        int i = 0;
-        int iMin = -1;
-        int n = getRowCount();
-        int min = Integer.MAX_VALUE;
-        while (i < n - 1) {
-            r = getRowAt(i);
-            if (r.isNote()) {
-                int b = r.getBeatInt();
-                if (b <= beat) {
-                    if (beat - b < min) {
-                        min = beat - b;
-                        iMin = i;
-                    }
-                } else break;
-            }
-            i++;
-        }
-        return iMin;
+        return getNoteIndex().getNoteBeforeBeat(beat);
     }
 
     /**
@@ -3859,25 +3828,7 @@ public class YassTable extends JTable {
      * Stops search at any note that lays after the given beat.
      */
     public YassRow getNoteBeforeBeat(int beat) {
-        YassRow r;
-        YassRow rMin = null;
-        int i = 0;
-        int n = getRowCount();
-        int min = Integer.MAX_VALUE;
-        while (i < n - 1) {
-            r = getRowAt(i);
-            if (r.isNote()) {
-                int b = r.getBeatInt();
-                if (b <= beat) {
-                    if (beat - b < min) {
-                        min = beat - b;
-                        rMin = r;
-                    }
-                } else break;
-            }
-            i++;
-        }
-        return rMin;
+        return getRowAt(getNoteIndex().getNoteBeforeBeat(beat));
     }
 
     /**
@@ -3886,24 +3837,7 @@ public class YassTable extends JTable {
      * Stops search at any note end that lays after the given beat.
      */
     public YassRow getNoteEndingBeforeBeat(int beat) {
-        YassRow r;
-        YassRow rMin = null;
-        int i = 0;
-        int n = getRowCount();
-        int min = Integer.MAX_VALUE;
-        while (i < n - 1) {
-            r = getRowAt(i++);
-            if (r.isNote()) {
-                int b = r.getBeatInt() + r.getLengthInt();
-                if (b <= beat) {
-                    if (beat - b < min) {
-                        min = beat - b;
-                        rMin = r;
-                    }
-                } else break;
-            }
-        }
-        return rMin;
+        return getRowAt(getNoteIndex().getNoteEndingBeforeBeat(beat));
     }
 
     public void prevBeat() {
@@ -4529,20 +4463,7 @@ public class YassTable extends JTable {
     }
 
     public int getPage(int b) {
-        int pn = 1;
-        int i = 0;
-        Enumeration<?> en = tm.getData().elements();
-        while (en.hasMoreElements()) {
-            YassRow r = (YassRow) en.nextElement();
-            if (r.isNote() && pn == b) {
-                return i;
-            }
-            if (r.isPageBreak()) {
-                pn++;
-            }
-            i++;
-        }
-        return -1;
+        return getNoteIndex().getFirstNoteOfPage(b);
     }
 
     public void gotoPage(int b) {
@@ -8067,7 +7988,7 @@ public class YassTable extends JTable {
                 }
                 for (YassRow r : t.getModelData()) {
                     if (r.isNoteOrPageBreak())
-                        resData.addElement(r);
+                        resData.addElement(new YassRow(r));
                 }
                 i <<= 1;
             }
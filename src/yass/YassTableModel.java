@@ -22,6 +22,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import javax.swing.table.AbstractTableModel;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Vector;
 import java.util.logging.Logger;
@@ -34,7 +35,11 @@ import java.util.logging.Logger;
 public class YassTableModel extends AbstractTableModel {
     private static final long serialVersionUID = 879831241165423284L;
     private String[] columnNames;
-    private Vector<YassRow> data = new Vector<>(3000, 1000);
+    private RowVector data = new RowVector(3000, 1000);
+    // first comment row per tag, valid for these rows in this comment version
+    private final HashMap<String, YassRow> commentRows = new HashMap<>();
+    private RowVector commentRowsData = null;
+    private long commentRowsVersion = -1;
     private final static Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 
     /**
@@ -56,12 +61,13 @@ public class YassTableModel extends AbstractTableModel {
 
 
     /**
-     * Sets the data attribute of the YassTableModel object
+     * Sets the data attribute of the YassTableModel object. A vector that is not a list of
+     * rows of a model is copied.
      *
      * @param d The new data value
      */
     public void setData(Vector<YassRow> d) {
-        data = d;
+        data = d instanceof RowVector rows ? rows : new RowVector(d);
     }
 
 
@@ -294,6 +300,13 @@ public class YassTableModel extends AbstractTableModel {
     }
 
 
+    /**
+     * @return a number that changes whenever a row is added, removed, replaced or edited
+     */
+    long getVersion() {
+        return data.getVersion();
+    }
+
     /**
      * Gets the rowAt attribute of the YassTableModel object
      *
@@ -318,15 +331,27 @@ public class YassTableModel extends AbstractTableModel {
      * @return The commentRow value
      */
     public YassRow getCommentRow(String ctype) {
+        if (commentRowsData != data || commentRowsVersion != data.getCommentVersion()) {
+            indexCommentRows();
+        }
+        return commentRows.get(ctype);
+    }
+
+    /**
+     * Collects the first comment row of each tag, so that the header can be read without walking all rows for
+     * every tag. Done again after comment rows were added, removed, replaced or moved, or their tags edited.
+     */
+    private void indexCommentRows() {
+        commentRows.clear();
         int n = data.size();
-        int i = 0;
-        while (i < n) {
-            YassRow r = data.elementAt(i++);
-            if (r.isComment() && r.getHeaderCommentTag().equals(ctype)) {
-                return r;
+        for (int i = 0; i < n; i++) {
+            YassRow r = data.elementAt(i);
+            if (r.isComment()) {
+                commentRows.putIfAbsent(r.getHeaderCommentTag(), r);
             }
         }
-        return null;
+        commentRowsData = data;
+        commentRowsVersion = data.getCommentVersion();
     }
 
 
@@ -20,7 +20,6 @@ package yass;
 
 import java.awt.*;
 import java.util.Arrays;
-import java.util.Vector;
 
 /**
  * Description of the Class
@@ -28,7 +27,10 @@ import java.util.Vector;
  * @author Saruta
  */
 public class YassUndoElement {
-    public final Vector<YassRow> data;
+    /**
+     * Rows changed since the previous element; null for the first element of the history
+     */
+    YassRowChange rows;
     public final int[] selectedRows;
     public final Point sheetViewPosition;
     public final double sheetBeatSize, bpm, gap, start, end, vgap;
@@ -40,8 +42,8 @@ public class YassUndoElement {
     public final String duetTrackName;
     public final String[] duetSingerNames;
 
-    public YassUndoElement(Vector<YassRow> d, int[] r, Point p, double w, boolean absolutePitchViewEnabled, int absolutePitchWindowStart, int absolutePitchWindowSpan, double b, double g, double s, double e, double vg, boolean rel, boolean saved, int duetTrack, String duetTrackName, int duetTrackCount, String[] duetSingerNames) {
-        data = d;
+    public YassUndoElement(YassRowChange d, int[] r, Point p, double w, boolean absolutePitchViewEnabled, int absolutePitchWindowStart, int absolutePitchWindowSpan, double b, double g, double s, double e, double vg, boolean rel, boolean saved, int duetTrack, String duetTrackName, int duetTrackCount, String[] duetSingerNames) {
+        rows = d;
         selectedRows = r;
         sheetViewPosition = new Point(p.x, p.y);
         sheetBeatSize = w;
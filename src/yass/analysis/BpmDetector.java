@@ -1,6 +1,5 @@
 package yass.analysis;
 
-import yass.Timebase;
 import yass.YassPlayer;
 import yass.YassProperties;
 
@@ -56,7 +55,7 @@ public class BpmDetector {
             tempWavFile = File.createTempFile("yass-bpm-", ".wav");
             tempWavFile.deleteOnExit();
             YassPlayer player = new YassPlayer(null, properties);
-            player.generateTemp(audioFilePath, Timebase.NORMAL, tempWavFile.getAbsolutePath());
+            player.generateTemp(audioFilePath, tempWavFile.getAbsolutePath());
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Failed to create temporary WAV for BPM detection", e);
             onBpmDetected.accept(0.0f);
@@ -0,0 +1,139 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass.analysis;
+
+/**
+ * Pitch of a microphone channel while it is sung into, for scoring and the microphone monitor.
+ * <p>
+ * Wraps a {@link PitchTracker} with a short window of about {@value #WINDOW_MS} ms, which still holds several
+ * periods of a low voice, and analyzes it every {@value #HOP_MS} ms. Each frame is reduced to a note height
+ * (semitones from C4, like the notes of a song) and its deviation in cents; frames below
+ * {@value #MIN_CLARITY} clarity are unvoiced. Nothing is allocated after construction.
+ */
+public class LivePitchTracker implements PitchTracker.Listener {
+    static final double WINDOW_MS = 64;
+    static final double HOP_MS = 16;
+    static final double MIN_CLARITY = 0.8;
+
+    private final PitchTracker tracker;
+    private final float sampleRate;
+    private boolean voiced = false;
+    private int height = 0;
+    private int cents = 0;
+    private double clarity = 0;
+    private double time = 0;
+    private double level = 0;
+    private long frames = 0;
+    private double processingSeconds = 0;
+
+    public LivePitchTracker(float sampleRate) {
+        this.sampleRate = sampleRate;
+        int window = Integer.highestOneBit((int) Math.max(16, sampleRate * WINDOW_MS / 1000));
+        int hop = Math.max(1, (int) Math.round(sampleRate * HOP_MS / 1000));
+        this.tracker = new PitchTracker(sampleRate, window, Math.min(hop, window), 0, this);
+    }
+
+    /**
+     * Adds samples between -1 and 1; the level is the peak of them.
+     */
+    public void process(float[] samples, int offset, int length) {
+        long start = System.nanoTime();
+        float peak = 0;
+        for (int i = offset; i < offset + length; i++) {
+            peak = Math.max(peak, Math.abs(samples[i]));
+        }
+        level = peak;
+        tracker.process(samples, offset, length);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        // smoothed, so a single descheduled call does not dominate
+        processingSeconds += (seconds - processingSeconds) / 16;
+    }
+
+    @Override
+    public void frame(float time, double frequency, double clarity, double energy) {
+        frames++;
+        this.time = time;
+        this.clarity = clarity;
+        voiced = frequency > 0 && clarity >= MIN_CLARITY;
+        if (!voiced) {
+            return;
+        }
+        double exact = 12 * Math.log(frequency / 440) / Math.log(2) + 9;
+        height = (int) Math.round(exact);
+        cents = (int) Math.round(100 * (exact - height));
+    }
+
+    /**
+     * @return whether the last frame has a pitch
+     */
+    public boolean isVoiced() {
+        return voiced;
+    }
+
+    /**
+     * @return semitones from C4 of the last voiced frame
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return deviation of the last voiced frame from its height, between -50 and 50
+     */
+    public int getCents() {
+        return cents;
+    }
+
+    /**
+     * @return seconds from the first sample to the centre of the last frame
+     */
+    public double getTime() {
+        return time;
+    }
+
+    public double getClarity() {
+        return clarity;
+    }
+
+    /**
+     * @return peak of the last samples, between 0 and 1
+     */
+    public double getLevel() {
+        return level;
+    }
+
+    /**
+     * @return number of frames analyzed so far
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return seconds from a sound to its pitch: the delay of the window centre plus the time to analyze it
+     */
+    public double getLatency() {
+        return tracker.getDelay() + processingSeconds;
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+}
@@ -20,18 +20,16 @@
 package yass.analysis;
 
 import yass.YassProperties;
+import yass.audio.PcmStore;
+import yass.library.LibraryScanner;
 import yass.musicalkey.MusicalKeyEnum;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -42,6 +40,7 @@ public class PitchDetector {
     private static final double C4_FREQ = A4_FREQ * Math.pow(2.0, -9.0 / 12.0); // approx 261.626 Hz
     private static final int MIN_TUNING_ANALYSIS_SAMPLES = 24;
     private static final double DEFAULT_TUNING_OUTLIER_GATE_CENTS = 12.0;
+    private static final double MIN_PITCH_CLARITY = 0.7;
 
     public static List<PitchData> detectPitch(File tempWavFile, YassProperties properties) {
         return detectPitchWithRaw(tempWavFile, properties, MusicalKeyEnum.UNDEFINED).processedPitchData();
@@ -124,253 +123,89 @@ public class PitchDetector {
                 centsOffsets.size(),
                 inliers.size(),
                 mad,
-                "Computed from raw Aubio pitch frequencies."
+                "Computed from raw pitch frequencies."
         );
     }
 
     public static PitchDetectionResult detectPitchWithRaw(File tempWavFile,
                                                           YassProperties properties,
                                                           MusicalKeyEnum musicalKey) {
-        List<PitchData> rawPitchData = new ArrayList<>();
-        List<PitchData> locallyNormalizedPitchData;
-        List<PitchData> viterbiPitchData;
-        List<PitchData> finalPitchData;
-        File analysisInputFile = tempWavFile;
-        File monoTempFile = null;
-        try {
-            monoTempFile = createMonoAnalysisFile(tempWavFile, properties);
-            if (monoTempFile != null) {
-                analysisInputFile = monoTempFile;
-                LOGGER.info("Pitch detection using mono downmix: " + monoTempFile.getAbsolutePath());
-            }
-            String aubioCommand = "aubiopitch";
-            String aubioPath = properties.getProperty("aubioPath");
-            if (aubioPath != null && !aubioPath.isEmpty()) {
-                aubioCommand = new File(aubioPath, aubioCommand).getAbsolutePath();
-            } else {
-                return new PitchDetectionResult(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
-            }
-            String[] command = {aubioCommand, "-i", analysisInputFile.getAbsolutePath()};
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            Process process = processBuilder.start();
-
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    // Output is two columns: timestamp pitch
-                    String[] parts = line.split("\\s+");
-                    if (parts.length == 2) {
-                        try {
-                            float time = Float.parseFloat(parts[0]);
-                            float pitch = Float.parseFloat(parts[1]);
-                            // aubio pitch outputs 0 for unpitched frames, so we filter them.
-                            if (pitch > 0) {
-                                int semitonesFromC4 = frequencyToNote(pitch);
-                                // The default CLI output doesn't include confidence, so we use 1.0 for detected 
-                                // pitches.
-                                rawPitchData.add(new PitchData(time, semitonesFromC4, freqToNoteName(pitch), pitch));
-                            }
-                        } catch (NumberFormatException ignored) {
-                        }
-                    }
-                }
-            }
-
-            int exitCode = process.waitFor();
-            if (exitCode == 0) {
-                rawPitchData = attachFrameEnergy(analysisInputFile, rawPitchData);
-                LOGGER.info("Aubio pitch detection found " + rawPitchData.size() + " raw pitched frames.");
-                locallyNormalizedPitchData = normalizeRawPitchOctaves(rawPitchData);
-                viterbiPitchData = viterbiSmooth(locallyNormalizedPitchData, musicalKey);
-                finalPitchData = List.copyOf(viterbiPitchData);
-                LOGGER.info("Viterbi smoothing complete. Resulting " + finalPitchData.size() + " pitched frames.");
-                logTuningOffsetAnalysis(analysisInputFile, rawPitchData);
-                return new PitchDetectionResult(List.copyOf(rawPitchData), List.copyOf(locallyNormalizedPitchData), List.copyOf(viterbiPitchData), List.copyOf(viterbiPitchData), finalPitchData);
-            } else {
-                // Handle errors by logging them
-                LOGGER.severe("aubio pitch process failed with exit code " + exitCode + ". Check logs for details.");
-                return new PitchDetectionResult(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
-            }
-        } catch (IOException | InterruptedException e) {
-            LOGGER.log(Level.SEVERE,
-                       "Failed to run Aubio for pitch detection. Is 'aubiopitch' in the system PATH, or configured in" +
-                               " options?",
-                       e);
-            return new PitchDetectionResult(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
-        } finally {
-            if (monoTempFile != null && monoTempFile.exists() && !monoTempFile.delete()) {
-                LOGGER.finest("Could not delete temporary mono pitch file: " + monoTempFile.getAbsolutePath());
-            }
-        }
+        return detectPitchWithRaw(tempWavFile, properties, musicalKey, null);
     }
 
-    private static List<PitchData> attachFrameEnergy(File analysisInputFile, List<PitchData> rawPitchData) {
-        if (analysisInputFile == null || rawPitchData == null || rawPitchData.isEmpty()) {
-            return rawPitchData;
-        }
-        try {
-            Waveform waveform = loadWaveform(analysisInputFile);
-            if (waveform == null || waveform.samples().length == 0) {
-                return rawPitchData;
-            }
-            List<PitchData> withEnergy = new ArrayList<>(rawPitchData.size());
-            for (PitchData frame : rawPitchData) {
-                double energy = computeFrameEnergy(waveform, frame.time());
-                withEnergy.add(new PitchData(frame.time(), frame.pitch(), frame.noteName(), frame.rawFrequency(), energy));
-            }
-            return withEnergy;
-        } catch (Exception ex) {
-            LOGGER.log(Level.FINE, "Could not compute per-frame pitch energy. Continuing without it.", ex);
-            return rawPitchData;
-        }
-    }
-
-    private static double computeFrameEnergy(Waveform waveform, float timeSeconds) {
-        final double windowSeconds = 0.04d;
-        double[] samples = waveform.samples();
-        if (samples.length == 0) {
-            return Double.NaN;
-        }
-        int center = (int) Math.round(timeSeconds * waveform.sampleRate());
-        int halfWindow = Math.max(1, (int) Math.round(windowSeconds * waveform.sampleRate() / 2.0));
-        int start = Math.max(0, center - halfWindow);
-        int end = Math.min(samples.length, center + halfWindow);
-        if (end <= start) {
-            return Double.NaN;
-        }
-        double sumSquares = 0d;
-        for (int i = start; i < end; i++) {
-            double sample = samples[i];
-            sumSquares += sample * sample;
-        }
-        return Math.sqrt(sumSquares / (end - start));
-    }
-
-    private static Waveform loadWaveform(File audioFile) throws Exception {
-        try (AudioInputStream sourceStream = AudioSystem.getAudioInputStream(audioFile)) {
-            AudioFormat sourceFormat = sourceStream.getFormat();
-            AudioFormat pcmFormat = sourceFormat;
-            if (sourceFormat.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
-                    || sourceFormat.getSampleSizeInBits() != 16) {
-                pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
-                        sourceFormat.getSampleRate(),
-                        16,
-                        sourceFormat.getChannels(),
-                        sourceFormat.getChannels() * 2,
-                        sourceFormat.getSampleRate(),
-                        false);
-            }
-            try (AudioInputStream pcmStream = pcmFormat.equals(sourceFormat)
-                    ? sourceStream
-                    : AudioSystem.getAudioInputStream(pcmFormat, sourceStream)) {
-                byte[] bytes = readAllBytes(pcmStream);
-                return decodeWaveform(bytes, pcmFormat);
+    /**
+     * Detects the pitches of a file, or loads them from a cache file written by an earlier call.
+     *
+     * @param cacheFile where the result is cached, e.g. {@link PitchTrackCache#cacheFile(File)}; null for none
+     */
+    public static PitchDetectionResult detectPitchWithRaw(File tempWavFile,
+                                                          YassProperties properties,
+                                                          MusicalKeyEnum musicalKey,
+                                                          File cacheFile) {
+        long cacheKey = cacheFile != null ? PitchTrackCache.key(tempWavFile, musicalKey) : 0;
+        if (cacheFile != null) {
+            PitchDetectionResult cached = PitchTrackCache.load(cacheFile, cacheKey);
+            if (cached != null) {
+                LOGGER.fine("Pitch detection loaded from " + cacheFile.getAbsolutePath());
+                return cached;
             }
         }
-    }
-
-    private static byte[] readAllBytes(AudioInputStream stream) throws IOException {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        byte[] buffer = new byte[8192];
-        int read;
-        while ((read = stream.read(buffer)) >= 0) {
-            output.write(buffer, 0, read);
+        PitchDetectionResult result = analyzePitch(tempWavFile, properties, musicalKey);
+        if (cacheFile != null && !result.rawPitchData().isEmpty()) {
+            PitchTrackCache.store(cacheFile, cacheKey, result);
         }
-        return output.toByteArray();
+        return result;
     }
 
-    private static Waveform decodeWaveform(byte[] bytes, AudioFormat format) {
-        int channels = Math.max(1, format.getChannels());
-        int frameSize = Math.max(2, format.getFrameSize());
-        int totalFrames = bytes.length / frameSize;
-        double[] samples = new double[totalFrames];
-        boolean bigEndian = format.isBigEndian();
-        for (int frame = 0; frame < totalFrames; frame++) {
-            double mixed = 0d;
-            int frameOffset = frame * frameSize;
-            for (int channel = 0; channel < channels; channel++) {
-                int sampleOffset = frameOffset + channel * 2;
-                int low = bytes[sampleOffset] & 0xFF;
-                int high = bytes[sampleOffset + 1] & 0xFF;
-                short value = (short) (bigEndian ? ((low << 8) | high) : (low | (high << 8)));
-                mixed += value / 32768d;
-            }
-            samples[frame] = mixed / channels;
+    private static PitchDetectionResult analyzePitch(File tempWavFile,
+                                                     YassProperties properties,
+                                                     MusicalKeyEnum musicalKey) {
+        List<PitchData> rawPitchData;
+        try {
+            rawPitchData = toPitchData(trackPitch(tempWavFile, properties));
+        } catch (IOException | UnsupportedAudioFileException e) {
+            LOGGER.log(Level.SEVERE, "Failed to detect pitch in " + tempWavFile, e);
+            return new PitchDetectionResult(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
         }
-        return new Waveform(samples, format.getSampleRate());
+        LOGGER.info("Pitch detection found " + rawPitchData.size() + " raw pitched frames.");
+        List<PitchData> locallyNormalizedPitchData = normalizeRawPitchOctaves(rawPitchData);
+        List<PitchData> viterbiPitchData = viterbiSmooth(locallyNormalizedPitchData, musicalKey);
+        List<PitchData> finalPitchData = List.copyOf(viterbiPitchData);
+        LOGGER.info("Viterbi smoothing complete. Resulting " + finalPitchData.size() + " pitched frames.");
+        logTuningOffsetAnalysis(tempWavFile, rawPitchData);
+        return new PitchDetectionResult(List.copyOf(rawPitchData), List.copyOf(locallyNormalizedPitchData), List.copyOf(viterbiPitchData), List.copyOf(viterbiPitchData), finalPitchData);
     }
 
-    private static File createMonoAnalysisFile(File sourceWavFile, YassProperties properties) {
-        if (sourceWavFile == null || !sourceWavFile.isFile()) {
-            return null;
-        }
-        String ffmpeg = resolveFfmpegExecutable(properties);
-        if (ffmpeg == null) {
-            return null;
+    /**
+     * Tracks a WAV file in parallel chunks; other files are tracked in a single pass.
+     */
+    private static List<PitchTracker.Frame> trackPitch(File audioFile, YassProperties properties)
+            throws IOException, UnsupportedAudioFileException {
+        PcmStore samples = PcmStore.open(audioFile, AudioSystem.getAudioFileFormat(audioFile).getFormat());
+        if (!samples.isSixteenBit()) {
+            return PitchTracker.track(audioFile);
         }
+        ForkJoinPool pool = new ForkJoinPool(LibraryScanner.resolveParallelism(properties));
         try {
-            File monoFile = File.createTempFile("yass-pitch-mono-", ".wav");
-            monoFile.deleteOnExit();
-            List<String> command = List.of(
-                    ffmpeg,
-                    "-y",
-                    "-i", sourceWavFile.getAbsolutePath(),
-                    "-ac", "1",
-                    "-vn",
-                    monoFile.getAbsolutePath()
-            );
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                while (reader.readLine() != null) {
-                    // Drain process output to avoid deadlocks.
-                }
-            }
-            boolean finished = process.waitFor(3, TimeUnit.MINUTES);
-            if (!finished) {
-                process.destroyForcibly();
-                LOGGER.warning("FFmpeg mono downmix timed out. Falling back to original analysis input.");
-                if (!monoFile.delete()) {
-                    LOGGER.finest("Could not delete timed-out mono file: " + monoFile.getAbsolutePath());
-                }
-                return null;
-            }
-            if (process.exitValue() != 0 || !monoFile.isFile() || monoFile.length() == 0L) {
-                LOGGER.warning("FFmpeg mono downmix failed (exit=" + process.exitValue()
-                        + "). Falling back to original analysis input.");
-                if (!monoFile.delete()) {
-                    LOGGER.finest("Could not delete failed mono file: " + monoFile.getAbsolutePath());
-                }
-                return null;
-            }
-            return monoFile;
-        } catch (Exception ex) {
-            LOGGER.log(Level.INFO, "Could not create mono downmix for pitch analysis. Falling back to source file.",
-                    ex);
-            return null;
+            return PitchTracker.track(samples, pool);
+        } finally {
+            pool.shutdown();
         }
     }
 
-    private static String resolveFfmpegExecutable(YassProperties properties) {
-        String ffmpegPath = properties != null ? properties.getProperty("ffmpegPath") : null;
-        if (ffmpegPath == null || ffmpegPath.isBlank()) {
-            return "ffmpeg";
-        }
-        File ffmpegFile = new File(ffmpegPath);
-        if (ffmpegFile.isDirectory()) {
-            File windowsExe = new File(ffmpegFile, "ffmpeg.exe");
-            if (windowsExe.isFile()) {
-                return windowsExe.getAbsolutePath();
-            }
-            File unixExe = new File(ffmpegFile, "ffmpeg");
-            if (unixExe.isFile()) {
-                return unixExe.getAbsolutePath();
+    /**
+     * Keeps the frames with a clear pitch.
+     */
+    static List<PitchData> toPitchData(List<PitchTracker.Frame> frames) {
+        List<PitchData> pitchData = new ArrayList<>();
+        for (PitchTracker.Frame frame : frames) {
+            if (frame.frequency() > 0 && frame.clarity() >= MIN_PITCH_CLARITY) {
+                double pitch = frame.frequency();
+                pitchData.add(new PitchData(frame.time(), frequencyToNote(pitch), freqToNoteName(pitch), pitch,
+                                            frame.energy()));
             }
-        } else if (ffmpegFile.isFile()) {
-            return ffmpegFile.getAbsolutePath();
         }
-        return "ffmpeg";
+        return pitchData;
     }
 
     private static void logTuningOffsetAnalysis(File analysisInputFile, List<PitchData> rawPitchData) {
@@ -503,7 +338,7 @@ public class PitchDetector {
     }
 
     /**
-     * Smooths raw aubio pitch detections using the Viterbi algorithm on a Hidden Markov Model.
+     * Smooths raw pitch detections using the Viterbi algorithm on a Hidden Markov Model.
      * <p>
      * Hidden states are individual semitones in the range E2–C6 (MIDI 40–84).
      * Observations are the raw detected pitches. The HMM uses:
@@ -517,7 +352,7 @@ public class PitchDetector {
      * </ul>
      * All probabilities are computed in log-space to avoid floating-point underflow.
      * When a {@code musicalKey} is provided, in-key pitches receive a small log-bonus
-     * in the emission probability, acting as a tie-breaker when aubio detects a pitch
+     * in the emission probability, acting as a tie-breaker when the tracker detects a pitch
      * exactly between two semitones.
      */
     private static List<PitchData> normalizeRawPitchOctaves(List<PitchData> rawPitchData) {
@@ -844,9 +679,6 @@ public class PitchDetector {
         }
     }
 
-    private record Waveform(double[] samples, float sampleRate) {
-    }
-
     public record TuningOffsetAnalysis(boolean available,
                                        double estimatedOffsetCents,
                                        double suggestedCorrectionCents,
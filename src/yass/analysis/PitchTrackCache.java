@@ -0,0 +1,158 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass.analysis;
+
+import yass.analysis.PitchDetector.PitchData;
+import yass.analysis.PitchDetector.PitchDetectionResult;
+import yass.audio.WaveformPeaks;
+import yass.musicalkey.MusicalKeyEnum;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores the pitch detection result of an audio file, so that it is shown at once when the song is opened again.
+ * <p>
+ * File layout (big endian): int magic 'YPIT', int version, long key, then the five lists of the result. Each list
+ * is an int count followed by count x (float time, int pitch, boolean has note name, UTF note name if it has one,
+ * double frequency, double energy); a count of -1 repeats the previous list. Values are stored as they are, so a
+ * loaded result equals the stored one.
+ */
+public final class PitchTrackCache {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    public static final String FILE_SUFFIX = ".pitch";
+    static final int MAGIC = 0x59504954;
+    static final int VERSION = 2;
+    private static final int SAME_AS_PREVIOUS = -1;
+
+    private PitchTrackCache() {
+    }
+
+    /**
+     * Gets the cache file of a (temporary) audio file.
+     */
+    public static File cacheFile(File audio) {
+        return new File(audio.getAbsolutePath() + FILE_SUFFIX);
+    }
+
+    /**
+     * Builds a cache key from the audio file and the key the pitches are smoothed to.
+     */
+    public static long key(File audio, MusicalKeyEnum musicalKey) {
+        return WaveformPeaks.key(audio, musicalKey != null ? musicalKey.ordinal() : -1);
+    }
+
+    /**
+     * @return the result, or null if the file does not exist, is damaged or has another key
+     */
+    public static PitchDetectionResult load(File file, long key) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (InputStream fis = Files.newInputStream(file.toPath());
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fis, 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != key) {
+                return null;
+            }
+            List<List<PitchData>> lists = new ArrayList<>(5);
+            for (int i = 0; i < 5; i++) {
+                int count = in.readInt();
+                if (count == SAME_AS_PREVIOUS && i > 0) {
+                    lists.add(lists.get(i - 1));
+                    continue;
+                }
+                if (count < 0) {
+                    return null;
+                }
+                List<PitchData> frames = new ArrayList<>(Math.min(count, 1 << 20));
+                for (int n = 0; n < count; n++) {
+                    float time = in.readFloat();
+                    int pitch = in.readInt();
+                    String noteName = in.readBoolean() ? in.readUTF() : null;
+                    frames.add(new PitchData(time, pitch, noteName, in.readDouble(), in.readDouble()));
+                }
+                lists.add(List.copyOf(frames));
+            }
+            return new PitchDetectionResult(lists.get(0), lists.get(1), lists.get(2), lists.get(3), lists.get(4));
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Ignoring pitch cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a result; the file is replaced atomically.
+     *
+     * @return true if the file was written
+     */
+    public static boolean store(File file, long key, PitchDetectionResult result) {
+        Path temp = new File(file.getAbsolutePath() + ".tmp").toPath();
+        try (OutputStream fos = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(key);
+            List<PitchData> previous = null;
+            for (List<PitchData> frames : List.of(result.rawPitchData(), result.locallyNormalizedPitchData(),
+                                                  result.viterbiPitchData(), result.transposedPitchData(),
+                                                  result.processedPitchData())) {
+                if (frames.equals(previous)) {
+                    out.writeInt(SAME_AS_PREVIOUS);
+                    continue;
+                }
+                out.writeInt(frames.size());
+                for (PitchData frame : frames) {
+                    out.writeFloat(frame.time());
+                    out.writeInt(frame.pitch());
+                    out.writeBoolean(frame.noteName() != null);
+                    if (frame.noteName() != null) {
+                        out.writeUTF(frame.noteName());
+                    }
+                    out.writeDouble(frame.rawFrequency());
+                    out.writeDouble(frame.energy());
+                }
+                previous = frames;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write pitch cache " + file, e);
+            return false;
+        }
+        try {
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write pitch cache " + file, e);
+            return false;
+        }
+    }
+}
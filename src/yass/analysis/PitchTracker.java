@@ -0,0 +1,445 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass.analysis;
+
+import yass.audio.PcmStore;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Pitch tracker after the McLeod Pitch Method, fed with mono samples as they are decoded.
+ * <p>
+ * Every hop of samples ({@value #HOP} by default), the last window of samples ({@value #WINDOW} by default) is
+ * analyzed: the autocorrelation is computed with an FFT and normalized to the NSDF, whose first key maximum above
+ * 90% of the highest one gives the period. Its height is the clarity of the pitch, between 0 and 1. Frames quieter than {@value #SILENCE_DB} dBFS
+ * are not analyzed.
+ * <p>
+ * All buffers are allocated up front and frames are reported as primitives, so tracking allocates nothing,
+ * which lets the tracker run on live input as well.
+ * <p>
+ * Frames depend on their window only, so a song can be split into chunks that overlap by a window less a hop
+ * and are tracked in parallel; the frames of the chunks joined in order are those of a single pass.
+ */
+public class PitchTracker {
+    static final int WINDOW = 2048;
+    static final int HOP = 256;
+    static final double SILENCE_DB = -60;
+    private static final double MIN_FREQUENCY = 60;
+    private static final double MAX_FREQUENCY = 1500;
+    private static final double KEY_MAXIMUM_THRESHOLD = 0.9;
+    static final int CHUNK_FRAMES = 512;
+
+    private final float sampleRate;
+    private final long firstSample;
+    private final Listener listener;
+    private final int size;
+    private final int hop;
+    private final int minLag;
+    private final int maxLag;
+    private final double silence;
+    private final float[] ring;
+    private final float[] window;
+    // complex FFT of size points, for real signals of twice that length
+    private final double[] re;
+    private final double[] im;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] reversed;
+    // twiddles of the 2 * size point real transform
+    private final double[] twiddleCos;
+    private final double[] twiddleSin;
+    private final double[] power;
+    private final double[] correlation;
+    private final double[] nsdf;
+    private final int[] keyMaxima;
+    private int head = 0;
+    private int sinceLast = 0;
+    private long consumed = 0;
+
+    /**
+     * A pitch estimate.
+     *
+     * @param time      centre of the analyzed window in seconds
+     * @param frequency pitch in Hz, 0 if the frame is silent or has no pitch
+     * @param clarity   how periodic the frame is, between 0 and 1
+     * @param energy    root mean square of the window, with full scale as 1
+     */
+    public record Frame(float time, double frequency, double clarity, double energy) {
+    }
+
+    /**
+     * Receives a pitch estimate, see {@link Frame} for the parameters.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void frame(float time, double frequency, double clarity, double energy);
+    }
+
+    public PitchTracker(float sampleRate, Listener listener) {
+        this(sampleRate, WINDOW, HOP, 0, listener);
+    }
+
+    /**
+     * @param window      samples per analysis, a power of two; the lowest pitch needs a period of half of it
+     * @param hop         samples between analyses
+     * @param firstSample index of the first sample in the song, for the time of the frames
+     */
+    public PitchTracker(float sampleRate, int window, int hop, long firstSample, Listener listener) {
+        if (Integer.bitCount(window) != 1 || window < 16 || hop < 1) {
+            throw new IllegalArgumentException("window must be a power of two, hop positive: " + window + ", " + hop);
+        }
+        this.sampleRate = sampleRate;
+        this.size = window;
+        this.hop = hop;
+        this.firstSample = firstSample;
+        this.listener = listener;
+        this.minLag = Math.max(2, (int) (sampleRate / MAX_FREQUENCY));
+        this.maxLag = Math.min(size / 2, (int) Math.ceil(sampleRate / MIN_FREQUENCY));
+        this.silence = Math.pow(10, SILENCE_DB / 20);
+        ring = new float[size];
+        this.window = new float[size];
+        re = new double[size];
+        im = new double[size];
+        cos = new double[size / 2];
+        sin = new double[size / 2];
+        reversed = new int[size];
+        twiddleCos = new double[size + 1];
+        twiddleSin = new double[size + 1];
+        power = new double[size + 1];
+        correlation = new double[size];
+        nsdf = new double[size / 2 + 1];
+        keyMaxima = new int[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = Math.cos(-2 * Math.PI * i / size);
+            sin[i] = Math.sin(-2 * Math.PI * i / size);
+        }
+        for (int k = 0; k <= size; k++) {
+            twiddleCos[k] = Math.cos(-Math.PI * k / size);
+            twiddleSin[k] = Math.sin(-Math.PI * k / size);
+        }
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            reversed[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    /**
+     * @return the delay in seconds from the centre of a window to its last sample
+     */
+    public double getDelay() {
+        return size / 2.0 / sampleRate;
+    }
+
+    /**
+     * Decodes an audio file, mixes it to mono and tracks it in one pass.
+     *
+     * @return a frame every {@value #HOP} samples
+     */
+    public static List<Frame> track(File audioFile) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(audioFile)) {
+            AudioFormat format = source.getFormat();
+            AudioFormat pcm = new AudioFormat(format.getSampleRate(), 16, Math.max(1, format.getChannels()),
+                                              true, false);
+            try (AudioInputStream in = pcm.matches(format) ? source : AudioSystem.getAudioInputStream(pcm, source)) {
+                List<Frame> frames = new ArrayList<>();
+                new PitchTracker(pcm.getSampleRate(), collect(frames)).process(in, pcm.getChannels());
+                return frames;
+            }
+        }
+    }
+
+    /**
+     * Tracks 16-bit signed little endian samples in chunks of {@value #CHUNK_FRAMES} frames on a pool, mixing
+     * the channels to mono.
+     *
+     * @return a frame every {@value #HOP} samples, the same as a single pass
+     */
+    public static List<Frame> track(PcmStore samples, ForkJoinPool pool) {
+        int channels = Math.max(1, samples.getFormat().getChannels());
+        long total = samples.length() / (2L * channels);
+        int frames = total < WINDOW ? 0 : (int) ((total - WINDOW) / HOP + 1);
+        return pool.invoke(new ChunkTask(samples.samples(), channels, samples.getFormat().getFrameRate(), 0,
+                                         frames));
+    }
+
+    private static Listener collect(List<Frame> frames) {
+        return (time, frequency, clarity, energy) -> frames.add(new Frame(time, frequency, clarity, energy));
+    }
+
+    /**
+     * Tracks 16-bit signed little endian samples to their end, mixing the channels to mono.
+     */
+    public void process(AudioInputStream in, int channels) throws IOException {
+        int frameSize = 2 * channels;
+        byte[] bytes = new byte[HOP * frameSize];
+        float[] mono = new float[HOP];
+        int pending = 0;
+        int read;
+        while ((read = in.read(bytes, pending, bytes.length - pending)) >= 0) {
+            pending += read;
+            int frames = pending / frameSize;
+            for (int f = 0; f < frames; f++) {
+                int sum = 0;
+                for (int c = 0; c < channels; c++) {
+                    int pos = f * frameSize + 2 * c;
+                    sum += (short) ((bytes[pos + 1] << 8) | (bytes[pos] & 0xFF));
+                }
+                mono[f] = sum / (32768f * channels);
+            }
+            process(mono, 0, frames);
+            int rest = pending - frames * frameSize;
+            System.arraycopy(bytes, frames * frameSize, bytes, 0, rest);
+            pending = rest;
+        }
+    }
+
+    /**
+     * Adds mono samples between -1 and 1 and reports a frame for every hop of them, once the first window is full.
+     */
+    public void process(float[] samples, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            ring[head] = samples[i];
+            head = (head + 1) % size;
+            consumed++;
+            if (consumed >= size && (consumed == size || ++sinceLast == hop)) {
+                sinceLast = 0;
+                analyze();
+            }
+        }
+    }
+
+    private void analyze() {
+        float time = (float) ((firstSample + consumed - size / 2.0) / sampleRate);
+        // the oldest sample is at head
+        System.arraycopy(ring, head, window, 0, size - head);
+        System.arraycopy(ring, 0, window, size - head, head);
+        double sumSquares = 0;
+        for (float s : window) {
+            sumSquares += s * s;
+        }
+        double energy = Math.sqrt(sumSquares / size);
+        if (energy < silence) {
+            listener.frame(time, 0, 0, energy);
+            return;
+        }
+        autocorrelate();
+        // m(tau) = sum of x[j]^2 + x[j+tau]^2 over the overlap, shrinking by one sample on each side per lag
+        double m = 2 * sumSquares;
+        for (int tau = 0; tau <= maxLag + 1 && tau < nsdf.length; tau++) {
+            if (tau > 0) {
+                double first = window[tau - 1];
+                double last = window[size - tau];
+                m -= first * first + last * last;
+            }
+            nsdf[tau] = m > 0 ? 2 * correlation[tau] / m : 0;
+        }
+        int lag = pickPeak();
+        if (lag < 0) {
+            listener.frame(time, 0, 0, energy);
+            return;
+        }
+        double period = lag;
+        double clarity = nsdf[lag];
+        if (lag + 1 < nsdf.length) {
+            // parabola through the peak and its neighbours
+            double left = nsdf[lag - 1];
+            double right = nsdf[lag + 1];
+            double curvature = left - 2 * nsdf[lag] + right;
+            if (curvature < 0) {
+                double shift = 0.5 * (left - right) / curvature;
+                period = lag + shift;
+                clarity = nsdf[lag] - 0.25 * (left - right) * shift;
+            }
+        }
+        listener.frame(time, sampleRate / period, Math.min(1, clarity), energy);
+    }
+
+    /**
+     * @return the lag of the first key maximum close to the highest one, or -1
+     */
+    private int pickPeak() {
+        int count = 0;
+        int pos = 1;
+        // skip the lobe around lag 0
+        while (pos < maxLag && nsdf[pos] > 0) {
+            pos++;
+        }
+        while (pos < maxLag) {
+            while (pos < maxLag && nsdf[pos] <= 0) {
+                pos++;
+            }
+            int best = -1;
+            while (pos < maxLag && nsdf[pos] > 0) {
+                if (best < 0 || nsdf[pos] > nsdf[best]) {
+                    best = pos;
+                }
+                pos++;
+            }
+            if (best >= minLag) {
+                keyMaxima[count++] = best;
+            }
+        }
+        double highest = 0;
+        for (int i = 0; i < count; i++) {
+            highest = Math.max(highest, nsdf[keyMaxima[i]]);
+        }
+        for (int i = 0; i < count; i++) {
+            if (nsdf[keyMaxima[i]] >= KEY_MAXIMUM_THRESHOLD * highest) {
+                return keyMaxima[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the autocorrelation of the window: the window is zero padded to twice its length, so the
+     * circular correlation of the FFT equals the linear one. Both real transforms of 2 * WINDOW points are done
+     * as complex transforms of half the length, with the even samples as real and the odd ones as imaginary part.
+     */
+    private void autocorrelate() {
+        int half = size;
+        for (int k = 0; k < half; k++) {
+            int j = 2 * k;
+            re[k] = j < size ? window[j] : 0;
+            im[k] = j + 1 < size ? window[j + 1] : 0;
+        }
+        fft(false);
+        for (int k = 0; k <= half; k++) {
+            int a = k % half;
+            int b = (half - k) % half;
+            // spectra of the even and odd samples from Z[k] and conj(Z[half - k])
+            double evenRe = (re[a] + re[b]) / 2;
+            double evenIm = (im[a] - im[b]) / 2;
+            double oddRe = (im[a] + im[b]) / 2;
+            double oddIm = -(re[a] - re[b]) / 2;
+            double xr = evenRe + twiddleCos[k] * oddRe - twiddleSin[k] * oddIm;
+            double xi = evenIm + twiddleCos[k] * oddIm + twiddleSin[k] * oddRe;
+            power[k] = xr * xr + xi * xi;
+        }
+        // the power spectrum is real and even, P[k + half] = P[half - k]
+        for (int k = 0; k < half; k++) {
+            double even = (power[k] + power[half - k]) / 2;
+            double odd = (power[k] - power[half - k]) / 2;
+            re[k] = even + odd * twiddleSin[k];
+            im[k] = odd * twiddleCos[k];
+        }
+        fft(true);
+        for (int m = 0; m < half / 2; m++) {
+            correlation[2 * m] = re[m] / half;
+            correlation[2 * m + 1] = im[m] / half;
+        }
+    }
+
+    private void fft(boolean inverse) {
+        int n = re.length;
+        for (int i = 0; i < n; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int size = 2; size <= n; size <<= 1) {
+            int half = size >> 1;
+            int step = n / size;
+            for (int start = 0; start < n; start += size) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = inverse ? -sin[k * step] : sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double xr = re[b] * wr - im[b] * wi;
+                    double xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+
+    private static class ChunkTask extends RecursiveTask<List<Frame>> {
+        private final ByteBuffer pcm;
+        private final int channels;
+        private final float sampleRate;
+        private final int from;
+        private final int to;
+
+        ChunkTask(ByteBuffer pcm, int channels, float sampleRate, int from, int to) {
+            this.pcm = pcm;
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Frame> compute() {
+            if (to - from > CHUNK_FRAMES) {
+                int mid = (from + to) >>> 1;
+                ChunkTask left = new ChunkTask(pcm, channels, sampleRate, from, mid);
+                left.fork();
+                List<Frame> right = new ChunkTask(pcm, channels, sampleRate, mid, to).compute();
+                List<Frame> frames = left.join();
+                frames.addAll(right);
+                return frames;
+            }
+            List<Frame> frames = new ArrayList<>(Math.max(0, to - from));
+            if (to <= from) {
+                return frames;
+            }
+            // frame k needs the samples from k * HOP to k * HOP + WINDOW
+            long start = (long) from * HOP;
+            long end = (long) (to - 1) * HOP + WINDOW;
+            PitchTracker tracker = new PitchTracker(sampleRate, WINDOW, HOP, start, collect(frames));
+            float[] mono = new float[HOP];
+            int frameSize = 2 * channels;
+            for (long sample = start; sample < end; ) {
+                int n = (int) Math.min(HOP, end - sample);
+                for (int i = 0; i < n; i++) {
+                    int pos = (int) ((sample + i) * frameSize);
+                    int sum = 0;
+                    for (int c = 0; c < channels; c++) {
+                        sum += pcm.getShort(pos + 2 * c);
+                    }
+                    mono[i] = sum / (32768f * channels);
+                }
+                tracker.process(mono, 0, n);
+                sample += n;
+            }
+            return frames;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package yass.audio;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Size-bounded cache of the WAV files that songs are converted to for playback.
+ * <p>
+ * Every file is listed in an index together with what was learned about its source while converting it
+ * (sample rate, channels, duration, replay gain tags) and the loudness measured while converting it, so a hit
+ * needs neither ffprobe nor ffmpeg, nor another pass over the samples. When the files
+ * exceed the size limit, the least recently used ones are deleted, along with the files derived from them, which
+ * are named after them with another suffix (waveform peaks, pitch tracks).
+ * Files found in the directory that are not in the index are adopted as least recently used, without metadata.
+ * The index is written when files are added; hits only mark it as changed, it is written with the next added file,
+ * by {@link #flush()}, or when the last write is {@link #STORE_INTERVAL} ms ago.
+ * <p>
+ * Index format (UTF-8 text): a header line {@code #AUDIOCACHE:<version>} and one line per file, least recently
+ * used first, {@code name<TAB>size<TAB>sampleRate<TAB>channels<TAB>duration<TAB>replayGain<TAB>loudness}.
+ */
+public class AudioTempCache {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    public static final String SIZE_PROPERTY = "temp-cache-size";
+    public static final String PREFETCH_PROPERTY = "temp-cache-prefetch";
+    static final String INDEX = "index.txt";
+    static final int VERSION = 2;
+    private static final String HEADER = "#AUDIOCACHE:";
+    /**
+     * Suffix of files that are still being written; they are never served.
+     */
+    public static final String PART_SUFFIX = ".part.wav";
+    static final long STORE_INTERVAL = 60_000;
+
+    private final File dir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean dirty = false;
+    private long storedAt = 0;
+
+    /**
+     * What is known about a cached file and its source.
+     *
+     * @param sampleRate   sample rate of the source, 0 if unknown
+     * @param duration     duration of the source in seconds
+     * @param replayGain   gain in dB from the tags of the source, 0 if it has none
+     * @param loudness     integrated loudness of the converted file in LUFS, see {@link LoudnessMeter};
+     *                     NaN if it was not measured
+     */
+    public record Entry(long size, float sampleRate, int channels, double duration, double replayGain,
+                        double loudness) {
+        /**
+         * @return whether the entry knows the source, i.e. was not adopted from the directory
+         */
+        public boolean isComplete() {
+            return sampleRate > 0;
+        }
+
+        /**
+         * @return whether the loudness of the file was measured
+         */
+        public boolean isMeasured() {
+            return !Double.isNaN(loudness);
+        }
+
+        Entry withSize(long size) {
+            return new Entry(size, sampleRate, channels, duration, replayGain, loudness);
+        }
+    }
+
+    /**
+     * @param maxBytes size limit of the cached files
+     */
+    public AudioTempCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * @return whether the file belongs into this cache
+     */
+    public boolean contains(File file) {
+        return dir.getAbsoluteFile().equals(file.getAbsoluteFile().getParentFile());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long totalBytes() {
+        long total = 0;
+        for (Entry e : entries.values()) {
+            total += e.size();
+        }
+        return total;
+    }
+
+    /**
+     * Looks up a file and marks it as used. Entries whose file was deleted or changed are dropped.
+     *
+     * @return the entry, or null
+     */
+    public synchronized Entry lookup(File file) {
+        String name = file.getName();
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        dirty = true;
+        if (!file.isFile() || file.length() != entry.size()) {
+            entries.remove(name);
+            entry = null;
+        }
+        if (System.currentTimeMillis() - storedAt >= STORE_INTERVAL) {
+            store();
+        }
+        return entry;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Writes the index if files were used or dropped since it was written.
+     */
+    public synchronized void flush() {
+        if (dirty) {
+            store();
+        }
+    }
+
+    /**
+     * Adds or replaces a file and evicts other files if the cache is too large.
+     *
+     * @param keep names of files in use, which are not evicted
+     */
+    public synchronized void put(File file, Entry entry, Collection<String> keep) {
+        entries.put(file.getName(), entry.withSize(file.length()));
+        evict(file.getName(), keep);
+        store();
+    }
+
+    private void evict(String added, Collection<String> keep) {
+        long total = totalBytes();
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+             total > maxBytes && it.hasNext(); ) {
+            Map.Entry<String, Entry> e = it.next();
+            String name = e.getKey();
+            if (name.equals(added) || keep.contains(name)) {
+                continue;
+            }
+            File file = new File(dir, name);
+            // a file still mapped by a player may not be deletable on every platform, keep it for later
+            if (!file.exists() || file.delete()) {
+                deleteDerived(name);
+                total -= e.getValue().size();
+                it.remove();
+                LOGGER.fine("AudioTempCache: evicted " + name);
+            }
+        }
+    }
+
+    private void deleteDerived(String name) {
+        File[] derived = dir.listFiles((d, n) -> n.startsWith(name + ".") && !n.endsWith(".wav"));
+        if (derived != null) {
+            for (File file : derived) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Loads the index and adopts files missing from it.
+     */
+    public static AudioTempCache load(File dir, long maxBytes) {
+        AudioTempCache cache = new AudioTempCache(dir, maxBytes);
+        File index = new File(dir, INDEX);
+        if (index.isFile()) {
+            try (BufferedReader in = Files.newBufferedReader(index.toPath(), StandardCharsets.UTF_8)) {
+                String line = in.readLine();
+                if (line != null && line.equals(HEADER + VERSION)) {
+                    while ((line = in.readLine()) != null) {
+                        String[] parts = line.split("\t");
+                        if (parts.length != 7 || !new File(dir, parts[0]).isFile()) {
+                            continue;
+                        }
+                        cache.entries.put(parts[0], new Entry(Long.parseLong(parts[1]), Float.parseFloat(parts[2]),
+                                                              Integer.parseInt(parts[3]),
+                                                              Double.parseDouble(parts[4]),
+                                                              Double.parseDouble(parts[5]),
+                                                              Double.parseDouble(parts[6])));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.log(Level.INFO, "Ignoring unreadable audio cache index " + index, e);
+                cache.entries.clear();
+            }
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".wav") && !name.endsWith(PART_SUFFIX));
+        if (files != null) {
+            // adopted files are evicted first, oldest first
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            LinkedHashMap<String, Entry> known = new LinkedHashMap<>(cache.entries);
+            cache.entries.clear();
+            for (File file : files) {
+                if (!known.containsKey(file.getName())) {
+                    cache.entries.put(file.getName(), new Entry(file.length(), 0, 0, 0, 0, Double.NaN));
+                }
+            }
+            cache.entries.putAll(known);
+        }
+        cache.storedAt = System.currentTimeMillis();
+        return cache;
+    }
+
+    private void store() {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        File index = new File(dir, INDEX);
+        Path temp = new File(index.getAbsolutePath() + ".tmp").toPath();
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(HEADER + VERSION);
+            out.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.write(e.getKey() + "\t" + entry.size() + "\t" + entry.sampleRate() + "\t" + entry.channels()
+                                  + "\t" + entry.duration() + "\t" + entry.replayGain() + "\t"
+                                  + entry.loudness());
+                out.newLine();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write audio cache index " + index, e);
+            return;
+        }
+        try {
+            Files.move(temp, index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+            storedAt = System.currentTimeMillis();
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write audio cache index " + index, e);
+        }
+    }
+}
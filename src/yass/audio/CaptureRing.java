@@ -0,0 +1,108 @@
+package yass.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free queue of pitch frames from a capture thread to the player, for one producer and one consumer.
+ * <p>
+ * Every entry is the sample frame position it belongs to and a height, cents and level per channel, stored in
+ * preallocated arrays. The producer publishes an entry by advancing the head, the consumer frees it by advancing
+ * the tail; each side only reads the other's counter when its cached copy says the ring is full or empty. When
+ * the consumer falls behind by the capacity, new entries are dropped and counted.
+ */
+public final class CaptureRing {
+    private final int channels;
+    private final int mask;
+    private final long[] positions;
+    private final int[] heights;
+    private final int[] cents;
+    private final float[] levels;
+    // next entry to write, advanced by the producer
+    private final AtomicLong head = new AtomicLong();
+    // next entry to read, advanced by the consumer
+    private final AtomicLong tail = new AtomicLong();
+    private long cachedTail = 0;
+    private long cachedHead = 0;
+    private volatile long dropped = 0;
+
+    /**
+     * @param capacity number of entries, rounded up to a power of two
+     */
+    public CaptureRing(int capacity, int channels) {
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.channels = channels;
+        this.mask = size - 1;
+        this.positions = new long[size];
+        this.heights = new int[size * channels];
+        this.cents = new int[size * channels];
+        this.levels = new float[size * channels];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Adds an entry; producer only.
+     *
+     * @return false if the ring is full and the entry was dropped
+     */
+    public boolean offer(long position, int[] height, int[] cent, float[] level) {
+        long h = head.get();
+        if (h - cachedTail > mask) {
+            cachedTail = tail.get();
+            if (h - cachedTail > mask) {
+                dropped++;
+                return false;
+            }
+        }
+        int slot = (int) (h & mask);
+        positions[slot] = position;
+        System.arraycopy(height, 0, heights, slot * channels, channels);
+        System.arraycopy(cent, 0, cents, slot * channels, channels);
+        System.arraycopy(level, 0, levels, slot * channels, channels);
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest entry into the arrays; consumer only.
+     *
+     * @return its position, or -1 if the ring is empty
+     */
+    public long poll(int[] height, int[] cent, float[] level) {
+        long t = tail.get();
+        if (t == cachedHead) {
+            cachedHead = head.get();
+            if (t == cachedHead) {
+                return -1;
+            }
+        }
+        int slot = (int) (t & mask);
+        long position = positions[slot];
+        System.arraycopy(heights, slot * channels, height, 0, channels);
+        System.arraycopy(cents, slot * channels, cent, 0, channels);
+        System.arraycopy(levels, slot * channels, level, 0, channels);
+        tail.lazySet(t + 1);
+        return position;
+    }
+
+    /**
+     * Drops all entries; consumer only.
+     */
+    public void clear() {
+        cachedHead = head.get();
+        tail.lazySet(cachedHead);
+    }
+
+    public int size() {
+        return (int) (head.get() - tail.get());
+    }
+
+    /**
+     * @return number of entries dropped because the ring was full
+     */
+    public long dropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,156 @@
+package yass.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Integrated loudness of 16-bit PCM audio after EBU R128 / ITU-R BS.1770, measured in one pass.
+ * <p>
+ * The samples are K-weighted by a high shelf and a high pass filter, whose coefficients are derived for the
+ * actual sample rate. The mean square of every channel is summed over 100 ms steps; blocks of four steps
+ * (400 ms, overlapping by 75%) are gated at -70 LUFS and then at 10 LU below the mean of the remaining blocks.
+ * All channels are weighted equally, which is right for mono and stereo.
+ * <p>
+ * ReplayGain 2 uses the same measure with a reference of {@value #REFERENCE_LUFS} LUFS.
+ */
+public class LoudnessMeter {
+    public static final double REFERENCE_LUFS = -18;
+    private static final double ABSOLUTE_GATE = -70;
+    private static final double RELATIVE_GATE = -10;
+
+    private final int channels;
+    private final int stepFrames;
+    // filter coefficients, shelf then high pass
+    private final double sb0, sb1, sb2, sa1, sa2;
+    private final double ha1, ha2;
+    // filter state per channel: x1, x2, y1, y2 of both stages
+    private final double[][] state;
+    private double stepSum = 0;
+    private int stepFill = 0;
+    private final double[] lastSteps = new double[4];
+    private int steps = 0;
+    private double[] blocks = new double[256];
+    private int blockCount = 0;
+
+    public LoudnessMeter(float sampleRate, int channels) {
+        this.channels = Math.max(1, channels);
+        this.stepFrames = Math.max(1, Math.round(sampleRate / 10));
+        double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+        double q = 0.7071752369554196;
+        double vh = Math.pow(10, 3.999843853973347 / 20);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+        sb0 = (vh + vb * k / q + k * k) / a0;
+        sb1 = 2 * (k * k - vh) / a0;
+        sb2 = (vh - vb * k / q + k * k) / a0;
+        sa1 = 2 * (k * k - 1) / a0;
+        sa2 = (1 - k / q + k * k) / a0;
+        k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+        q = 0.5003270373238773;
+        a0 = 1 + k / q + k * k;
+        ha1 = 2 * (k * k - 1) / a0;
+        ha2 = (1 - k / q + k * k) / a0;
+        state = new double[this.channels][8];
+    }
+
+    /**
+     * Measures all samples of a store, without its gain.
+     *
+     * @return the integrated loudness in LUFS, see {@link #integratedLoudness()}
+     */
+    public static double measure(PcmStore samples) {
+        LoudnessMeter meter = new LoudnessMeter(samples.getFormat().getFrameRate(),
+                                                samples.getFormat().getChannels());
+        meter.process(samples.samples());
+        return meter.integratedLoudness();
+    }
+
+    /**
+     * @return the gain in dB that brings audio of the given loudness to the ReplayGain reference, 0 for silence
+     */
+    public static double replayGain(double loudness) {
+        return Double.isFinite(loudness) ? REFERENCE_LUFS - loudness : 0;
+    }
+
+    /**
+     * Adds interleaved 16-bit little endian frames, from the position to the limit of the buffer.
+     */
+    public void process(ByteBuffer pcm) {
+        ByteBuffer in = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int frameSize = 2 * channels;
+        int end = in.position() + (in.remaining() / frameSize) * frameSize;
+        for (int pos = in.position(); pos < end; pos += frameSize) {
+            for (int c = 0; c < channels; c++) {
+                double y = weight(state[c], in.getShort(pos + 2 * c) / 32768.0);
+                stepSum += y * y;
+            }
+            if (++stepFill == stepFrames) {
+                addStep(stepSum / stepFrames);
+                stepSum = 0;
+                stepFill = 0;
+            }
+        }
+    }
+
+    private double weight(double[] s, double x) {
+        double y = sb0 * x + sb1 * s[0] + sb2 * s[1] - sa1 * s[2] - sa2 * s[3];
+        s[1] = s[0];
+        s[0] = x;
+        s[3] = s[2];
+        s[2] = y;
+        double z = y - 2 * s[4] + s[5] - ha1 * s[6] - ha2 * s[7];
+        s[5] = s[4];
+        s[4] = y;
+        s[7] = s[6];
+        s[6] = z;
+        return z;
+    }
+
+    private void addStep(double meanSquare) {
+        lastSteps[steps++ % 4] = meanSquare;
+        if (steps < 4) {
+            return;
+        }
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+        }
+        blocks[blockCount++] = (lastSteps[0] + lastSteps[1] + lastSteps[2] + lastSteps[3]) / 4;
+    }
+
+    /**
+     * @return the gated loudness in LUFS, or negative infinity if the audio is silent or shorter than 400 ms
+     */
+    public double integratedLoudness() {
+        double absolute = power(ABSOLUTE_GATE);
+        double sum = 0;
+        int n = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (blocks[i] > absolute) {
+                sum += blocks[i];
+                n++;
+            }
+        }
+        if (n == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double relative = power(loudness(sum / n) + RELATIVE_GATE);
+        sum = 0;
+        n = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (blocks[i] > absolute && blocks[i] > relative) {
+                sum += blocks[i];
+                n++;
+            }
+        }
+        return n == 0 ? Double.NEGATIVE_INFINITY : loudness(sum / n);
+    }
+
+    private static double loudness(double power) {
+        return -0.691 + 10 * Math.log10(power);
+    }
+
+    private static double power(double loudness) {
+        return Math.pow(10, (loudness + 0.691) / 10);
+    }
+}
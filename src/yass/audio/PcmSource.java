@@ -0,0 +1,15 @@
+package yass.audio;
+
+/**
+ * Sequential 16-bit little endian samples that are mixed into an output buffer, block by block.
+ */
+public interface PcmSource {
+    /**
+     * Adds the next samples to the samples in dst, clipping the sum.
+     *
+     * @param offset byte offset in dst
+     * @param length number of bytes, a multiple of the frame size
+     * @return the number of bytes mixed, less than length at the end of the source
+     */
+    int mixNext(byte[] dst, int offset, int length);
+}
@@ -0,0 +1,216 @@
+package yass.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Samples of a decoded WAV file, mapped into memory instead of being read onto the heap.
+ * <p>
+ * Playback ranges and waveform reads are served from the mapping without copying. The gain is kept apart from
+ * the samples and applied while they are written to the output, so normalizing a song needs neither a second
+ * array nor a pass over the whole file, and changing the gain does not reload the file.
+ * <p>
+ * The gain is applied to 16-bit signed little endian samples only, which is what the temp files are converted
+ * to; other formats are passed on unchanged.
+ */
+public final class PcmStore {
+    private final ByteBuffer data;
+    private final AudioFormat format;
+    private final double gain;
+
+    private PcmStore(ByteBuffer data, AudioFormat format, double gain) {
+        this.data = data;
+        this.format = format;
+        this.gain = gain;
+    }
+
+    /**
+     * Maps the sample data of a WAV file. If the file has no RIFF header, all of it is taken as samples.
+     *
+     * @param format format of the samples, as reported by the audio system
+     */
+    public static PcmStore open(File file, AudioFormat format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), Integer.MAX_VALUE);
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return wrap(mapped, format);
+        }
+    }
+
+    /**
+     * Uses a buffer holding a WAV file, or raw samples, as store.
+     */
+    public static PcmStore wrap(ByteBuffer wav, AudioFormat format) {
+        ByteBuffer in = wav.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int start = 0;
+        int end = in.limit();
+        if (end >= 12 && in.getInt(0) == 0x46464952 && in.getInt(8) == 0x45564157) {
+            // RIFF....WAVE, walk the chunks up to "data"
+            int pos = 12;
+            while (pos + 8 <= end) {
+                int id = in.getInt(pos);
+                long length = in.getInt(pos + 4) & 0xFFFFFFFFL;
+                pos += 8;
+                if (id == 0x61746164) {
+                    start = pos;
+                    // streamed files may not know their length
+                    end = (int) Math.min(end, pos + length);
+                    break;
+                }
+                pos += (int) Math.min(Integer.MAX_VALUE - pos, length + (length & 1));
+            }
+        }
+        int frameSize = Math.max(1, format.getFrameSize());
+        end = Math.max(start, end - (end - start) % frameSize);
+        ByteBuffer samples = in.position(start).limit(end).slice().order(ByteOrder.LITTLE_ENDIAN);
+        return new PcmStore(samples.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN), format, 1);
+    }
+
+    /**
+     * @return a store sharing the samples of this one, played with another gain
+     */
+    public PcmStore withGain(double gain) {
+        return new PcmStore(data, format, gain);
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public double getGain() {
+        return gain;
+    }
+
+    /**
+     * @return whether the gain can be applied to the samples
+     */
+    public boolean isSixteenBit() {
+        return format.getSampleSizeInBits() == 16 && !format.isBigEndian()
+                && AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding());
+    }
+
+    /**
+     * @return length of the samples in bytes
+     */
+    public int length() {
+        return data.limit();
+    }
+
+    /**
+     * @return the samples without gain, little endian, from position 0; the buffer is independent of other callers
+     */
+    public ByteBuffer samples() {
+        return data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return the samples of a time range without gain; nothing is copied
+     */
+    public ByteBuffer range(double fromMs, double toMs) {
+        int from = byteAt(fromMs);
+        int to = Math.max(from, byteAt(toMs));
+        return data.duplicate().position(from).limit(to).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return offset of the frame at a point in time, between 0 and {@link #length()}
+     */
+    public int byteAt(double ms) {
+        int frameSize = Math.max(1, format.getFrameSize());
+        long frame = (long) (ms * format.getFrameRate() / 1000);
+        long pos = Math.max(0, Math.min(data.limit() / frameSize, frame)) * frameSize;
+        return (int) pos;
+    }
+
+    /**
+     * @return the channels of the frame at a point in time mixed to mono, with gain, or 0 outside the samples
+     */
+    public int monoSampleAt(double ms) {
+        if (!isSixteenBit()) {
+            return 0;
+        }
+        int pos = byteAt(ms);
+        int channels = Math.max(1, format.getChannels());
+        if (pos + 2 * channels > data.limit()) {
+            return 0;
+        }
+        int sum = 0;
+        for (int c = 0; c < channels; c++) {
+            sum += data.getShort(pos + 2 * c);
+        }
+        return scale(sum / channels);
+    }
+
+    /**
+     * Root mean square of all samples without gain, computed in one pass over the mapping.
+     */
+    public double rms() {
+        int n = data.limit() / 2;
+        if (n == 0 || !isSixteenBit()) {
+            return 0;
+        }
+        double sumSquares = 0;
+        for (int pos = 0; pos + 1 < data.limit(); pos += 2) {
+            int s = data.getShort(pos);
+            sumSquares += s * s;
+        }
+        return Math.sqrt(sumSquares / n);
+    }
+
+    /**
+     * Mixes samples with gain into an output buffer of the same format, clipping the sum.
+     *
+     * @param from   byte offset in this store
+     * @param dst    16-bit little endian output, mixed into
+     * @param offset byte offset in dst
+     * @param length number of bytes
+     * @return the number of bytes mixed, less than length at the end of the samples
+     */
+    public int mixInto(int from, byte[] dst, int offset, int length) {
+        int n = Math.max(0, Math.min(length, Math.min(data.limit() - from, dst.length - offset)));
+        if (!isSixteenBit()) {
+            data.duplicate().position(from).get(dst, offset, n);
+            return n;
+        }
+        n -= n & 1;
+        for (int i = 0; i < n; i += 2) {
+            int d = offset + i;
+            int mixed = scale(data.getShort(from + i)) + (short) ((dst[d + 1] << 8) | (dst[d] & 0xFF));
+            mixed = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixed));
+            dst[d] = (byte) mixed;
+            dst[d + 1] = (byte) (mixed >> 8);
+        }
+        return n;
+    }
+
+    /**
+     * @return the samples from a byte offset on, with gain, as a source for {@link PlaybackMixer}
+     */
+    public PcmSource reader(int from) {
+        return new PcmSource() {
+            private int position = from;
+
+            @Override
+            public int mixNext(byte[] dst, int offset, int length) {
+                int n = mixInto(position, dst, offset, length);
+                position += n;
+                return n;
+            }
+        };
+    }
+
+    /**
+     * @return a sample value with gain, clipped to 16 bits
+     */
+    public int scale(int sample) {
+        if (gain == 1) {
+            return sample;
+        }
+        return (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample * gain));
+    }
+}
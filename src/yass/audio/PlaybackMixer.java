@@ -0,0 +1,198 @@
+package yass.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Mixes the song with click and piano voices while it is read, block by block.
+ * <p>
+ * Nothing is rendered ahead: every read mixes just the requested bytes from the song and the voices that sound
+ * at that time, so memory and start latency do not depend on the length of the selection. Voices are
+ * mono and played on all channels; the sum is clipped to 16 bits. The last frames can be faded out.
+ * <p>
+ * The output has the format of the song, which must be 16-bit signed little endian.
+ */
+public class PlaybackMixer extends InputStream {
+    private final PcmSource song;
+    private final int length;
+    private final int frameSize;
+    private final int channels;
+    private final List<Voice> voices;
+    private final int fadeFrames;
+    private int position = 0;
+    // a frame mixed for a read of less than a frame, served from partialPos on
+    private final byte[] partial;
+    private int partialPos;
+    private int nextVoice = 0;
+    private final List<Voice> sounding = new ArrayList<>();
+
+    /**
+     * A mono sound starting at a frame of the output.
+     *
+     * @param pcm    16-bit little endian mono samples
+     * @param start  first frame in the output
+     * @param frames number of frames to play, at most the length of pcm
+     * @param fade   fade out the last eighth of the sound
+     */
+    public record Voice(byte[] pcm, long start, int frames, boolean fade) {
+        public Voice {
+            frames = Math.max(0, Math.min(frames, pcm.length / 2));
+        }
+
+        long end() {
+            return start + frames;
+        }
+    }
+
+    /**
+     * @param song    the song, or null to play the voices only
+     * @param length  length of the output in bytes
+     * @param voices  voices, with frames counted from the start of the output
+     * @param fadeOut number of frames to fade out at the end
+     */
+    public PlaybackMixer(PcmSource song, AudioFormat format, int length, List<Voice> voices, int fadeOut) {
+        this.song = song;
+        this.channels = Math.max(1, format.getChannels());
+        this.frameSize = 2 * channels;
+        this.length = Math.max(0, length - length % frameSize);
+        this.voices = new ArrayList<>(voices);
+        this.voices.sort(Comparator.comparingLong(Voice::start));
+        this.fadeFrames = Math.max(0, Math.min(fadeOut, this.length / frameSize - 1));
+        this.partial = new byte[frameSize];
+        this.partialPos = frameSize;
+    }
+
+    /**
+     * Resamples a mono sound by linear interpolation, e.g. a click made at 44.1 kHz for a 48 kHz song.
+     *
+     * @param pcm 16-bit little endian mono samples
+     * @return the samples at the new rate, or pcm if the rates are equal
+     */
+    public static byte[] resample(byte[] pcm, float fromRate, float toRate) {
+        if (fromRate == toRate || fromRate <= 0 || toRate <= 0) {
+            return pcm;
+        }
+        int frames = pcm.length / 2;
+        int n = (int) ((long) frames * toRate / fromRate);
+        byte[] out = new byte[2 * n];
+        double step = fromRate / (double) toRate;
+        for (int i = 0; i < n; i++) {
+            double x = i * step;
+            int j = (int) x;
+            int a = sample(pcm, j);
+            int b = j + 1 < frames ? sample(pcm, j + 1) : a;
+            put(out, 2 * i, (int) Math.round(a + (b - a) * (x - j)));
+        }
+        return out;
+    }
+
+    private static int sample(byte[] pcm, int frame) {
+        return (short) ((pcm[2 * frame + 1] << 8) | (pcm[2 * frame] & 0xFF));
+    }
+
+    @Override
+    public int read() {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    /**
+     * Mixes the next bytes. Reads are rounded down to whole frames; asking for less than a frame mixes one frame and
+     * returns it over this and the next reads.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len <= 0) {
+            return 0;
+        }
+        if (partialPos < frameSize) {
+            int n = Math.min(len, frameSize - partialPos);
+            System.arraycopy(partial, partialPos, b, off, n);
+            partialPos += n;
+            return n;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int n = Math.min(len, length - position);
+        n -= n % frameSize;
+        if (n == 0) {
+            mix(partial, 0, frameSize);
+            partialPos = 0;
+            return read(b, off, len);
+        }
+        mix(b, off, n);
+        return n;
+    }
+
+    private void mix(byte[] b, int off, int n) {
+        Arrays.fill(b, off, off + n, (byte) 0);
+        if (song != null) {
+            song.mixNext(b, off, n);
+        }
+        long firstFrame = position / frameSize;
+        long endFrame = firstFrame + n / frameSize;
+        while (nextVoice < voices.size() && voices.get(nextVoice).start() < endFrame) {
+            sounding.add(voices.get(nextVoice++));
+        }
+        for (int i = sounding.size() - 1; i >= 0; i--) {
+            Voice v = sounding.get(i);
+            mixVoice(v, firstFrame, endFrame, b, off);
+            if (v.end() <= endFrame) {
+                sounding.remove(i);
+            }
+        }
+        if (fadeFrames > 0) {
+            fade(firstFrame, endFrame, b, off);
+        }
+        position += n;
+    }
+
+    private void mixVoice(Voice v, long firstFrame, long endFrame, byte[] b, int off) {
+        long start = Math.max(firstFrame, v.start());
+        long end = Math.min(endFrame, v.end());
+        int fadeSamples = v.fade() ? v.frames() / 8 : 0;
+        for (long frame = start; frame < end; frame++) {
+            int i = (int) (frame - v.start());
+            int sample = (short) ((v.pcm()[2 * i + 1] << 8) | (v.pcm()[2 * i] & 0xFF));
+            if (i >= v.frames() - fadeSamples) {
+                sample = (int) (sample * ((double) (v.frames() - i) / fadeSamples));
+            }
+            int pos = off + (int) (frame - firstFrame) * frameSize;
+            for (int c = 0; c < channels; c++, pos += 2) {
+                add(b, pos, sample);
+            }
+        }
+    }
+
+    private void fade(long firstFrame, long endFrame, byte[] b, int off) {
+        long total = length / frameSize;
+        for (long frame = Math.max(firstFrame, total - fadeFrames); frame < endFrame; frame++) {
+            double factor = (double) (total - frame) / fadeFrames;
+            int pos = off + (int) (frame - firstFrame) * frameSize;
+            for (int c = 0; c < channels; c++, pos += 2) {
+                int s = (short) ((b[pos + 1] << 8) | (b[pos] & 0xFF));
+                put(b, pos, (int) Math.round(s * factor));
+            }
+        }
+    }
+
+    private static void add(byte[] b, int pos, int sample) {
+        put(b, pos, sample + (short) ((b[pos + 1] << 8) | (b[pos] & 0xFF)));
+    }
+
+    private static void put(byte[] b, int pos, int sample) {
+        int s = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+        b[pos] = (byte) s;
+        b[pos + 1] = (byte) (s >> 8);
+    }
+
+    @Override
+    public int available() {
+        return length - position + frameSize - partialPos;
+    }
+}
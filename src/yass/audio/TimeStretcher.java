@@ -0,0 +1,183 @@
+package yass.audio;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Changes the tempo of samples without changing their pitch, while they are played (WSOLA).
+ * <p>
+ * The output is built from overlapping Hann windowed segments of {@value #WINDOW_MS} ms, placed half a window
+ * apart. Segment k is taken from around the input position k times the output hop times the rate; within
+ * {@value #TOLERANCE_MS} ms of that position the one that best continues the previous segment is chosen, so the
+ * waveforms line up where they overlap. The search compares the channels mixed to mono, first on every fourth
+ * sample and offset, then around the best offset on every second sample.
+ * <p>
+ * All buffers are allocated up front; a segment is rendered whenever the previous one was played.
+ */
+public class TimeStretcher implements PcmSource {
+    static final double WINDOW_MS = 40;
+    static final double TOLERANCE_MS = 10;
+
+    private final PcmStore samples;
+    private final ByteBuffer in;
+    private final int channels;
+    private final int frameSize;
+    private final long frames;
+    private final long first;
+    private final double rate;
+    private final int window;
+    private final int hop;
+    private final int tolerance;
+    private final float[] hann;
+    private final float[][] output;
+    private final float[] reference;
+    private final float[] candidates;
+    private long segment = 0;
+    private long previous;
+    private int ready = 0;
+    private int emitted = 0;
+
+    /**
+     * @param samples the song, which must be 16-bit signed little endian
+     * @param from    byte offset of the first frame
+     * @param rate    tempo relative to the samples, e.g. 0.5 for half speed
+     */
+    public TimeStretcher(PcmStore samples, int from, double rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive: " + rate);
+        }
+        this.samples = samples;
+        this.in = samples.samples();
+        this.channels = Math.max(1, samples.getFormat().getChannels());
+        this.frameSize = 2 * channels;
+        this.frames = samples.length() / frameSize;
+        this.first = from / frameSize;
+        this.rate = rate;
+        float frameRate = samples.getFormat().getFrameRate();
+        this.hop = Math.max(16, (int) Math.round(frameRate * WINDOW_MS / 2000));
+        this.window = 2 * hop;
+        this.tolerance = Math.max(4, (int) Math.round(frameRate * TOLERANCE_MS / 1000));
+        this.hann = new float[window];
+        for (int n = 0; n < window; n++) {
+            hann[n] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * n / window));
+        }
+        this.output = new float[channels][window];
+        this.reference = new float[hop];
+        this.candidates = new float[2 * tolerance + hop];
+    }
+
+    @Override
+    public int mixNext(byte[] dst, int offset, int length) {
+        int n = 0;
+        while (n + frameSize <= length) {
+            if (emitted == ready) {
+                if (ready > 0) {
+                    shift();
+                }
+                render();
+            }
+            int count = Math.min(ready - emitted, (length - n) / frameSize);
+            for (int f = 0; f < count; f++, emitted++) {
+                for (int c = 0; c < channels; c++) {
+                    int pos = offset + n + 2 * c;
+                    int sum = Math.round(output[c][emitted]) + (short) ((dst[pos + 1] << 8) | (dst[pos] & 0xFF));
+                    sum = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum));
+                    dst[pos] = (byte) sum;
+                    dst[pos + 1] = (byte) (sum >> 8);
+                }
+                n += frameSize;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Adds the next segment; afterwards the first hop frames of the output are complete.
+     */
+    private void render() {
+        long nominal = first + Math.round(segment * hop * rate);
+        long start = segment == 0 ? nominal : bestMatch(previous + hop, nominal);
+        for (int n = 0; n < window; n++) {
+            // the first segment has nothing to overlap with
+            float w = segment == 0 && n < hop ? 1 : hann[n];
+            for (int c = 0; c < channels; c++) {
+                output[c][n] += w * samples.scale(sample(start + n, c));
+            }
+        }
+        previous = start;
+        segment++;
+        ready = hop;
+        emitted = 0;
+    }
+
+    private void shift() {
+        for (float[] channel : output) {
+            System.arraycopy(channel, hop, channel, 0, window - hop);
+            Arrays.fill(channel, window - hop, window, 0);
+        }
+    }
+
+    /**
+     * @param natural where the previous segment would continue
+     * @param nominal where the segment should start at this rate
+     * @return the start near nominal that looks most like the natural continuation
+     */
+    private long bestMatch(long natural, long nominal) {
+        long low = Math.max(0, nominal - tolerance);
+        for (int i = 0; i < hop; i++) {
+            reference[i] = mono(natural + i);
+        }
+        int range = (int) (nominal + tolerance - low);
+        for (int i = 0; i < range + hop; i++) {
+            candidates[i] = mono(low + i);
+        }
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int d = 0; d <= range; d += 4) {
+            double score = similarity(d, 4);
+            if (score > bestScore) {
+                bestScore = score;
+                best = d;
+            }
+        }
+        int coarse = best;
+        bestScore = Double.NEGATIVE_INFINITY;
+        for (int d = Math.max(0, coarse - 3); d <= Math.min(range, coarse + 3); d++) {
+            double score = similarity(d, 2);
+            if (score > bestScore) {
+                bestScore = score;
+                best = d;
+            }
+        }
+        return low + best;
+    }
+
+    /**
+     * Normalized cross-correlation of the reference with the candidate at an offset.
+     */
+    private double similarity(int offset, int step) {
+        double dot = 0;
+        double energy = 1e-9;
+        for (int i = 0; i < hop; i += step) {
+            float c = candidates[offset + i];
+            dot += reference[i] * c;
+            energy += c * c;
+        }
+        return dot / Math.sqrt(energy);
+    }
+
+    private int sample(long frame, int channel) {
+        if (frame < 0 || frame >= frames) {
+            return 0;
+        }
+        return in.getShort((int) (frame * frameSize) + 2 * channel);
+    }
+
+    private float mono(long frame) {
+        int sum = 0;
+        for (int c = 0; c < channels; c++) {
+            sum += sample(frame, c);
+        }
+        return (float) sum / channels;
+    }
+}
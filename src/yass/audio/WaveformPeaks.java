@@ -0,0 +1,355 @@
+package yass.audio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Min/max/RMS pyramid of 16-bit PCM audio, for drawing waveforms at any zoom level.
+ * <p>
+ * Level 0 summarizes {@value #BASE_FRAMES} frames per bucket and every further level combines {@value #FACTOR}
+ * buckets of the level below. A query combines whole buckets on the coarsest level that fits and only splits
+ * the buckets at both ends of the range, so it reads a few buckets per level no matter how long the range is.
+ * The samples at the very ends are read from the PCM data itself, if it is available; otherwise the peaks may
+ * include up to one level 0 bucket more on each side.
+ * <p>
+ * Channels are mixed to mono by averaging, like the waveform of {@link yass.YassPlayer}.
+ * <p>
+ * File layout (big endian): int magic 'YWPK', int version, long key, float frame rate, int frames, int levels,
+ * then per level int buckets followed by buckets x (short min, short max, float mean square).
+ */
+public class WaveformPeaks {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    public static final String FILE_SUFFIX = ".peaks";
+    static final int MAGIC = 0x5957504B;
+    static final int VERSION = 1;
+    static final int BASE_FRAMES = 64;
+    static final int FACTOR = 4;
+
+    private final float frameRate;
+    private final int frames;
+    private final short[][] min;
+    private final short[][] max;
+    private final float[][] meanSquare;
+    private ByteBuffer pcm;
+    private int channels;
+
+    private WaveformPeaks(float frameRate, int frames, short[][] min, short[][] max, float[][] meanSquare) {
+        this.frameRate = frameRate;
+        this.frames = frames;
+        this.min = min;
+        this.max = max;
+        this.meanSquare = meanSquare;
+    }
+
+    /**
+     * Peak values of a time range, in sample units.
+     */
+    public static class Peak {
+        public int min;
+        public int max;
+        public float rms;
+
+        /**
+         * @return the largest absolute sample value
+         */
+        public int amplitude() {
+            return Math.max(Math.abs(min), Math.abs(max));
+        }
+    }
+
+    /**
+     * Builds the pyramid.
+     *
+     * @param pcm       16-bit little endian samples, interleaved; read from position 0
+     * @param channels  1 or 2
+     * @param frameRate frames per second
+     * @return the pyramid, or null if the format is not supported
+     */
+    public static WaveformPeaks build(ByteBuffer pcm, int channels, float frameRate) {
+        if (pcm == null || channels < 1 || channels > 2 || frameRate <= 0) {
+            return null;
+        }
+        ByteBuffer in = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int frameSize = 2 * channels;
+        int frames = in.limit() / frameSize;
+        int buckets = Math.max(1, (frames + BASE_FRAMES - 1) / BASE_FRAMES);
+        int levels = 1;
+        for (int n = buckets; n > 1; n = (n + FACTOR - 1) / FACTOR) {
+            levels++;
+        }
+        short[][] min = new short[levels][];
+        short[][] max = new short[levels][];
+        float[][] ms = new float[levels][];
+        min[0] = new short[buckets];
+        max[0] = new short[buckets];
+        ms[0] = new float[buckets];
+        for (int b = 0; b < buckets; b++) {
+            int from = b * BASE_FRAMES;
+            int to = Math.min(frames, from + BASE_FRAMES);
+            int lo = Short.MAX_VALUE;
+            int hi = Short.MIN_VALUE;
+            double sum = 0;
+            for (int f = from; f < to; f++) {
+                int v = sample(in, f, channels);
+                lo = Math.min(lo, v);
+                hi = Math.max(hi, v);
+                sum += (double) v * v;
+            }
+            if (to <= from) {
+                lo = hi = 0;
+            }
+            min[0][b] = (short) lo;
+            max[0][b] = (short) hi;
+            ms[0][b] = to > from ? (float) (sum / (to - from)) : 0;
+        }
+        for (int level = 1; level < levels; level++) {
+            int n = (min[level - 1].length + FACTOR - 1) / FACTOR;
+            min[level] = new short[n];
+            max[level] = new short[n];
+            ms[level] = new float[n];
+            for (int b = 0; b < n; b++) {
+                int from = b * FACTOR;
+                int to = Math.min(min[level - 1].length, from + FACTOR);
+                short lo = Short.MAX_VALUE;
+                short hi = Short.MIN_VALUE;
+                double sum = 0;
+                for (int c = from; c < to; c++) {
+                    lo = (short) Math.min(lo, min[level - 1][c]);
+                    hi = (short) Math.max(hi, max[level - 1][c]);
+                    sum += ms[level - 1][c];
+                }
+                min[level][b] = lo;
+                max[level][b] = hi;
+                // the last bucket of a level may be shorter, which only matters for the final milliseconds
+                ms[level][b] = (float) (sum / (to - from));
+            }
+        }
+        WaveformPeaks peaks = new WaveformPeaks(frameRate, frames, min, max, ms);
+        peaks.attach(pcm, channels);
+        return peaks;
+    }
+
+    private static int sample(ByteBuffer in, int frame, int channels) {
+        int pos = frame * 2 * channels;
+        if (channels == 1) {
+            return in.getShort(pos);
+        }
+        return (in.getShort(pos) + in.getShort(pos + 2)) / 2;
+    }
+
+    /**
+     * Attaches the PCM data the pyramid was built from, so that short ranges are read exactly.
+     */
+    public void attach(ByteBuffer pcm, int channels) {
+        if (pcm != null && pcm.limit() / (2 * channels) == frames) {
+            this.pcm = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            this.channels = channels;
+        }
+    }
+
+    public float getFrameRate() {
+        return frameRate;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    int getLevels() {
+        return min.length;
+    }
+
+    /**
+     * Gets the peaks between two points in time.
+     *
+     * @param fromMs start in milliseconds
+     * @param toMs   end in milliseconds; ranges shorter than a frame cover one frame
+     * @return false if the range is outside the audio; peak is then set to silence
+     */
+    public boolean peak(double fromMs, double toMs, Peak peak) {
+        long from = (long) Math.floor(fromMs * frameRate / 1000.0);
+        long to = (long) Math.ceil(toMs * frameRate / 1000.0);
+        if (to <= from) {
+            to = from + 1;
+        }
+        from = Math.max(0, from);
+        to = Math.min(frames, to);
+        if (from >= to) {
+            peak.min = peak.max = 0;
+            peak.rms = 0;
+            return false;
+        }
+        return framePeak((int) from, (int) to, peak);
+    }
+
+    /**
+     * Gets the peaks of the frames from (inclusive) to (exclusive). Buckets that lie completely inside the range
+     * are combined on the coarsest level possible; the partial buckets at both ends are split into finer ones,
+     * down to the samples.
+     */
+    boolean framePeak(int from, int to, Peak peak) {
+        int[] range = {Short.MAX_VALUE, Short.MIN_VALUE};
+        double[] sum = {0, 0};
+        int b0;
+        int b1;
+        if (pcm != null) {
+            int alignedFrom = Math.min(to, (from + BASE_FRAMES - 1) / BASE_FRAMES * BASE_FRAMES);
+            int alignedTo = Math.max(alignedFrom, to / BASE_FRAMES * BASE_FRAMES);
+            addSamples(from, alignedFrom, range, sum);
+            addSamples(alignedTo, to, range, sum);
+            b0 = alignedFrom / BASE_FRAMES;
+            b1 = alignedTo / BASE_FRAMES;
+        } else {
+            b0 = from / BASE_FRAMES;
+            b1 = (to + BASE_FRAMES - 1) / BASE_FRAMES;
+        }
+        long size = BASE_FRAMES;
+        for (int level = 0; b0 < b1; level++, size *= FACTOR) {
+            if (level == min.length - 1) {
+                addBuckets(level, size, b0, b1, range, sum);
+                break;
+            }
+            int up = Math.min(b1, (b0 + FACTOR - 1) / FACTOR * FACTOR);
+            int down = Math.max(up, b1 / FACTOR * FACTOR);
+            addBuckets(level, size, b0, up, range, sum);
+            addBuckets(level, size, down, b1, range, sum);
+            b0 = up / FACTOR;
+            b1 = down / FACTOR;
+        }
+        peak.min = range[0];
+        peak.max = range[1];
+        peak.rms = sum[1] > 0 ? (float) Math.sqrt(sum[0] / sum[1]) : 0;
+        return true;
+    }
+
+    private void addSamples(int from, int to, int[] range, double[] sum) {
+        for (int f = from; f < to; f++) {
+            int v = sample(pcm, f, channels);
+            range[0] = Math.min(range[0], v);
+            range[1] = Math.max(range[1], v);
+            sum[0] += (double) v * v;
+        }
+        sum[1] += Math.max(0, to - from);
+    }
+
+    private void addBuckets(int level, long size, int from, int to, int[] range, double[] sum) {
+        for (int b = from; b < to; b++) {
+            range[0] = Math.min(range[0], min[level][b]);
+            range[1] = Math.max(range[1], max[level][b]);
+            double n = Math.min(size, frames - b * size);
+            sum[0] += meanSquare[level][b] * n;
+            sum[1] += n;
+        }
+    }
+
+    /**
+     * Gets the cache file of a (temporary) audio file.
+     */
+    public static File cacheFile(File audio) {
+        return new File(audio.getAbsolutePath() + FILE_SUFFIX);
+    }
+
+    /**
+     * Builds a cache key from the audio file and everything else the samples depend on, e.g. a gain.
+     */
+    public static long key(File audio, double... settings) {
+        long key = audio.length() * 31 + audio.lastModified();
+        for (double d : settings) {
+            key = key * 31 + Double.doubleToLongBits(d);
+        }
+        return key;
+    }
+
+    /**
+     * Loads a cached pyramid.
+     *
+     * @return the pyramid, or null if the file does not exist, is damaged or has another key
+     */
+    public static WaveformPeaks load(File file, long key) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (InputStream fis = Files.newInputStream(file.toPath());
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fis, 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != key) {
+                return null;
+            }
+            float frameRate = in.readFloat();
+            int frames = in.readInt();
+            int levels = in.readInt();
+            if (frameRate <= 0 || frames < 0 || levels < 1 || levels > 32) {
+                return null;
+            }
+            short[][] min = new short[levels][];
+            short[][] max = new short[levels][];
+            float[][] ms = new float[levels][];
+            for (int level = 0; level < levels; level++) {
+                int n = in.readInt();
+                if (n < 1 || n > frames / BASE_FRAMES + 1) {
+                    return null;
+                }
+                min[level] = new short[n];
+                max[level] = new short[n];
+                ms[level] = new float[n];
+                for (int b = 0; b < n; b++) {
+                    min[level][b] = in.readShort();
+                    max[level][b] = in.readShort();
+                    ms[level][b] = in.readFloat();
+                }
+            }
+            return new WaveformPeaks(frameRate, frames, min, max, ms);
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Ignoring waveform cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the pyramid; the file is replaced atomically.
+     *
+     * @return true if the file was written
+     */
+    public boolean store(File file, long key) {
+        Path temp = new File(file.getAbsolutePath() + ".tmp").toPath();
+        try (OutputStream fos = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(key);
+            out.writeFloat(frameRate);
+            out.writeInt(frames);
+            out.writeInt(min.length);
+            for (int level = 0; level < min.length; level++) {
+                out.writeInt(min[level].length);
+                for (int b = 0; b < min[level].length; b++) {
+                    out.writeShort(min[level][b]);
+                    out.writeShort(max[level][b]);
+                    out.writeFloat(meanSquare[level][b]);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write waveform cache " + file, e);
+            return false;
+        }
+        try {
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write waveform cache " + file, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass.filter;
+
+import yass.YassSong;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Number of songs per facet of a faceted filter, see {@link YassFilter#isFaceted()}.
+ * <p>
+ * Songs are put into the bucket of their facet once, so the counter of a rule is a lookup for rules that stand for
+ * a single facet, and a walk over the distinct facets otherwise, instead of testing every song for every rule. The
+ * facet of each song is remembered, so a changed song only moves from its old bucket to its new one. All methods
+ * are thread-safe.
+ */
+public class FacetCounter {
+    private final YassFilter filter;
+    private final Map<YassSong, String> facets = new IdentityHashMap<>();
+    private final Map<String, int[]> counts = new HashMap<>();
+
+    /**
+     * @param filter a faceted filter of the group, whose rule does not matter
+     */
+    public FacetCounter(YassFilter filter) {
+        this.filter = filter;
+    }
+
+    public synchronized int size() {
+        return facets.size();
+    }
+
+    /**
+     * Counts a song, or moves it to the bucket of its current facet if it is counted already.
+     */
+    public synchronized void add(YassSong s) {
+        String facet = filter.getFacet(s);
+        String old = facets.put(s, facet);
+        if (facet.equals(old)) {
+            return;
+        }
+        if (old != null) {
+            decrement(old);
+        }
+        counts.computeIfAbsent(facet, k -> new int[1])[0]++;
+    }
+
+    public synchronized void remove(YassSong s) {
+        String old = facets.remove(s);
+        if (old != null) {
+            decrement(old);
+        }
+    }
+
+    /**
+     * @param rule a filter of the same group
+     * @return number of counted songs the rule accepts
+     */
+    public synchronized int count(YassFilter rule) {
+        String facet = rule.getFacetRule();
+        if (facet != null) {
+            int[] n = counts.get(facet);
+            return n == null ? 0 : n[0];
+        }
+        int n = 0;
+        for (Map.Entry<String, int[]> e : counts.entrySet()) {
+            if (rule.acceptFacet(e.getKey())) {
+                n += e.getValue()[0];
+            }
+        }
+        return n;
+    }
+
+    private void decrement(String facet) {
+        int[] n = counts.get(facet);
+        if (--n[0] == 0) {
+            counts.remove(facet);
+        }
+    }
+}
@@ -42,6 +42,15 @@ public class YassArtistFilter extends YassFilter {
         return "artist";
     }
 
+    /**
+     * Only reads the song and the artists of the generic rules.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     /**
      * Gets the genericRules attribute of the YassArtistFilter object
      *
@@ -190,11 +199,25 @@ public class YassArtistFilter extends YassFilter {
      * @return Description of the Return Value
      */
     public boolean accept(YassSong s) {
+        return acceptFacet(getFacet(s));
+    }
+
+    public boolean isFaceted() {
+        return true;
+    }
+
+    public String getFacet(YassSong s) {
         String t = s.getArtist();
-        boolean hit;
+        if (t == null)
+            return "";
 
         if (moveArticles)
             t = getSortedArtist(t, s.getLanguage());
+        return t;
+    }
+
+    public boolean acceptFacet(String t) {
+        boolean hit;
 
         if (rule.equals("all")) {
             hit = true;
@@ -206,5 +229,12 @@ public class YassArtistFilter extends YassFilter {
 
         return hit;
     }
+
+    public String getFacetRule() {
+        if (rule.equals("all") || rule.equals("others")) {
+            return null;
+        }
+        return rule;
+    }
 }
 
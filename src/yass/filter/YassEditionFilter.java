@@ -41,6 +41,15 @@ public class YassEditionFilter extends YassFilter {
         return "edition";
     }
 
+    /**
+     * Only reads the edition of the song.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Gets the genericRules attribute of the YassEditionFilter object
@@ -134,20 +143,37 @@ public class YassEditionFilter extends YassFilter {
      * @return Description of the Return Value
      */
     public boolean accept(YassSong s) {
+        return acceptFacet(getFacet(s));
+    }
+
+    public boolean isFaceted() {
+        return true;
+    }
+
+    public String getFacet(YassSong s) {
         String t = s.getEdition();
-        boolean hit = false;
+        return t == null ? "" : t;
+    }
+
+    public boolean acceptFacet(String t) {
+        boolean hit;
 
         if (rule.equals("all")) {
             hit = true;
         } else if (rule.equals("unspecified")) {
-            if (t == null || t.length() < 1) {
-                hit = true;
-            }
+            hit = t.length() < 1;
         } else {
             hit = t.equals(rule);
         }
 
         return hit;
     }
+
+    public String getFacetRule() {
+        if (rule.equals("all") || rule.equals("unspecified")) {
+            return null;
+        }
+        return rule;
+    }
 }
 
@@ -37,6 +37,15 @@ public class YassErrorsFilter extends YassFilter {
         return "errors";
     }
 
+    /**
+     * Only reads the messages of the song.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Description of the Method
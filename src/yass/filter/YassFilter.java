@@ -39,7 +39,7 @@ public class YassFilter implements Cloneable {
     /**
      * Description of the Field
      */
-    public static boolean isInterrupted = false;
+    public static volatile boolean isInterrupted = false;
     private static Hashtable<String, YassFilter> hash = null;
     private static Vector<YassFilter> plugins = null;
     /**
@@ -252,6 +252,17 @@ public class YassFilter implements Cloneable {
     public void stop() {
     }
 
+    /**
+     * Tells whether accept may be called from several threads at once, so the song list can filter in parallel.
+     * Filters that only read the song and their rule may return true; the others, e.g. filters that load the song
+     * into a table kept in a field, are run on one thread.
+     *
+     * @return false
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     /**
      * Gets the sorting attribute of the YassFilter object
      *
@@ -279,6 +290,45 @@ public class YassFilter implements Cloneable {
         return true;
     }
 
+    /**
+     * Tells whether accept only looks at one value of a song, its facet, so that the counters of all rules can be
+     * taken from a {@link FacetCounter}.
+     *
+     * @return true if getFacet and acceptFacet are implemented
+     */
+    public boolean isFaceted() {
+        return false;
+    }
+
+    /**
+     * Gets the value of a song this filter groups by. Songs without a value have the empty facet.
+     *
+     * @param s the song
+     * @return the facet, never null for faceted filters
+     */
+    public String getFacet(YassSong s) {
+        return null;
+    }
+
+    /**
+     * Tells whether the rule accepts the songs of a facet.
+     *
+     * @param facet the facet
+     * @return whether accept holds for songs with this facet
+     */
+    public boolean acceptFacet(String facet) {
+        return false;
+    }
+
+    /**
+     * Gets the facet the rule stands for, so that its songs are counted without testing all facets.
+     *
+     * @return the only facet the rule accepts, or null
+     */
+    public String getFacetRule() {
+        return null;
+    }
+
     /**
      * Description of the Method
      *
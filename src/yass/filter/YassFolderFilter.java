@@ -45,6 +45,15 @@ public class YassFolderFilter extends YassFilter {
         return "folder";
     }
 
+    /**
+     * Only reads the folder of the song.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Gets the genericRules attribute of the YassFolderFilter object
@@ -79,12 +88,24 @@ public class YassFolderFilter extends YassFilter {
      * @return Description of the Return Value
      */
     public boolean accept(YassSong s) {
+        return acceptFacet(getFacet(s));
+    }
+
+    public boolean isFaceted() {
+        return true;
+    }
+
+    public String getFacet(YassSong s) {
         String t = s.getFolder();
-        boolean hit;
+        return t == null ? "" : t;
+    }
 
-        hit = rule.equals("all") || t.equals(rule);
+    public boolean acceptFacet(String t) {
+        return rule.equals("all") || t.equals(rule);
+    }
 
-        return hit;
+    public String getFacetRule() {
+        return rule.equals("all") ? null : rule;
     }
 
 
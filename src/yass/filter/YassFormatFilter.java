@@ -44,6 +44,15 @@ public class YassFormatFilter extends YassFilter {
         return "format";
     }
 
+    /**
+     * Reads the song and its audio file, nothing is kept between songs.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Gets the extraInfo attribute of the YassFilesFilter object
@@ -44,6 +44,15 @@ public class YassLanguageFilter extends YassFilter {
         return "language";
     }
 
+    /**
+     * Only reads the language of the song.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Gets the genericRules attribute of the YassLanguageFilter object
@@ -159,7 +168,19 @@ public class YassLanguageFilter extends YassFilter {
      * @return Description of the Return Value
      */
     public boolean accept(YassSong s) {
+        return acceptFacet(getFacet(s));
+    }
+
+    public boolean isFaceted() {
+        return true;
+    }
+
+    public String getFacet(YassSong s) {
         String t = s.getLanguage();
+        return t == null ? "" : t;
+    }
+
+    public boolean acceptFacet(String t) {
         boolean hit;
 
         if (rule.equals("all")) {
@@ -172,5 +193,12 @@ public class YassLanguageFilter extends YassFilter {
 
         return hit;
     }
+
+    public String getFacetRule() {
+        if (rule.equals("all") || multiple != null) {
+            return null;
+        }
+        return rule;
+    }
 }
 
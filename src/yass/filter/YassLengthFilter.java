@@ -40,6 +40,15 @@ public class YassLengthFilter extends YassFilter {
         return "length";
     }
 
+    /**
+     * Only compares the length of the song with the rule.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Sets the rule attribute of the YassLengthFilter object
@@ -37,6 +37,15 @@ public class YassMultiPlayerFilter extends YassFilter {
         return "duets";
     }
 
+    /**
+     * Only reads the number of singers of the song.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Gets the extraInfo attribute of the YassMultiPlayerFilter object
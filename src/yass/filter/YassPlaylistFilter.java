@@ -48,6 +48,15 @@ public class YassPlaylistFilter extends YassFilter {
         return "playlist";
     }
 
+    /**
+     * Only looks the song up in the playlists read before.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Gets the genericRules attribute of the YassAlbumFilter object
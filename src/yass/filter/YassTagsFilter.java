@@ -37,6 +37,15 @@ public class YassTagsFilter extends YassFilter {
         return "tags";
     }
 
+    /**
+     * Only reads the tags of the song.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Gets the extraInfo attribute of the YassMultiPlayerFilter object
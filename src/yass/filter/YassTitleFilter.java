@@ -36,6 +36,15 @@ public class YassTitleFilter extends YassFilter {
         return "title";
     }
 
+    /**
+     * Only reads the title of the song.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Description of the Method
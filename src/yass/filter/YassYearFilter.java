@@ -45,6 +45,15 @@ public class YassYearFilter extends YassFilter {
         return "year";
     }
 
+    /**
+     * Only compares the year of the song with the rule.
+     *
+     * @return true
+     */
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 
     /**
      * Gets the genericRules attribute of the YassYearFilter object
@@ -195,6 +204,20 @@ public class YassYearFilter extends YassFilter {
      * @return Description of the Return Value
      */
     public boolean accept(YassSong s) {
+        return acceptFacet(getFacet(s));
+    }
+
+    public boolean isFaceted() {
+        return true;
+    }
+
+    /**
+     * Gets the year of a song, or -1 if it has none, so that years like "01999" share a facet.
+     *
+     * @param s the song
+     * @return the year as facet
+     */
+    public String getFacet(YassSong s) {
         String year = s.getYear();
 
         int y;
@@ -203,6 +226,11 @@ public class YassYearFilter extends YassFilter {
         } catch (Exception e) {
             y = -1;
         }
+        return Integer.toString(y);
+    }
+
+    public boolean acceptFacet(String year) {
+        int y = Integer.parseInt(year);
 
         boolean hit = false;
 
@@ -221,5 +249,12 @@ public class YassYearFilter extends YassFilter {
         return hit;
     }
 
+    public String getFacetRule() {
+        if (rule.equals("all") || rule.equals("unspecified") || exact <= 0) {
+            return null;
+        }
+        return Integer.toString(exact);
+    }
+
 }
 
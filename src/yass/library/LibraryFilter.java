@@ -0,0 +1,249 @@
+package yass.library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs library filters one at a time on a single background thread.
+ * <p>
+ * Every {@link #submit} starts a new generation: a run that is still waiting for its debounce delay is dropped,
+ * and a run that is already executing sees {@link Generation#isCancelled()} turn true and stops at its next
+ * check. {@link #select} evaluates a predicate over all songs in parallel chunks and gives up between chunks
+ * once its generation is stale, so typing in the search field never waits for an outdated result.
+ */
+public class LibraryFilter implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    public static final String DELAY_PROPERTY = "library-filter-delay";
+    static final int CHUNK_SIZE = 256;
+
+    public interface Task {
+        void run(Generation generation);
+    }
+
+    private final ScheduledExecutorService executor;
+    private final ForkJoinPool pool;
+    private final AtomicLong current = new AtomicLong();
+    private final Runnable onCancel;
+    private ScheduledFuture<?> pending;
+    private volatile boolean closed;
+
+    /**
+     * @param parallelism number of threads that evaluate chunks
+     * @param onCancel    called when a generation becomes stale, e.g. to stop a filter's own loop; may be null
+     */
+    public LibraryFilter(int parallelism, Runnable onCancel) {
+        this.onCancel = onCancel;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LibraryFilter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Schedules a filter run and cancels all earlier ones.
+     *
+     * @param delay debounce delay in milliseconds
+     * @return the generation of the new run
+     */
+    public synchronized Generation submit(Task task, long delay) {
+        Generation generation = new Generation(cancelPending());
+        if (closed) {
+            return generation;
+        }
+        try {
+            pending = executor.schedule(() -> {
+                if (generation.isCancelled()) {
+                    return;
+                }
+                try {
+                    task.run(generation);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Library filter failed", e);
+                }
+            }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+        }
+        return generation;
+    }
+
+    /**
+     * Cancels the scheduled and the running filter.
+     */
+    public synchronized void cancel() {
+        cancelPending();
+    }
+
+    private long cancelPending() {
+        long generation = current.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        if (onCancel != null) {
+            onCancel.run();
+        }
+        return generation;
+    }
+
+    /**
+     * @return true while a filter run is scheduled or executing
+     */
+    public synchronized boolean isBusy() {
+        return pending != null && !pending.isDone();
+    }
+
+    /**
+     * Blocks until the filter thread has finished the run it is executing, without waiting for delayed runs.
+     * Must not be called from a filter task.
+     */
+    public void await() {
+        if (closed) {
+            return;
+        }
+        try {
+            executor.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException | RejectedExecutionException ignored) {
+        }
+    }
+
+    /**
+     * Collects the items that are accepted, in their original order. Chunks of {@value #CHUNK_SIZE} items are
+     * evaluated in parallel, so accept must be safe for concurrent use.
+     *
+     * @param progress receives the number of evaluated items after each chunk; may be null
+     * @return the accepted items, or null if the generation was cancelled
+     */
+    public <T> List<T> select(List<T> items, Predicate<T> accept, Generation generation, IntConsumer progress) {
+        AtomicInteger done = new AtomicInteger();
+        List<T> result;
+        try {
+            result = pool.invoke(new ChunkTask<>(items, 0, items.size(), accept, generation, done, progress));
+        } catch (CancellationException | RejectedExecutionException e) {
+            return null;
+        }
+        return result == null || generation.isCancelled() ? null : result;
+    }
+
+    /**
+     * Like {@link #select}, but on the calling thread, for filters that are not safe for concurrent use. The
+     * generation is checked before every item.
+     */
+    public static <T> List<T> selectSequentially(List<T> items, Predicate<T> accept, Generation generation,
+                                                 IntConsumer progress) {
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            // such filters tend to be slow, e.g. they read every song file
+            if (generation.isCancelled()) {
+                return null;
+            }
+            if (progress != null && i > 0 && i % CHUNK_SIZE == 0) {
+                progress.accept(i);
+            }
+            T item = items.get(i);
+            if (accept.test(item)) {
+                result.add(item);
+            }
+        }
+        return generation.isCancelled() ? null : result;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            cancelPending();
+        }
+        executor.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * One filter run.
+     */
+    public final class Generation {
+        private final long id;
+
+        private Generation(long id) {
+            this.id = id;
+        }
+
+        /**
+         * @return true if a newer run was submitted or the filter was cancelled
+         */
+        public boolean isCancelled() {
+            return closed || current.get() != id;
+        }
+    }
+
+    private static class ChunkTask<T> extends RecursiveTask<List<T>> {
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final Predicate<T> accept;
+        private final Generation generation;
+        private final AtomicInteger done;
+        private final IntConsumer progress;
+
+        ChunkTask(List<T> items, int from, int to, Predicate<T> accept, Generation generation, AtomicInteger done,
+                  IntConsumer progress) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.accept = accept;
+            this.generation = generation;
+            this.done = done;
+            this.progress = progress;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (generation.isCancelled()) {
+                return null;
+            }
+            if (to - from > CHUNK_SIZE) {
+                int mid = (from + to) >>> 1;
+                ChunkTask<T> right = new ChunkTask<>(items, mid, to, accept, generation, done, progress);
+                right.fork();
+                List<T> left = new ChunkTask<>(items, from, mid, accept, generation, done, progress).compute();
+                List<T> rest = right.join();
+                if (left == null || rest == null) {
+                    return null;
+                }
+                left.addAll(rest);
+                return left;
+            }
+            List<T> result = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                T item = items.get(i);
+                if (accept.test(item)) {
+                    result.add(item);
+                }
+            }
+            int n = done.addAndGet(to - from);
+            if (progress != null) {
+                progress.accept(n);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package yass.library;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Remembers modification time, size and content checksum of every song file of the library, so that a
+ * refresh only has to reparse files that were added or changed since the last scan.
+ * <p>
+ * File format (UTF-8 text): a header line {@code #MANIFEST:<version>}, a line {@code #ROOT:<song directory>}
+ * and one line per song {@code path<TAB>lastModified<TAB>size<TAB>crc32c}.
+ */
+public class LibraryManifest {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    public static final String PROPERTY = "songlist-manifest";
+    static final int VERSION = 1;
+    private static final String HEADER = "#MANIFEST:";
+    private static final String ROOT = "#ROOT:";
+
+    private final String root;
+    private final Map<String, Entry> entries;
+
+    public LibraryManifest(String root) {
+        this.root = root;
+        this.entries = new LinkedHashMap<>();
+    }
+
+    public String getRoot() {
+        return root;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    public void put(String path, Entry entry) {
+        entries.put(path, entry);
+    }
+
+    public void remove(String path) {
+        entries.remove(path);
+    }
+
+    /**
+     * @return true if the file has the recorded modification time and size, i.e. it can be skipped without reading it
+     */
+    public boolean isUnchanged(File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        return entry != null && entry.lastModified() == file.lastModified() && entry.size() == file.length();
+    }
+
+    /**
+     * Compares the manifest with the song files currently on disk. Files with a different modification time or
+     * size are checksummed; if the checksum still matches they are only reported as touched.
+     *
+     * @param files song files found by the directory walk
+     */
+    public Diff diff(Collection<File> files) {
+        List<File> added = new ArrayList<>();
+        List<File> changed = new ArrayList<>();
+        Map<String, Entry> touched = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>(files.size() * 2);
+        for (File file : files) {
+            String path = file.getAbsolutePath();
+            seen.add(path);
+            Entry entry = entries.get(path);
+            if (entry == null) {
+                added.add(file);
+            } else if (entry.lastModified() != file.lastModified() || entry.size() != file.length()) {
+                Entry current = fingerprint(file);
+                if (current != null && current.hash() == entry.hash()) {
+                    touched.put(path, current);
+                } else {
+                    changed.add(file);
+                }
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String path : entries.keySet()) {
+            if (!seen.contains(path)) {
+                removed.add(path);
+            }
+        }
+        return new Diff(added, changed, removed, touched);
+    }
+
+    /**
+     * Creates a manifest for the given song files.
+     *
+     * @param scanner pool to checksum on, or null to checksum sequentially
+     */
+    public static LibraryManifest build(String root, List<File> files, LibraryScanner scanner) {
+        Entry[] fingerprints = new Entry[files.size()];
+        if (scanner != null) {
+            List<Integer> indices = new ArrayList<>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                indices.add(i);
+            }
+            scanner.process(indices, () -> null, (i, unused) -> {
+                fingerprints[i] = fingerprint(files.get(i));
+                return true;
+            }, null);
+        } else {
+            for (int i = 0; i < files.size(); i++) {
+                fingerprints[i] = fingerprint(files.get(i));
+            }
+        }
+        LibraryManifest manifest = new LibraryManifest(root);
+        for (int i = 0; i < fingerprints.length; i++) {
+            if (fingerprints[i] != null) {
+                manifest.put(files.get(i).getAbsolutePath(), fingerprints[i]);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Reads modification time, size and CRC32C of a file.
+     *
+     * @return the entry, or null if the file cannot be read
+     */
+    public static Entry fingerprint(File file) {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[16 * 1024];
+        long lastModified = file.lastModified();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return new Entry(lastModified, file.length(), crc.getValue());
+    }
+
+    /**
+     * Loads a manifest.
+     *
+     * @param file manifest file
+     * @param root song directory the manifest must belong to
+     * @return the manifest, or null if it does not exist, is outdated or was written for another song directory
+     */
+    public static LibraryManifest load(File file, String root) {
+        if (file == null || !file.exists() || root == null) {
+            return null;
+        }
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            if (line == null || !line.equals(HEADER + VERSION)) {
+                return null;
+            }
+            line = in.readLine();
+            if (line == null || !line.startsWith(ROOT) || !line.substring(ROOT.length()).equals(root)) {
+                return null;
+            }
+            LibraryManifest manifest = new LibraryManifest(root);
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    continue;
+                }
+                manifest.put(parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                                                 Long.parseUnsignedLong(parts[3], 16)));
+            }
+            return manifest;
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.log(Level.INFO, "Ignoring unreadable library manifest " + file, e);
+            return null;
+        }
+    }
+
+    public boolean store(File file) {
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        Path temp = new File(file.getAbsolutePath() + ".tmp").toPath();
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(HEADER + VERSION);
+            out.newLine();
+            out.write(ROOT + root);
+            out.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.write(e.getKey() + "\t" + entry.lastModified() + "\t" + entry.size() + "\t"
+                                  + Long.toHexString(entry.hash()));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write library manifest " + file, e);
+            return false;
+        }
+        try {
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write library manifest " + file, e);
+            return false;
+        }
+    }
+
+    public record Entry(long lastModified, long size, long hash) {
+    }
+
+    /**
+     * Result of {@link #diff(Collection)}.
+     *
+     * @param added   files that are not in the manifest
+     * @param changed files whose content changed
+     * @param removed paths that no longer exist
+     * @param touched files whose time or size changed but whose content did not, with their new entries
+     */
+    public record Diff(List<File> added, List<File> changed, List<String> removed, Map<String, Entry> touched) {
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty() && touched.isEmpty();
+        }
+    }
+}
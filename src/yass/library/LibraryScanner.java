@@ -0,0 +1,195 @@
+package yass.library;
+
+import yass.YassProperties;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Walks the song directory and parses songs on a bounded fork/join pool.
+ * <p>
+ * Directory listings are sorted by name and child results are joined in listing order, so the result
+ * of {@link #collect} does not depend on thread scheduling. {@link #process} hands every worker thread
+ * its own parser instance, because {@link yass.YassTable} is not safe for concurrent use.
+ */
+public class LibraryScanner implements AutoCloseable {
+    public static final String THREADS_PROPERTY = "library-scan-threads";
+    private static final int MAX_THREADS = 16;
+    private static final int LEAF_SIZE = 8;
+    private static final int PROGRESS_BATCH = 50;
+
+    private final ForkJoinPool pool;
+    private final BooleanSupplier cancelled;
+    private final Object progressLock = new Object();
+
+    public LibraryScanner(int parallelism, BooleanSupplier cancelled) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.cancelled = cancelled != null ? cancelled : () -> false;
+    }
+
+    /**
+     * Number of scan threads configured by {@value #THREADS_PROPERTY}; 0 or less means one per core.
+     */
+    public static int resolveParallelism(YassProperties prop) {
+        int threads = prop != null ? prop.getIntProperty(THREADS_PROPERTY) : 0;
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        return Math.max(1, Math.min(threads, MAX_THREADS));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Finds all song and playlist files below root.
+     *
+     * @param root           song directory
+     * @param songFilter     accepts song files (e.g. *.txt with a valid header)
+     * @param playlistFilter accepts playlist files
+     * @return songs and playlists in directory order
+     */
+    public ScanResult collect(File root, FileFilter songFilter, FileFilter playlistFilter) {
+        return pool.invoke(new DirectoryTask(root, "", songFilter, playlistFilter));
+    }
+
+    /**
+     * Runs task for every item. Each worker thread creates its parser once through parserFactory.
+     *
+     * @param progress receives the number of processed items, at most every {@value #PROGRESS_BATCH} items
+     * @return number of processed items
+     */
+    public <T, P> int process(List<T> items, Supplier<P> parserFactory, BiPredicate<T, P> task, IntConsumer progress) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+        ThreadLocal<P> parsers = ThreadLocal.withInitial(parserFactory);
+        AtomicInteger done = new AtomicInteger();
+        pool.invoke(new ItemsTask<>(items, 0, items.size(), parsers, task, done, progress));
+        reportProgress(progress, done.get());
+        return done.get();
+    }
+
+    private void reportProgress(IntConsumer progress, int n) {
+        if (progress == null) {
+            return;
+        }
+        synchronized (progressLock) {
+            progress.accept(n);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    public record SongFile(File file, String folder) {
+    }
+
+    public record ScanResult(List<SongFile> songs, List<File> playlists) {
+    }
+
+    private class DirectoryTask extends RecursiveTask<ScanResult> {
+        private final File dir;
+        private final String folder;
+        private final FileFilter songFilter;
+        private final FileFilter playlistFilter;
+
+        DirectoryTask(File dir, String folder, FileFilter songFilter, FileFilter playlistFilter) {
+            this.dir = dir;
+            this.folder = folder;
+            this.songFilter = songFilter;
+            this.playlistFilter = playlistFilter;
+        }
+
+        @Override
+        protected ScanResult compute() {
+            List<SongFile> songs = new ArrayList<>();
+            List<File> playlists = new ArrayList<>();
+            File[] files = dir.listFiles();
+            if (files == null || cancelled.getAsBoolean()) {
+                return new ScanResult(songs, playlists);
+            }
+            Arrays.sort(files, Comparator.comparing(File::getName));
+            List<Object> parts = new ArrayList<>(files.length);
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    DirectoryTask child = new DirectoryTask(file, dir.getName(), songFilter, playlistFilter);
+                    child.fork();
+                    parts.add(child);
+                } else {
+                    parts.add(file);
+                }
+            }
+            for (Object part : parts) {
+                if (part instanceof DirectoryTask child) {
+                    ScanResult result = child.join();
+                    songs.addAll(result.songs());
+                    playlists.addAll(result.playlists());
+                } else if (!cancelled.getAsBoolean()) {
+                    File file = (File) part;
+                    if (songFilter.accept(file)) {
+                        songs.add(new SongFile(file, folder));
+                    }
+                    if (playlistFilter.accept(file)) {
+                        playlists.add(file);
+                    }
+                }
+            }
+            return new ScanResult(songs, playlists);
+        }
+    }
+
+    private class ItemsTask<T, P> extends RecursiveAction {
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final ThreadLocal<P> parsers;
+        private final BiPredicate<T, P> task;
+        private final AtomicInteger done;
+        private final IntConsumer progress;
+
+        ItemsTask(List<T> items, int from, int to, ThreadLocal<P> parsers, BiPredicate<T, P> task,
+                  AtomicInteger done, IntConsumer progress) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.parsers = parsers;
+            this.task = task;
+            this.done = done;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ItemsTask<>(items, from, mid, parsers, task, done, progress),
+                          new ItemsTask<>(items, mid, to, parsers, task, done, progress));
+                return;
+            }
+            P parser = parsers.get();
+            for (int i = from; i < to && !cancelled.getAsBoolean(); i++) {
+                task.test(items.get(i), parser);
+                int n = done.incrementAndGet();
+                if (n % PROGRESS_BATCH == 0) {
+                    reportProgress(progress, n);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package yass.library;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the song directory recursively and reports changed song files in batches.
+ * <p>
+ * Events are collected until the directory has been quiet for the debounce delay (but at most
+ * {@value #MAX_DELAY_FACTOR} times as long), so that an editor writing a file in several steps or a sync tool
+ * copying a whole folder results in one batch. Several events for the same file are coalesced to the last one.
+ * New directories, deleted directories and event overflows are reported as folders to rescan.
+ */
+public class LibraryWatcher implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    public static final String PROPERTY = "library-watch";
+    public static final long DEFAULT_DELAY = 1000;
+    private static final int MAX_DELAY_FACTOR = 10;
+
+    public interface Listener {
+        /**
+         * Applies a batch of changes.
+         *
+         * @return false if the changes cannot be applied now, e.g. while the library is being scanned; they are
+         * delivered again later
+         */
+        boolean apply(Changes changes);
+    }
+
+    /**
+     * @param updated song files that were created or modified
+     * @param removed song files that were deleted
+     * @param rescan  directories whose content is unknown and must be compared with the library
+     */
+    public record Changes(Set<File> updated, Set<File> removed, Set<File> rescan) {
+        public boolean isEmpty() {
+            return updated.isEmpty() && removed.isEmpty() && rescan.isEmpty();
+        }
+    }
+
+    private final Path root;
+    private final Predicate<Path> songFilter;
+    private final long delay;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private final PendingChanges pending = new PendingChanges();
+    private final ScheduledExecutorService scheduler;
+    private final Thread thread;
+    private ScheduledFuture<?> flush;
+    private long firstEvent;
+    private volatile boolean closed;
+
+    /**
+     * @param root       song directory
+     * @param songFilter accepts song file names; it must not read the file, which may already be deleted
+     * @param delay      debounce delay in milliseconds
+     */
+    public LibraryWatcher(Path root, Predicate<Path> songFilter, long delay, Listener listener) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.songFilter = songFilter;
+        this.delay = delay;
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LibraryWatcher-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        this.thread = new Thread(this::run, "LibraryWatcher");
+        this.thread.setDaemon(true);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Registers the directory tree and starts watching. Registration runs on the watcher thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void run() {
+        registerAll(root);
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = keys.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    handle(dir, event);
+                }
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    private void handle(Path dir, WatchEvent<?> event) {
+        WatchEvent.Kind<?> kind = event.kind();
+        if (kind == StandardWatchEventKinds.OVERFLOW) {
+            LOGGER.info("Library watcher overflow in " + dir);
+            schedule(() -> pending.rescan(dir.toFile()));
+            return;
+        }
+        Path path = dir.resolve((Path) event.context());
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+            // files may have been created before the directory was registered
+            registerAll(path);
+            schedule(() -> pending.rescan(path.toFile()));
+        } else if (kind == StandardWatchEventKinds.ENTRY_DELETE && isWatched(path)) {
+            schedule(() -> pending.rescan(path.toFile()));
+        } else if (songFilter.test(path)) {
+            if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                schedule(() -> pending.remove(path.toFile()));
+            } else {
+                schedule(() -> pending.update(path.toFile()));
+            }
+        }
+    }
+
+    private boolean isWatched(Path path) {
+        return keys.containsValue(path);
+    }
+
+    private void registerAll(Path start) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (closed) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                                StandardWatchEventKinds.ENTRY_DELETE,
+                                                StandardWatchEventKinds.ENTRY_MODIFY);
+                    keys.put(key, dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (ClosedWatchServiceException ignored) {
+        } catch (IOException e) {
+            // e.g. the inotify watch limit is reached; the rest of the tree is only updated by refresh
+            LOGGER.log(Level.INFO, "Library watcher cannot register " + start, e);
+        }
+    }
+
+    private synchronized void schedule(Runnable change) {
+        change.run();
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (flush == null || flush.isDone()) {
+            firstEvent = now;
+        } else if (now - firstEvent < delay * MAX_DELAY_FACTOR) {
+            flush.cancel(false);
+        } else {
+            return;
+        }
+        flush = scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        Changes changes;
+        synchronized (this) {
+            changes = pending.drain();
+        }
+        if (changes.isEmpty() || closed) {
+            return;
+        }
+        boolean applied;
+        try {
+            applied = listener.apply(changes);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Cannot apply library changes", e);
+            applied = true;
+        }
+        if (!applied) {
+            synchronized (this) {
+                pending.restore(changes);
+            }
+            schedule(() -> {
+            });
+        }
+    }
+
+    /**
+     * Coalesces file events until they are drained. The last event for a file wins, and a folder that is rescanned
+     * absorbs all single file events below it.
+     */
+    static class PendingChanges {
+        private final Map<File, Boolean> files = new LinkedHashMap<>();
+        private final Set<File> rescan = new LinkedHashSet<>();
+
+        void update(File file) {
+            if (!isRescanned(file)) {
+                files.put(file, Boolean.TRUE);
+            }
+        }
+
+        void remove(File file) {
+            if (!isRescanned(file)) {
+                files.put(file, Boolean.FALSE);
+            }
+        }
+
+        void rescan(File dir) {
+            if (isRescanned(dir)) {
+                return;
+            }
+            Path path = dir.toPath();
+            rescan.removeIf(d -> d.toPath().startsWith(path));
+            files.keySet().removeIf(f -> f.toPath().startsWith(path));
+            rescan.add(dir);
+        }
+
+        private boolean isRescanned(File file) {
+            Path path = file.toPath();
+            for (File dir : rescan) {
+                if (path.startsWith(dir.toPath())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void restore(Changes changes) {
+            changes.rescan().forEach(this::rescan);
+            // events that arrived meanwhile are newer
+            for (File f : changes.updated()) {
+                if (!files.containsKey(f)) {
+                    update(f);
+                }
+            }
+            for (File f : changes.removed()) {
+                if (!files.containsKey(f)) {
+                    remove(f);
+                }
+            }
+        }
+
+        Changes drain() {
+            Set<File> updated = new LinkedHashSet<>();
+            Set<File> removed = new LinkedHashSet<>();
+            for (Iterator<Map.Entry<File, Boolean>> it = files.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<File, Boolean> e = it.next();
+                (e.getValue() ? updated : removed).add(e.getKey());
+                it.remove();
+            }
+            Changes changes = new Changes(Collections.unmodifiableSet(updated), Collections.unmodifiableSet(removed),
+                                          Collections.unmodifiableSet(new LinkedHashSet<>(rescan)));
+            rescan.clear();
+            return changes;
+        }
+    }
+}
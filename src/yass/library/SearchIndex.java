@@ -0,0 +1,434 @@
+package yass.library;
+
+import yass.YassRow;
+import yass.YassSearchNormalizer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Inverted index over the title, artist, tags and lyrics of all songs.
+ * <p>
+ * Texts are normalized with {@link YassSearchNormalizer} and split into words; syllables of lyrics are joined
+ * first, so that words sung over several notes are found as a whole. A query matches a song if one of
+ * its fields contains the query words in order, where the last query word may be the beginning of a word, so that
+ * results can be shown while typing. Candidates are found through the word lists; only queries with several words
+ * are checked against the stored field text.
+ * <p>
+ * The index is stored with its word lists and can be updated song by song. All methods are thread-safe.
+ */
+public class SearchIndex {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    public static final String PROPERTY = "search-index";
+    static final int MAGIC = 0x59534958;
+    // 2: syllables of lyrics are joined
+    static final int VERSION = 2;
+
+    /**
+     * Indexed song.
+     *
+     * @param path         song file
+     * @param lastModified modification time of the indexed file
+     * @param fields       normalized title, artist, tags and lyrics
+     */
+    private record Doc(String path, long lastModified, String[] fields) {
+    }
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private final TreeMap<String, int[]> postings = new TreeMap<>();
+    private final Map<String, Integer> postingSizes = new HashMap<>();
+    private int removedDocs = 0;
+    private boolean dirty = false;
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * @return true if the song is indexed with this modification time
+     */
+    public synchronized boolean isCurrent(String path, long lastModified) {
+        Integer id = ids.get(path);
+        return id != null && docs.get(id).lastModified() == lastModified;
+    }
+
+    /**
+     * Adds or replaces a song.
+     */
+    public void update(String path, long lastModified, String title, String artist, String tags, String lyrics) {
+        String[] fields = {normalize(title), normalize(artist), normalize(tags), normalize(joinSyllables(lyrics))};
+        Set<String> words = words(fields);
+        synchronized (this) {
+            removeDoc(path);
+            int id = docs.size();
+            docs.add(new Doc(path, lastModified, fields));
+            ids.put(path, id);
+            for (String word : words) {
+                addPosting(word, id);
+            }
+            dirty = true;
+        }
+    }
+
+    public synchronized void remove(String path) {
+        if (removeDoc(path)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Removes all songs that are not in paths.
+     */
+    public synchronized void retainAll(Collection<String> paths) {
+        Set<String> keep = new HashSet<>(paths);
+        for (String path : new ArrayList<>(ids.keySet())) {
+            if (!keep.contains(path)) {
+                removeDoc(path);
+                dirty = true;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        ids.clear();
+        docs.clear();
+        postings.clear();
+        postingSizes.clear();
+        removedDocs = 0;
+        dirty = true;
+    }
+
+    /**
+     * Finds songs whose title, artist, tags or lyrics contain the query.
+     *
+     * @return paths of matching songs; empty if the query contains no words
+     */
+    public synchronized Set<String> search(String query) {
+        String normalized = normalize(query);
+        Set<String> result = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return result;
+        }
+        String[] words = normalized.split(" ");
+        int[] candidates = null;
+        for (int i = 0; i < words.length; i++) {
+            int[] hits = i == words.length - 1 ? prefixPostings(words[i]) : exactPostings(words[i]);
+            candidates = candidates == null ? hits : intersect(candidates, hits);
+            if (candidates.length == 0) {
+                return result;
+            }
+        }
+        String phrase = " " + normalized;
+        for (int id : candidates) {
+            Doc doc = docs.get(id);
+            if (doc == null) {
+                continue;
+            }
+            if (words.length == 1 || containsPhrase(doc, phrase)) {
+                result.add(doc.path());
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsPhrase(Doc doc, String phrase) {
+        for (String field : doc.fields()) {
+            if (!field.isEmpty() && (" " + field).contains(phrase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] exactPostings(String word) {
+        int[] list = postings.get(word);
+        return list == null ? new int[0] : Arrays.copyOf(list, postingSizes.get(word));
+    }
+
+    private int[] prefixPostings(String prefix) {
+        SortedMap<String, int[]> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.size() == 1) {
+            return exactPostings(range.firstKey());
+        }
+        Set<Integer> union = new HashSet<>();
+        for (Map.Entry<String, int[]> e : range.entrySet()) {
+            int n = postingSizes.get(e.getKey());
+            for (int i = 0; i < n; i++) {
+                union.add(e.getValue()[i]);
+            }
+        }
+        return union.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Removes the syllable separators the editor shows between the notes of a word, as the lyrics column did.
+     */
+    static String joinSyllables(String lyrics) {
+        return lyrics == null ? null : lyrics.replaceAll("[-~\r" + YassRow.HYPHEN + "]", "");
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : YassSearchNormalizer.normalizeForSearch(text);
+    }
+
+    private static Set<String> words(String[] fields) {
+        Set<String> words = new HashSet<>();
+        for (String field : fields) {
+            if (!field.isEmpty()) {
+                words.addAll(Arrays.asList(field.split(" ")));
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Doc ids only grow, so appending keeps every list sorted.
+     */
+    private void addPosting(String word, int id) {
+        int[] list = postings.get(word);
+        int n = list == null ? 0 : postingSizes.get(word);
+        if (list == null) {
+            list = new int[2];
+            postings.put(word, list);
+        } else if (n == list.length) {
+            list = Arrays.copyOf(list, n * 2);
+            postings.put(word, list);
+        }
+        list[n] = id;
+        postingSizes.put(word, n + 1);
+    }
+
+    private boolean removeDoc(String path) {
+        Integer id = ids.remove(path);
+        if (id == null) {
+            return false;
+        }
+        Doc doc = docs.set(id, null);
+        for (String word : words(doc.fields())) {
+            int[] list = postings.get(word);
+            if (list == null) {
+                continue;
+            }
+            int n = postingSizes.get(word);
+            int i = Arrays.binarySearch(list, 0, n, id);
+            if (i < 0) {
+                continue;
+            }
+            if (n == 1) {
+                postings.remove(word);
+                postingSizes.remove(word);
+            } else {
+                System.arraycopy(list, i + 1, list, i, n - i - 1);
+                postingSizes.put(word, n - 1);
+            }
+        }
+        if (++removedDocs > 1000 && removedDocs > ids.size()) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Renumbers the songs after many removals, so that the doc list does not grow without bounds.
+     */
+    private void compact() {
+        List<Doc> live = new ArrayList<>(ids.size());
+        for (Doc doc : docs) {
+            if (doc != null) {
+                live.add(doc);
+            }
+        }
+        ids.clear();
+        docs.clear();
+        postings.clear();
+        postingSizes.clear();
+        removedDocs = 0;
+        for (Doc doc : live) {
+            int id = docs.size();
+            docs.add(doc);
+            ids.put(doc.path(), id);
+            for (String word : words(doc.fields())) {
+                addPosting(word, id);
+            }
+        }
+    }
+
+    /**
+     * Writes the index; the file is replaced atomically.
+     *
+     * @return true if the index was written
+     */
+    public boolean store(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        Path temp = new File(file.getAbsolutePath() + ".tmp").toPath();
+        synchronized (this) {
+            if (removedDocs > 0) {
+                compact();
+            }
+            try (OutputStream fos = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(docs.size());
+                for (Doc doc : docs) {
+                    writeString(out, doc.path());
+                    out.writeLong(doc.lastModified());
+                    for (String field : doc.fields()) {
+                        writeString(out, field);
+                    }
+                }
+                out.writeInt(postings.size());
+                for (Map.Entry<String, int[]> e : postings.entrySet()) {
+                    writeString(out, e.getKey());
+                    int n = postingSizes.get(e.getKey());
+                    out.writeInt(n);
+                    int previous = 0;
+                    for (int i = 0; i < n; i++) {
+                        writeVarInt(out, e.getValue()[i] - previous);
+                        previous = e.getValue()[i];
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Cannot write search index " + file, e);
+                return false;
+            }
+            dirty = false;
+        }
+        try {
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write search index " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Loads an index.
+     *
+     * @return the index, or an empty index if the file does not exist or is outdated
+     */
+    public static SearchIndex load(File file) {
+        SearchIndex index = new SearchIndex();
+        if (file == null || !file.exists()) {
+            return index;
+        }
+        try (InputStream fis = Files.newInputStream(file.toPath());
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fis, 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return index;
+            }
+            int docCount = in.readInt();
+            for (int id = 0; id < docCount; id++) {
+                String path = readString(in);
+                long lastModified = in.readLong();
+                String[] fields = new String[4];
+                for (int f = 0; f < fields.length; f++) {
+                    fields[f] = readString(in);
+                }
+                index.docs.add(new Doc(path, lastModified, fields));
+                index.ids.put(path, id);
+            }
+            int wordCount = in.readInt();
+            for (int w = 0; w < wordCount; w++) {
+                String word = readString(in);
+                int n = in.readInt();
+                int[] list = new int[Math.max(n, 2)];
+                int id = 0;
+                for (int i = 0; i < n; i++) {
+                    id += readVarInt(in);
+                    if (id < 0 || id >= docCount) {
+                        throw new IOException("Invalid doc id " + id);
+                    }
+                    list[i] = id;
+                }
+                index.postings.put(word, list);
+                index.postingSizes.put(word, n);
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.INFO, "Ignoring search index " + file + ": " + e.getMessage());
+            return new SearchIndex();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid number");
+    }
+}
@@ -0,0 +1,234 @@
+package yass.library;
+
+import yass.YassSong;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary song list cache.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * header   int magic 'YSLC', int version, int columns, int records, int strings
+ * records  records x (columns x int string index, long timestamp, int usdb song id)
+ * offsets  strings x int offset into the string data
+ * data     strings x (int length, UTF-8 bytes)
+ * </pre>
+ * Every distinct string is stored once and string index 0 is the empty string, so repeated values like artist,
+ * genre, edition or language share one entry. Records have a fixed size and can be read at their offset, e.g. from
+ * a memory-mapped file, without parsing the records before them. Columns that are not needed for the song list are
+ * only decoded when a song first accesses them.
+ */
+public class SongListCache {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    public static final String PROPERTY = "songlist-cache-binary";
+    public static final String FORMAT_PROPERTY = "songlist-cache-format";
+    static final int MAGIC = 0x59534C43;
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5 * 4;
+    private static final int RECORD_SIZE = YassSong.COLUMNS * 4 + 8 + 4;
+
+    private final ByteBuffer buffer;
+    private final int records;
+    private final int strings;
+    private final int offsetsStart;
+    private final int dataStart;
+    private final String[] decoded;
+
+    private SongListCache(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a song list cache");
+        }
+        if (buffer.getInt(4) != VERSION || buffer.getInt(8) != YassSong.COLUMNS) {
+            throw new IOException("Outdated song list cache");
+        }
+        records = buffer.getInt(12);
+        strings = buffer.getInt(16);
+        offsetsStart = HEADER_SIZE + records * RECORD_SIZE;
+        dataStart = offsetsStart + strings * 4;
+        if (records < 0 || strings < 1 || dataStart > buffer.limit() || dataStart < 0) {
+            throw new IOException("Truncated song list cache");
+        }
+        decoded = new String[strings];
+        decoded[0] = "";
+    }
+
+    /**
+     * Opens a cache file.
+     *
+     * @param map map the file instead of reading it into the heap; a mapped file cannot be replaced on Windows
+     *            as long as the songs of the cache are alive
+     * @return the cache, or null if the file does not exist or is not a valid cache of this version
+     */
+    public static SongListCache open(File file, boolean map) {
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer;
+            if (map) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            } else {
+                buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            }
+            return new SongListCache(buffer);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.INFO, "Ignoring song list cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public int size() {
+        return records;
+    }
+
+    /**
+     * Creates all songs. Only the columns needed for the song list are decoded.
+     *
+     * @return the songs, or null if the cache is damaged
+     */
+    public List<YassSong> songs() {
+        List<YassSong> songs = new ArrayList<>(records);
+        try {
+            for (int i = 0; i < records; i++) {
+                songs.add(song(i));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.INFO, "Ignoring damaged song list cache: " + e.getMessage());
+            return null;
+        }
+        return songs;
+    }
+
+    private YassSong song(int record) throws IOException {
+        int base = HEADER_SIZE + record * RECORD_SIZE;
+        String[] columns = new String[YassSong.COLUMNS];
+        for (int c = 0; c < YassSong.COLUMNS; c++) {
+            if (!YassSong.isLazyColumn(c)) {
+                columns[c] = string(buffer.getInt(base + c * 4));
+            }
+        }
+        long timestamp = buffer.getLong(base + YassSong.COLUMNS * 4);
+        int usdbSongId = buffer.getInt(base + YassSong.COLUMNS * 4 + 8);
+        return new YassSong(columns, timestamp, usdbSongId, c -> {
+            try {
+                return string(buffer.getInt(base + c * 4));
+            } catch (IOException e) {
+                return "";
+            }
+        });
+    }
+
+    /**
+     * Decodes a string once; later calls return the same instance.
+     */
+    private String string(int index) throws IOException {
+        if (index < 0 || index >= strings) {
+            throw new IOException("Invalid string index " + index);
+        }
+        String s = decoded[index];
+        if (s == null) {
+            int offset = dataStart + buffer.getInt(offsetsStart + index * 4);
+            int length = buffer.getInt(offset);
+            byte[] bytes = new byte[length];
+            try {
+                buffer.get(offset + 4, bytes);
+            } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+                throw new IOException("Invalid string " + index);
+            }
+            s = new String(bytes, StandardCharsets.UTF_8);
+            decoded[index] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Writes songs to a cache file; the file is replaced atomically.
+     *
+     * @return true if the cache was written
+     */
+    public static boolean store(File file, List<YassSong> songs) {
+        Map<String, Integer> index = new HashMap<>();
+        List<byte[]> pool = new ArrayList<>();
+        index.put("", 0);
+        pool.add(new byte[0]);
+        int[][] refs = new int[songs.size()][YassSong.COLUMNS];
+        for (int i = 0; i < songs.size(); i++) {
+            YassSong song = songs.get(i);
+            for (int c = 0; c < YassSong.COLUMNS; c++) {
+                String value = song.elementAt(c);
+                if (value == null) {
+                    value = "";
+                }
+                Integer ref = index.get(value);
+                if (ref == null) {
+                    ref = pool.size();
+                    index.put(value, ref);
+                    pool.add(value.getBytes(StandardCharsets.UTF_8));
+                }
+                refs[i][c] = ref;
+            }
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        Path temp = new File(file.getAbsolutePath() + ".tmp").toPath();
+        try (OutputStream fos = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(YassSong.COLUMNS);
+            out.writeInt(songs.size());
+            out.writeInt(pool.size());
+            for (int i = 0; i < songs.size(); i++) {
+                for (int c = 0; c < YassSong.COLUMNS; c++) {
+                    out.writeInt(refs[i][c]);
+                }
+                out.writeLong(songs.get(i).getTimestamp());
+                out.writeInt(songs.get(i).getUsdbSongId());
+            }
+            int offset = 0;
+            for (byte[] bytes : pool) {
+                out.writeInt(offset);
+                offset += 4 + bytes.length;
+            }
+            for (byte[] bytes : pool) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write song list cache " + file, e);
+            return false;
+        }
+        try {
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write song list cache " + file, e);
+            return false;
+        }
+    }
+}
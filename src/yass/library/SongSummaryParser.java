@@ -0,0 +1,359 @@
+package yass.library;
+
+import org.mozilla.universalchardet.UniversalDetector;
+import unicode.UnicodeReader;
+import yass.UltrastarHeaderTag;
+import yass.YassRow;
+import yass.YassUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the header tags and a summary of the notes of a song file in one pass, without building a
+ * {@link yass.YassTable}. Tag values, player count, encoding and lyrics are the same a table would report
+ * after {@link yass.YassTable#loadFile(String)}.
+ * <p>
+ * Instances keep a charset detector and are not thread-safe; use one parser per thread.
+ */
+public class SongSummaryParser {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    private static final int MAX_SIZE = 1024 * 1024;
+    private static final String UTF_8 = "UTF-8";
+
+    private final UniversalDetector detector = new UniversalDetector(null);
+
+    /**
+     * Parses a song file.
+     *
+     * @param file   song file
+     * @param lyrics also collect the lyrics
+     * @return the summary, or null if the file cannot be read; see {@link SongSummary#isLoadable()}
+     */
+    public SongSummary parse(File file, boolean lyrics) {
+        long lastModified = file.lastModified();
+        if (file.length() > MAX_SIZE) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            return null;
+        }
+        String detected = detectEncoding(bytes);
+        try (BufferedReader in = new BufferedReader(new UnicodeReader(new ByteArrayInputStream(bytes), detected))) {
+            SongSummary summary = new SongSummary(lastModified, UTF_8.equals(detected) ? UTF_8 : "", lyrics);
+            String line;
+            while ((line = in.readLine()) != null) {
+                summary.addLine(line);
+            }
+            return summary;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Cannot parse " + file, e);
+            return null;
+        }
+    }
+
+    private String detectEncoding(byte[] bytes) {
+        for (int i = 0; i < bytes.length && !detector.isDone(); i += 512) {
+            detector.handleData(bytes, i, Math.min(512, bytes.length - i));
+        }
+        detector.dataEnd();
+        String encoding = detector.getDetectedCharset();
+        detector.reset();
+        return encoding != null ? encoding : UTF_8;
+    }
+
+    /**
+     * Header tags and note summary of a song file.
+     */
+    public static class SongSummary {
+        private final long lastModified;
+        private final String encoding;
+        private final Map<String, String> headers = new HashMap<>();
+        private final String[] duetSingerNames = new String[9];
+        private final StringBuilder lyrics;
+        private int headerState = 0;
+        private int maxP = 0;
+        private int noteCount = 0;
+        private int goldenCount = 0;
+        private int pageCount = 0;
+        private String previousNote = null;
+        private boolean invalidNumber = false;
+
+        SongSummary(long lastModified, String encoding, boolean lyrics) {
+            this.lastModified = lastModified;
+            this.encoding = encoding;
+            this.lyrics = lyrics ? new StringBuilder() : null;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return "UTF-8", or an empty string for other encodings
+         */
+        public String getEncoding() {
+            return encoding;
+        }
+
+        /**
+         * Gets the value of the first header tag with this name.
+         *
+         * @param tag tag name including the colon, e.g. "TITLE:"
+         * @return the value, or an empty string if the tag is missing
+         */
+        public String getHeader(String tag) {
+            String value = headers.get(tag.toUpperCase());
+            return value != null ? value : "";
+        }
+
+        public boolean hasHeader(String tag) {
+            return headers.containsKey(tag.toUpperCase());
+        }
+
+        /**
+         * @return true if the leading comment lines contain a known header tag, as required for library songs
+         */
+        public boolean hasValidHeader() {
+            return headerState > 0;
+        }
+
+        public int getNoteCount() {
+            return noteCount;
+        }
+
+        public int getGoldenCount() {
+            return goldenCount;
+        }
+
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        /**
+         * Gets number of singers, as determined by largest P number in file.
+         *
+         * @return >= 1
+         */
+        public int getPlayerCount() {
+            return maxP > 1 ? YassUtils.getBitCount(maxP) : 1;
+        }
+
+        public boolean isDuet() {
+            return getPlayerCount() > 1;
+        }
+
+        /**
+         * Gets singer names as "P1/P2/...", with "-" for unnamed singers.
+         *
+         * @return empty for songs with one singer
+         */
+        public String getDuetSingerNames() {
+            int n = getPlayerCount();
+            if (n < 2) {
+                return "";
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < n; i++) {
+                if (!sb.isEmpty()) {
+                    sb.append('/');
+                }
+                String name = i < duetSingerNames.length ? duetSingerNames[i] : null;
+                sb.append(name != null ? name : "-");
+            }
+            return sb.toString();
+        }
+
+        /**
+         * @return the lyrics like {@link yass.YassTable#getText()}, or null if they were not collected
+         */
+        public String getLyrics() {
+            return lyrics != null ? lyrics.toString() : null;
+        }
+
+        void addLine(String s) {
+            checkHeader(s);
+            if (s.trim().isEmpty() || s.trim().equals("#")) {
+                previousNote = null;
+                return;
+            }
+            if (s.equals("#P1") || s.equals("#P2") || s.equals("#P1:") || s.equals("#P2:")) {
+                s = "P " + s.charAt(2);
+            }
+            char c0 = s.charAt(0);
+            if (c0 == '#') {
+                addTag(s);
+                previousNote = null;
+                return;
+            }
+            if (c0 == 'E') {
+                previousNote = null;
+                return;
+            }
+            if (c0 == '-' && s.length() > 1) {
+                pageCount++;
+                previousNote = null;
+                if (lyrics != null) {
+                    lyrics.append('\n');
+                }
+                return;
+            }
+            if (c0 == 'P' && s.length() > 1) {
+                try {
+                    int player = Integer.parseInt(s.substring(1).trim());
+                    if (player > 0) {
+                        maxP = Math.max(maxP, player == 3 ? 0 : player);
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+                previousNote = null;
+                return;
+            }
+            if (c0 == ':' || c0 == '*' || c0 == 'F' || c0 == 'R' || c0 == 'G') {
+                noteCount++;
+                if (c0 == '*' || c0 == 'G') {
+                    goldenCount++;
+                }
+                addNoteText(noteText(s));
+                return;
+            }
+            previousNote = null;
+        }
+
+        /**
+         * Same check as the library's quick check: the file must start with comment lines, one of them being a
+         * known header tag.
+         */
+        private void checkHeader(String line) {
+            if (headerState != 0) {
+                return;
+            }
+            if (!line.startsWith("#")) {
+                headerState = -1;
+                return;
+            }
+            int i = line.indexOf(':');
+            if (i < 0) {
+                headerState = -1;
+            } else if (UltrastarHeaderTag.getTag(line.substring(1, i + 1).toUpperCase()) != null) {
+                headerState = 1;
+            }
+        }
+
+        private void addTag(String s) {
+            int i = s.indexOf(':');
+            if (i < 0) {
+                return;
+            }
+            String tag = s.substring(1, i + 1);
+            String value = i + 1 < s.length() ? s.substring(i + 1).trim() : "";
+            if (i + 1 < s.length()) {
+                try {
+                    switch (tag) {
+                        case "BPM:" -> {
+                            double bpm = Double.parseDouble(value.replace(',', '.'));
+                            value = new DecimalFormat("#.##", new DecimalFormatSymbols(Locale.US)).format(bpm);
+                        }
+                        case "GAP:", "START:", "END:", "VIDEOGAP:" -> Double.parseDouble(value.replace(',', '.'));
+                        default -> {
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    // the table refuses to load such files
+                    invalidNumber = true;
+                }
+                if (tag.startsWith("DUETSINGERP") || (tag.startsWith("P") && tag.length() > 1
+                        && Character.isDigit(tag.charAt(1)))) {
+                    try {
+                        int p = Integer.parseInt(String.valueOf(tag.charAt(tag.indexOf("P") + 1))) - 1;
+                        maxP = Math.max(maxP, p + 1);
+                        if (duetSingerNames[p] == null) {
+                            duetSingerNames[p] = value;
+                        }
+                    } catch (RuntimeException ignored) {
+                    }
+                }
+            }
+            headers.putIfAbsent(tag.toUpperCase(), value);
+        }
+
+        private static String noteText(String s) {
+            int n = s.length();
+            int i = 1;
+            while (i < n && s.charAt(i) == ' ') {
+                i++;
+            }
+            for (int field = 0; field < 3; field++) {
+                int start = i;
+                while (i < n && s.charAt(i) != ' ') {
+                    i++;
+                }
+                if (i == n || start == i) {
+                    return "";
+                }
+                try {
+                    Integer.parseInt(s.substring(start, i));
+                } catch (NumberFormatException e) {
+                    return "";
+                }
+                if (field < 2) {
+                    while (i < n && s.charAt(i) == ' ') {
+                        i++;
+                    }
+                }
+            }
+            if (i + 1 > n - 1) {
+                return "";
+            }
+            return s.substring(i + 1).replace(' ', YassRow.SPACE);
+        }
+
+        private void addNoteText(String txt) {
+            String previous = previousNote;
+            previousNote = txt;
+            if (lyrics == null) {
+                return;
+            }
+            txt = txt.replace('-', YassRow.HYPHEN);
+            if (YassRow.trim(txt).isEmpty()) {
+                lyrics.append(" ").append(YassRow.SPACE);
+                return;
+            }
+            if (!txt.startsWith(YassRow.SPACE + "") && previous != null) {
+                if (!previous.endsWith(YassRow.SPACE + "")) {
+                    txt = "-" + txt;
+                } else {
+                    txt = YassRow.SPACE + txt;
+                }
+            }
+            int tn = txt.length();
+            if (tn > 1 && txt.charAt(0) == YassRow.SPACE) {
+                txt = " " + txt.substring(1);
+            }
+            if (tn > 1 && txt.charAt(tn - 1) == YassRow.SPACE) {
+                txt = txt.substring(0, tn - 1);
+            }
+            lyrics.append(txt);
+        }
+
+        /**
+         * @return true if the song has title and artist tags and valid numbers, i.e. a table could load it
+         */
+        public boolean isLoadable() {
+            return !invalidNumber && headers.containsKey("TITLE:") && headers.containsKey("ARTIST:");
+        }
+    }
+}
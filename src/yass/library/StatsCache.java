@@ -0,0 +1,186 @@
+/*
+ * Yass Reloaded - Karaoke Editor
+ * Copyright (C) 2009-2023 Saruta
+ * Copyright (C) 2024-2025 DoubleDee
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package yass.library;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Statistics of every song of the library, so that they only have to be computed again for song files that
+ * changed.
+ * <p>
+ * An entry holds the values of all statistics for the modification time of the song file it was computed for.
+ * The cache belongs to the statistics ids it was created with; a stored cache for other statistics, e.g. after
+ * plugins were added, is not loaded. All methods are thread-safe.
+ */
+public class StatsCache {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    public static final String PROPERTY = "stats-cache";
+    static final int MAGIC = 0x59535443;
+    static final int VERSION = 1;
+
+    private record Entry(long lastModified, float[] values) {
+    }
+
+    private final String[] ids;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean dirty = false;
+
+    /**
+     * @param ids ids of the statistics, in the order of the values
+     */
+    public StatsCache(String[] ids) {
+        this.ids = ids.clone();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * @return the values computed for this modification time of the song file, or null
+     */
+    public synchronized float[] get(String path, long lastModified) {
+        Entry entry = entries.get(path);
+        if (entry == null || entry.lastModified() != lastModified) {
+            return null;
+        }
+        return entry.values().clone();
+    }
+
+    public synchronized void put(String path, long lastModified, float[] values) {
+        if (values == null || values.length != ids.length) {
+            return;
+        }
+        Entry entry = entries.get(path);
+        if (entry != null && entry.lastModified() == lastModified && Arrays.equals(entry.values(), values)) {
+            return;
+        }
+        entries.put(path, new Entry(lastModified, values.clone()));
+        dirty = true;
+    }
+
+    /**
+     * Drops songs that are no longer in the library.
+     */
+    public synchronized void retainAll(Collection<String> paths) {
+        if (entries.keySet().retainAll(new HashSet<>(paths))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Loads a cache.
+     *
+     * @param ids ids of the statistics the cache must have been stored for
+     * @return the cache, or an empty one if it does not exist, is outdated or belongs to other statistics
+     */
+    public static StatsCache load(File file, String[] ids) {
+        StatsCache cache = new StatsCache(ids);
+        if (file == null || !file.exists()) {
+            return cache;
+        }
+        try (InputStream fis = Files.newInputStream(file.toPath());
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fis, 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return cache;
+            }
+            String[] stored = new String[in.readInt()];
+            for (int i = 0; i < stored.length; i++) {
+                stored[i] = in.readUTF();
+            }
+            if (!Arrays.equals(stored, ids)) {
+                return cache;
+            }
+            int count = in.readInt();
+            for (int k = 0; k < count; k++) {
+                String path = in.readUTF();
+                long lastModified = in.readLong();
+                float[] values = new float[ids.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readFloat();
+                }
+                cache.entries.put(path, new Entry(lastModified, values));
+            }
+            return cache;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.INFO, "Ignoring stats cache " + file + ": " + e.getMessage());
+            return new StatsCache(ids);
+        }
+    }
+
+    public boolean store(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        Path temp = new File(file.getAbsolutePath() + ".tmp").toPath();
+        synchronized (this) {
+            try (OutputStream fos = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(ids.length);
+                for (String id : ids) {
+                    out.writeUTF(id);
+                }
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue().lastModified());
+                    for (float value : e.getValue().values()) {
+                        out.writeFloat(value);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Cannot write stats cache " + file, e);
+                return false;
+            }
+            dirty = false;
+        }
+        try {
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot write stats cache " + file, e);
+            return false;
+        }
+    }
+}
@@ -32,6 +32,10 @@ public class YassPlayerNote {
      * Description of the Field
      */
     private int height = 0;
+    /**
+     * Deviation from the height in cents
+     */
+    private int cents = 0;
     /**
      * Description of the Field
      */
@@ -65,6 +69,7 @@ public class YassPlayerNote {
      */
     public YassPlayerNote(YassPlayerNote note) {
         height = note.height;
+        cents = note.cents;
         level = note.level;
         startMillis = note.startMillis;
         endMillis = note.endMillis;
@@ -100,6 +105,26 @@ public class YassPlayerNote {
     }
 
 
+    /**
+     * Gets the cents attribute of the YassPlayerNote object
+     *
+     * @return The deviation from the height in cents, between -50 and 50
+     */
+    public int getCents() {
+        return cents;
+    }
+
+
+    /**
+     * Sets the cents attribute of the YassPlayerNote object
+     *
+     * @param c The new cents value
+     */
+    public void setCents(int c) {
+        cents = c;
+    }
+
+
     /**
      * Gets the level attribute of the YassPlayerNote object
      *
@@ -1491,7 +1491,7 @@ public class CreateSongWizard extends Wizard {
         String safeName = baseName.replaceAll("[\\\\/:*?\"<>|]", "_");
         File wavTarget = new File(runDirectory, safeName + ".wav");
         YassPlayer player = new YassPlayer(null, yassProperties);
-        File converted = player.generateTemp(sourceAudio.getAbsolutePath(), Timebase.NORMAL, wavTarget.getAbsolutePath());
+        File converted = player.generateTemp(sourceAudio.getAbsolutePath(), wavTarget.getAbsolutePath());
         if (converted == null || !converted.isFile()) {
             throw new IllegalStateException(I18.get("create_lyrics_separate_transcribe_convert_failed"));
         }
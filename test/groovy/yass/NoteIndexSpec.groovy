@@ -0,0 +1,154 @@
+package yass
+
+import spock.lang.Specification
+
+class NoteIndexSpec extends Specification {
+
+    private static YassRow note(int beat, int length) {
+        new YassRow(':', "$beat", "$length", '0', 'la')
+    }
+
+    private static YassRow pageBreak(int beat) {
+        new YassRow('-', "$beat", '', '', '')
+    }
+
+    private static NoteIndex index(Vector<YassRow> rows) {
+        def index = new NoteIndex()
+        index.rebuild(rows, 0)
+        index
+    }
+
+    private static Vector<YassRow> song() {
+        // rows 0..9: two tags, then three pages
+        new Vector<YassRow>([new YassRow('#', 'TITLE:', 'x', '', ''), new YassRow('#', 'BPM:', '300', '', ''),
+                             note(0, 2), note(4, 2), pageBreak(8),
+                             note(10, 4), note(10, 1), pageBreak(16),
+                             note(20, 4),
+                             new YassRow('E', '', '', '', '')])
+    }
+
+    def "notes are found by beat"() {
+        given:
+        def index = index(song())
+
+        expect:
+        index.getNoteAtBeat(4) == 3
+        index.getNoteAtBeat(10) == 5
+        index.getNoteAtBeat(5) == -1
+        index.getNoteEndingAtBeat(6) == 3
+        index.getNoteEndingAtBeat(11) == 6
+        index.getNoteBeforeBeat(-1) == -1
+        index.getNoteBeforeBeat(0) == 2
+        index.getNoteBeforeBeat(9) == 3
+        index.getNoteBeforeBeat(12) == 5
+        index.getNoteBeforeBeat(Integer.MAX_VALUE) == 8
+        // the walk stops at the end 14
+        index.getNoteEndingBeforeBeat(12) == 3
+        index.getNoteEndingBeforeBeat(14) == 5
+    }
+
+    def "pages are counted by their page breaks"() {
+        given:
+        def index = index(song())
+
+        expect:
+        index.pageCount == 3
+        index.getPageNumber(2) == 1
+        index.getPageNumber(4) == 1
+        index.getPageNumber(5) == 2
+        index.getPageNumber(8) == 3
+        index.getFirstNoteOfPage(1) == 2
+        index.getFirstNoteOfPage(2) == 5
+        index.getFirstNoteOfPage(3) == 8
+        index.getFirstNoteOfPage(0) == -1
+        index.getFirstNoteOfPage(4) == -1
+    }
+
+    def "an empty page has no first note"() {
+        given:
+        def index = index(new Vector<YassRow>([note(0, 2), pageBreak(4), pageBreak(6), note(8, 2),
+                                               new YassRow('E', '', '', '', '')]))
+
+        expect:
+        index.pageCount == 3
+        index.getFirstNoteOfPage(2) == -1
+        index.getFirstNoteOfPage(3) == 3
+    }
+
+    def "notes out of order are found like walking the rows"() {
+        given:
+        def index = index(new Vector<YassRow>([note(0, 2), note(12, 2), note(6, 2), note(20, 2),
+                                               new YassRow('E', '', '', '', '')]))
+
+        expect:
+        index.getNoteAtBeat(6) == 2
+        // the walk stops at the first note after the beat
+        index.getNoteBeforeBeat(8) == 0
+        index.getNoteBeforeBeat(13) == 1
+        index.getNoteEndingBeforeBeat(13) == 0
+        index.getNoteEndingAtBeat(8) == 2
+    }
+
+    def "the last row is not found by beat"() {
+        given:
+        def index = index(new Vector<YassRow>([note(0, 2), note(4, 2)]))
+
+        expect:
+        index.getNoteAtBeat(4) == -1
+        index.getNoteBeforeBeat(10) == 0
+        index.getFirstNoteOfPage(1) == 0
+    }
+
+    def "the index is rebuilt when a row is edited or the rows change"() {
+        given:
+        def model = new YassTableModel()
+        model.addRow(':', '0', '2', '0', 'a')
+        model.addRow(':', '4', '2', '0', 'b')
+        model.addEndRow()
+        def rows = model.getData()
+        def index = new NoteIndex()
+        index.rebuild(rows, model.getVersion())
+
+        expect:
+        index.isCurrent(rows, model.getVersion())
+
+        when:
+        rows[1].setBeat(5)
+
+        then:
+        !index.isCurrent(rows, model.getVersion())
+
+        when:
+        index.rebuild(rows, model.getVersion())
+        rows.set(0, note(1, 1))
+
+        then:
+        !index.isCurrent(rows, model.getVersion())
+
+        when:
+        index.rebuild(rows, model.getVersion())
+        model.removeRowAt(0)
+
+        then:
+        !index.isCurrent(rows, model.getVersion())
+    }
+
+    def "edits of rows of another table keep the index"() {
+        given:
+        def model = new YassTableModel()
+        model.addRow(':', '0', '2', '0', 'a')
+        model.addEndRow()
+        def other = new YassTableModel()
+        other.addRow(':', '0', '2', '0', 'a')
+        def rows = model.getData()
+        def index = new NoteIndex()
+        index.rebuild(rows, model.getVersion())
+
+        when:
+        other.getRowAt(0).setBeat(5)
+        new YassRow(':', '0', '2', '0', 'a').setBeat(5)
+
+        then:
+        index.isCurrent(rows, model.getVersion())
+    }
+}
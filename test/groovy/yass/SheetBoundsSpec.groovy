@@ -0,0 +1,101 @@
+package yass
+
+import spock.lang.Specification
+
+class SheetBoundsSpec extends Specification {
+
+    private static YassRow note(int beat, int length, int height) {
+        new YassRow(':', "$beat", "$length", "$height", 'la')
+    }
+
+    private static YassRow pageBreak(int beat, int second) {
+        new YassRow('-', "$beat", "$second", '', '')
+    }
+
+    def "all tracks are counted"() {
+        given:
+        def bounds = new SheetBounds()
+
+        when:
+        bounds.reset([[new YassRow('#', 'BPM:', '300', '', ''), note(10, 4, 5), pageBreak(16, 20), note(20, 2, -3)],
+                      [note(4, 8, 12)]])
+
+        then:
+        bounds.hasNotes()
+        bounds.minHeight() == -3
+        bounds.maxHeight() == 12
+        bounds.minBeat() == 4
+        bounds.maxBeat() == 22
+        bounds.outgap() == 22
+        bounds.covers(0, 4)
+        bounds.covers(1, 1)
+        !bounds.covers(1, 2)
+        !bounds.covers(2, 0)
+    }
+
+    def "a changed row moves the bounds both ways"() {
+        given:
+        def low = note(10, 4, -3)
+        def rows = [note(0, 2, 5), low, note(20, 2, 7), pageBreak(30, 40)]
+        def bounds = new SheetBounds()
+        bounds.reset([rows])
+
+        when:
+        low.setHeight(6)
+        low.setBeat(50)
+        bounds.update(0, 1, low)
+
+        then:
+        bounds.minHeight() == 5
+        bounds.maxHeight() == 7
+        bounds.maxBeat() == 54
+        bounds.outgap() == 54
+
+        when:
+        low.setHeight(-10)
+        low.setBeat(10)
+        bounds.update(0, 1, low)
+
+        then:
+        bounds.minHeight() == -10
+        bounds.maxBeat() == 22
+        bounds.outgap() == 40
+    }
+
+    def "equal values are counted once per row"() {
+        given:
+        def a = note(0, 2, 3)
+        def b = note(0, 2, 3)
+        def bounds = new SheetBounds()
+        bounds.reset([[a, b]])
+
+        when:
+        a.setHeight(5)
+        bounds.update(0, 0, a)
+
+        then:
+        bounds.minHeight() == 3
+        bounds.maxHeight() == 5
+
+        when:
+        b.setHeight(5)
+        bounds.update(0, 1, b)
+
+        then:
+        bounds.minHeight() == 5
+    }
+
+    def "without notes there is no range"() {
+        given:
+        def bounds = new SheetBounds()
+
+        when:
+        bounds.reset([[new YassRow('#', 'TITLE:', 'x', '', '')]])
+
+        then:
+        !bounds.hasNotes()
+        bounds.minBeat() == 100000
+        bounds.maxBeat() == 0
+        bounds.outgap() == 0
+    }
+}
@@ -0,0 +1,90 @@
+package yass
+
+import spock.lang.Specification
+
+import java.awt.Color
+import java.awt.Rectangle
+import java.awt.image.BufferedImage
+
+class SheetLayersSpec extends Specification {
+
+    private static void paint(SheetLayers layers, int layer, Rectangle clip, long state, Color color, int x, int y, int w, int h) {
+        def g = layers.begin(layer, clip, state, null)
+        g.color = color
+        g.fillRect(x, y, w, h)
+        g.dispose()
+    }
+
+    def "a layer is valid for the rectangle and state it was painted for"() {
+        given:
+        def layers = new SheetLayers()
+        def clip = new Rectangle(100, 0, 40, 30)
+
+        expect:
+        !layers.isValid(SheetLayers.BACKGROUND, clip, 1)
+
+        when:
+        paint(layers, SheetLayers.BACKGROUND, clip, 1, Color.WHITE, 100, 0, 40, 30)
+
+        then:
+        layers.isValid(SheetLayers.BACKGROUND, clip, 1)
+        layers.isValid(SheetLayers.BACKGROUND, new Rectangle(100, 0, 40, 30), 1)
+        !layers.isValid(SheetLayers.BACKGROUND, new Rectangle(120, 0, 40, 30), 1)
+        !layers.isValid(SheetLayers.BACKGROUND, clip, 2)
+        !layers.isValid(SheetLayers.NOTES, clip, 1)
+    }
+
+    def "invalidating the notes keeps the background"() {
+        given:
+        def layers = new SheetLayers()
+        def clip = new Rectangle(0, 0, 10, 10)
+        paint(layers, SheetLayers.BACKGROUND, clip, 0, Color.WHITE, 0, 0, 10, 10)
+        paint(layers, SheetLayers.NOTES, clip, 0, Color.RED, 2, 2, 3, 3)
+
+        when:
+        layers.invalidate(SheetLayers.NOTES)
+
+        then:
+        layers.isValid(SheetLayers.BACKGROUND, clip, 0)
+        !layers.isValid(SheetLayers.NOTES, clip, 0)
+
+        when:
+        layers.invalidateAll()
+
+        then:
+        !layers.isValid(SheetLayers.BACKGROUND, clip, 0)
+    }
+
+    def "layers are composed in order and only after a change"() {
+        given:
+        def layers = new SheetLayers()
+        def clip = new Rectangle(50, 20, 10, 10)
+        def target = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB)
+        paint(layers, SheetLayers.BACKGROUND, clip, 0, Color.WHITE, 50, 20, 10, 10)
+        paint(layers, SheetLayers.NOTES, clip, 0, Color.RED, 52, 22, 3, 3)
+
+        when:
+        def composed = layers.compose(target)
+
+        then: 'drawing is in sheet coordinates, offset by the rectangle'
+        composed
+        target.getRGB(0, 0) == Color.WHITE.RGB
+        target.getRGB(2, 2) == Color.RED.RGB
+        target.getRGB(5, 5) == Color.WHITE.RGB
+        !layers.compose(target)
+
+        when: 'a repainted layer starts out cleared'
+        paint(layers, SheetLayers.NOTES, clip, 0, Color.BLUE, 55, 25, 1, 1)
+        layers.compose(target)
+
+        then:
+        target.getRGB(2, 2) == Color.WHITE.RGB
+        target.getRGB(5, 5) == Color.BLUE.RGB
+
+        when:
+        layers.recompose()
+
+        then:
+        layers.compose(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB))
+    }
+}
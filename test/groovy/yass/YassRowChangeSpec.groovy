@@ -0,0 +1,93 @@
+package yass
+
+import spock.lang.Specification
+
+class YassRowChangeSpec extends Specification {
+
+    private static List<YassRow> song(int notes) {
+        List<YassRow> rows = [new YassRow('#', 'TITLE:', 'Song', '', '')]
+        (0..<notes).each { rows << new YassRow(':', "${it * 4}", '2', '5', "la${it}") }
+        rows << new YassRow('E', '', '', '', '')
+        rows
+    }
+
+    private static List<String> text(List<YassRow> rows) {
+        rows*.toString()
+    }
+
+    def 'a change keeps only the rows that differ'() {
+        given:
+        def rows = song(100)
+        def state = new ArrayList<YassRow>()
+        YassRowChange.record(state, rows)
+
+        when:
+        rows[50].setHeight(7)
+        def change = YassRowChange.record(state, rows)
+
+        then:
+        change.size() == 2
+        text(state) == text(rows)
+        !state[50].is(rows[50])
+    }
+
+    def 'reverting and applying restores both states'() {
+        given:
+        def rows = song(20)
+        def state = new ArrayList<YassRow>()
+        YassRowChange.record(state, rows)
+        def before = text(rows)
+
+        when:
+        rows.remove(5)
+        rows.add(10, new YassRow(':', '41', '1', '3', 'new'))
+        rows[15].setText('changed')
+        def change = YassRowChange.record(state, rows)
+        def after = text(rows)
+
+        then:
+        text(state) == after
+
+        when:
+        change.revert(state)
+
+        then:
+        text(state) == before
+
+        when:
+        change.apply(state)
+
+        then:
+        text(state) == after
+    }
+
+    def 'consecutive changes can be merged'() {
+        given:
+        def rows = song(10)
+        def state = new ArrayList<YassRow>()
+        YassRowChange.record(state, rows)
+        def before = text(rows)
+        rows[2].setBeat(3)
+        def first = YassRowChange.record(state, rows)
+        rows.remove(8)
+        def second = YassRowChange.record(state, rows)
+
+        when:
+        def merged = YassRowChange.merge(first, second, state)
+        def copy = new ArrayList<YassRow>(state)
+        merged.revert(copy)
+
+        then:
+        text(copy) == before
+    }
+
+    def 'an unchanged table records an empty change'() {
+        given:
+        def rows = song(5)
+        def state = new ArrayList<YassRow>()
+        YassRowChange.record(state, rows)
+
+        expect:
+        YassRowChange.record(state, rows).isEmpty()
+    }
+}
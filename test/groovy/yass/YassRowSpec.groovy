@@ -39,4 +39,90 @@ class YassRowSpec extends Specification {
         '-\t123'            || '-'  | '123' | ''   | ''   | ''
         '*\t123\t1\t2\tbla' || '*'  | '123' | '1'  | '2'  | 'bla'
     }
+
+    def 'numbers set as int read back as text'() {
+        given:
+        YassRow row = new YassRow(':', '10', '4', '5', 'la')
+
+        when:
+        row.setBeat(12)
+        row.setLength(3)
+        row.setHeight(-2)
+
+        then:
+        row.beatInt == 12
+        row.lengthInt == 3
+        row.heightInt == -2
+        row.getBeat() == '12'
+        row.elementAt(2) == '3'
+        row.toString() == ': 12 3 -2 la'
+
+        when:
+        row.setBeat('20')
+
+        then:
+        row.beatInt == 20
+    }
+
+    def 'a second beat equal to the beat is left out'() {
+        given:
+        YassRow row = new YassRow('-', '10', '', '', '')
+
+        when:
+        row.setSecondBeat(10)
+
+        then:
+        !row.hasSecondBeat()
+        row.secondBeatInt == 10
+
+        when:
+        row.setSecondBeat(14)
+
+        then:
+        row.hasSecondBeat()
+        row.secondBeatInt == 14
+        row.toString() == '- 10 14'
+    }
+
+    def 'rows with the same columns have the same content however they were set'() {
+        given:
+        YassRow a = new YassRow('*', '8', '2', '7', 'da')
+        YassRow b = new YassRow('*', '0', '2', '7', 'da')
+
+        expect:
+        !a.hasSameContent(b)
+
+        when:
+        b.setBeat(8)
+
+        then:
+        a.hasSameContent(b)
+        b.hasSameContent(a)
+
+        when:
+        a.setHeight(7)
+        b.setHeight(8)
+
+        then:
+        !a.hasSameContent(b)
+    }
+
+    def 'the type follows the first column'() {
+        given:
+        YassRow row = new YassRow(':', '0', '1', '0', 'x')
+
+        expect:
+        row.rowType == RowType.NORMAL
+        row.note
+
+        when:
+        row.setType('-')
+
+        then:
+        row.rowType == RowType.PAGE_BREAK
+        row.pageBreak
+        !row.note
+        RowType.of('G') == RowType.RAP_GOLDEN
+        RowType.of('P1') == RowType.OTHER
+    }
 }
@@ -0,0 +1,106 @@
+package yass
+
+import spock.lang.Specification
+
+class YassTableModelSpec extends Specification {
+
+    private static YassTableModel model() {
+        def model = new YassTableModel()
+        model.addRow('#', 'TITLE:', 'Song', '', '')
+        model.addRow('#', 'bpm:', '300', '', '')
+        model.addRow(':', '0', '2', '0', 'la')
+        model.addEndRow()
+        model
+    }
+
+    def "comment rows are found by their upper case tag"() {
+        given:
+        def model = model()
+
+        expect:
+        model.getCommentRow('TITLE:').headerComment == 'Song'
+        model.getCommentRow('BPM:').headerComment == '300'
+        model.getCommentRow('bpm:') == null
+        model.getCommentRow('GAP:') == null
+        model.getCommentRow(UltrastarHeaderTag.TITLE).headerComment == 'Song'
+    }
+
+    def "the first row of a tag wins"() {
+        given:
+        def model = model()
+        model.insertRowAt('#', 'TITLE:', 'Other', '', '', 0)
+
+        expect:
+        model.getCommentRow('TITLE:').headerComment == 'Other'
+    }
+
+    def "added, removed and edited rows are found"() {
+        given:
+        def model = model()
+        model.getCommentRow('TITLE:')
+
+        when:
+        model.insertRowAt('#', 'GAP:', '1200', '', '', 2)
+
+        then:
+        model.getCommentRow('GAP:').headerComment == '1200'
+
+        when:
+        model.removeRowAt(0)
+
+        then:
+        model.getCommentRow('TITLE:') == null
+
+        when:
+        model.getData().firstElement().setBeat('ARTIST:')
+
+        then:
+        model.getCommentRow('BPM:') == null
+        model.getCommentRow('ARTIST:').headerComment == '300'
+
+        when:
+        model.setData(new Vector<YassRow>([new YassRow('#', 'TITLE:', 'New', '', '')]))
+
+        then:
+        model.getCommentRow('TITLE:').headerComment == 'New'
+        model.getCommentRow('ARTIST:') == null
+    }
+
+    def "only changes of comment rows and their tags are counted for the header"() {
+        given:
+        def model = model()
+        def rows = (RowVector) model.getData()
+        def version = rows.commentVersion
+
+        when:
+        model.insertRowAt(':', '4', '2', '0', 'la', 3)
+        rows[3].setBeat('6')
+        rows[0].setElementAt('Other', 2)
+        model.removeRowAt(3)
+
+        then:
+        rows.commentVersion == version
+
+        when:
+        rows[1].setBeat('GAP:')
+
+        then:
+        rows.commentVersion != version
+        model.getCommentRow('GAP:').headerComment == '300'
+
+        when:
+        version = rows.commentVersion
+        rows[2].setType('#')
+
+        then:
+        rows.commentVersion != version
+
+        when:
+        version = rows.commentVersion
+        model.removeRowAt(0)
+
+        then:
+        rows.commentVersion != version
+        model.getCommentRow('TITLE:') == null
+    }
+}
@@ -770,6 +770,39 @@ class YassTableSpec extends Specification {
         TILDE_SONG | 9      | 11     || ['One', '~', '~', '~.', '_', 'T', '~', '~est', '_', 'Test', '~', '~']
     }
 
+    def 'tracks find their notes after they were merged and edited'() {
+        given:
+        YassProperties props = Stub(YassProperties) {
+            getUsFormatVersion() >> UltrastarHeaderTagVersion.UNITY
+        }
+        Vector<YassTable> tracks = [track(props, 'One'), track(props, 'Two')]
+        YassRow note = tracks[0].getRowAt(4)
+
+        expect:
+        tracks[0].getNoteAtBeat(0).is(note)
+
+        when:
+        YassTable merged = YassTable.mergeTables(tracks, props)
+        note.setBeat(2)
+
+        then:
+        merged != null
+        tracks[0].getNoteAtBeat(0) == null
+        tracks[0].getNoteAtBeat(2).is(note)
+    }
+
+    private static YassTable track(YassProperties props, String name) {
+        YassTableModel ytm = new YassTableModel()
+        ytm.addRow('#', 'TITLE:', 'Title', '', '')
+        ytm.addRow('#', 'ARTIST:', 'Artist', '', '')
+        ytm.addRow('#', 'LANGUAGE:', 'English', '', '')
+        ytm.addRow('#', 'BPM:', '300', '', '')
+        ytm.addRow(':', '0', '2', '0', name)
+        ytm.addRow(':', '4', '2', '0', name)
+        ytm.addEndRow()
+        new YassTable(ytm, props)
+    }
+
     private boolean verifyExpectation(YassTable yassTable, List<String> expectation) {
         int offset = 0
         YassRow yassRow = yassTable.getRowAt(offset)
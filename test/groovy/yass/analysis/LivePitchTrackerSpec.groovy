@@ -0,0 +1,69 @@
+package yass.analysis
+
+import groovy.transform.CompileStatic
+import spock.lang.Specification
+
+class LivePitchTrackerSpec extends Specification {
+
+    @CompileStatic
+    private static float[] tone(float rate, double frequency, double amplitude, int length) {
+        def samples = new float[length]
+        for (int i = 0; i < length; i++) {
+            // 8-bit, as the microphone gives it
+            samples[i] = (float) (Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / rate) * 127d) / 128f)
+        }
+        samples
+    }
+
+    @CompileStatic
+    private static void feed(LivePitchTracker tracker, float[] samples, int block) {
+        for (int off = 0; off < samples.length; off += block) {
+            tracker.process(samples, off, Math.min(block, samples.length - off))
+        }
+    }
+
+    def "a sung tone is tracked to its note height and cents"() {
+        given:
+        def tracker = new LivePitchTracker(8000f)
+
+        when:
+        feed(tracker, tone(8000f, frequency, 0.8d, 4000), 128)
+
+        then:
+        tracker.voiced
+        tracker.height == height
+        Math.abs(tracker.cents - cents) <= 3
+        tracker.level > 0.75
+
+        where:
+        frequency                       | height | cents
+        261.63d                         | 0      | 0
+        440d                            | 9      | 0
+        110d                            | -15    | 0
+        440d * Math.pow(2, 0.3d / 12)   | 9      | 30
+        440d * Math.pow(2, -0.4d / 12)  | 9      | -40
+    }
+
+    def "silence is unvoiced"() {
+        given:
+        def tracker = new LivePitchTracker(8000f)
+
+        when:
+        feed(tracker, new float[4000], 128)
+
+        then:
+        tracker.frames > 0
+        !tracker.voiced
+        tracker.level == 0
+    }
+
+    def "the latency is about half a window"() {
+        given:
+        def tracker = new LivePitchTracker(8000f)
+        feed(tracker, tone(8000f, 220d, 0.5d, 2000), 128)
+
+        expect:
+        tracker.latency >= 0.032
+        tracker.latency < 0.1
+    }
+}
@@ -0,0 +1,46 @@
+package yass.analysis
+
+import spock.lang.Specification
+import spock.lang.TempDir
+import yass.musicalkey.MusicalKeyEnum
+
+import java.nio.file.Path
+
+class PitchTrackCacheSpec extends Specification {
+    @TempDir
+    Path dir
+
+    private static PitchDetector.PitchData frame(float time, double frequency, double energy) {
+        new PitchDetector.PitchData(time, PitchDetector.frequencyToNote(frequency),
+                                    PitchDetector.freqToNoteName(frequency), frequency, energy)
+    }
+
+    def "a result survives a round trip and is keyed by audio and musical key"() {
+        given:
+        def audio = dir.resolve('audio-a-normal.wav').toFile()
+        audio.bytes = new byte[100]
+        // doubles that a float cannot hold, and a frame without a note
+        def raw = [frame(0.5f, 440.1d, 0.1d), frame(0.5058f, 221.5f, Double.NaN),
+                   new PitchDetector.PitchData(0.5116f, -1, null, 0d, 1d / 3)]
+        def smoothed = [frame(0.5f, 440f, 0.25f), frame(0.5058f, 440f, Double.NaN)]
+        def result = new PitchDetector.PitchDetectionResult(raw, raw, smoothed, smoothed, smoothed)
+        def file = PitchTrackCache.cacheFile(audio)
+        long key = PitchTrackCache.key(audio, MusicalKeyEnum.UNDEFINED)
+
+        when:
+        def stored = PitchTrackCache.store(file, key, result)
+        def loaded = PitchTrackCache.load(file, key)
+
+        then:
+        stored
+        loaded == result
+        file.name == 'audio-a-normal.wav.pitch'
+        PitchTrackCache.load(file, PitchTrackCache.key(audio, MusicalKeyEnum.values()[1])) == null
+
+        when:
+        audio.bytes = new byte[200]
+
+        then:
+        PitchTrackCache.load(file, PitchTrackCache.key(audio, MusicalKeyEnum.UNDEFINED)) == null
+    }
+}
@@ -0,0 +1,131 @@
+package yass.analysis
+
+import groovy.transform.CompileStatic
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import javax.sound.sampled.AudioFileFormat
+import javax.sound.sampled.AudioFormat
+import javax.sound.sampled.AudioInputStream
+import javax.sound.sampled.AudioSystem
+import yass.audio.PcmStore
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.file.Path
+import java.util.concurrent.ForkJoinPool
+
+class PitchTrackerSpec extends Specification {
+    @TempDir
+    Path dir
+
+    private static float[] tone(float rate, double frequency, double seconds, List<Double> harmonics) {
+        def samples = new float[(int) (rate * seconds)]
+        for (int i = 0; i < samples.length; i++) {
+            double s = 0
+            harmonics.eachWithIndex { double amplitude, int h ->
+                s += amplitude * Math.sin(2 * Math.PI * frequency * (h + 1) * i / rate)
+            }
+            samples[i] = (float) s
+        }
+        samples
+    }
+
+    private static List<PitchTracker.Frame> track(float rate, float[] samples) {
+        def frames = []
+        def listener = { float t, double f, double c, double e -> frames << new PitchTracker.Frame(t, f, c, e) }
+        new PitchTracker(rate, listener as PitchTracker.Listener).process(samples, 0, samples.length)
+        frames
+    }
+
+    def "a sine is tracked to its frequency with high clarity"() {
+        when:
+        def frames = track(44100f, tone(44100f, frequency, 0.5, [0.5d]))
+
+        then:
+        frames.size() == 1 + (int) ((22050 - PitchTracker.WINDOW) / PitchTracker.HOP)
+        frames.every { Math.abs(it.frequency() - frequency) < frequency * 0.003 && it.clarity() > 0.95 }
+        Math.abs(frames[0].time() - PitchTracker.WINDOW / 2 / 44100f) < 1e-6
+
+        where:
+        frequency << [82.41d, 220d, 440d, 987.77d]
+    }
+
+    def "the fundamental wins over a stronger second harmonic"() {
+        when:
+        def frames = track(48000f, tone(48000f, 196d, 0.3, [0.2d, 0.5d, 0.1d]))
+
+        then:
+        frames.every { Math.abs(it.frequency() - 196d) < 1 }
+    }
+
+    def "silence and noise have no pitch"() {
+        given:
+        def random = new Random(7)
+        def noise = new float[22050]
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = (float) (random.nextGaussian() * 0.2)
+        }
+
+        expect:
+        track(44100f, new float[22050]).every { it.frequency() == 0 && it.energy() == 0 }
+        PitchDetector.toPitchData(track(44100f, noise)).size() < 5
+    }
+
+    def "a stereo wav file is decoded, mixed and tracked in one pass"() {
+        given:
+        def samples = tone(44100f, 330d, 1, [0.4d])
+        def buffer = ByteBuffer.allocate(samples.length * 4).order(ByteOrder.LITTLE_ENDIAN)
+        samples.each { float s -> 2.times { buffer.putShort((short) Math.round(s * 32767)) } }
+        def format = new AudioFormat(44100f, 16, 2, true, false)
+        def file = dir.resolve('tone.wav').toFile()
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(buffer.array()), format, samples.length),
+                          AudioFileFormat.Type.WAVE, file)
+
+        when:
+        def pitchData = PitchDetector.toPitchData(PitchTracker.track(file))
+
+        then:
+        pitchData.size() == 1 + (int) ((44100 - PitchTracker.WINDOW) / PitchTracker.HOP)
+        pitchData.every { it.noteName() == 'E4' && it.pitch() == 4 && Math.abs(it.energy() - 0.4 / Math.sqrt(2)) < 0.01 }
+    }
+
+    @CompileStatic
+    private static float[] glide(float rate, int length) {
+        def mono = new float[length]
+        double phase = 0
+        for (int i = 0; i < length; i++) {
+            phase += 2 * Math.PI * (150 + 300d * i / length) / rate
+            // as 16-bit samples would give it
+            mono[i] = (float) (Math.round(0.3d * Math.sin(phase) * 32767d) / 32768f)
+        }
+        mono
+    }
+
+    @CompileStatic
+    private static ByteBuffer stereo(float[] mono) {
+        def buffer = ByteBuffer.allocate(mono.length * 4).order(ByteOrder.LITTLE_ENDIAN)
+        for (float s : mono) {
+            short sample = (short) Math.round(s * 32768)
+            buffer.putShort(sample).putShort(sample)
+        }
+        buffer.flip()
+    }
+
+    def "chunks tracked in parallel give the frames of a single pass"() {
+        given: 'a glide over several chunks'
+        float rate = 44100f
+        def mono = glide(rate, (PitchTracker.CHUNK_FRAMES * 2 + 100) * PitchTracker.HOP)
+        def samples = PcmStore.wrap(stereo(mono), new AudioFormat(rate, 16, 2, true, false))
+        def pool = new ForkJoinPool(4)
+
+        when:
+        def parallel = PitchTracker.track(samples, pool)
+
+        then:
+        parallel.size() == PitchTracker.CHUNK_FRAMES * 2 + 100 - PitchTracker.WINDOW / PitchTracker.HOP + 1
+        parallel == track(rate, mono)
+
+        cleanup:
+        pool.shutdown()
+    }
+}
@@ -0,0 +1,117 @@
+package yass.audio
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Path
+
+class AudioTempCacheSpec extends Specification {
+    @TempDir
+    Path dir
+
+    private File wav(String name, int size) {
+        def file = dir.resolve(name).toFile()
+        file.bytes = new byte[size]
+        file
+    }
+
+    private static AudioTempCache.Entry entry(double gain) {
+        new AudioTempCache.Entry(0, 44100f, 2, 180.5d, gain, -11.25d)
+    }
+
+    def "metadata survives a restart"() {
+        given:
+        def cache = new AudioTempCache(dir.toFile(), 10_000)
+        def file = wav('audio-a-normal.wav', 1000)
+
+        when:
+        cache.put(file, entry(-3.5d), [])
+        def loaded = AudioTempCache.load(dir.toFile(), 10_000).lookup(file)
+
+        then:
+        loaded == new AudioTempCache.Entry(1000, 44100f, 2, 180.5d, -3.5d, -11.25d)
+        loaded.isComplete()
+        loaded.isMeasured()
+    }
+
+    def "the least recently used files are evicted with their derived files"() {
+        given:
+        def cache = new AudioTempCache(dir.toFile(), 2500)
+        def a = wav('a.wav', 1000)
+        def b = wav('b.wav', 1000)
+        def c = wav('c.wav', 1000)
+        def peaks = wav('a.wav' + WaveformPeaks.FILE_SUFFIX, 10)
+        def pitch = wav('a.wav.pitch', 10)
+        cache.put(a, entry(0), [])
+        cache.put(b, entry(0), [])
+
+        when:
+        cache.lookup(a)
+        cache.put(c, entry(0), [])
+
+        then:
+        a.exists()
+        !b.exists()
+        c.exists()
+        peaks.exists()
+        cache.totalBytes() == 2000
+
+        when:
+        cache.put(wav('d.wav', 1000), entry(0), ['c.wav'])
+
+        then:
+        !a.exists()
+        !peaks.exists()
+        !pitch.exists()
+        c.exists()
+        AudioTempCache.load(dir.toFile(), 2500).size() == 2
+    }
+
+    def "unknown files are adopted without metadata and changed files are dropped"() {
+        given:
+        def old = wav('old.wav', 500)
+        wav('new.wav.part.wav', 500)
+
+        when:
+        def cache = AudioTempCache.load(dir.toFile(), 10_000)
+
+        then:
+        cache.size() == 1
+        !cache.lookup(old).isComplete()
+        !cache.lookup(old).isMeasured()
+
+        when:
+        old.bytes = new byte[600]
+
+        then:
+        cache.lookup(old) == null
+        cache.size() == 0
+    }
+
+    def "hits are written with the next change, not one by one"() {
+        given:
+        def a = wav('a.wav', 1000)
+        def b = wav('b.wav', 1000)
+        def cache = new AudioTempCache(dir.toFile(), 10_000)
+        cache.put(a, entry(0), [])
+        cache.put(b, entry(0), [])
+        cache = AudioTempCache.load(dir.toFile(), 10_000)
+        def index = dir.resolve(AudioTempCache.INDEX).toFile()
+        def written = index.text
+
+        when:
+        cache.lookup(a)
+
+        then:
+        cache.isDirty()
+        index.text == written
+
+        when:
+        cache.flush()
+
+        then:
+        !cache.isDirty()
+        index.readLines()[1].startsWith('b.wav')
+        index.readLines()[2].startsWith('a.wav')
+    }
+}
@@ -0,0 +1,102 @@
+package yass.audio
+
+import groovy.transform.CompileStatic
+import spock.lang.Specification
+
+class CaptureRingSpec extends Specification {
+
+    def "entries are polled in order with all channels"() {
+        given:
+        def ring = new CaptureRing(4, 2)
+        int[] heights = new int[2]
+        int[] cents = new int[2]
+        float[] levels = new float[2]
+
+        when:
+        ring.offer(100, [1, 2] as int[], [10, -10] as int[], [0.5f, 0.25f] as float[])
+        ring.offer(228, [3, 4] as int[], [20, -20] as int[], [0.75f, 1f] as float[])
+
+        then:
+        ring.size() == 2
+        ring.poll(heights, cents, levels) == 100
+        heights == [1, 2] as int[]
+        cents == [10, -10] as int[]
+        levels == [0.5f, 0.25f] as float[]
+        ring.poll(heights, cents, levels) == 228
+        heights == [3, 4] as int[]
+        ring.poll(heights, cents, levels) == -1
+        ring.size() == 0
+    }
+
+    def "the capacity is a power of two and a full ring drops new entries"() {
+        given:
+        def ring = new CaptureRing(3, 1)
+        int[] one = new int[1]
+        float[] level = new float[1]
+
+        when:
+        def accepted = (0..<6).collect { ring.offer(it, one, one, level) }
+
+        then:
+        ring.capacity() == 4
+        accepted == [true, true, true, true, false, false]
+        ring.dropped() == 2
+        ring.poll(one, one, level) == 0
+        ring.offer(9, one, one, level)
+        (1..4).collect { ring.poll(one, one, level) } == [1L, 2L, 3L, 9L]
+    }
+
+    def "clearing drops what is queued"() {
+        given:
+        def ring = new CaptureRing(8, 1)
+        int[] one = new int[1]
+        float[] level = new float[1]
+        3.times { ring.offer(it, one, one, level) }
+
+        when:
+        ring.clear()
+
+        then:
+        ring.poll(one, one, level) == -1
+        ring.offer(7, one, one, level)
+        ring.poll(one, one, level) == 7
+    }
+
+    @CompileStatic
+    private static long produceAndConsume(CaptureRing ring, int count) {
+        Thread producer = Thread.start {
+            int[] height = new int[2]
+            int[] cent = new int[2]
+            float[] level = new float[2]
+            for (int i = 0; i < count; i++) {
+                height[0] = i
+                height[1] = -i
+                while (!ring.offer(i, height, cent, level)) {
+                    Thread.yield()
+                }
+            }
+        }
+        int[] height = new int[2]
+        int[] cent = new int[2]
+        float[] level = new float[2]
+        long expected = 0
+        while (expected < count) {
+            long position = ring.poll(height, cent, level)
+            if (position < 0) {
+                Thread.yield()
+                continue
+            }
+            if (position != expected || height[0] != (int) position || height[1] != -(int) position) {
+                break
+            }
+            expected++
+        }
+        producer.join(10000)
+        expected
+    }
+
+    def "a producer and a consumer thread see every entry once and in order"() {
+        expect:
+        produceAndConsume(new CaptureRing(16, 2), 20000) == 20000
+    }
+}
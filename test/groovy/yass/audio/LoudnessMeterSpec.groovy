@@ -0,0 +1,58 @@
+package yass.audio
+
+import spock.lang.Specification
+
+import javax.sound.sampled.AudioFormat
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+class LoudnessMeterSpec extends Specification {
+    private static PcmStore sine(float rate, int channels, double frequency, double amplitude, double seconds) {
+        int frames = (int) (rate * seconds)
+        def buffer = ByteBuffer.allocate(frames * channels * 2).order(ByteOrder.LITTLE_ENDIAN)
+        for (int i = 0; i < frames; i++) {
+            short s = (short) Math.round(amplitude * 32767 * Math.sin(2 * Math.PI * frequency * i / rate))
+            channels.times { buffer.putShort(s) }
+        }
+        PcmStore.wrap(buffer.flip(), new AudioFormat(rate, 16, channels, true, false))
+    }
+
+    def "a full scale 1 kHz sine on one channel reads -3 LUFS"() {
+        expect:
+        Math.abs(LoudnessMeter.measure(sine(rate, 1, 1000, 1, 2)) + 3.01) < 0.1
+
+        where:
+        rate << [48000f, 44100f]
+    }
+
+    def "both stereo channels count"() {
+        expect:
+        Math.abs(LoudnessMeter.measure(sine(44100f, 2, 1000, 0.1, 2)) + 20.0) < 0.1
+    }
+
+    def "low frequencies are weighted down"() {
+        expect:
+        LoudnessMeter.measure(sine(44100f, 1, 40, 0.5, 2)) < LoudnessMeter.measure(sine(44100f, 1, 1000, 0.5, 2)) - 1
+    }
+
+    def "silence is gated out and needs no gain"() {
+        given:
+        def loudness = LoudnessMeter.measure(sine(44100f, 2, 1000, 0, 1))
+
+        expect:
+        loudness == Double.NEGATIVE_INFINITY
+        LoudnessMeter.replayGain(loudness) == 0
+        LoudnessMeter.replayGain(-23) == 5
+    }
+
+    def "quiet passages below the relative gate do not lower the loudness"() {
+        given:
+        def meter = new LoudnessMeter(44100f, 1)
+        meter.process(sine(44100f, 1, 1000, 0.5, 2).samples())
+        double loud = meter.integratedLoudness()
+        meter.process(sine(44100f, 1, 1000, 0.01, 4).samples())
+
+        expect: 'only the blocks overlapping the change count, not the 4 s that would lower the mean by 4.7 LU'
+        Math.abs(meter.integratedLoudness() - loud) < 0.5
+    }
+}
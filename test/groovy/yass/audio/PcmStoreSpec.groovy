@@ -0,0 +1,92 @@
+package yass.audio
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import javax.sound.sampled.AudioFileFormat
+import javax.sound.sampled.AudioFormat
+import javax.sound.sampled.AudioInputStream
+import javax.sound.sampled.AudioSystem
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.file.Path
+
+class PcmStoreSpec extends Specification {
+    @TempDir
+    Path dir
+
+    static final AudioFormat STEREO = new AudioFormat(1000f, 16, 2, true, false)
+
+    private static byte[] stereo(int frames, Closure<Integer> left, Closure<Integer> right) {
+        def buffer = ByteBuffer.allocate(frames * 4).order(ByteOrder.LITTLE_ENDIAN)
+        for (int f = 0; f < frames; f++) {
+            buffer.putShort(f * 4, left(f) as short)
+            buffer.putShort(f * 4 + 2, right(f) as short)
+        }
+        buffer.array()
+    }
+
+    private File wav(byte[] samples) {
+        def file = dir.resolve('audio.wav').toFile()
+        def stream = new AudioInputStream(new ByteArrayInputStream(samples), STEREO, samples.length.intdiv(4))
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file)
+        file
+    }
+
+    def "the samples of a wav file are mapped without its header"() {
+        given:
+        def samples = stereo(2000, { f -> f }, { f -> -f })
+
+        when:
+        def store = PcmStore.open(wav(samples), STEREO)
+
+        then:
+        store.length() == samples.length
+        store.samples().getShort(0) == 0
+        store.samples().getShort(4 * 1500) == 1500
+        store.monoSampleAt(1500) == 0
+    }
+
+    def "ranges are views of the samples"() {
+        given:
+        def store = PcmStore.wrap(ByteBuffer.wrap(stereo(2000, { f -> f }, { f -> f })), STEREO)
+
+        when:
+        def range = store.range(100, 250)
+
+        then:
+        range.remaining() == 150 * 4
+        range.getShort(0) == 100
+        range.isReadOnly()
+        store.byteAt(-5) == 0
+        store.byteAt(5000) == store.length()
+    }
+
+    def "gain is applied while mixing, with clipping"() {
+        given:
+        def store = PcmStore.wrap(ByteBuffer.wrap(stereo(10, { 1000 }, { 20000 })), STEREO).withGain(2)
+        def out = stereo(10, { 100 }, { 20000 })
+
+        when:
+        int mixed = store.mixInto(8, out, 0, 100)
+        def result = ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN)
+
+        then:
+        mixed == 32
+        result.getShort(0) == 2100
+        result.getShort(2) == Short.MAX_VALUE
+        // beyond the samples the output is unchanged
+        result.getShort(32) == 100
+        store.monoSampleAt(0) == 21000
+    }
+
+    def "the rms ignores the gain"() {
+        given:
+        def store = PcmStore.wrap(ByteBuffer.wrap(stereo(100, { 300 }, { -300 })), STEREO)
+
+        expect:
+        store.rms() == 300d
+        store.withGain(3).rms() == 300d
+        store.withGain(3).getGain() == 3d
+    }
+}
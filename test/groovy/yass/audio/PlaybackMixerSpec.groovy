@@ -0,0 +1,111 @@
+package yass.audio
+
+import spock.lang.Specification
+
+import javax.sound.sampled.AudioFormat
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+class PlaybackMixerSpec extends Specification {
+    static final AudioFormat STEREO = new AudioFormat(1000f, 16, 2, true, false)
+
+    private static PcmStore constant(int frames, int value) {
+        def buffer = ByteBuffer.allocate(frames * 4).order(ByteOrder.LITTLE_ENDIAN)
+        for (int i = 0; i < frames * 2; i++) {
+            buffer.putShort(i * 2, value as short)
+        }
+        PcmStore.wrap(buffer, STEREO)
+    }
+
+    private static byte[] mono(int frames, int value) {
+        def buffer = ByteBuffer.allocate(frames * 2).order(ByteOrder.LITTLE_ENDIAN)
+        for (int i = 0; i < frames; i++) {
+            buffer.putShort(i * 2, value as short)
+        }
+        buffer.array()
+    }
+
+    private static ByteBuffer readAll(InputStream mixer, int blockSize) {
+        def out = new ByteArrayOutputStream()
+        def block = new byte[blockSize]
+        int n
+        while ((n = mixer.read(block, 0, block.length)) > 0) {
+            out.write(block, 0, n)
+        }
+        ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN)
+    }
+
+    def "voices are mixed into the song at their frames, whatever the block size"() {
+        given:
+        def voices = [new PlaybackMixer.Voice(mono(10, 300), 95, 10, false),
+                      new PlaybackMixer.Voice(mono(50, 40), 0, 3, false)]
+        def mixer = new PlaybackMixer(constant(1000, 100).reader(400), STEREO, 200 * 4, voices, 0)
+
+        when:
+        def out = readAll(mixer, blockSize)
+
+        then:
+        out.limit() == 800
+        out.getShort(0) == 140
+        out.getShort(2) == 140
+        out.getShort(3 * 4) == 100
+        out.getShort(94 * 4) == 100
+        out.getShort(95 * 4 + 2) == 400
+        out.getShort(104 * 4) == 400
+        out.getShort(105 * 4) == 100
+
+        where:
+        blockSize << [1, 3, 4, 6, 64, 4096]
+    }
+
+    def "the sum is clipped and the end is faded out"() {
+        given:
+        def voices = [new PlaybackMixer.Voice(mono(100, 30000), 0, 100, false)]
+        def mixer = new PlaybackMixer(constant(100, 30000).reader(0), STEREO, 100 * 4, voices, 10)
+
+        when:
+        def out = readAll(mixer, 256)
+
+        then:
+        out.getShort(0) == Short.MAX_VALUE
+        out.getShort(90 * 4) == Short.MAX_VALUE
+        out.getShort(95 * 4) == Math.round(Short.MAX_VALUE * 0.5)
+        Math.abs(out.getShort(99 * 4)) < Short.MAX_VALUE * 0.11
+    }
+
+    def "without a song only the voices are played"() {
+        given:
+        def voices = [new PlaybackMixer.Voice(mono(16, 1000), 2, 16, true)]
+        def mixer = new PlaybackMixer(null, STEREO, 20 * 4, voices, 0)
+
+        when:
+        def out = readAll(mixer, 4096)
+
+        then:
+        out.getShort(0) == 0
+        out.getShort(2 * 4) == 1000
+        // the last eighth of a piano note is faded
+        out.getShort(16 * 4) == 1000
+        out.getShort(17 * 4) == 500
+        out.getShort(18 * 4) == 0
+        mixer.read(new byte[4], 0, 4) == -1
+    }
+
+    def "clicks are resampled to the rate of the song"() {
+        given:
+        def buffer = ByteBuffer.allocate(441 * 2).order(ByteOrder.LITTLE_ENDIAN)
+        for (int i = 0; i < 441; i++) {
+            buffer.putShort(i * 2, (i * 10) as short)
+        }
+
+        when:
+        def out = ByteBuffer.wrap(PlaybackMixer.resample(buffer.array(), 44100f, 48000f)).order(ByteOrder.LITTLE_ENDIAN)
+
+        then:
+        out.limit() == 480 * 2
+        out.getShort(0) == 0
+        // frame 240 is at 220.5 of the source
+        out.getShort(240 * 2) == 2205
+        PlaybackMixer.resample(buffer.array(), 48000f, 48000f).is(buffer.array())
+    }
+}
@@ -0,0 +1,62 @@
+package yass.audio
+
+import spock.lang.Specification
+
+import javax.sound.sampled.AudioFormat
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+class TimeStretcherSpec extends Specification {
+    static final AudioFormat MONO = new AudioFormat(8000f, 16, 1, true, false)
+
+    private static PcmStore mono(int frames, Closure<Integer> sample) {
+        def buffer = ByteBuffer.allocate(frames * 2).order(ByteOrder.LITTLE_ENDIAN)
+        for (int f = 0; f < frames; f++) {
+            buffer.putShort(f * 2, sample(f) as short)
+        }
+        PcmStore.wrap(buffer, MONO)
+    }
+
+    private static short[] play(PcmSource source, int frames, int blockSize) {
+        def out = new byte[frames * 2]
+        for (int offset = 0; offset < out.length; offset += blockSize) {
+            source.mixNext(out, offset, Math.min(blockSize, out.length - offset))
+        }
+        def result = new short[frames]
+        ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(result)
+        result
+    }
+
+    private static int zeroCrossings(short[] s, int from, int to) {
+        (from + 1..<to).count { s[it - 1] < 0 && s[it] >= 0 } as int
+    }
+
+    def "at the original tempo the samples are reproduced"() {
+        given:
+        def random = new Random(7)
+        def store = mono(8000, { random.nextInt(20000) - 10000 })
+
+        when:
+        def out = play(new TimeStretcher(store, 2000, 1), 4000, 1000)
+
+        then:
+        (0..<4000).every { Math.abs(out[it] - store.samples().getShort((1000 + it) * 2)) <= 1 }
+    }
+
+    def "slowing down keeps the pitch and the level"() {
+        given:
+        def store = mono(16000, { f -> (int) (10000 * Math.sin(2 * Math.PI * 440 * f / 8000)) })
+
+        when:
+        def out = play(new TimeStretcher(store, 0, rate), 12000, 512)
+        def crossings = zeroCrossings(out, 2000, 10000)
+        def rms = Math.sqrt((2000..<10000).sum { (double) out[it] * out[it] } / 8000)
+
+        then:
+        Math.abs(crossings - 440) <= 10
+        Math.abs(rms - 10000 / Math.sqrt(2)) < 700
+
+        where:
+        rate << [0.5, 0.75, 0.3, 1.5]
+    }
+}
@@ -0,0 +1,113 @@
+package yass.audio
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.file.Path
+
+class WaveformPeaksSpec extends Specification {
+    @TempDir
+    Path dir
+
+    private static ByteBuffer stereo(int frames, Closure<Integer> left, Closure<Integer> right) {
+        def buffer = ByteBuffer.allocate(frames * 4).order(ByteOrder.LITTLE_ENDIAN)
+        for (int f = 0; f < frames; f++) {
+            buffer.putShort(f * 4, left(f) as short)
+            buffer.putShort(f * 4 + 2, right(f) as short)
+        }
+        buffer
+    }
+
+    private static List<Integer> bruteForce(ByteBuffer pcm, int from, int to) {
+        def values = (from..<to).collect { f -> (pcm.getShort(f * 4) + pcm.getShort(f * 4 + 2)).intdiv(2) as int }
+        [values.min(), values.max()]
+    }
+
+    def "peaks of long ranges match the samples"() {
+        given:
+        def pcm = stereo(40_000, { f -> (int) (20000 * Math.sin(f / 37.0) * (f / 40_000.0)) }, { 0 })
+        def peaks = WaveformPeaks.build(pcm, 2, 1000f)
+        def peak = new WaveformPeaks.Peak()
+
+        when:
+        peaks.peak(from, to, peak)
+        def expected = bruteForce(pcm, from as int, to as int)
+
+        then:
+        peaks.levels > 3
+        [peak.min, peak.max] == expected
+
+        where:
+        from   | to
+        0      | 40_000
+        12_345 | 27_890
+        30_000 | 39_000
+    }
+
+    def "short ranges are read from the samples"() {
+        given:
+        def pcm = stereo(10_000, { f -> f % 100 }, { f -> -(f % 50) })
+        def peaks = WaveformPeaks.build(pcm, 2, 1000f)
+        def peak = new WaveformPeaks.Peak()
+
+        when:
+        peaks.peak(1010, 1020, peak)
+
+        then:
+        [peak.min, peak.max] == bruteForce(pcm, 1010, 1020)
+    }
+
+    def "the rms of a constant signal is its level"() {
+        given:
+        def peaks = WaveformPeaks.build(stereo(50_000, { 1000 }, { 1000 }), 2, 44100f)
+        def peak = new WaveformPeaks.Peak()
+
+        when:
+        peaks.peak(0, 1000, peak)
+
+        then:
+        Math.abs(peak.rms - 1000) < 1
+        peak.amplitude() == 1000
+    }
+
+    def "ranges outside the audio are silent"() {
+        given:
+        def peaks = WaveformPeaks.build(stereo(1000, { 500 }, { 500 }), 2, 1000f)
+        def peak = new WaveformPeaks.Peak()
+
+        expect:
+        !peaks.peak(5000, 6000, peak)
+        peak.amplitude() == 0
+    }
+
+    def "a stored pyramid is loaded only with the same key"() {
+        given:
+        def pcm = stereo(30_000, { f -> (int) (10000 * Math.sin(f / 11.0)) }, { f -> f % 1000 })
+        def peaks = WaveformPeaks.build(pcm, 2, 44100f)
+        def file = dir.resolve('audio.wav.peaks').toFile()
+        def a = new WaveformPeaks.Peak()
+        def b = new WaveformPeaks.Peak()
+
+        when:
+        peaks.store(file, 42L)
+        def loaded = WaveformPeaks.load(file, 42L)
+        peaks.peak(100, 500, a)
+        loaded.peak(100, 500, b)
+
+        then:
+        WaveformPeaks.load(file, 43L) == null
+        loaded.frames == peaks.frames
+        // without samples the ends are rounded to whole buckets
+        b.min <= a.min
+        b.max >= a.max
+
+        when:
+        loaded.attach(pcm, 2)
+        loaded.peak(100, 500, b)
+
+        then:
+        [b.min, b.max, b.rms] == [a.min, a.max, a.rms]
+    }
+}
@@ -0,0 +1,76 @@
+package yass.filter
+
+import spock.lang.Specification
+import yass.YassSong
+
+class FacetCounterSpec extends Specification {
+
+    private static YassSong song(String genre, String year) {
+        def s = new YassSong('/songs/x', 'x', 'song.txt', 'Artist', 'Title')
+        s.setGenre(genre)
+        s.setYear(year)
+        s
+    }
+
+    private static <T extends YassFilter> T filter(Class<T> type, String rule) {
+        def f = type.getDeclaredConstructor().newInstance()
+        f.setRule(rule)
+        f
+    }
+
+    private static int slowCount(YassFilter f, List<YassSong> songs) {
+        songs.count { f.accept(it) } as int
+    }
+
+    def "counters match accepting every song"() {
+        given:
+        def songs = [song('Rock', '1985'), song('Rock', '1999'), song('Pop', '01999'), song('', 'soon'),
+                     song(null, null), song('Pop', '2004')]
+        def genres = new FacetCounter(new YassGenreFilter())
+        def years = new FacetCounter(new YassYearFilter())
+        songs.each {
+            genres.add(it)
+            years.add(it)
+        }
+
+        expect:
+        ['all', 'unspecified', 'Rock', 'Pop', 'Jazz'].every {
+            def f = filter(YassGenreFilter, it)
+            genres.count(f) == slowCount(f, songs)
+        }
+        ['all', 'unspecified', '1999', '1980-1989', '1990-', '-1990', '2004'].every {
+            def f = filter(YassYearFilter, it)
+            years.count(f) == slowCount(f, songs)
+        }
+        genres.count(filter(YassGenreFilter, 'Rock')) == 2
+        years.count(filter(YassYearFilter, '1999')) == 2
+        years.count(filter(YassYearFilter, 'unspecified')) == 2
+    }
+
+    def "changed songs move to their new facet"() {
+        given:
+        def rock = song('Rock', '1985')
+        def pop = song('Pop', '1985')
+        def genres = new FacetCounter(new YassGenreFilter())
+        genres.add(rock)
+        genres.add(pop)
+
+        when:
+        pop.setGenre('Rock')
+        genres.add(pop)
+
+        then:
+        genres.size() == 2
+        genres.count(filter(YassGenreFilter, 'Rock')) == 2
+        genres.count(filter(YassGenreFilter, 'Pop')) == 0
+
+        when:
+        genres.remove(rock)
+        genres.remove(rock)
+
+        then:
+        genres.size() == 1
+        genres.count(filter(YassGenreFilter, 'Rock')) == 1
+        genres.count(filter(YassGenreFilter, 'all')) == 1
+    }
+}
@@ -0,0 +1,83 @@
+package yass.library
+
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class LibraryFilterSpec extends Specification {
+    @AutoCleanup
+    LibraryFilter filter = new LibraryFilter(4, null)
+
+    def "select keeps the original order across chunks"() {
+        given:
+        def items = (0..<5000).toList()
+        def generation = filter.submit({}, 0)
+
+        when:
+        def result = filter.select(items, { it % 3 == 0 }, generation, null)
+
+        then:
+        result == items.findAll { it % 3 == 0 }
+    }
+
+    def "select gives up when the generation is stale"() {
+        given:
+        def items = (0..<5000).toList()
+        def generation = filter.submit({}, 0)
+        filter.submit({}, 0)
+
+        expect:
+        filter.select(items, { true }, generation, null) == null
+        LibraryFilter.selectSequentially(items, { true }, generation, null) == null
+    }
+
+    def "only the last of several quick submissions runs"() {
+        given:
+        def runs = new CopyOnWriteArrayList<String>()
+        def done = new CountDownLatch(1)
+
+        when:
+        ['a', 'ab', 'abc'].each { term ->
+            filter.submit({ g ->
+                runs << term
+                done.countDown()
+            }, 100)
+        }
+
+        then:
+        done.await(5, TimeUnit.SECONDS)
+        filter.await()
+        runs == ['abc']
+    }
+
+    def "a running filter sees its cancellation and await returns once it stopped"() {
+        given:
+        def started = new CountDownLatch(1)
+        def stopped = false
+        def cancelled = 0
+        def f = new LibraryFilter(2, { cancelled++ })
+        f.submit({ g ->
+            started.countDown()
+            while (!g.isCancelled()) {
+                Thread.sleep(5)
+            }
+            stopped = true
+        }, 0)
+
+        when:
+        started.await(5, TimeUnit.SECONDS)
+        f.cancel()
+        f.await()
+
+        then:
+        stopped
+        cancelled == 2
+        !f.isBusy()
+
+        cleanup:
+        f.close()
+    }
+}
@@ -0,0 +1,68 @@
+package yass.library
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Path
+
+class LibraryManifestSpec extends Specification {
+    @TempDir
+    Path root
+
+    def "diff reports added, changed, removed and touched files"() {
+        given:
+        def kept = song('kept.txt', 'A')
+        def edited = song('edited.txt', 'B')
+        def touched = song('touched.txt', 'C')
+        def deleted = song('deleted.txt', 'D')
+        def manifest = LibraryManifest.build(root.toString(), [kept, edited, touched, deleted], null)
+
+        when:
+        edited.text = 'B changed'
+        touched.setLastModified(touched.lastModified() - 10000)
+        deleted.delete()
+        def added = song('added.txt', 'E')
+        def diff = manifest.diff([kept, edited, touched, added])
+
+        then:
+        diff.added() == [added]
+        diff.changed() == [edited]
+        diff.removed() == [deleted.absolutePath]
+        diff.touched().keySet() == [touched.absolutePath] as Set
+        diff.touched()[touched.absolutePath].lastModified() == touched.lastModified()
+        manifest.isUnchanged(kept)
+        !manifest.isUnchanged(touched)
+    }
+
+    def "manifest survives a store and load round trip"() {
+        given:
+        def files = [song('a.txt', 'A'), song('b.txt', 'B')]
+        def manifest = LibraryManifest.build(root.toString(), files, null)
+        def file = root.resolve('cache/manifest.txt').toFile()
+
+        when:
+        manifest.store(file)
+        def loaded = LibraryManifest.load(file, root.toString())
+
+        then:
+        loaded.size() == 2
+        files.every { loaded.get(it.absolutePath) == manifest.get(it.absolutePath) }
+        loaded.diff(files).isEmpty()
+    }
+
+    def "manifest of another song directory is ignored"() {
+        given:
+        def file = root.resolve('manifest.txt').toFile()
+        new LibraryManifest(root.toString()).store(file)
+
+        expect:
+        LibraryManifest.load(file, root.resolve('other').toString()) == null
+        LibraryManifest.load(root.resolve('missing.txt').toFile(), root.toString()) == null
+    }
+
+    private File song(String name, String text) {
+        def file = root.resolve(name).toFile()
+        file.text = text
+        file
+    }
+}
@@ -0,0 +1,56 @@
+package yass.library
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+
+class LibraryScannerSpec extends Specification {
+    @TempDir
+    Path root
+
+    def "collect returns songs in directory order with the parent folder name"() {
+        given:
+        ['B Artist/Song 2', 'A Artist/Song 1', 'A Artist/Song 3'].each { dir ->
+            def songDir = root.resolve(dir).toFile()
+            songDir.mkdirs()
+            new File(songDir, 'song.txt').text = '#TITLE:x'
+        }
+        new File(root.toFile(), 'list.upl').text = ''
+        def scanner = new LibraryScanner(4, null)
+
+        when:
+        def result = scanner.collect(root.toFile(), { it.name.endsWith('.txt') }, { it.name.endsWith('.upl') })
+
+        then:
+        result.songs()*.file()*.parentFile*.name == ['Song 1', 'Song 3', 'Song 2']
+        result.songs()*.folder() == ['A Artist', 'A Artist', 'B Artist']
+        result.playlists()*.name == ['list.upl']
+
+        cleanup:
+        scanner?.close()
+    }
+
+    def "process gives every worker thread its own parser"() {
+        given:
+        def scanner = new LibraryScanner(4, null)
+        def parsersByThread = new ConcurrentHashMap<Thread, Set<Object>>()
+        def progress = []
+
+        when:
+        int done = scanner.process((1..500).toList(), { new Object() }, { item, parser ->
+            parsersByThread.computeIfAbsent(Thread.currentThread(), { ConcurrentHashMap.newKeySet() }).add(parser)
+            true
+        }, { n -> progress << n })
+
+        then:
+        done == 500
+        parsersByThread.values().every { it.size() == 1 }
+        progress.last() == 500
+        progress.size() < 500
+
+        cleanup:
+        scanner?.close()
+    }
+}
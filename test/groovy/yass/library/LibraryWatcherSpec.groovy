@@ -0,0 +1,80 @@
+package yass.library
+
+import spock.lang.Specification
+import spock.lang.TempDir
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Path
+import java.util.concurrent.CopyOnWriteArrayList
+
+class LibraryWatcherSpec extends Specification {
+    @TempDir
+    Path root
+
+    def "pending changes keep the last event per file"() {
+        given:
+        def pending = new LibraryWatcher.PendingChanges()
+        def a = new File('/songs/A/a.txt')
+        def b = new File('/songs/B/b.txt')
+
+        when:
+        pending.update(a)
+        pending.remove(a)
+        pending.remove(b)
+        pending.update(b)
+        def changes = pending.drain()
+
+        then:
+        changes.updated() == [b] as Set
+        changes.removed() == [a] as Set
+        changes.rescan().isEmpty()
+        pending.drain().isEmpty()
+    }
+
+    def "a rescanned folder absorbs the events below it"() {
+        given:
+        def pending = new LibraryWatcher.PendingChanges()
+
+        when:
+        pending.update(new File('/songs/A/Song/a.txt'))
+        pending.rescan(new File('/songs/A/Song'))
+        pending.rescan(new File('/songs/A'))
+        pending.remove(new File('/songs/A/Other/b.txt'))
+        pending.update(new File('/songs/B/c.txt'))
+        def changes = pending.drain()
+
+        then:
+        changes.rescan() == [new File('/songs/A')] as Set
+        changes.updated() == [new File('/songs/B/c.txt')] as Set
+        changes.removed().isEmpty()
+    }
+
+    def "changes on disk are delivered in one batch"() {
+        given:
+        def songDir = root.resolve('Artist - Title').toFile()
+        songDir.mkdirs()
+        def batches = new CopyOnWriteArrayList<LibraryWatcher.Changes>()
+        def watcher = new LibraryWatcher(root, { it.fileName.toString().endsWith('.txt') }, 200, {
+            batches << it
+            true
+        })
+        watcher.start()
+        def conditions = new PollingConditions(timeout: 10)
+        sleep(500)
+
+        when:
+        def song = new File(songDir, 'song.txt')
+        song.text = '#TITLE:Title'
+        song.append('\n#ARTIST:Artist')
+        new File(songDir, 'cover.jpg').text = ''
+
+        then:
+        conditions.eventually {
+            assert batches.size() == 1
+            assert batches[0].updated() == [song.absoluteFile] as Set
+        }
+
+        cleanup:
+        watcher?.close()
+    }
+}
@@ -0,0 +1,111 @@
+package yass.library
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Path
+
+class SearchIndexSpec extends Specification {
+    @TempDir
+    Path root
+
+    def index = new SearchIndex()
+
+    def setup() {
+        index.update('/songs/a.txt', 1L, 'Yesterday', 'The Beatles', 'Oldies', 'Yesterday all my troubles seemed so far away')
+        index.update('/songs/b.txt', 2L, 'Don’t Stop Me Now', 'Queen', '', "Tonight I'm gonna have myself a real good time")
+        index.update('/songs/c.txt', 3L, 'Café', 'Artist', 'Duet, Rock', 'So far so good')
+    }
+
+    def "words and word prefixes are found in all fields"() {
+        expect:
+        index.search(query) == expected as Set
+
+        where:
+        query          || expected
+        'troubles'     || ['/songs/a.txt']
+        'troub'        || ['/songs/a.txt']
+        'queen'        || ['/songs/b.txt']
+        'cafe'         || ['/songs/c.txt']
+        'dont stop'    || ['/songs/b.txt']
+        "don't"        || ['/songs/b.txt']
+        'rock'         || ['/songs/c.txt']
+        'so far'       || ['/songs/a.txt', '/songs/c.txt']
+        'far so'       || ['/songs/c.txt']
+        'far away'     || ['/songs/a.txt']
+        'away far'     || []
+        'ouble'        || []
+        '  '           || []
+    }
+
+    def "songs can be replaced and removed"() {
+        when:
+        index.update('/songs/a.txt', 5L, 'Tomorrow', 'The Beatles', '', 'no more troubles')
+        index.remove('/songs/c.txt')
+
+        then:
+        index.search('yesterday').isEmpty()
+        index.search('troubles') == ['/songs/a.txt'] as Set
+        index.search('cafe').isEmpty()
+        index.isCurrent('/songs/a.txt', 5L)
+        !index.isCurrent('/songs/a.txt', 1L)
+        index.size() == 2
+    }
+
+    def "index survives a store and load round trip"() {
+        given:
+        def file = root.resolve('index.bin').toFile()
+        index.remove('/songs/b.txt')
+
+        when:
+        index.store(file)
+        def loaded = SearchIndex.load(file)
+
+        then:
+        !index.isDirty()
+        loaded.size() == 2
+        loaded.search('so far') == ['/songs/a.txt', '/songs/c.txt'] as Set
+        loaded.search('queen').isEmpty()
+        loaded.isCurrent('/songs/c.txt', 3L)
+
+        when:
+        loaded.update('/songs/d.txt', 4L, 'New', 'Singer', '', 'brand new troubles')
+
+        then:
+        loaded.search('troubles') == ['/songs/a.txt', '/songs/d.txt'] as Set
+    }
+
+    def "retainAll drops songs that are gone"() {
+        when:
+        index.retainAll(['/songs/b.txt'])
+
+        then:
+        index.size() == 1
+        index.search('so').isEmpty()
+    }
+
+    def "words sung over several notes are found as a whole"() {
+        given:
+        def file = root.resolve('song.txt').toFile()
+        file.text = '''#TITLE:Title
+#ARTIST:Artist
+: 0 2 5 Hel
+: 2 2 5 lo
+: 4 2 5  wor
+: 6 2 5 ld
+- 8
+: 10 2 5 a
+: 12 2 5 -gain
+E'''
+        def lyrics = new SongSummaryParser().parse(file, true).getLyrics()
+
+        when:
+        index.update('/songs/x.txt', 1L, 'Title', 'Artist', '', lyrics)
+
+        then:
+        index.search('hello') == ['/songs/x.txt'] as Set
+        index.search('hello world') == ['/songs/x.txt'] as Set
+        index.search('world again') == ['/songs/x.txt'] as Set
+        index.search('lo wor').isEmpty()
+    }
+}
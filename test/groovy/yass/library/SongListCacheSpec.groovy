@@ -0,0 +1,74 @@
+package yass.library
+
+import spock.lang.Specification
+import spock.lang.TempDir
+import yass.YassSong
+
+import java.nio.file.Path
+
+class SongListCacheSpec extends Specification {
+    @TempDir
+    Path root
+
+    def "songs survive a round trip with lazily decoded columns"() {
+        given:
+        def song = new YassSong('/songs/A - B', 'Rock', 'song.txt', 'Artist', 'Title')
+        song.setGenre('Pop')
+        song.setLanguage('German')
+        song.setGap('1234')
+        song.setVideo('video.mp4')
+        song.setProvidedBy('Ünïcode')
+        song.setTimestamp(42L)
+        song.setUsdbSongId(7)
+        def file = root.resolve('songlist.bin').toFile()
+
+        when:
+        SongListCache.store(file, [song, new YassSong('/songs/C - D', 'Rock', 'other.txt', 'Artist', 'Other')])
+        def cache = SongListCache.open(file, map)
+        def songs = cache.songs()
+
+        then:
+        songs.size() == 2
+        songs[0].getArtist() == 'Artist'
+        songs[0].getGenre() == 'Pop'
+        songs[0].getTimestamp() == 42L
+        songs[0].getUsdbSongId() == 7
+        songs[0].getGap() == '1234'
+        songs[0].getVideo() == 'video.mp4'
+        songs[0].getProvidedBy() == 'Ünïcode'
+        songs[0].toString() == song.toString()
+        songs[1].getTitle() == 'Other'
+        songs[0].getArtist().is(songs[1].getArtist())
+        songs[0].getFolder().is(songs[1].getFolder())
+
+        where:
+        map << [false, true]
+    }
+
+    def "setting a lazy column keeps the other lazy columns"() {
+        given:
+        def song = new YassSong('/songs/A - B', 'Rock', 'song.txt', 'Artist', 'Title')
+        song.setGap('1234')
+        song.setBPM('300')
+        def file = root.resolve('songlist.bin').toFile()
+        SongListCache.store(file, [song])
+        def cached = SongListCache.open(file, false).songs()[0]
+
+        when:
+        cached.setGap('99')
+
+        then:
+        cached.getGap() == '99'
+        cached.getBPM() == '300'
+    }
+
+    def "invalid files are ignored"() {
+        given:
+        def file = root.resolve('songlist.bin').toFile()
+        file.text = 'not a cache'
+
+        expect:
+        SongListCache.open(file, false) == null
+        SongListCache.open(root.resolve('missing.bin').toFile(), false) == null
+    }
+}
@@ -0,0 +1,84 @@
+package yass.library
+
+import spock.lang.Specification
+import spock.lang.TempDir
+import yass.YassRow
+
+import java.nio.file.Path
+
+class SongSummaryParserSpec extends Specification {
+    @TempDir
+    Path root
+
+    def parser = new SongSummaryParser()
+
+    def "header tags and note summary are read in one pass"() {
+        given:
+        def file = song('''#TITLE:Title
+#ARTIST:Artist
+#title:Ignored duplicate
+#BPM:300,5
+#GAP:1000
+#LANGUAGE:English
+: 0 2 5 Hel
+: 2 2 5 lo
+* 4 2 5  world
+- 8
+F 10 2 0 again
+E''')
+
+        when:
+        def summary = parser.parse(file, true)
+
+        then:
+        summary.isLoadable()
+        summary.hasValidHeader()
+        summary.getHeader('TITLE:') == 'Title'
+        summary.getHeader('ARTIST:') == 'Artist'
+        summary.getHeader('BPM:') == '300.5'
+        summary.getHeader('LANGUAGE:') == 'English'
+        summary.getHeader('VIDEO:') == ''
+        summary.getNoteCount() == 4
+        summary.getGoldenCount() == 1
+        summary.getPageCount() == 1
+        summary.getPlayerCount() == 1
+        summary.getDuetSingerNames() == ''
+        summary.getLyrics() == "Hel-lo world\nagain"
+    }
+
+    def "duets report their singers"() {
+        given:
+        def file = song('''#TITLE:Title
+#ARTIST:Artist
+#P1:Alice
+#P2:Bob
+P1
+: 0 2 5 a
+P2
+: 4 2 5 b
+E''')
+
+        when:
+        def summary = parser.parse(file, false)
+
+        then:
+        summary.isDuet()
+        summary.getPlayerCount() == 2
+        summary.getDuetSingerNames() == 'Alice/Bob'
+        summary.getLyrics() == null
+    }
+
+    def "files the editor cannot load are recognized"() {
+        expect:
+        !parser.parse(song('#TITLE:Title\n: 0 1 1 a'), false).isLoadable()
+        !parser.parse(song('#TITLE:T\n#ARTIST:A\n#BPM:fast'), false).isLoadable()
+        !parser.parse(song('some text\n#TITLE:T\n#ARTIST:A'), false).hasValidHeader()
+        !parser.parse(song('#UNKNOWN:x\n: 0 1 1 a'), false).hasValidHeader()
+    }
+
+    private File song(String text) {
+        def file = File.createTempFile('song', '.txt', root.toFile())
+        file.setText(text, 'UTF-8')
+        file
+    }
+}
@@ -0,0 +1,89 @@
+package yass.library
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Path
+
+class StatsCacheSpec extends Specification {
+    @TempDir
+    Path root
+
+    static final String[] IDS = ['pages', 'notes', 'speed'] as String[]
+
+    def "values are found for the modification time they were computed for"() {
+        given:
+        def cache = new StatsCache(IDS)
+
+        when:
+        cache.put('/songs/a.txt', 10L, [3f, 120f, 2.5f] as float[])
+
+        then:
+        cache.get('/songs/a.txt', 10L) == [3f, 120f, 2.5f] as float[]
+        cache.get('/songs/a.txt', 11L) == null
+        cache.get('/songs/b.txt', 10L) == null
+        cache.dirty
+    }
+
+    def "values of another length are not cached"() {
+        given:
+        def cache = new StatsCache(IDS)
+
+        when:
+        cache.put('/songs/a.txt', 10L, [3f] as float[])
+        cache.put('/songs/b.txt', 10L, null)
+
+        then:
+        cache.size() == 0
+        !cache.dirty
+    }
+
+    def "returned values are copies"() {
+        given:
+        def cache = new StatsCache(IDS)
+        float[] values = [1f, 2f, 3f]
+        cache.put('/songs/a.txt', 1L, values)
+
+        when:
+        values[0] = 9f
+        cache.get('/songs/a.txt', 1L)[1] = 9f
+
+        then:
+        cache.get('/songs/a.txt', 1L) == [1f, 2f, 3f] as float[]
+    }
+
+    def "a stored cache is loaded for the same statistics only"() {
+        given:
+        def cache = new StatsCache(IDS)
+        cache.put('/songs/a.txt', 10L, [3f, 120f, 2.5f] as float[])
+        cache.put('/songs/b.txt', 20L, [1f, 40f, -1f] as float[])
+        def file = root.resolve('stats-cache.bin').toFile()
+
+        when:
+        def stored = cache.store(file)
+        def loaded = StatsCache.load(file, IDS)
+
+        then:
+        stored
+        !cache.dirty
+        loaded.size() == 2
+        loaded.get('/songs/b.txt', 20L) == [1f, 40f, -1f] as float[]
+        !loaded.dirty
+        StatsCache.load(file, ['pages', 'notes'] as String[]).size() == 0
+        StatsCache.load(root.resolve('missing.bin').toFile(), IDS).size() == 0
+    }
+
+    def "songs that left the library are dropped"() {
+        given:
+        def cache = new StatsCache(IDS)
+        cache.put('/songs/a.txt', 1L, [1f, 2f, 3f] as float[])
+        cache.put('/songs/b.txt', 1L, [1f, 2f, 3f] as float[])
+
+        when:
+        cache.retainAll(['/songs/b.txt'])
+
+        then:
+        cache.size() == 1
+        cache.get('/songs/a.txt', 1L) == null
+    }
+}